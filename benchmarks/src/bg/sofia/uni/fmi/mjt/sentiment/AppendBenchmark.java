@@ -0,0 +1,45 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends reviews to a freshly trained analyzer, with and without the ranking index.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AppendBenchmark {
+
+    @Param({"false", "true"})
+    public boolean rankingIndex;
+
+    private MovieReviewSentimentAnalyzer analyzer;
+    private int position;
+
+    @Setup(Level.Iteration)
+    public void setUp(CorpusState corpus) {
+        analyzer = corpus.newAnalyzer(AnalyzerOptions.defaults().withRankingIndex(rankingIndex));
+    }
+
+    @Benchmark
+    public boolean appendReview(CorpusState corpus) {
+        return analyzer.appendReview(CorpusState.next(corpus.queryReviews, position), position++ % 5);
+    }
+
+}
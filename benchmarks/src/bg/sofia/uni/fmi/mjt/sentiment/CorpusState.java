@@ -0,0 +1,128 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * A synthetic corpus of the configured size and skew, shared by all threads of a benchmark,
+ * with an analyzer trained on it and queries drawn from the same distribution.
+ */
+@State(Scope.Benchmark)
+public class CorpusState {
+
+    private static final long SEED = 42;
+    private static final int QUERIES_COUNT = 4096;
+    private static final int STOPWORDS_COUNT = 100;
+    private static final double FREQUENCY_ERROR = 1e-4;
+    private static final int HEAVY_HITTERS_COUNT = 1000;
+    private static final int MAX_PHRASES = 1 << 24;
+
+    @Param({"10000", "100000"})
+    public int reviewsCount;
+
+    @Param({"50000"})
+    public int vocabularySize;
+
+    @Param({"1.0"})
+    public double zipfExponent;
+
+    @Param({"0.4"})
+    public double stopwordDensity;
+
+    // -p metrics=true measures the overhead of recording into a MetricsRegistry
+    @Param({"false"})
+    public boolean metrics;
+
+    // -p approximateFrequencies=true estimates the frequencies of a heap or frozen analyzer in fixed memory
+    @Param({"false"})
+    public boolean approximateFrequencies;
+
+    // -p maxNGram=2 and -p negationScope=3 rate bigrams and negated words next to the words of a heap analyzer
+    @Param({"1"})
+    public int maxNGram;
+
+    @Param({"0"})
+    public int negationScope;
+
+    // -p backend=offheap or -p backend=frozen queries an OffHeapSentimentAnalyzer or a FrozenSentimentAnalyzer
+    @Param({"heap"})
+    public String backend;
+
+    String stopwords;
+    String reviews;
+    String[] queryReviews;
+    String[] queryWords;
+    BatchSentimentAnalyzer analyzer;
+
+    @Setup
+    public void setUp() {
+
+        CorpusGenerator generator = CorpusGenerator.defaults()
+                .withVocabulary(vocabularySize, zipfExponent)
+                .withStopwords(STOPWORDS_COUNT, stopwordDensity)
+                .withSeed(SEED);
+
+        StringWriter stopwordsOut = new StringWriter();
+        StringWriter reviewsOut = new StringWriter();
+        try {
+            generator.writeStopwords(stopwordsOut);
+            generator.withReviewsCount(reviewsCount).writeReviews(reviewsOut);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        stopwords = stopwordsOut.toString();
+        reviews = reviewsOut.toString();
+
+        // the queries come from the same distribution as the corpus, but are not part of it
+        List<LabeledReview> queries = generator.withSeed(SEED + 1).withReviewsCount(QUERIES_COUNT).reviews().toList();
+        queryReviews = new String[QUERIES_COUNT];
+        queryWords = new String[QUERIES_COUNT];
+        for (int i = 0; i < QUERIES_COUNT; i++) {
+            queryReviews[i] = queries.get(i).review();
+            String[] words = queryReviews[i].split("[ ,.]+");
+            queryWords[i] = words[i % words.length];
+        }
+
+        AnalyzerOptions options = metrics ? AnalyzerOptions.defaults().withMetrics(new MetricsRegistry())
+                : AnalyzerOptions.defaults();
+        if (approximateFrequencies) {
+            options = options.withApproximateFrequencies(FREQUENCY_ERROR, HEAVY_HITTERS_COUNT);
+        }
+        options = withPhrases(options);
+        analyzer = switch (backend) {
+            case "offheap" -> new OffHeapSentimentAnalyzer(new StringReader(stopwords), new StringReader(reviews),
+                    new StringWriter(), options);
+            case "frozen" -> newAnalyzer(options).freeze();
+            default -> newAnalyzer(options);
+        };
+
+    }
+
+    /**
+     * @return the options with the phrases of the parameters, if any
+     */
+    AnalyzerOptions withPhrases(AnalyzerOptions options) {
+        return maxNGram > 1 || negationScope > 0 ? options.withPhrases(maxNGram, negationScope, MAX_PHRASES) : options;
+    }
+
+    MovieReviewSentimentAnalyzer newAnalyzer(AnalyzerOptions options) {
+        return new MovieReviewSentimentAnalyzer(new StringReader(stopwords), new StringReader(reviews),
+                new StringWriter(), options);
+    }
+
+    /**
+     * @return the query at the given position, cycling through all of them
+     */
+    static String next(String[] queries, int position) {
+        return queries[position & (QUERIES_COUNT - 1)];
+    }
+
+}
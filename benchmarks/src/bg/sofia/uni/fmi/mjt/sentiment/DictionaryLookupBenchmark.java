@@ -0,0 +1,82 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looks up the score of a word in a {@code HashMap<String, Double>}, in the open-addressing dictionary
+ * of a trained model and in the minimal perfect hash of a frozen one, without the argument handling
+ * of the analyzers. The words are looked up as a review scorer does, from the buffer of the tokenizer,
+ * so the hash map needs a string made of it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DictionaryLookupBenchmark {
+
+    private Map<String, Double> hashMap;
+    private SentimentModel model;
+    private FrozenDictionary frozen;
+    private final char[] buffer = new char[64];
+    private int position;
+
+    @Setup
+    public void setUp(CorpusState corpus) {
+
+        model = AbstractSentimentAnalyzer.readModel(new BufferedReader(new StringReader(corpus.reviews)),
+                AbstractSentimentAnalyzer.readStopwords(new BufferedReader(
+                        new StringReader(corpus.stopwords))), AnalyzerOptions.defaults());
+        frozen = FrozenDictionary.of(model);
+
+        hashMap = new HashMap<>();
+        for (int id = 0; id < model.size(); id++) {
+            hashMap.put(model.getWord(id), model.getScore(id));
+        }
+
+    }
+
+    @Benchmark
+    public Double hashMap(CorpusState corpus) {
+        int length = nextWord(corpus);
+        return hashMap.get(new String(buffer, 0, length));
+    }
+
+    @Benchmark
+    public double model(CorpusState corpus) {
+        int id = model.find(buffer, nextWord(corpus));
+        return id != Vocabulary.NOT_FOUND ? model.getScore(id) : RatingType.UNKNOWN.getRatingNumber();
+    }
+
+    @Benchmark
+    public double frozen(CorpusState corpus) {
+        int id = frozen.find(buffer, nextWord(corpus));
+        return id != Vocabulary.NOT_FOUND ? frozen.getScore(id) : RatingType.UNKNOWN.getRatingNumber();
+    }
+
+    /**
+     * @return the length of the next query word, copied to the buffer
+     */
+    private int nextWord(CorpusState corpus) {
+        String word = CorpusState.next(corpus.queryWords, position++);
+        word.getChars(0, word.length(), buffer, 0);
+        return word.length();
+    }
+
+}
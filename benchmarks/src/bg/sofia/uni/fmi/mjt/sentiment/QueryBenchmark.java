@@ -0,0 +1,58 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queries an analyzer trained on the corpus, reporting the throughput and the latency percentiles.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBenchmark {
+
+    @Param({"10", "1000"})
+    public int topN;
+
+    private int position;
+
+    @Benchmark
+    public double getReviewSentiment(CorpusState corpus) {
+        return corpus.analyzer.getReviewSentiment(CorpusState.next(corpus.queryReviews, position++));
+    }
+
+    @Benchmark
+    public double getWordSentiment(CorpusState corpus) {
+        return corpus.analyzer.getWordSentiment(CorpusState.next(corpus.queryWords, position++));
+    }
+
+    @Benchmark
+    public List<String> getMostFrequentWords(CorpusState corpus) {
+        return corpus.analyzer.getMostFrequentWords(topN);
+    }
+
+    @Benchmark
+    public List<String> getMostPositiveWords(CorpusState corpus) {
+        return corpus.analyzer.getMostPositiveWords(topN);
+    }
+
+    @Benchmark
+    public List<String> getMostNegativeWords(CorpusState corpus) {
+        return corpus.analyzer.getMostNegativeWords(topN);
+    }
+
+}
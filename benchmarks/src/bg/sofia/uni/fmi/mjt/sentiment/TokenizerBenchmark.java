@@ -0,0 +1,78 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the character-scanning {@link Tokenizer} with the regex based splitting it replaced.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TokenizerBenchmark {
+
+    private static final String SPLIT_REGEX = "[^a-zA-Z0-9']";
+    private static final int REVIEWS_COUNT = 1024;
+    private static final int WORDS_PER_REVIEW = 25;
+    private static final String[] SAMPLE_WORDS = {
+        "movie", "The", "plot", "isn't", "GOOD", ",", "thrilling", "a", "dull", "Sincere", ".", "2002",
+        "performance", "self-glorification", "comedy-drama", "it's", "!", "unamusing", "Shakespearean", "--"
+    };
+
+    private final Tokenizer tokenizer = new Tokenizer();
+    private String[] reviews;
+    private int position;
+
+    @Setup
+    public void setUp() {
+
+        Random random = new Random(REVIEWS_COUNT);
+        reviews = new String[REVIEWS_COUNT];
+
+        for (int i = 0; i < reviews.length; i++) {
+            StringBuilder review = new StringBuilder().append(random.nextInt(5));
+            for (int j = 0; j < WORDS_PER_REVIEW; j++) {
+                review.append(' ').append(SAMPLE_WORDS[random.nextInt(SAMPLE_WORDS.length)]);
+            }
+            reviews[i] = review.toString();
+        }
+
+    }
+
+    @Benchmark
+    public void regexSplit(Blackhole blackhole) {
+        List<String> words = Arrays.stream(nextReview().strip().split(SPLIT_REGEX))
+                .filter(string -> string.length() >= Tokenizer.MIN_WORD_SIZE)
+                .toList();
+        for (String word : words) {
+            blackhole.consume(word.toLowerCase().strip());
+        }
+    }
+
+    @Benchmark
+    public void tokenizer(Blackhole blackhole) {
+        tokenizer.tokenize(nextReview(), (buffer, length) -> blackhole.consume(length));
+    }
+
+    private String nextReview() {
+        return reviews[position++ & (REVIEWS_COUNT - 1)];
+    }
+
+}
@@ -0,0 +1,408 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The argument validation, the rating names, the batched appends and the corpus loading
+ * shared by the analyzers.
+ */
+abstract class AbstractSentimentAnalyzer implements BatchSentimentAnalyzer {
+
+    final static String WORD_ARGUMENT = "Word";
+    final static String REVIEW_ARGUMENT = "Review";
+
+    private static final int SEQUENTIAL = 1;
+    // a smaller chunk is scored faster on the calling thread than handed to another one
+    private static final int MIN_SCORE_CHUNK_SIZE = 1024;
+    // more chunks than threads, so that a thread that finishes early takes over the rest
+    private static final int SCORE_CHUNKS_PER_THREAD = 4;
+
+    // the pool of the batches that need more threads than the common pool has, created by the first of them;
+    // its idle threads exit on their own, so it is never shut down while in use
+    private final Object scorePoolLock = new Object();
+    private volatile ForkJoinPool scorePool;
+
+    public void validateStringArgument(String string, String argName) {
+        if (string == null || string.isBlank()) {
+            throw new IllegalArgumentException(argName + " cannot be null, blank or empty");
+        }
+    }
+
+    public void validateIntegerArgument(int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("The number of words must be non-negative");
+        }
+    }
+
+    void validateSentimentArgument(int sentiment) {
+        if (sentiment < RatingType.NEGATIVE.getRatingNumber() ||
+                sentiment > RatingType.POSITIVE.getRatingNumber()) {
+            throw new IllegalArgumentException("Review sentiment is not in the required range");
+        }
+    }
+
+    boolean isValidReview(LabeledReview review) {
+        return review != null && review.review() != null && !review.review().isBlank()
+                && review.sentiment() >= RatingType.NEGATIVE.getRatingNumber()
+                && review.sentiment() <= RatingType.POSITIVE.getRatingNumber();
+    }
+
+    /**
+     * Appends the valid reviews one by one. Analyzers that can store and apply a batch at once override this.
+     */
+    @Override
+    public boolean[] appendReviews(List<LabeledReview> reviews) {
+
+        if (reviews == null) {
+            throw new IllegalArgumentException("Reviews cannot be null");
+        }
+
+        boolean[] stored = new boolean[reviews.size()];
+
+        for (int i = 0; i < stored.length; i++) {
+            LabeledReview review = reviews.get(i);
+            stored[i] = isValidReview(review) && appendReview(review.review(), review.sentiment());
+        }
+
+        return stored;
+
+    }
+
+    @Override
+    public double[] scoreAll(List<String> reviews) {
+
+        if (reviews == null) {
+            throw new IllegalArgumentException("Reviews cannot be null");
+        }
+
+        return scoreAll(reviews.toArray(new String[0]), SEQUENTIAL);
+
+    }
+
+    @Override
+    public double[] scoreAll(String[] reviews) {
+        return scoreAll(reviews, SEQUENTIAL);
+    }
+
+    /**
+     * Scores a large batch on the calling thread and on the common pool if the other threads fit in it,
+     * or else on a pool of this analyzer that is created once and shared by the later batches.
+     */
+    @Override
+    public double[] scoreAll(String[] reviews, int parallelism) {
+        validateScoreAll(reviews, parallelism);
+        return scoreChunks(reviews, parallelism, null);
+    }
+
+    @Override
+    public double[] scoreAll(String[] reviews, int parallelism, Executor executor) {
+
+        validateScoreAll(reviews, parallelism);
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor cannot be null");
+        }
+
+        return scoreChunks(reviews, parallelism, executor);
+
+    }
+
+    private static void validateScoreAll(String[] reviews, int parallelism) {
+        if (reviews == null) {
+            throw new IllegalArgumentException("Reviews cannot be null");
+        }
+        if (parallelism < SEQUENTIAL) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+    }
+
+    /**
+     * @param executor where the threads besides the calling one score, null for {@link #scoreExecutor(int)}
+     */
+    private double[] scoreChunks(String[] reviews, int parallelism, Executor executor) {
+
+        double[] scores = new double[reviews.length];
+        int chunksCount = Math.min(parallelism * SCORE_CHUNKS_PER_THREAD, reviews.length / MIN_SCORE_CHUNK_SIZE);
+
+        if (parallelism == SEQUENTIAL || chunksCount <= 1) {
+            scoreRange(reviews, scores, 0, reviews.length);
+            return scores;
+        }
+
+        new ScoreChunks(reviews, scores, chunksCount)
+                .score(executor != null ? executor : scoreExecutor(parallelism), parallelism - 1);
+        return scores;
+
+    }
+
+    /**
+     * @return where up to parallelism - 1 threads besides the calling one score a batch: the common pool
+     * if they fit in it, or else the pool of this analyzer, which grows to the most threads asked for
+     */
+    Executor scoreExecutor(int parallelism) {
+
+        int helpers = parallelism - 1;
+        if (helpers <= ForkJoinPool.getCommonPoolParallelism()) {
+            return ForkJoinPool.commonPool();
+        }
+
+        ForkJoinPool pool = scorePool;
+        if (pool != null && pool.getParallelism() >= helpers) {
+            return pool;
+        }
+
+        synchronized (scorePoolLock) {
+            if (scorePool == null || scorePool.getParallelism() < helpers) {
+                ForkJoinPool smaller = scorePool;
+                scorePool = new ForkJoinPool(helpers);
+                if (smaller != null) {
+                    // the batches already scoring on it finish, and they score on their calling threads anyway
+                    smaller.shutdown();
+                }
+            }
+            return scorePool;
+        }
+
+    }
+
+    /**
+     * The chunks of a batch, claimed one at a time by the calling thread and by the helper threads,
+     * so that no more threads score it than asked for, however many the executor has, and a helper
+     * that starts late, on a busy executor, finds the work done instead of delaying the batch.
+     */
+    private final class ScoreChunks implements Runnable {
+
+        private final String[] reviews;
+        private final double[] scores;
+        private final int chunksCount;
+        private final AtomicInteger nextChunk = new AtomicInteger();
+        private final CountDownLatch scoredChunks;
+        private volatile Throwable failure;
+
+        ScoreChunks(String[] reviews, double[] scores, int chunksCount) {
+            this.reviews = reviews;
+            this.scores = scores;
+            this.chunksCount = chunksCount;
+            scoredChunks = new CountDownLatch(chunksCount);
+        }
+
+        void score(Executor executor, int helpers) {
+
+            try {
+                for (int i = 0; i < Math.min(helpers, chunksCount - 1); i++) {
+                    executor.execute(this);
+                }
+            } catch (RejectedExecutionException e) {
+                // the threads that did start and the calling one score the rest
+            }
+
+            run();
+            awaitScoredChunks();
+
+            if (failure instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (failure instanceof Error error) {
+                throw error;
+            }
+
+        }
+
+        @Override
+        public void run() {
+
+            for (int chunk = nextChunk.getAndIncrement(); chunk < chunksCount; chunk = nextChunk.getAndIncrement()) {
+                try {
+                    int from = (int) ((long) reviews.length * chunk / chunksCount);
+                    int to = (int) ((long) reviews.length * (chunk + 1) / chunksCount);
+                    scoreRange(reviews, scores, from, to);
+                } catch (RuntimeException | Error e) {
+                    if (failure == null) {
+                        failure = e;
+                    }
+                } finally {
+                    scoredChunks.countDown();
+                }
+            }
+
+        }
+
+        private void awaitScoredChunks() {
+
+            boolean interrupted = false;
+
+            while (true) {
+                try {
+                    scoredChunks.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+
+        }
+
+    }
+
+    /**
+     * Scores the reviews in [from, to) one by one. Analyzers that score against a dictionary of their own
+     * override this to score the whole range with a single {@link ReviewScorer}.
+     */
+    void scoreRange(String[] reviews, double[] scores, int from, int to) {
+        for (int i = from; i < to; i++) {
+            String review = reviews[i];
+            scores[i] = review == null || review.isBlank() ? RatingType.UNKNOWN.getRatingNumber()
+                    : getReviewSentiment(review);
+        }
+    }
+
+    /**
+     * Scores the reviews in [from, to) against the dictionary. A blank review has no words, so it is unknown.
+     */
+    static void scoreRange(ReviewScorer scorer, WordScores dictionary, String[] reviews, double[] scores,
+                           int from, int to) {
+        for (int i = from; i < to; i++) {
+            String review = reviews[i];
+            scores[i] = review == null ? RatingType.UNKNOWN.getRatingNumber() : scorer.score(dictionary, review);
+        }
+    }
+
+    @Override
+    public String getReviewSentimentAsName(String review) {
+        return RatingType.fromScore(getReviewSentiment(review)).getRatingText();
+    }
+
+    /**
+     * Stores the valid reviews of a batch with a single write to the journal.
+     *
+     * @return for every review, whether it was stored
+     */
+    boolean[] writeReviews(ReviewJournal journal, List<LabeledReview> reviews) {
+
+        if (reviews == null) {
+            throw new IllegalArgumentException("Reviews cannot be null");
+        }
+
+        boolean[] stored = new boolean[reviews.size()];
+        List<LabeledReview> validReviews = new ArrayList<>(reviews.size());
+
+        for (int i = 0; i < stored.length; i++) {
+            LabeledReview review = reviews.get(i);
+            if (isValidReview(review)) {
+                validReviews.add(review);
+                stored[i] = true;
+            }
+        }
+
+        if (validReviews.isEmpty()) {
+            return stored;
+        }
+
+        try {
+            journal.appendAll(validReviews);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return new boolean[reviews.size()];
+        }
+
+        return stored;
+
+    }
+
+    static boolean writeReview(ReviewJournal journal, String review, int sentiment) {
+
+        try {
+            journal.append(review, sentiment);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+
+        return true;
+
+    }
+
+    static Vocabulary readStopwords(BufferedReader stopWordsInBuffered) {
+
+        Vocabulary stopwords = new Vocabulary();
+
+        try {
+            String line;
+            while ((line = stopWordsInBuffered.readLine()) != null) {
+                stopwords.add(line.toLowerCase().strip());
+                // they should be all lowercase already but just to be sure
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Stopwords could not be extracted", e);
+        }
+
+        return stopwords;
+
+    }
+
+    static SentimentModel readModel(BufferedReader reviewsInBuffered, Vocabulary stopwords,
+                                    AnalyzerOptions options) {
+
+        SentimentModel model = newModel(options);
+
+        try {
+            if (options.isParallel()) {
+                new ParallelModelLoader(stopwords, options).load(reviewsInBuffered, model);
+                return model;
+            }
+
+            ReviewParser reviewParser = new ReviewParser(stopwords, model);
+
+            String line;
+            while ((line = reviewsInBuffered.readLine()) != null) {
+                reviewParser.parseLine(line);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("A problem occurred while reading reviews", e);
+        }
+
+        return model;
+
+    }
+
+    /**
+     * Loads the reviews of a file by memory-mapping it, see {@link MappedModelLoader}.
+     */
+    static SentimentModel readModel(Path reviewsFile, Vocabulary stopwords, AnalyzerOptions options) {
+
+        SentimentModel model = newModel(options);
+
+        try {
+            new MappedModelLoader(stopwords, options).load(reviewsFile, model);
+        } catch (IOException e) {
+            throw new IllegalStateException("A problem occurred while reading reviews", e);
+        }
+
+        return model;
+
+    }
+
+    private static SentimentModel newModel(AnalyzerOptions options) {
+
+        SentimentModel model = new SentimentModel();
+        if (options.hasPhrases()) {
+            model.enablePhrases(options.getMaxNGram(), options.getNegationScope(), options.getMaxPhrases());
+        }
+
+        return model;
+
+    }
+
+}
@@ -0,0 +1,39 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import java.util.Map;
+
+/**
+ * The measurements of a {@link MetricsRegistry} as JMX attributes.
+ * The latencies are keyed by the names of the {@link AnalyzerOperation}s.
+ */
+public interface AnalyzerMetricsMXBean {
+
+    Map<String, Long> getCallCounts();
+
+    Map<String, Double> getLatencyMeanNanos();
+
+    Map<String, Long> getLatencyP50Nanos();
+
+    Map<String, Long> getLatencyP99Nanos();
+
+    Map<String, Long> getLatencyP999Nanos();
+
+    Map<String, Long> getLatencyMaxNanos();
+
+    long getAppendedReviewsCount();
+
+    double getAppendedReviewsPerSecond();
+
+    long getScoredReviewsCount();
+
+    double getAverageTokensPerReview();
+
+    double getUnknownWordRatio();
+
+    int getDictionarySize();
+
+    int getStopwordsCount();
+
+    long getLoadDurationNanos();
+
+}
@@ -0,0 +1,19 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+/**
+ * The methods of a {@link SentimentAnalyzer} whose latency is recorded by a {@link MetricsSink}.
+ */
+public enum AnalyzerOperation {
+    GET_REVIEW_SENTIMENT,
+    GET_REVIEW_SENTIMENT_AS_NAME,
+    SCORE_ALL,
+    GET_WORD_SENTIMENT,
+    GET_WORD_FREQUENCY,
+    GET_MOST_FREQUENT_WORDS,
+    GET_MOST_POSITIVE_WORDS,
+    GET_MOST_NEGATIVE_WORDS,
+    APPEND_REVIEW,
+    APPEND_REVIEWS,
+    GET_SENTIMENT_DICTIONARY_SIZE,
+    IS_STOP_WORD
+}
@@ -0,0 +1,364 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Immutable tuning options of the analyzers.
+ * Start from {@link #defaults()} and override what is needed with the {@code with} methods.
+ */
+public final class AnalyzerOptions {
+
+    private static final int SEQUENTIAL = 1;
+    private static final int DEFAULT_LOAD_CHUNK_SIZE = 16_384;
+    private static final int DEFAULT_PUBLISH_BATCH_SIZE = 1;
+    private static final int DEFAULT_SCORE_CHUNK_SIZE = 256;
+    private static final int NO_TIME_WINDOWS = 0;
+    private static final int EXACT_FREQUENCIES = 0;
+    private static final int UNIGRAMS = 1;
+    private static final int NO_NEGATION = 0;
+    private static final int NO_PHRASES = 0;
+    private static final AnalyzerOptions DEFAULTS = new AnalyzerOptions();
+
+    private int parallelism = SEQUENTIAL;
+    private int loadChunkSize = DEFAULT_LOAD_CHUNK_SIZE;
+    private int publishBatchSize = DEFAULT_PUBLISH_BATCH_SIZE;
+    private int scoreChunkSize = DEFAULT_SCORE_CHUNK_SIZE;
+    private Duration publishInterval = Duration.ZERO;
+    private FlushPolicy flushPolicy = FlushPolicy.NONE;
+    private MetricsSink metrics = MetricsSink.NONE;
+    private boolean rankingIndex;
+    private int retentionDays = NO_TIME_WINDOWS;
+    private Duration halfLife = Duration.ZERO;
+    private Clock clock = Clock.systemUTC();
+    private double frequencyError;
+    private int heavyHittersCount = EXACT_FREQUENCIES;
+    private int maxNGram = UNIGRAMS;
+    private int negationScope = NO_NEGATION;
+    private int maxPhrases = NO_PHRASES;
+
+    private AnalyzerOptions() {
+    }
+
+    private AnalyzerOptions(AnalyzerOptions other) {
+        parallelism = other.parallelism;
+        loadChunkSize = other.loadChunkSize;
+        publishBatchSize = other.publishBatchSize;
+        scoreChunkSize = other.scoreChunkSize;
+        publishInterval = other.publishInterval;
+        flushPolicy = other.flushPolicy;
+        metrics = other.metrics;
+        rankingIndex = other.rankingIndex;
+        retentionDays = other.retentionDays;
+        halfLife = other.halfLife;
+        clock = other.clock;
+        frequencyError = other.frequencyError;
+        heavyHittersCount = other.heavyHittersCount;
+        maxNGram = other.maxNGram;
+        negationScope = other.negationScope;
+        maxPhrases = other.maxPhrases;
+    }
+
+    /**
+     * @return options for loading the reviews sequentially on the calling thread
+     * and publishing every appended review immediately, leaving flushing to the writer
+     */
+    public static AnalyzerOptions defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * @param parallelism the number of threads that parse the reviews while loading
+     *                    or score them in a {@link StreamingReviewScorer}, 1 for the calling thread
+     * @throws IllegalArgumentException if parallelism is not positive
+     */
+    public AnalyzerOptions withParallelism(int parallelism) {
+        if (parallelism < SEQUENTIAL) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+
+        AnalyzerOptions options = new AnalyzerOptions(this);
+        options.parallelism = parallelism;
+        return options;
+    }
+
+    /**
+     * @param loadChunkSize the number of review lines parsed by a single task while loading in parallel
+     * @throws IllegalArgumentException if loadChunkSize is not positive
+     */
+    public AnalyzerOptions withLoadChunkSize(int loadChunkSize) {
+        if (loadChunkSize <= 0) {
+            throw new IllegalArgumentException("Load chunk size must be positive");
+        }
+
+        AnalyzerOptions options = new AnalyzerOptions(this);
+        options.loadChunkSize = loadChunkSize;
+        return options;
+    }
+
+    /**
+     * @param publishBatchSize the number of appended reviews after which
+     *                         a {@link SnapshotSentimentAnalyzer} publishes a new snapshot, 1 by default;
+     *                         every snapshot is a copy of the whole dictionary
+     * @throws IllegalArgumentException if publishBatchSize is not positive
+     */
+    public AnalyzerOptions withPublishBatchSize(int publishBatchSize) {
+        if (publishBatchSize <= 0) {
+            throw new IllegalArgumentException("Publish batch size must be positive");
+        }
+
+        AnalyzerOptions options = new AnalyzerOptions(this);
+        options.publishBatchSize = publishBatchSize;
+        return options;
+    }
+
+    /**
+     * @param scoreChunkSize the number of reviews scored by a single task
+     *                       of a parallel {@link StreamingReviewScorer}
+     * @throws IllegalArgumentException if scoreChunkSize is not positive
+     */
+    public AnalyzerOptions withScoreChunkSize(int scoreChunkSize) {
+        if (scoreChunkSize <= 0) {
+            throw new IllegalArgumentException("Score chunk size must be positive");
+        }
+
+        AnalyzerOptions options = new AnalyzerOptions(this);
+        options.scoreChunkSize = scoreChunkSize;
+        return options;
+    }
+
+    /**
+     * @param publishInterval the longest time an appended review waits to be published by
+     *                        a {@link SnapshotSentimentAnalyzer}, zero for waiting for a full batch
+     * @throws IllegalArgumentException if publishInterval is null or negative
+     */
+    public AnalyzerOptions withPublishInterval(Duration publishInterval) {
+        if (publishInterval == null || publishInterval.isNegative()) {
+            throw new IllegalArgumentException("Publish interval must be non-negative");
+        }
+
+        AnalyzerOptions options = new AnalyzerOptions(this);
+        options.publishInterval = publishInterval;
+        return options;
+    }
+
+    /**
+     * @param flushPolicy when the writer of the data set is flushed after appending reviews
+     * @throws IllegalArgumentException if flushPolicy is null
+     */
+    public AnalyzerOptions withFlushPolicy(FlushPolicy flushPolicy) {
+        if (flushPolicy == null) {
+            throw new IllegalArgumentException("Flush policy cannot be null");
+        }
+
+        AnalyzerOptions options = new AnalyzerOptions(this);
+        options.flushPolicy = flushPolicy;
+        return options;
+    }
+
+    /**
+     * @param metrics where a {@link MovieReviewSentimentAnalyzer} records the latency of its methods,
+     *                the words of the scored reviews, its appends and its load,
+     *                {@link MetricsSink#NONE} for not measuring anything
+     * @throws IllegalArgumentException if metrics is null
+     */
+    public AnalyzerOptions withMetrics(MetricsSink metrics) {
+        if (metrics == null) {
+            throw new IllegalArgumentException("Metrics sink cannot be null");
+        }
+
+        AnalyzerOptions options = new AnalyzerOptions(this);
+        options.metrics = metrics;
+        return options;
+    }
+
+    /**
+     * @param rankingIndex whether a {@link MovieReviewSentimentAnalyzer} keeps its words ranked while
+     *                     reviews are appended, which makes the top n queries O(n) for small n
+     *                     at the cost of O(log size) per word of an appended review
+     */
+    public AnalyzerOptions withRankingIndex(boolean rankingIndex) {
+        AnalyzerOptions options = new AnalyzerOptions(this);
+        options.rankingIndex = rankingIndex;
+        return options;
+    }
+
+    /**
+     * @param retentionDays how many days back a {@link MovieReviewSentimentAnalyzer} can score words and reviews
+     *                      by the ratings of its appended reviews only
+     * @param halfLife      how long it takes the weight of an appended rating in the decayed scores to halve
+     * @throws IllegalArgumentException if retentionDays is not positive, or halfLife is null or not positive
+     */
+    public AnalyzerOptions withTimeWindows(int retentionDays, Duration halfLife) {
+        if (retentionDays <= 0) {
+            throw new IllegalArgumentException("Retention days must be positive");
+        }
+        if (halfLife == null || halfLife.isNegative() || halfLife.toMillis() == 0) {
+            throw new IllegalArgumentException("Half-life must be at least a millisecond");
+        }
+
+        AnalyzerOptions options = new AnalyzerOptions(this);
+        options.retentionDays = retentionDays;
+        options.halfLife = halfLife;
+        return options;
+    }
+
+    /**
+     * @param clock the time of the reviews appended without one and the current day of the time windows
+     * @throws IllegalArgumentException if clock is null
+     */
+    public AnalyzerOptions withClock(Clock clock) {
+        if (clock == null) {
+            throw new IllegalArgumentException("Clock cannot be null");
+        }
+
+        AnalyzerOptions options = new AnalyzerOptions(this);
+        options.clock = clock;
+        return options;
+    }
+
+    /**
+     * Makes a {@link MovieReviewSentimentAnalyzer} estimate the frequencies of its words in a fixed amount
+     * of memory once loaded: a count-min sketch overestimates a frequency by at most frequencyError times
+     * the total of all frequencies with a probability of 99%, and the heavyHittersCount most frequent words
+     * are tracked for {@link SentimentAnalyzer#getMostFrequentWords(int)}, which returns no more than that.
+     * It cannot be combined with a ranking index.
+     *
+     * @throws IllegalArgumentException if frequencyError is not between 0 and 1 exclusive, is so small
+     *                                  (below about 1e-8) that the sketch would not fit in an array,
+     *                                  or heavyHittersCount is not positive
+     */
+    public AnalyzerOptions withApproximateFrequencies(double frequencyError, int heavyHittersCount) {
+        if (!(frequencyError > 0.0 && frequencyError < 1.0)) {
+            throw new IllegalArgumentException("Frequency error must be between 0 and 1 exclusive");
+        }
+        if (!CountMinSketch.fits(frequencyError)) {
+            throw new IllegalArgumentException("Frequency error is too small for a sketch to fit in an array");
+        }
+        if (heavyHittersCount <= 0) {
+            throw new IllegalArgumentException("Heavy hitters count must be positive");
+        }
+
+        AnalyzerOptions options = new AnalyzerOptions(this);
+        options.frequencyError = frequencyError;
+        options.heavyHittersCount = heavyHittersCount;
+        return options;
+    }
+
+    /**
+     * Makes a {@link MovieReviewSentimentAnalyzer} rate the phrases of the reviews it loads and appends
+     * next to their words, and score a review by the average score of its distinct words and phrases.
+     * The phrases are the n-grams of two up to maxNGram consecutive words of a clause, stopwords included,
+     * and the words up to negationScope words after a negation in the same clause, which are scored
+     * by their negated form instead, or, if that was never rated, by their mirrored score. The negations are
+     * "not", "no", "never", "nor", "cannot", "without" and the words ending in "n't".
+     * A phrase takes 56 to 112 bytes, and no more than maxPhrases of them are rated.
+     *
+     * @param maxNGram      the longest n-gram, from 1 for no n-grams up to 5
+     * @param negationScope how many words after a negation are negated, 0 for none
+     * @param maxPhrases    the most phrases to rate, which bounds their memory
+     * @throws IllegalArgumentException if maxNGram is not between 1 and 5, negationScope is negative,
+     *                                  neither n-grams nor negations are enabled, or maxPhrases is not positive
+     */
+    public AnalyzerOptions withPhrases(int maxNGram, int negationScope, int maxPhrases) {
+        if (maxNGram < UNIGRAMS || maxNGram > PhraseWindow.MAX_N_GRAM) {
+            throw new IllegalArgumentException("The longest n-gram must be between 1 and " + PhraseWindow.MAX_N_GRAM);
+        }
+        if (negationScope < NO_NEGATION) {
+            throw new IllegalArgumentException("Negation scope cannot be negative");
+        }
+        if (maxNGram == UNIGRAMS && negationScope == NO_NEGATION) {
+            throw new IllegalArgumentException("Phrases need n-grams or a negation scope");
+        }
+        if (maxPhrases <= NO_PHRASES) {
+            throw new IllegalArgumentException("Max phrases must be positive");
+        }
+
+        AnalyzerOptions options = new AnalyzerOptions(this);
+        options.maxNGram = maxNGram;
+        options.negationScope = negationScope;
+        options.maxPhrases = maxPhrases;
+        return options;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public int getLoadChunkSize() {
+        return loadChunkSize;
+    }
+
+    public int getPublishBatchSize() {
+        return publishBatchSize;
+    }
+
+    public int getScoreChunkSize() {
+        return scoreChunkSize;
+    }
+
+    public Duration getPublishInterval() {
+        return publishInterval;
+    }
+
+    public FlushPolicy getFlushPolicy() {
+        return flushPolicy;
+    }
+
+    public MetricsSink getMetrics() {
+        return metrics;
+    }
+
+    public boolean hasRankingIndex() {
+        return rankingIndex;
+    }
+
+    public int getRetentionDays() {
+        return retentionDays;
+    }
+
+    public Duration getHalfLife() {
+        return halfLife;
+    }
+
+    public Clock getClock() {
+        return clock;
+    }
+
+    public double getFrequencyError() {
+        return frequencyError;
+    }
+
+    public int getHeavyHittersCount() {
+        return heavyHittersCount;
+    }
+
+    public int getMaxNGram() {
+        return maxNGram;
+    }
+
+    public int getNegationScope() {
+        return negationScope;
+    }
+
+    public int getMaxPhrases() {
+        return maxPhrases;
+    }
+
+    boolean hasPhrases() {
+        return maxPhrases > NO_PHRASES;
+    }
+
+    boolean hasApproximateFrequencies() {
+        return heavyHittersCount > EXACT_FREQUENCIES;
+    }
+
+    boolean hasTimeWindows() {
+        return retentionDays > NO_TIME_WINDOWS;
+    }
+
+    boolean isParallel() {
+        return parallelism > SEQUENTIAL;
+    }
+
+}
@@ -0,0 +1,391 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * A durable, segmented write-ahead log of appended reviews, to be used instead of a data set writer.
+ * <p>
+ * Every review becomes a record with a sequence number, starting from 1, and a CRC32 checksum.
+ * The records are kept in segment files named after their first sequence number; a segment is
+ * closed and a new one started once it grows past the configured size. The log is forced to disk
+ * after every {@code recordsPerSync} records and after every batch, so several appends share one
+ * fsync; an append that has not been forced yet may be lost on a crash. An append whose fsync fails is
+ * reported as failed and taken out of the log again. If it cannot be taken out, it may still be on disk
+ * and be replayed, so the log refuses every later append and sync.
+ * The directory is forced too whenever a segment is created or deleted.
+ * <p>
+ * Opening a log drops a torn or corrupted record at its end, left by a crash in the middle of a write.
+ * A model saved with the sequence number it includes needs only the records after it replayed,
+ * and the segments before it can be deleted. All methods are thread-safe.
+ */
+public final class AppendLog implements ReviewJournal, Closeable {
+
+    /**
+     * Receives the reviews of the log while it is replayed, in order.
+     */
+    @FunctionalInterface
+    public interface ReviewConsumer {
+        void accept(long sequence, String review, int sentiment);
+    }
+
+    /**
+     * Opens the channel of the active segment.
+     */
+    @FunctionalInterface
+    interface SegmentOpener {
+        FileChannel open(Path segment, OpenOption... options) throws IOException;
+    }
+
+    private static final long DEFAULT_SEGMENT_SIZE = 64L * 1024 * 1024;
+    private static final int DEFAULT_RECORDS_PER_SYNC = 1;
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SEGMENT_NAME_FORMAT = "%020d" + SEGMENT_SUFFIX;
+    // payload length and payload checksum
+    private static final int HEADER_BYTES = Integer.BYTES * 2;
+    // sequence number and sentiment, followed by the review in UTF-8
+    private static final int PAYLOAD_PREFIX_BYTES = Long.BYTES + Byte.BYTES;
+
+    private final Path directory;
+    private final long segmentSize;
+    private final int recordsPerSync;
+    private final SegmentOpener segmentOpener;
+    private final List<Long> segmentStarts = new ArrayList<>();
+    private FileChannel activeSegment;
+    private long lastSequence;
+    private int unsyncedRecords;
+    // a failed sync whose records could not be taken out of the log again
+    private IOException failure;
+
+    private AppendLog(Path directory, long segmentSize, int recordsPerSync, SegmentOpener segmentOpener) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.recordsPerSync = recordsPerSync;
+        this.segmentOpener = segmentOpener;
+    }
+
+    /**
+     * Opens the log in the given directory, creating it if needed, with 64 MiB segments
+     * and every record forced to disk before its append returns.
+     */
+    public static AppendLog open(Path directory) throws IOException {
+        return open(directory, DEFAULT_SEGMENT_SIZE, DEFAULT_RECORDS_PER_SYNC);
+    }
+
+    /**
+     * Opens the log in the given directory, creating it if needed.
+     *
+     * @param segmentSize    the size in bytes after which a new segment is started
+     * @param recordsPerSync the number of single appends after which the log is forced to disk;
+     *                       a batch is always forced once at its end
+     * @throws IllegalArgumentException if directory is null or a size is not positive
+     * @throws IOException              if the log cannot be opened or a segment before the last is corrupted
+     */
+    public static AppendLog open(Path directory, long segmentSize, int recordsPerSync) throws IOException {
+        return open(directory, segmentSize, recordsPerSync, FileChannel::open);
+    }
+
+    static AppendLog open(Path directory, long segmentSize, int recordsPerSync, SegmentOpener segmentOpener)
+            throws IOException {
+
+        if (directory == null) {
+            throw new IllegalArgumentException("A directory is invalid");
+        }
+        if (segmentSize <= 0 || recordsPerSync <= 0) {
+            throw new IllegalArgumentException("Segment size and records per sync must be positive");
+        }
+
+        Files.createDirectories(directory);
+
+        AppendLog log = new AppendLog(directory, segmentSize, recordsPerSync, segmentOpener);
+        log.recover();
+        return log;
+
+    }
+
+    /**
+     * @return the sequence number of the last record in the log, 0 if it has never had one
+     */
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    @Override
+    public synchronized void append(String review, int sentiment) throws IOException {
+
+        checkUsable();
+        long position = write(encode(List.of(new LabeledReview(review, sentiment))), 1);
+
+        if (unsyncedRecords + 1 >= recordsPerSync) {
+            syncOrRollBack(position, 1);
+        } else {
+            unsyncedRecords++;
+        }
+
+    }
+
+    @Override
+    public synchronized void appendAll(List<LabeledReview> reviews) throws IOException {
+
+        checkUsable();
+        long position = write(encode(reviews), reviews.size());
+        syncOrRollBack(position, reviews.size());
+
+    }
+
+    /**
+     * Forces all appended records to disk.
+     *
+     * @throws IOException if the records cannot be forced, or a failed sync made the log unusable
+     */
+    public synchronized void sync() throws IOException {
+
+        checkUsable();
+        activeSegment.force(false);
+        unsyncedRecords = 0;
+
+    }
+
+    /**
+     * Replays the records with a sequence number greater than the given one, in order.
+     *
+     * @throws IOException if a record cannot be read
+     */
+    public synchronized void replay(long afterSequence, ReviewConsumer consumer) throws IOException {
+
+        for (int i = 0; i < segmentStarts.size(); i++) {
+            boolean covered = i + 1 < segmentStarts.size() && segmentStarts.get(i + 1) <= afterSequence + 1;
+            if (!covered) {
+                readSegment(segmentPath(segmentStarts.get(i)), afterSequence, consumer);
+            }
+        }
+
+    }
+
+    /**
+     * Deletes the segments whose records all have a sequence number up to the given one,
+     * for example once a model including them is saved. The active segment is never deleted.
+     */
+    public synchronized void deleteSegmentsThrough(long sequence) throws IOException {
+
+        boolean deleted = false;
+        while (segmentStarts.size() > 1 && segmentStarts.get(1) <= sequence + 1) {
+            Files.delete(segmentPath(segmentStarts.remove(0)));
+            deleted = true;
+        }
+
+        if (deleted) {
+            DurableFiles.forceDirectory(directory);
+        }
+
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (activeSegment.isOpen()) {
+            try {
+                sync();
+            } finally {
+                activeSegment.close();
+            }
+        }
+    }
+
+    private void recover() throws IOException {
+
+        try (DirectoryStream<Path> segments = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path segment : segments) {
+                String name = segment.getFileName().toString();
+                segmentStarts.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException("Unexpected file in log directory " + directory, e);
+        }
+        segmentStarts.sort(null);
+
+        if (segmentStarts.isEmpty()) {
+            startSegment(1);
+            return;
+        }
+
+        // every segment but the last must be complete, the last may end with a torn record
+        for (int i = 0; i + 1 < segmentStarts.size(); i++) {
+            long validEnd = readSegment(segmentPath(segmentStarts.get(i)), Long.MAX_VALUE, null);
+            if (validEnd != Files.size(segmentPath(segmentStarts.get(i)))) {
+                throw new IOException("Log segment is corrupted: " + segmentPath(segmentStarts.get(i)));
+            }
+        }
+
+        long lastStart = segmentStarts.get(segmentStarts.size() - 1);
+        lastSequence = lastStart - 1;
+        long validEnd = readSegment(segmentPath(lastStart), Long.MAX_VALUE, null);
+
+        activeSegment = segmentOpener.open(segmentPath(lastStart), StandardOpenOption.WRITE);
+        activeSegment.truncate(validEnd);
+        activeSegment.position(validEnd);
+
+    }
+
+    /**
+     * Reads the valid records of a segment, passing those after the given sequence number to the consumer,
+     * and tracks the last sequence number read.
+     *
+     * @return the position right after the last valid record
+     */
+    private long readSegment(Path segment, long afterSequence, ReviewConsumer consumer) throws IOException {
+
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        CRC32 checksum = new CRC32();
+
+        while (buffer.remaining() >= HEADER_BYTES) {
+            int recordStart = buffer.position();
+            int payloadLength = buffer.getInt();
+            int expectedChecksum = buffer.getInt();
+
+            if (payloadLength < PAYLOAD_PREFIX_BYTES || payloadLength > buffer.remaining()) {
+                return recordStart;
+            }
+
+            ByteBuffer payload = buffer.slice(buffer.position(), payloadLength);
+            checksum.reset();
+            checksum.update(payload.duplicate());
+            if ((int) checksum.getValue() != expectedChecksum) {
+                return recordStart;
+            }
+            buffer.position(buffer.position() + payloadLength);
+
+            long sequence = payload.getLong();
+            int sentiment = payload.get();
+            lastSequence = Math.max(lastSequence, sequence);
+
+            if (consumer != null && sequence > afterSequence) {
+                byte[] review = new byte[payload.remaining()];
+                payload.get(review);
+                consumer.accept(sequence, new String(review, StandardCharsets.UTF_8), sentiment);
+            }
+        }
+
+        return buffer.position();
+
+    }
+
+    private ByteBuffer encode(List<LabeledReview> reviews) {
+
+        List<byte[]> texts = new ArrayList<>(reviews.size());
+        int size = 0;
+        for (LabeledReview review : reviews) {
+            byte[] text = review.review().getBytes(StandardCharsets.UTF_8);
+            texts.add(text);
+            size += HEADER_BYTES + PAYLOAD_PREFIX_BYTES + text.length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        CRC32 checksum = new CRC32();
+        long sequence = lastSequence;
+
+        for (int i = 0; i < texts.size(); i++) {
+            byte[] text = texts.get(i);
+            int payloadStart = buffer.position() + HEADER_BYTES;
+
+            buffer.position(payloadStart);
+            buffer.putLong(++sequence);
+            buffer.put((byte) reviews.get(i).sentiment());
+            buffer.put(text);
+
+            checksum.reset();
+            checksum.update(buffer.slice(payloadStart, buffer.position() - payloadStart));
+            buffer.putInt(payloadStart - HEADER_BYTES, buffer.position() - payloadStart);
+            buffer.putInt(payloadStart - Integer.BYTES, (int) checksum.getValue());
+        }
+
+        return buffer.flip();
+
+    }
+
+    /**
+     * @return the position in the active segment where the records start
+     */
+    private long write(ByteBuffer records, int recordsCount) throws IOException {
+
+        if (activeSegment.position() >= segmentSize) {
+            sync();
+            activeSegment.close();
+            startSegment(lastSequence + 1);
+        }
+
+        long position = activeSegment.position();
+
+        try {
+            while (records.hasRemaining()) {
+                activeSegment.write(records);
+            }
+        } catch (IOException e) {
+            // a partly written batch is not part of the log
+            activeSegment.truncate(position);
+            activeSegment.position(position);
+            throw e;
+        }
+
+        lastSequence += recordsCount;
+        return position;
+
+    }
+
+    /**
+     * Forces the log to disk. If that fails, the records written from the given position are taken out again
+     * and the failure is thrown. If they cannot be taken out, the log is made unusable, since they may still
+     * be replayed, and the failure is thrown with the one of the rollback suppressed.
+     */
+    private void syncOrRollBack(long position, int recordsCount) throws IOException {
+
+        try {
+            sync();
+        } catch (IOException e) {
+            try {
+                activeSegment.truncate(position);
+                activeSegment.position(position);
+            } catch (IOException rollbackFailure) {
+                e.addSuppressed(rollbackFailure);
+                failure = e;
+                throw e;
+            }
+
+            lastSequence -= recordsCount;
+            throw e;
+        }
+
+    }
+
+    private void checkUsable() throws IOException {
+        if (failure != null) {
+            throw new IOException("The log is unusable after a failed sync", failure);
+        }
+    }
+
+    private void startSegment(long firstSequence) throws IOException {
+        segmentStarts.add(firstSequence);
+        activeSegment = segmentOpener.open(segmentPath(firstSequence),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        DurableFiles.forceDirectory(directory);
+    }
+
+    private Path segmentPath(long firstSequence) {
+        return directory.resolve(String.format(SEGMENT_NAME_FORMAT, firstSequence));
+    }
+
+}
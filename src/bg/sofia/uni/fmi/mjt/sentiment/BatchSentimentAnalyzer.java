@@ -0,0 +1,56 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+public interface BatchSentimentAnalyzer extends SentimentAnalyzer {
+
+    /**
+     * Appends a batch of reviews to the end of the data set.
+     * The valid reviews are stored in a single write and any information from the data set stored
+     * in memory is updated once for the whole batch.
+     *
+     * @param reviews the reviews to append, in order
+     * @return for every review, at the same index, true if it was stored, and false if it is invalid
+     * (see {@link #appendReview(String, int)}) or an issue has occurred and it is not stored
+     * @throws {@link IllegalArgumentException}, if reviews is null
+     */
+    boolean[] appendReviews(List<LabeledReview> reviews);
+
+    /**
+     * Scores a batch of reviews on the calling thread, see {@link #scoreAll(String[], int)}.
+     *
+     * @throws {@link IllegalArgumentException}, if reviews is null
+     */
+    double[] scoreAll(List<String> reviews);
+
+    /**
+     * Scores a batch of reviews on the calling thread, see {@link #scoreAll(String[], int)}.
+     *
+     * @throws {@link IllegalArgumentException}, if reviews is null
+     */
+    double[] scoreAll(String[] reviews);
+
+    /**
+     * Scores a batch of reviews as {@link #getReviewSentiment(String)} does, without its per-call overhead.
+     * A large batch is split between up to parallelism threads, so the analyzer must not be appended to meanwhile.
+     * The threads besides the calling one are borrowed from a pool shared by the batches, so no thread is started
+     * per batch.
+     *
+     * @param reviews     the reviews to score
+     * @param parallelism the most threads that score the reviews, 1 for the calling thread
+     * @return for every review, at the same index, its sentiment in the interval [0.0, 4.0] if known,
+     * and -1.0 if unknown or if the review is null, empty or blank
+     * @throws {@link IllegalArgumentException}, if reviews is null or parallelism is not positive
+     */
+    double[] scoreAll(String[] reviews, int parallelism);
+
+    /**
+     * Scores a batch of reviews as {@link #scoreAll(String[], int)} does, with up to parallelism - 1 threads
+     * of the given executor besides the calling thread, for example a pool dedicated to the batch.
+     *
+     * @throws {@link IllegalArgumentException}, if reviews or executor is null or parallelism is not positive
+     */
+    double[] scoreAll(String[] reviews, int parallelism, Executor executor);
+
+}
@@ -0,0 +1,16 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+/**
+ * Which review scores a {@link CachingSentimentAnalyzer} evicts when its cache is full.
+ */
+public enum CachePolicy {
+    /**
+     * Evict the least recently used score.
+     */
+    LRU,
+    /**
+     * Keep a small LRU window of new scores in front of a segmented LRU of scores admitted by their
+     * estimated frequency (W-TinyLFU), so a burst of one-off reviews does not evict the frequent ones.
+     */
+    TINY_LFU
+}
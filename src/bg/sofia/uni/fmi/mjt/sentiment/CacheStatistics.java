@@ -0,0 +1,21 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+/**
+ * The counters of a review score cache since it was created.
+ *
+ * @param hitCount      the lookups that found a cached score
+ * @param missCount     the lookups that had to score the review
+ * @param evictionCount the scores removed to make room for others
+ * @param size          the number of scores cached now
+ */
+public record CacheStatistics(long hitCount, long missCount, long evictionCount, int size) {
+
+    /**
+     * @return the share of the lookups that found a cached score, 0.0 if there were none
+     */
+    public double hitRate() {
+        long lookups = hitCount + missCount;
+        return lookups == 0 ? 0.0 : (double) hitCount / lookups;
+    }
+
+}
@@ -0,0 +1,204 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Caches the review scores of another analyzer, for traffic that scores the same reviews over and over.
+ * <p>
+ * Reviews are cached by their normalized text, the lowercase words of the review separated by single spaces,
+ * or by a full stop between clauses, since phrases do not cross them. Reviews that differ only in case, spacing
+ * or punctuation other than what ends a clause share a score. A review appended through
+ * this analyzer invalidates the cached scores of all reviews sharing a word with it. Scores computed while
+ * an append is in progress are not cached, so a stale score is never served.
+ * <p>
+ * The cached analyzer must not be appended to other than through this one, and its appends must be
+ * visible once they return, so a {@link SnapshotSentimentAnalyzer} must publish every append.
+ * This analyzer is thread-safe if the cached one is.
+ */
+public final class CachingSentimentAnalyzer extends AbstractSentimentAnalyzer {
+
+    private static final ThreadLocal<Tokenizer> TOKENIZERS = ThreadLocal.withInitial(Tokenizer::new);
+
+    private final SentimentAnalyzer analyzer;
+    private final ReviewScoreCache cache;
+
+    /**
+     * @param analyzer    the analyzer whose review scores are cached
+     * @param maximumSize the most review scores kept in the cache
+     * @param policy      which scores are evicted when the cache is full
+     * @throws IllegalArgumentException if analyzer or policy is null, or maximumSize is not positive
+     */
+    public CachingSentimentAnalyzer(SentimentAnalyzer analyzer, int maximumSize, CachePolicy policy) {
+
+        if (analyzer == null) {
+            throw new IllegalArgumentException("Analyzer cannot be null");
+        }
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("Maximum cache size must be positive");
+        }
+        if (policy == null) {
+            throw new IllegalArgumentException("Cache policy cannot be null");
+        }
+
+        this.analyzer = analyzer;
+        cache = new ReviewScoreCache(maximumSize, policy);
+
+    }
+
+    /**
+     * @return the hit, miss and eviction counters of the cache since it was created
+     */
+    public CacheStatistics getCacheStatistics() {
+        return cache.getStatistics();
+    }
+
+    @Override
+    public double getReviewSentiment(String review) {
+
+        validateStringArgument(review, REVIEW_ARGUMENT);
+
+        String key = normalize(review);
+        long invalidationsCount = cache.getInvalidationsCount();
+
+        double score = cache.get(key);
+        if (!Double.isNaN(score)) {
+            return score;
+        }
+
+        score = analyzer.getReviewSentiment(review);
+        cache.put(key, score, invalidationsCount);
+
+        return score;
+
+    }
+
+    @Override
+    public double getWordSentiment(String word) {
+        return analyzer.getWordSentiment(word);
+    }
+
+    @Override
+    public int getWordFrequency(String word) {
+        return analyzer.getWordFrequency(word);
+    }
+
+    @Override
+    public List<String> getMostFrequentWords(int n) {
+        return analyzer.getMostFrequentWords(n);
+    }
+
+    @Override
+    public List<String> getMostPositiveWords(int n) {
+        return analyzer.getMostPositiveWords(n);
+    }
+
+    @Override
+    public List<String> getMostNegativeWords(int n) {
+        return analyzer.getMostNegativeWords(n);
+    }
+
+    @Override
+    public boolean appendReview(String review, int sentiment) {
+
+        validateStringArgument(review, REVIEW_ARGUMENT);
+        validateSentimentArgument(sentiment);
+
+        try {
+            return analyzer.appendReview(review, sentiment);
+        } finally {
+            cache.invalidate(words(review));
+        }
+
+    }
+
+    @Override
+    public boolean[] appendReviews(List<LabeledReview> reviews) {
+
+        if (!(analyzer instanceof BatchSentimentAnalyzer batchAnalyzer)) {
+            return super.appendReviews(reviews);
+        }
+
+        if (reviews == null) {
+            throw new IllegalArgumentException("Reviews cannot be null");
+        }
+
+        Set<String> words = new HashSet<>();
+        for (LabeledReview review : reviews) {
+            if (isValidReview(review)) {
+                words.addAll(words(review.review()));
+            }
+        }
+
+        try {
+            return batchAnalyzer.appendReviews(reviews);
+        } finally {
+            cache.invalidate(words);
+        }
+
+    }
+
+    @Override
+    public int getSentimentDictionarySize() {
+        return analyzer.getSentimentDictionarySize();
+    }
+
+    @Override
+    public boolean isStopWord(String word) {
+        return analyzer.isStopWord(word);
+    }
+
+    private static String normalize(String review) {
+
+        KeyBuilder key = new KeyBuilder(review.length());
+        TOKENIZERS.get().tokenize(review, key);
+        return key.toString();
+
+    }
+
+    private static Set<String> words(String review) {
+
+        Set<String> words = new HashSet<>();
+        TOKENIZERS.get().tokenize(review, (buffer, length) -> words.add(new String(buffer, 0, length)));
+        return words;
+
+    }
+
+    /**
+     * Writes the words of a review into its cache key. A clause ends only between two words, so
+     * the punctuation before the first and after the last word is not part of the key.
+     */
+    private static final class KeyBuilder implements Tokenizer.TokenConsumer {
+
+        private final StringBuilder key;
+        private boolean clauseEnded;
+
+        KeyBuilder(int capacity) {
+            key = new StringBuilder(capacity);
+        }
+
+        @Override
+        public void accept(char[] buffer, int length) {
+
+            if (!key.isEmpty()) {
+                key.append(clauseEnded ? ReviewScoreCache.CLAUSE_SEPARATOR : ReviewScoreCache.WORD_SEPARATOR);
+            }
+            clauseEnded = false;
+            key.append(buffer, 0, length);
+
+        }
+
+        @Override
+        public void endClause() {
+            clauseEnded = true;
+        }
+
+        @Override
+        public String toString() {
+            return key.toString();
+        }
+
+    }
+
+}
@@ -0,0 +1,201 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * The words of a {@link ConcurrentMovieReviewSentimentAnalyzer}: dense ids, in order of addition, for words
+ * looked up straight from a character buffer as in a {@link Vocabulary}, each with its own
+ * {@link ConcurrentWordStatistics}.
+ * <p>
+ * Lookups take no lock. A new word is added under a lock: its entry is written before the slot that points
+ * to it is published with a release write, and a full table is copied into a bigger one that replaces it.
+ * {@link #find(char[], int)} finds a word only once it is rated, so a query never scores a word that
+ * is still being added. All methods are thread-safe.
+ */
+final class ConcurrentDictionary implements WordScores {
+
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int EMPTY_SLOT = 0;
+
+    /**
+     * The words with ids up to its capacity, whose slots stay at most half full.
+     */
+    private static final class Table {
+
+        // every slot holds id + 1 of the word hashed there, or EMPTY_SLOT
+        final int[] slots;
+        final String[] words;
+        final int[] hashes;
+        final ConcurrentWordStatistics[] statistics;
+
+        Table(int capacity) {
+            slots = new int[capacity << 1];
+            words = new String[capacity];
+            hashes = new int[capacity];
+            statistics = new ConcurrentWordStatistics[capacity];
+        }
+
+    }
+
+    private final Object addLock = new Object();
+    private volatile Table table;
+    // written after the table that holds the new word, so a reader of the size reads a table with all its ids
+    private volatile int size;
+
+    ConcurrentDictionary(int expectedSize) {
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < expectedSize) {
+            capacity <<= 1;
+        }
+        table = new Table(capacity);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the id of the word if it is rated, {@link Vocabulary#NOT_FOUND} if it is unknown or not rated yet
+     */
+    @Override
+    public int find(char[] buffer, int length) {
+        Table current = table;
+        int id = find(current, buffer, length, Vocabulary.hash(buffer, length));
+        return id != Vocabulary.NOT_FOUND && current.statistics[id].isRated() ? id : Vocabulary.NOT_FOUND;
+    }
+
+    /**
+     * @return the id of the word, rated or not, {@link Vocabulary#NOT_FOUND} if it is unknown
+     */
+    int find(CharSequence word) {
+
+        Table current = table;
+        int hash = Vocabulary.hash(word);
+        int mask = current.slots.length - 1;
+
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int entry = (int) SLOTS.getAcquire(current.slots, slot);
+            if (entry == EMPTY_SLOT) {
+                return Vocabulary.NOT_FOUND;
+            }
+            int id = entry - 1;
+            if (current.hashes[id] == hash && current.words[id].contentEquals(word)) {
+                return id;
+            }
+        }
+
+    }
+
+    @Override
+    public double getScore(int id) {
+        return table.statistics[id].getScore();
+    }
+
+    String getWord(int id) {
+        return table.words[id];
+    }
+
+    ConcurrentWordStatistics getStatistics(int id) {
+        return table.statistics[id];
+    }
+
+    /**
+     * @return the id of the word, which is added to the dictionary without a rating if it is not already there
+     */
+    int add(char[] buffer, int length) {
+
+        int hash = Vocabulary.hash(buffer, length);
+        int id = find(table, buffer, length, hash);
+        if (id != Vocabulary.NOT_FOUND) {
+            return id;
+        }
+
+        synchronized (addLock) {
+            // another thread may have added the word meanwhile
+            id = find(table, buffer, length, hash);
+            return id != Vocabulary.NOT_FOUND ? id
+                    : insert(new String(buffer, 0, length), hash, new ConcurrentWordStatistics());
+        }
+
+    }
+
+    /**
+     * Adds a word that is not in the dictionary yet with the given statistics.
+     */
+    void add(String word, ConcurrentWordStatistics statistics) {
+        synchronized (addLock) {
+            insert(word, Vocabulary.hash(word), statistics);
+        }
+    }
+
+    private static int find(Table current, char[] buffer, int length, int hash) {
+
+        int mask = current.slots.length - 1;
+
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int entry = (int) SLOTS.getAcquire(current.slots, slot);
+            if (entry == EMPTY_SLOT) {
+                return Vocabulary.NOT_FOUND;
+            }
+            int id = entry - 1;
+            if (current.hashes[id] == hash && Vocabulary.matches(current.words[id], buffer, length)) {
+                return id;
+            }
+        }
+
+    }
+
+    /**
+     * Must be called holding the add lock.
+     */
+    private int insert(String word, int hash, ConcurrentWordStatistics statistics) {
+
+        int id = size;
+        Table current = table;
+
+        if (id == current.words.length) {
+            current = grow(current, id);
+            table = current;
+        }
+
+        current.words[id] = word;
+        current.hashes[id] = hash;
+        current.statistics[id] = statistics;
+        // the entry is complete before a reader can reach it through its slot
+        SLOTS.setRelease(current.slots, freeSlot(current, hash), id + 1);
+        size = id + 1;
+
+        return id;
+
+    }
+
+    private static Table grow(Table current, int count) {
+
+        Table grown = new Table(current.words.length << 1);
+        System.arraycopy(current.words, 0, grown.words, 0, count);
+        System.arraycopy(current.hashes, 0, grown.hashes, 0, count);
+        System.arraycopy(current.statistics, 0, grown.statistics, 0, count);
+
+        for (int id = 0; id < count; id++) {
+            grown.slots[freeSlot(grown, grown.hashes[id])] = id + 1;
+        }
+
+        return grown;
+
+    }
+
+    private static int freeSlot(Table current, int hash) {
+
+        int mask = current.slots.length - 1;
+        int slot = hash & mask;
+        while (current.slots[slot] != EMPTY_SLOT) {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+
+    }
+
+}
@@ -0,0 +1,266 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import java.io.BufferedReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * A {@link SentimentAnalyzer} that can be queried and appended to from many threads at once.
+ * Every word has its own atomic statistics in a {@link ConcurrentDictionary}, so neither queries nor appends
+ * of known words take a lock; only the new words and the writes to the data set are serialized.
+ * A query sees every word's statistics consistently, but may see a review being appended
+ * applied to some of its words and not yet to others.
+ * <p>
+ * It supports the loading and flushing options only: the options for phrases, a ranking index, approximate
+ * frequencies, time windows or metrics are rejected.
+ */
+public class ConcurrentMovieReviewSentimentAnalyzer extends AbstractSentimentAnalyzer {
+
+    private static final ThreadLocal<ReviewScorer> REVIEW_SCORERS = ThreadLocal.withInitial(ReviewScorer::new);
+    private static final ThreadLocal<ReviewWordIds> REVIEW_WORD_IDS = ThreadLocal.withInitial(ReviewWordIds::new);
+    private final static int DEFAULT_NUMBER_OF_OCCURRENCES = 0;
+
+    private final ReviewJournal journal;
+    private final Vocabulary stopwords;
+    private final ConcurrentDictionary dictionary;
+
+    /**
+     * Collects the ids of the words of an appended review, adding the new ones to the dictionary.
+     */
+    private static final class ReviewWordIds implements Tokenizer.TokenConsumer {
+
+        private static final int INITIAL_REVIEW_WORDS = 64;
+
+        private final Tokenizer tokenizer = new Tokenizer();
+        private int[] ids = new int[INITIAL_REVIEW_WORDS];
+        private int count;
+        private Vocabulary stopwords;
+        private ConcurrentDictionary dictionary;
+
+        /**
+         * @return the number of ids of the words of the review, sorted at the start of {@link #ids}
+         */
+        int collect(CharSequence review, Vocabulary stopwords, ConcurrentDictionary dictionary) {
+
+            this.stopwords = stopwords;
+            this.dictionary = dictionary;
+            count = 0;
+            tokenizer.tokenize(review, this);
+            this.stopwords = null;
+            this.dictionary = null;
+
+            Arrays.sort(ids, 0, count);
+            return count;
+
+        }
+
+        @Override
+        public void accept(char[] buffer, int length) {
+
+            if (stopwords.find(buffer, length) != Vocabulary.NOT_FOUND) {
+                return;
+            }
+
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count << 1);
+            }
+            ids[count++] = dictionary.add(buffer, length);
+
+        }
+
+    }
+
+    public ConcurrentMovieReviewSentimentAnalyzer(Reader stopwordsIn, Reader reviewsIn, Writer reviewsOut) {
+        this(stopwordsIn, reviewsIn, reviewsOut, AnalyzerOptions.defaults());
+    }
+
+    /**
+     * @param options how the reviews are loaded, for example in parallel, and how the data set is flushed
+     * @throws IllegalArgumentException if a file or the options are null, or the options enable phrases,
+     *                                  a ranking index, approximate frequencies, time windows or metrics
+     */
+    public ConcurrentMovieReviewSentimentAnalyzer(Reader stopwordsIn, Reader reviewsIn, Writer reviewsOut,
+                                                  AnalyzerOptions options) {
+
+        if (stopwordsIn == null || reviewsIn == null || reviewsOut == null) {
+            throw new IllegalArgumentException("A file is invalid");
+        }
+        if (options == null) {
+            throw new IllegalArgumentException("Options cannot be null");
+        }
+        if (options.hasPhrases()) {
+            throw new IllegalArgumentException("A concurrent analyzer cannot rate phrases");
+        }
+        if (options.hasRankingIndex()) {
+            throw new IllegalArgumentException("A concurrent analyzer cannot keep a ranking index");
+        }
+        if (options.hasApproximateFrequencies()) {
+            throw new IllegalArgumentException("A concurrent analyzer cannot approximate frequencies");
+        }
+        if (options.hasTimeWindows()) {
+            throw new IllegalArgumentException("A concurrent analyzer cannot keep time windows");
+        }
+        if (options.getMetrics() != MetricsSink.NONE) {
+            throw new IllegalArgumentException("A concurrent analyzer cannot record metrics");
+        }
+
+        journal = new WriterJournal(reviewsOut, options.getFlushPolicy());
+        stopwords = readStopwords(new BufferedReader(stopwordsIn));
+
+        SentimentModel model = readModel(new BufferedReader(reviewsIn), stopwords, options);
+        dictionary = new ConcurrentDictionary(model.size());
+        for (int id = 0; id < model.size(); id++) {
+            dictionary.add(model.getWord(id), new ConcurrentWordStatistics(
+                    model.getFrequency(id), model.getReviewsCount(id), model.getRatingsSum(id)));
+        }
+
+    }
+
+    @Override
+    public double getReviewSentiment(String review) {
+
+        validateStringArgument(review, REVIEW_ARGUMENT);
+
+        // the dictionary finds only rated words, and stopwords never make it into it
+        return REVIEW_SCORERS.get().score(dictionary, review);
+
+    }
+
+    @Override
+    void scoreRange(String[] reviews, double[] scores, int from, int to) {
+        scoreRange(REVIEW_SCORERS.get(), dictionary, reviews, scores, from, to);
+    }
+
+    @Override
+    public double getWordSentiment(String word) {
+
+        validateStringArgument(word, WORD_ARGUMENT);
+
+        int id = dictionary.find(word.toLowerCase().trim());
+        return id != Vocabulary.NOT_FOUND ? dictionary.getScore(id) : RatingType.UNKNOWN.getRatingNumber();
+
+    }
+
+    @Override
+    public int getWordFrequency(String word) {
+
+        validateStringArgument(word, WORD_ARGUMENT);
+
+        int id = dictionary.find(word.toLowerCase().trim());
+        return id != Vocabulary.NOT_FOUND ? dictionary.getStatistics(id).getFrequency()
+                : DEFAULT_NUMBER_OF_OCCURRENCES;
+
+    }
+
+    @Override
+    public List<String> getMostFrequentWords(int n) {
+
+        validateIntegerArgument(n);
+
+        return topWords(n, ConcurrentWordStatistics::getFrequency, false);
+
+    }
+
+    @Override
+    public List<String> getMostPositiveWords(int n) {
+
+        validateIntegerArgument(n);
+
+        return topWords(n, ConcurrentWordStatistics::getScore, false);
+
+    }
+
+    /**
+     * @return the n most negative words, in exactly the reverse order of {@link #getMostPositiveWords(int)}
+     */
+    @Override
+    public List<String> getMostNegativeWords(int n) {
+
+        validateIntegerArgument(n);
+
+        return topWords(n, ConcurrentWordStatistics::getScore, true);
+
+    }
+
+    /**
+     * Selects the n rated words with the greatest values, the earlier added word first on a tie
+     * as in {@link SentimentModel#compareByScore(int, int)}, or in exactly the reverse order if reversed.
+     */
+    private List<String> topWords(int n, ToDoubleFunction<ConcurrentWordStatistics> value, boolean reversed) {
+
+        // the values are read once before selecting, since appends may change them meanwhile
+        int size = dictionary.size();
+        int[] ids = new int[size];
+        double[] values = new double[size];
+        int ratedCount = 0;
+
+        for (int id = 0; id < size; id++) {
+            ConcurrentWordStatistics statistics = dictionary.getStatistics(id);
+            if (statistics.isRated()) {
+                ids[ratedCount] = id;
+                values[ratedCount++] = value.applyAsDouble(statistics);
+            }
+        }
+
+        // the rated words keep the order of their ids, so their positions break the ties the same way
+        TopIds.IdComparator byValue = (first, second) -> {
+            int result = Double.compare(values[second], values[first]);
+            return result != 0 ? result : Integer.compare(first, second);
+        };
+        int[] top = TopIds.select(ratedCount, n, reversed ? (first, second) -> byValue.compare(second, first)
+                : byValue);
+
+        String[] words = new String[top.length];
+        for (int i = 0; i < top.length; i++) {
+            words[i] = dictionary.getWord(ids[top[i]]);
+        }
+        return List.of(words);
+
+    }
+
+    @Override
+    public boolean appendReview(String review, int sentiment) {
+
+        validateStringArgument(review, REVIEW_ARGUMENT);
+        validateSentimentArgument(sentiment);
+
+        synchronized (journal) {
+            if (!writeReview(journal, review, sentiment)) {
+                return false;
+            }
+        }
+
+        ReviewWordIds reviewWordIds = REVIEW_WORD_IDS.get();
+        int count = reviewWordIds.collect(review, stopwords, dictionary);
+        int[] ids = reviewWordIds.ids;
+
+        // a word is rated once per review, no matter how many times it is repeated
+        for (int start = 0, end; start < count; start = end) {
+            end = start + 1;
+            while (end < count && ids[end] == ids[start]) {
+                end++;
+            }
+
+            ConcurrentWordStatistics statistics = dictionary.getStatistics(ids[start]);
+            statistics.addOccurrences(end - start);
+            statistics.addRating(sentiment);
+        }
+
+        return true;
+
+    }
+
+    @Override
+    public int getSentimentDictionarySize() {
+        return dictionary.size();
+    }
+
+    @Override
+    public boolean isStopWord(String word) {
+        return stopwords.find(word.toLowerCase().strip()) != Vocabulary.NOT_FOUND;
+    }
+
+}
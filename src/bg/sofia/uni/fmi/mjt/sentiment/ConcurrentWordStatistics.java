@@ -0,0 +1,63 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free statistics of a word. The number of rated reviews and the sum of their ratings
+ * are packed in a single atomic long, so a score is never computed from a torn pair.
+ */
+final class ConcurrentWordStatistics {
+
+    private static final int COUNT_SHIFT = Integer.SIZE;
+    private static final long SUM_MASK = 0xFFFF_FFFFL;
+
+    // the high half holds the number of reviews, the low half the sum of their ratings;
+    // the sum fits while a word is rated in fewer than 2^30 reviews
+    private final AtomicLong ratings = new AtomicLong();
+    private final LongAdder occurrences = new LongAdder();
+
+    ConcurrentWordStatistics() {
+    }
+
+    ConcurrentWordStatistics(int occurrences, int reviewsCount, long ratingsSum) {
+        this.occurrences.add(occurrences);
+        this.ratings.set(((long) reviewsCount << COUNT_SHIFT) | ratingsSum);
+    }
+
+    void addOccurrences(int count) {
+        occurrences.add(count);
+    }
+
+    void addRating(int rating) {
+        ratings.getAndAdd((1L << COUNT_SHIFT) + rating);
+    }
+
+    int getFrequency() {
+        return occurrences.intValue();
+    }
+
+    boolean isRated() {
+        return ratings.get() >>> COUNT_SHIFT != 0;
+    }
+
+    /**
+     * @return the score of the word, or {@link RatingType#UNKNOWN} while it has no rating yet
+     */
+    double getScore() {
+        return toScore(ratings.get());
+    }
+
+    private static double toScore(long packedRatings) {
+
+        long reviewsCount = packedRatings >>> COUNT_SHIFT;
+
+        if (reviewsCount == 0) {
+            return RatingType.UNKNOWN.getRatingNumber();
+        }
+
+        return (double) (packedRatings & SUM_MASK) / reviewsCount;
+
+    }
+
+}
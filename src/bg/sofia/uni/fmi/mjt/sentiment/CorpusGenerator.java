@@ -0,0 +1,471 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+/**
+ * Generates reproducible synthetic corpora of any size in the data set format, for benchmarks and soak tests.
+ * <p>
+ * The vocabulary is made of distinct generated words whose frequencies follow a Zipf distribution;
+ * the most frequent of them are the stopwords. Every other word leans towards a rating, and a review
+ * with a given rating picks some of its words among those leaning towards it, so the ratings of the words
+ * can be learned like in a real corpus. The ratings themselves follow the configured weights.
+ * <p>
+ * The generator is immutable: start from {@link #defaults()} and override what is needed with the
+ * {@code with} methods. The same settings and seed always give the same corpus, and the reviews are
+ * generated while they are written, so the memory used depends only on the vocabulary size.
+ * <p>
+ * From the command line: {@code CorpusGenerator <stopwords file> <reviews file> <reviews count> [seed]}.
+ */
+public final class CorpusGenerator {
+
+    /**
+     * How the number of words of a review is distributed between the minimum and the maximum.
+     */
+    public enum LengthDistribution {
+        /**
+         * Every length is equally likely.
+         */
+        UNIFORM,
+        /**
+         * Most reviews are short and a few are long, with a median at the geometric mean of the bounds,
+         * like the reviews of a real site.
+         */
+        LOG_NORMAL
+    }
+
+    private static final int RATINGS_COUNT = SentimentModel.RATINGS_COUNT;
+    private static final char[] LETTERS = "abcdefghijklmnopqrstuvwxyz".toCharArray();
+    private static final double LOG_NORMAL_SIGMA = 0.6;
+    private static final double COMMA_PROBABILITY = 0.08;
+    private static final int USAGE_ARGUMENTS = 3;
+    private static final CorpusGenerator DEFAULTS = new CorpusGenerator();
+
+    private long seed = 1;
+    private long reviewsCount = 10_000;
+    private int vocabularySize = 50_000;
+    private double zipfExponent = 1.0;
+    private int stopwordsCount = 100;
+    private double stopwordDensity = 0.4;
+    private double sentimentBias = 0.3;
+    private double[] ratingWeights = {0.15, 0.2, 0.25, 0.25, 0.15};
+    private LengthDistribution lengthDistribution = LengthDistribution.LOG_NORMAL;
+    private int minReviewWords = 3;
+    private int maxReviewWords = 60;
+
+    private CorpusGenerator() {
+    }
+
+    private CorpusGenerator(CorpusGenerator other) {
+        seed = other.seed;
+        reviewsCount = other.reviewsCount;
+        vocabularySize = other.vocabularySize;
+        zipfExponent = other.zipfExponent;
+        stopwordsCount = other.stopwordsCount;
+        stopwordDensity = other.stopwordDensity;
+        sentimentBias = other.sentimentBias;
+        ratingWeights = other.ratingWeights;
+        lengthDistribution = other.lengthDistribution;
+        minReviewWords = other.minReviewWords;
+        maxReviewWords = other.maxReviewWords;
+    }
+
+    /**
+     * @return a generator of 10 000 reviews of 3 to 60 words, log-normally distributed, over 50 000 words
+     * with a Zipf exponent of 1.0, of which the 100 most frequent are stopwords making up 40% of the text
+     */
+    public static CorpusGenerator defaults() {
+        return DEFAULTS;
+    }
+
+    public CorpusGenerator withSeed(long seed) {
+        CorpusGenerator generator = new CorpusGenerator(this);
+        generator.seed = seed;
+        return generator;
+    }
+
+    /**
+     * @throws IllegalArgumentException if reviewsCount is negative
+     */
+    public CorpusGenerator withReviewsCount(long reviewsCount) {
+        if (reviewsCount < 0) {
+            throw new IllegalArgumentException("Reviews count must be non-negative");
+        }
+
+        CorpusGenerator generator = new CorpusGenerator(this);
+        generator.reviewsCount = reviewsCount;
+        return generator;
+    }
+
+    /**
+     * @param vocabularySize the number of distinct words that are not stopwords
+     * @param zipfExponent   how skewed the word frequencies are, 0 for uniform, about 1 for natural text
+     * @throws IllegalArgumentException if vocabularySize is not positive or zipfExponent is negative
+     */
+    public CorpusGenerator withVocabulary(int vocabularySize, double zipfExponent) {
+        if (vocabularySize <= 0) {
+            throw new IllegalArgumentException("Vocabulary size must be positive");
+        }
+        if (!(zipfExponent >= 0)) {
+            throw new IllegalArgumentException("Zipf exponent must be non-negative");
+        }
+
+        CorpusGenerator generator = new CorpusGenerator(this);
+        generator.vocabularySize = vocabularySize;
+        generator.zipfExponent = zipfExponent;
+        return generator;
+    }
+
+    /**
+     * @param stopwordsCount  the number of distinct stopwords
+     * @param stopwordDensity the share of the words of the reviews that are stopwords
+     * @throws IllegalArgumentException if stopwordsCount is negative, stopwordDensity is not in [0, 1],
+     *                                  or it is positive without stopwords
+     */
+    public CorpusGenerator withStopwords(int stopwordsCount, double stopwordDensity) {
+        if (stopwordsCount < 0 || !(stopwordDensity >= 0 && stopwordDensity <= 1)
+                || (stopwordsCount == 0 && stopwordDensity > 0)) {
+            throw new IllegalArgumentException("Stopwords count and density are invalid");
+        }
+
+        CorpusGenerator generator = new CorpusGenerator(this);
+        generator.stopwordsCount = stopwordsCount;
+        generator.stopwordDensity = stopwordDensity;
+        return generator;
+    }
+
+    /**
+     * @param ratingWeights the relative frequencies of the ratings from 0 to 4
+     * @param sentimentBias the share of the words that are not stopwords picked among the words
+     *                      leaning towards the rating of their review, the rest are picked regardless of it
+     * @throws IllegalArgumentException if there are not 5 non-negative weights with a positive sum,
+     *                                  or sentimentBias is not in [0, 1]
+     */
+    public CorpusGenerator withRatings(double[] ratingWeights, double sentimentBias) {
+        if (ratingWeights == null || ratingWeights.length != RATINGS_COUNT
+                || Arrays.stream(ratingWeights).anyMatch(weight -> !(weight >= 0))
+                || Arrays.stream(ratingWeights).sum() <= 0) {
+            throw new IllegalArgumentException("There must be a non-negative weight for every rating");
+        }
+        if (!(sentimentBias >= 0 && sentimentBias <= 1)) {
+            throw new IllegalArgumentException("Sentiment bias must be in [0, 1]");
+        }
+
+        CorpusGenerator generator = new CorpusGenerator(this);
+        generator.ratingWeights = ratingWeights.clone();
+        generator.sentimentBias = sentimentBias;
+        return generator;
+    }
+
+    /**
+     * @param minReviewWords the fewest words of a review
+     * @param maxReviewWords the most words of a review
+     * @throws IllegalArgumentException if distribution is null or the bounds are not positive and ordered
+     */
+    public CorpusGenerator withReviewLength(LengthDistribution distribution, int minReviewWords, int maxReviewWords) {
+        if (distribution == null) {
+            throw new IllegalArgumentException("Length distribution cannot be null");
+        }
+        if (minReviewWords <= 0 || maxReviewWords < minReviewWords) {
+            throw new IllegalArgumentException("Review length bounds must be positive and ordered");
+        }
+
+        CorpusGenerator generator = new CorpusGenerator(this);
+        generator.lengthDistribution = distribution;
+        generator.minReviewWords = minReviewWords;
+        generator.maxReviewWords = maxReviewWords;
+        return generator;
+    }
+
+    public long getReviewsCount() {
+        return reviewsCount;
+    }
+
+    /**
+     * Writes the stopwords, one per line.
+     */
+    public void writeStopwords(Writer out) throws IOException {
+
+        if (out == null) {
+            throw new IllegalArgumentException("Writer cannot be null");
+        }
+
+        for (int rank = 0; rank < stopwordsCount; rank++) {
+            out.write(word(rank));
+            out.write(System.lineSeparator());
+        }
+        out.flush();
+
+    }
+
+    /**
+     * Writes the reviews in the {@code "<rating> <text>"} format, one per line.
+     */
+    public void writeReviews(Writer out) throws IOException {
+
+        if (out == null) {
+            throw new IllegalArgumentException("Writer cannot be null");
+        }
+
+        Generation generation = new Generation();
+        StringBuilder line = new StringBuilder();
+
+        for (long i = 0; i < reviewsCount; i++) {
+            line.setLength(0);
+            int rating = generation.nextReview(line);
+            out.write(Character.forDigit(rating, 10));
+            out.write(' ');
+            out.append(line);
+            out.write(System.lineSeparator());
+        }
+        out.flush();
+
+    }
+
+    /**
+     * Writes the stopwords and the reviews to UTF-8 files, replacing them if they exist.
+     */
+    public void write(Path stopwordsFile, Path reviewsFile) throws IOException {
+
+        if (stopwordsFile == null || reviewsFile == null) {
+            throw new IllegalArgumentException("A file is invalid");
+        }
+
+        try (BufferedWriter stopwordsOut = Files.newBufferedWriter(stopwordsFile, StandardCharsets.UTF_8);
+             BufferedWriter reviewsOut = Files.newBufferedWriter(reviewsFile, StandardCharsets.UTF_8)) {
+            writeStopwords(stopwordsOut);
+            writeReviews(reviewsOut);
+        }
+
+    }
+
+    /**
+     * @return the reviews, generated lazily in the order they are written
+     */
+    public Stream<LabeledReview> reviews() {
+
+        Generation generation = new Generation();
+
+        return Stream.generate(() -> {
+            StringBuilder review = new StringBuilder();
+            int rating = generation.nextReview(review);
+            return new LabeledReview(review.toString(), rating);
+        }).limit(reviewsCount);
+
+    }
+
+    public static void main(String[] args) throws IOException {
+
+        if (args.length < USAGE_ARGUMENTS) {
+            System.err.println("Usage: CorpusGenerator <stopwords file> <reviews file> <reviews count> [seed]");
+            System.exit(1);
+        }
+
+        CorpusGenerator generator = defaults().withReviewsCount(Long.parseLong(args[2]));
+        if (args.length > USAGE_ARGUMENTS) {
+            generator = generator.withSeed(Long.parseLong(args[USAGE_ARGUMENTS]));
+        }
+
+        generator.write(Path.of(args[0]), Path.of(args[1]));
+
+    }
+
+    /**
+     * @return a distinct word of at least two letters for every rank
+     */
+    private static String word(int rank) {
+
+        StringBuilder word = new StringBuilder();
+        int remaining = rank;
+
+        do {
+            word.append(LETTERS[remaining % LETTERS.length]);
+            remaining /= LETTERS.length;
+        } while (word.length() < Tokenizer.MIN_WORD_SIZE || remaining > 0);
+
+        return word.toString();
+
+    }
+
+    private static double[] zipfWeights(int count, double exponent) {
+
+        double[] weights = new double[count];
+        for (int rank = 0; rank < count; rank++) {
+            weights[rank] = 1.0 / Math.pow(rank + 1, exponent);
+        }
+
+        return weights;
+
+    }
+
+    /**
+     * The vocabulary and the random state of one pass over the corpus.
+     */
+    private final class Generation {
+
+        private final SplittableRandom random = new SplittableRandom(seed);
+        private final String[] stopwords = new String[stopwordsCount];
+        private final String[] words = new String[vocabularySize];
+        private final AliasTable stopwordRanks;
+        private final AliasTable wordRanks;
+        private final AliasTable ratings = new AliasTable(ratingWeights);
+        private final int[][] wordsByRating = new int[RATINGS_COUNT][];
+        private final AliasTable[] wordRanksByRating = new AliasTable[RATINGS_COUNT];
+
+        Generation() {
+
+            for (int rank = 0; rank < stopwordsCount; rank++) {
+                stopwords[rank] = word(rank);
+            }
+            stopwordRanks = stopwordsCount > 0 ? new AliasTable(zipfWeights(stopwordsCount, zipfExponent)) : null;
+
+            double[] weights = zipfWeights(vocabularySize, zipfExponent);
+            int[] leanings = new int[vocabularySize];
+            int[] wordsPerRating = new int[RATINGS_COUNT];
+            for (int rank = 0; rank < vocabularySize; rank++) {
+                words[rank] = word(stopwordsCount + rank);
+                leanings[rank] = random.nextInt(RATINGS_COUNT);
+                wordsPerRating[leanings[rank]]++;
+            }
+            wordRanks = new AliasTable(weights);
+
+            // the words leaning towards a rating keep their relative frequencies
+            for (int rating = 0; rating < RATINGS_COUNT; rating++) {
+                wordsByRating[rating] = new int[wordsPerRating[rating]];
+                double[] leaningWeights = new double[wordsPerRating[rating]];
+                int count = 0;
+                for (int rank = 0; rank < vocabularySize; rank++) {
+                    if (leanings[rank] == rating) {
+                        wordsByRating[rating][count] = rank;
+                        leaningWeights[count++] = weights[rank];
+                    }
+                }
+                wordRanksByRating[rating] = count > 0 ? new AliasTable(leaningWeights) : null;
+            }
+
+        }
+
+        /**
+         * Appends the text of the next review.
+         *
+         * @return its rating
+         */
+        int nextReview(StringBuilder text) {
+
+            int rating = ratings.next(random);
+            int length = nextLength();
+
+            for (int i = 0; i < length; i++) {
+                if (i > 0) {
+                    text.append(random.nextDouble() < COMMA_PROBABILITY ? ", " : " ");
+                }
+
+                int start = text.length();
+                text.append(nextWord(rating));
+                if (i == 0) {
+                    text.setCharAt(start, Character.toUpperCase(text.charAt(start)));
+                }
+            }
+            text.append('.');
+
+            return rating;
+
+        }
+
+        private String nextWord(int rating) {
+
+            if (random.nextDouble() < stopwordDensity) {
+                return stopwords[stopwordRanks.next(random)];
+            }
+            if (wordRanksByRating[rating] != null && random.nextDouble() < sentimentBias) {
+                return words[wordsByRating[rating][wordRanksByRating[rating].next(random)]];
+            }
+
+            return words[wordRanks.next(random)];
+
+        }
+
+        private int nextLength() {
+
+            if (lengthDistribution == LengthDistribution.UNIFORM) {
+                return random.nextInt(minReviewWords, maxReviewWords + 1);
+            }
+
+            double median = Math.sqrt((double) minReviewWords * maxReviewWords);
+            double length = median * Math.exp(LOG_NORMAL_SIGMA * random.nextGaussian());
+            return (int) Math.max(minReviewWords, Math.min(maxReviewWords, Math.round(length)));
+
+        }
+
+    }
+
+    /**
+     * Draws indexes with given weights in constant time with Vose's alias method.
+     */
+    private static final class AliasTable {
+
+        private final double[] probabilities;
+        private final int[] aliases;
+
+        AliasTable(double[] weights) {
+
+            int count = weights.length;
+            probabilities = new double[count];
+            aliases = new int[count];
+
+            double weightsSum = Arrays.stream(weights).sum();
+            double[] scaled = new double[count];
+            int[] small = new int[count];
+            int[] large = new int[count];
+            int smallCount = 0;
+            int largeCount = 0;
+
+            for (int i = 0; i < count; i++) {
+                scaled[i] = weights[i] * count / weightsSum;
+                if (scaled[i] < 1.0) {
+                    small[smallCount++] = i;
+                } else {
+                    large[largeCount++] = i;
+                }
+            }
+
+            while (smallCount > 0 && largeCount > 0) {
+                int less = small[--smallCount];
+                int more = large[--largeCount];
+
+                probabilities[less] = scaled[less];
+                aliases[less] = more;
+
+                scaled[more] = scaled[more] + scaled[less] - 1.0;
+                if (scaled[more] < 1.0) {
+                    small[smallCount++] = more;
+                } else {
+                    large[largeCount++] = more;
+                }
+            }
+
+            // what is left is 1.0 up to rounding errors
+            while (largeCount > 0) {
+                probabilities[large[--largeCount]] = 1.0;
+            }
+            while (smallCount > 0) {
+                probabilities[small[--smallCount]] = 1.0;
+            }
+
+        }
+
+        int next(SplittableRandom random) {
+            int index = random.nextInt(probabilities.length);
+            return random.nextDouble() < probabilities[index] ? index : aliases[index];
+        }
+
+    }
+
+}
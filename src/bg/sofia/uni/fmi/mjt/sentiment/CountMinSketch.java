@@ -0,0 +1,124 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+/**
+ * Estimates the counts of int keys in a fixed amount of memory with a count-min sketch.
+ * <p>
+ * An estimate is never below the true count and, with a probability of at least 99%, exceeds it by at most
+ * the relative error times the total of all counts. The counters are updated conservatively, raising only
+ * those below the new estimate, which keeps the estimates of rare keys much closer than the bound.
+ * An instance is not thread-safe.
+ */
+final class CountMinSketch {
+
+    // the bound fails with a probability of at most e^-DEPTH
+    private static final int DEPTH = 5;
+    private static final int MIN_WIDTH = 16;
+    // the widest power of two whose rows all fit in an array
+    private static final int MAX_WIDTH = Integer.highestOneBit((Integer.MAX_VALUE - 8) / DEPTH);
+    private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+
+    private final int[] counters;
+    private final int width;
+    private final int mask;
+    private final int[] indexes = new int[DEPTH];
+    private long total;
+
+    /**
+     * @param relativeError the error bound as a share of the total of all counts
+     * @throws IllegalArgumentException if the error is too small for the counters to fit in an array
+     */
+    CountMinSketch(double relativeError) {
+
+        long minWidth = width(relativeError);
+        if (minWidth > MAX_WIDTH) {
+            throw new IllegalArgumentException("Relative error is too small for a sketch to fit in an array");
+        }
+
+        width = (int) minWidth;
+        mask = width - 1;
+        counters = new int[DEPTH * width];
+
+    }
+
+    /**
+     * @return whether the counters of a sketch with the given error fit in an array, for errors above about 1e-8
+     */
+    static boolean fits(double relativeError) {
+        return width(relativeError) <= MAX_WIDTH;
+    }
+
+    /**
+     * @return the width of the rows for the given error, a power of two, or one past the widest that fits
+     */
+    private static long width(double relativeError) {
+
+        double minWidth = Math.ceil(Math.E / relativeError);
+        long capacity = MIN_WIDTH;
+        while (capacity < minWidth && capacity <= MAX_WIDTH) {
+            capacity <<= 1;
+        }
+
+        return capacity;
+
+    }
+
+    void add(int key, int count) {
+
+        long hash = mix(key);
+        int low = (int) hash;
+        int high = (int) (hash >>> Integer.SIZE) | 1;
+
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            indexes[row] = row * width + ((low + row * high) & mask);
+            estimate = Math.min(estimate, counters[indexes[row]]);
+        }
+
+        int updated = (int) Math.min(Integer.MAX_VALUE, (long) estimate + count);
+        for (int row = 0; row < DEPTH; row++) {
+            if (counters[indexes[row]] < updated) {
+                counters[indexes[row]] = updated;
+            }
+        }
+
+        total += count;
+
+    }
+
+    int estimate(int key) {
+
+        long hash = mix(key);
+        int low = (int) hash;
+        int high = (int) (hash >>> Integer.SIZE) | 1;
+
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, counters[row * width + ((low + row * high) & mask)]);
+        }
+
+        return estimate;
+
+    }
+
+    /**
+     * @return the total of all counts added
+     */
+    long getTotal() {
+        return total;
+    }
+
+    /**
+     * @return the bytes taken by the counters
+     */
+    long getMemoryBytes() {
+        return (long) counters.length * Integer.BYTES;
+    }
+
+    private static long mix(int key) {
+        long hash = key * GOLDEN_RATIO;
+        hash ^= hash >>> 32;
+        hash *= GOLDEN_RATIO;
+        return hash ^ (hash >>> 29);
+    }
+
+}
@@ -0,0 +1,109 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * A growable block of off-heap memory addressed by long offsets, made of direct buffers of a fixed size,
+ * so it is not limited to the 2 GiB of a single buffer. Only the last buffer grows by copying, up to the
+ * fixed size; the memory already in full buffers never moves. Values are read and written with absolute
+ * offsets in the native byte order, and must not cross a buffer boundary.
+ * <p>
+ * Reads do not change the state of the buffers, so they are safe from any number of threads
+ * while nothing is written. The memory is released when the instance is garbage collected.
+ */
+final class DirectMemory {
+
+    private static final int MIN_BUFFER_SIZE = 4096;
+
+    private final int bufferShift;
+    private final int bufferMask;
+    private ByteBuffer[] buffers = new ByteBuffer[0];
+    private long capacity;
+
+    /**
+     * @param bufferShift the log2 of the size of a full buffer
+     */
+    DirectMemory(int bufferShift) {
+        this.bufferShift = bufferShift;
+        this.bufferMask = (1 << bufferShift) - 1;
+    }
+
+    /**
+     * @return the size of a full buffer, the largest value or record that can be stored
+     */
+    int getBufferSize() {
+        return bufferMask + 1;
+    }
+
+    long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Makes the offsets {@code [0, size)} addressable, keeping the content of the memory.
+     */
+    void ensureCapacity(long size) {
+
+        int bufferSize = getBufferSize();
+
+        while (capacity < size) {
+            int last = buffers.length - 1;
+
+            if (last >= 0 && buffers[last].capacity() < bufferSize) {
+                buffers[last] = grow(buffers[last], Math.min(bufferSize, buffers[last].capacity() << 1));
+            } else {
+                // only the first buffer starts small, the next ones are needed by large blocks only
+                buffers = Arrays.copyOf(buffers, buffers.length + 1);
+                buffers[++last] = allocate(last == 0 ? Math.min(bufferSize, MIN_BUFFER_SIZE) : bufferSize);
+            }
+
+            capacity = ((long) last << bufferShift) + buffers[last].capacity();
+        }
+
+    }
+
+    byte getByte(long offset) {
+        return buffers[(int) (offset >>> bufferShift)].get((int) offset & bufferMask);
+    }
+
+    void putByte(long offset, byte value) {
+        buffers[(int) (offset >>> bufferShift)].put((int) offset & bufferMask, value);
+    }
+
+    int getInt(long offset) {
+        return buffers[(int) (offset >>> bufferShift)].getInt((int) offset & bufferMask);
+    }
+
+    void putInt(long offset, int value) {
+        buffers[(int) (offset >>> bufferShift)].putInt((int) offset & bufferMask, value);
+    }
+
+    long getLong(long offset) {
+        return buffers[(int) (offset >>> bufferShift)].getLong((int) offset & bufferMask);
+    }
+
+    void putLong(long offset, long value) {
+        buffers[(int) (offset >>> bufferShift)].putLong((int) offset & bufferMask, value);
+    }
+
+    double getDouble(long offset) {
+        return buffers[(int) (offset >>> bufferShift)].getDouble((int) offset & bufferMask);
+    }
+
+    void putDouble(long offset, double value) {
+        buffers[(int) (offset >>> bufferShift)].putDouble((int) offset & bufferMask, value);
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, int size) {
+        ByteBuffer grown = allocate(size);
+        grown.put(0, buffer, 0, buffer.capacity());
+        return grown;
+    }
+
+    private static ByteBuffer allocate(int size) {
+        return ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder());
+    }
+
+}
@@ -0,0 +1,35 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Makes the changes to the entries of a directory survive a crash. Forcing a file to disk saves its content,
+ * but a file that was just created, renamed or deleted is only durable once its directory is forced too.
+ */
+final class DurableFiles {
+
+    // a directory cannot be opened on Windows, whose file systems journal their entries anyway
+    private static final boolean FORCES_DIRECTORIES = !System.getProperty("os.name").startsWith("Windows");
+
+    private DurableFiles() {
+    }
+
+    /**
+     * Forces the entries of the directory to disk.
+     */
+    static void forceDirectory(Path directory) throws IOException {
+
+        if (!FORCES_DIRECTORIES) {
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+
+    }
+
+}
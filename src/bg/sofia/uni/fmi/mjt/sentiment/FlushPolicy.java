@@ -0,0 +1,15 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+/**
+ * When an analyzer flushes the writer of its data set after appending reviews.
+ */
+public enum FlushPolicy {
+    /**
+     * Leave flushing to the writer, for example to a {@link java.io.BufferedWriter} when its buffer fills up.
+     */
+    NONE,
+    /**
+     * Flush once after every append, so a batch of reviews costs a single flush.
+     */
+    FLUSH
+}
@@ -0,0 +1,82 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+/**
+ * Estimates how often keys were seen recently with a count-min sketch of 4-bit counters.
+ * All counters are halved once the number of recorded keys reaches ten times the width,
+ * so the estimates follow the recent popularity of the keys. An instance is not thread-safe.
+ */
+final class FrequencySketch {
+
+    private static final int DEPTH = 4;
+    private static final int MIN_WIDTH = 16;
+    private static final int MAX_COUNT = 15;
+    private static final int SAMPLE_SIZE_FACTOR = 10;
+    private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+    private final byte[][] counters;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+    /**
+     * @param expectedKeys the number of distinct keys whose frequencies should be told apart
+     */
+    FrequencySketch(int expectedKeys) {
+        int width = MIN_WIDTH;
+        while (width < expectedKeys) {
+            width <<= 1;
+        }
+
+        counters = new byte[DEPTH][width];
+        mask = width - 1;
+        sampleSize = width * SAMPLE_SIZE_FACTOR;
+    }
+
+    void increment(Object key) {
+
+        int hash = key.hashCode();
+
+        for (int row = 0; row < DEPTH; row++) {
+            int index = index(hash, row);
+            if (counters[row][index] < MAX_COUNT) {
+                counters[row][index]++;
+            }
+        }
+
+        if (++additions == sampleSize) {
+            halve();
+        }
+
+    }
+
+    int frequency(Object key) {
+
+        int hash = key.hashCode();
+        int frequency = MAX_COUNT;
+
+        for (int row = 0; row < DEPTH; row++) {
+            frequency = Math.min(frequency, counters[row][index(hash, row)]);
+        }
+
+        return frequency;
+
+    }
+
+    private int index(int hash, int row) {
+        int mixed = (hash ^ SEEDS[row]) * SEEDS[row];
+        return (mixed ^ (mixed >>> 16)) & mask;
+    }
+
+    private void halve() {
+
+        for (byte[] row : counters) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] >>= 1;
+            }
+        }
+
+        additions >>>= 1;
+
+    }
+
+}
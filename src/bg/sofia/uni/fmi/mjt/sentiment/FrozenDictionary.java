@@ -0,0 +1,388 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An immutable, read-optimized copy of a {@link SentimentModel}: the words are found through a minimal
+ * perfect hash, which maps the n words to the slots {@code [0, n)} without collisions, so a lookup costs
+ * one hash of the word, two array reads and a comparison, with no probing.
+ * <p>
+ * The hash is built by hash and displace: the words are split into small buckets, and the buckets,
+ * the largest first, are given the smallest displacement that moves all their words to free slots.
+ * Every slot holds the id of its word next to a 32-bit fingerprint of its hash, which rejects almost all
+ * unknown words before their bytes are compared, with a single read.
+ * Besides the words in UTF-8, a word takes about 33 bytes: its slot, its score and frequency, the offset
+ * of its bytes, its positions in the two rankings, and a share of the displacements.
+ * <p>
+ * The words keep the ids of the model, so reviews are scored and words are ranked exactly as by the model.
+ * An instance is thread-safe.
+ */
+final class FrozenDictionary implements WordScores {
+
+    private static final int AVERAGE_BUCKET_SIZE = 3;
+    private static final int MAX_SEEDS = 64;
+    private static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+    private static final long SEED_MULTIPLIER = 0x9E3779B97F4A7C15L;
+    private static final int ASCII_LIMIT = 0x80;
+
+    private final long seed;
+    private final int[] displacements;
+    // the fingerprint of the word in the high half, its id in the low half
+    private final long[] slots;
+
+    // indexed by id
+    private final byte[] wordBytes;
+    private final int[] wordOffsets;
+    private final double[] scores;
+    private final int[] frequencies;
+
+    // all ids, the best first
+    private final int[] byFrequency;
+    private final int[] byScore;
+
+    private FrozenDictionary(long seed, int[] displacements, long[] slots, byte[] wordBytes, int[] wordOffsets,
+                             double[] scores, int[] frequencies, int[] byFrequency, int[] byScore) {
+        this.seed = seed;
+        this.displacements = displacements;
+        this.slots = slots;
+        this.wordBytes = wordBytes;
+        this.wordOffsets = wordOffsets;
+        this.scores = scores;
+        this.frequencies = frequencies;
+        this.byFrequency = byFrequency;
+        this.byScore = byScore;
+    }
+
+    /**
+     * Compiles the current content of the model, which can change afterwards without affecting the dictionary.
+     */
+    static FrozenDictionary of(SentimentModel model) {
+
+        int size = model.size();
+
+        byte[][] words = new byte[size][];
+        int[] wordOffsets = new int[size + 1];
+        double[] scores = new double[size];
+        int[] frequencies = new int[size];
+
+        for (int id = 0; id < size; id++) {
+            words[id] = model.getWord(id).getBytes(StandardCharsets.UTF_8);
+            wordOffsets[id + 1] = wordOffsets[id] + words[id].length;
+            scores[id] = model.getScore(id);
+            frequencies[id] = model.getFrequency(id);
+        }
+
+        byte[] wordBytes = new byte[wordOffsets[size]];
+        for (int id = 0; id < size; id++) {
+            System.arraycopy(words[id], 0, wordBytes, wordOffsets[id], words[id].length);
+        }
+
+        int[] byFrequency = TopIds.select(size, size, model::compareByFrequency);
+        int[] byScore = TopIds.select(size, size, model::compareByScore);
+
+        // a seed fails only if two words of a bucket hash to the same slot, so another one is tried
+        for (long seed = 0; seed < MAX_SEEDS; seed++) {
+            FrozenDictionary dictionary = build(seed, words, wordBytes, wordOffsets, scores, frequencies,
+                    byFrequency, byScore);
+            if (dictionary != null) {
+                return dictionary;
+            }
+        }
+
+        throw new IllegalStateException("A perfect hash of the words could not be found");
+
+    }
+
+    private static FrozenDictionary build(long seed, byte[][] words, byte[] wordBytes, int[] wordOffsets,
+                                          double[] scores, int[] frequencies, int[] byFrequency, int[] byScore) {
+
+        int size = words.length;
+        int bucketsCount = size / AVERAGE_BUCKET_SIZE + 1;
+
+        long[] hashes = new long[size];
+        int[] bucketSizes = new int[bucketsCount];
+        for (int id = 0; id < size; id++) {
+            hashes[id] = hash(words[id], seed);
+            bucketSizes[bucket(hashes[id], bucketsCount)]++;
+        }
+
+        // the ids grouped by bucket, and the buckets ordered from the largest to the smallest
+        int[] bucketStarts = new int[bucketsCount + 1];
+        for (int bucket = 0; bucket < bucketsCount; bucket++) {
+            bucketStarts[bucket + 1] = bucketStarts[bucket] + bucketSizes[bucket];
+        }
+        int[] bucketIds = new int[size];
+        int[] filled = Arrays.copyOf(bucketStarts, bucketsCount);
+        for (int id = 0; id < size; id++) {
+            bucketIds[filled[bucket(hashes[id], bucketsCount)]++] = id;
+        }
+        int[] buckets = bucketsBySizeDescending(bucketSizes);
+
+        int[] displacements = new int[bucketsCount];
+        long[] slots = new long[size];
+        boolean[] taken = new boolean[size];
+        int nextFreeSlot = 0;
+
+        for (int bucket : buckets) {
+            int from = bucketStarts[bucket];
+            int to = bucketStarts[bucket + 1];
+            if (from == to) {
+                break;
+            }
+
+            int displacement;
+            if (to - from == 1) {
+                // a single word goes straight to a free slot
+                while (taken[nextFreeSlot]) {
+                    nextFreeSlot++;
+                }
+                int base = base(hashes[bucketIds[from]], size);
+                displacement = nextFreeSlot >= base ? nextFreeSlot - base : nextFreeSlot - base + size;
+            } else {
+                displacement = findDisplacement(hashes, bucketIds, from, to, taken);
+                if (displacement < 0) {
+                    return null;
+                }
+            }
+
+            displacements[bucket] = displacement;
+            for (int i = from; i < to; i++) {
+                int id = bucketIds[i];
+                int slot = slot(hashes[id], displacement, size);
+                taken[slot] = true;
+                slots[slot] = (long) fingerprint(hashes[id]) << Integer.SIZE | id;
+            }
+        }
+
+        return new FrozenDictionary(seed, displacements, slots, wordBytes, wordOffsets, scores, frequencies,
+                byFrequency, byScore);
+
+    }
+
+    /**
+     * @return the smallest displacement that moves all words of the bucket to free slots, -1 if there is none
+     */
+    private static int findDisplacement(long[] hashes, int[] bucketIds, int from, int to, boolean[] taken) {
+
+        int size = taken.length;
+
+        // words with the same base slot collide under every displacement
+        for (int i = from; i < to; i++) {
+            for (int j = from; j < i; j++) {
+                if (base(hashes[bucketIds[i]], size) == base(hashes[bucketIds[j]], size)) {
+                    return -1;
+                }
+            }
+        }
+
+        for (int displacement = 0; displacement < size; displacement++) {
+            boolean fits = true;
+
+            for (int i = from; i < to && fits; i++) {
+                int slot = slot(hashes[bucketIds[i]], displacement, size);
+                fits = !taken[slot];
+            }
+
+            if (fits) {
+                return displacement;
+            }
+        }
+
+        return -1;
+
+    }
+
+    private static int[] bucketsBySizeDescending(int[] bucketSizes) {
+
+        int maxSize = 0;
+        for (int bucketSize : bucketSizes) {
+            maxSize = Math.max(maxSize, bucketSize);
+        }
+
+        // a counting sort, since the buckets are small
+        int[] starts = new int[maxSize + 2];
+        for (int bucketSize : bucketSizes) {
+            starts[maxSize - bucketSize + 1]++;
+        }
+        for (int i = 1; i < starts.length; i++) {
+            starts[i] += starts[i - 1];
+        }
+
+        int[] buckets = new int[bucketSizes.length];
+        for (int bucket = 0; bucket < bucketSizes.length; bucket++) {
+            buckets[starts[maxSize - bucketSizes[bucket]]++] = bucket;
+        }
+        return buckets;
+
+    }
+
+    int size() {
+        return slots.length;
+    }
+
+    @Override
+    public int find(char[] buffer, int length) {
+
+        long hash = seed(seed);
+        for (int i = 0; i < length; i++) {
+            if (buffer[i] >= ASCII_LIMIT) {
+                return find(new String(buffer, 0, length).getBytes(StandardCharsets.UTF_8));
+            }
+            hash = (hash ^ buffer[i]) * FNV_PRIME;
+        }
+        hash = mix(hash);
+
+        int id = candidate(hash);
+        if (id == Vocabulary.NOT_FOUND || wordOffsets[id + 1] - wordOffsets[id] != length) {
+            return Vocabulary.NOT_FOUND;
+        }
+
+        int offset = wordOffsets[id];
+        for (int i = 0; i < length; i++) {
+            if (wordBytes[offset + i] != buffer[i]) {
+                return Vocabulary.NOT_FOUND;
+            }
+        }
+        return id;
+
+    }
+
+    int find(CharSequence word) {
+
+        int length = word.length();
+        long hash = seed(seed);
+        for (int i = 0; i < length; i++) {
+            if (word.charAt(i) >= ASCII_LIMIT) {
+                return find(word.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            hash = (hash ^ word.charAt(i)) * FNV_PRIME;
+        }
+        hash = mix(hash);
+
+        int id = candidate(hash);
+        if (id == Vocabulary.NOT_FOUND || wordOffsets[id + 1] - wordOffsets[id] != length) {
+            return Vocabulary.NOT_FOUND;
+        }
+
+        int offset = wordOffsets[id];
+        for (int i = 0; i < length; i++) {
+            if (wordBytes[offset + i] != word.charAt(i)) {
+                return Vocabulary.NOT_FOUND;
+            }
+        }
+        return id;
+
+    }
+
+    private int find(byte[] word) {
+
+        int id = candidate(hash(word, seed));
+
+        if (id == Vocabulary.NOT_FOUND || !Arrays.equals(wordBytes, wordOffsets[id], wordOffsets[id + 1],
+                word, 0, word.length)) {
+            return Vocabulary.NOT_FOUND;
+        }
+        return id;
+
+    }
+
+    String getWord(int id) {
+        return new String(wordBytes, wordOffsets[id], wordOffsets[id + 1] - wordOffsets[id], StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public double getScore(int id) {
+        return scores[id];
+    }
+
+    int getFrequency(int id) {
+        return frequencies[id];
+    }
+
+    List<String> getMostFrequentWords(int n) {
+        return toWords(byFrequency, 0, Math.min(n, size()), 1);
+    }
+
+    List<String> getMostPositiveWords(int n) {
+        return toWords(byScore, 0, Math.min(n, size()), 1);
+    }
+
+    /**
+     * @return the n most negative words, in exactly the reverse order of {@link #getMostPositiveWords(int)}
+     */
+    List<String> getMostNegativeWords(int n) {
+        return toWords(byScore, size() - 1, Math.min(n, size()), -1);
+    }
+
+    private List<String> toWords(int[] ranking, int first, int count, int step) {
+        String[] words = new String[count];
+        for (int i = 0; i < count; i++) {
+            words[i] = getWord(ranking[first + i * step]);
+        }
+        return List.of(words);
+    }
+
+    /**
+     * @return the id of the only word that can have the hash, {@link Vocabulary#NOT_FOUND} if there is none
+     */
+    private int candidate(long hash) {
+
+        int size = slots.length;
+        if (size == 0) {
+            return Vocabulary.NOT_FOUND;
+        }
+
+        long entry = slots[slot(hash, displacements[bucket(hash, displacements.length)], size)];
+        return (int) (entry >>> Integer.SIZE) == fingerprint(hash) ? (int) entry : Vocabulary.NOT_FOUND;
+
+    }
+
+    /**
+     * FNV-1a over the UTF-8 bytes, which are the characters of an ASCII word, finished with a mix
+     * so that every bit of the hash depends on every byte.
+     */
+    private static long hash(byte[] word, long seed) {
+        long hash = seed(seed);
+        for (byte symbol : word) {
+            hash = (hash ^ (symbol & 0xFF)) * FNV_PRIME;
+        }
+        return mix(hash);
+    }
+
+    private static long seed(long seed) {
+        return FNV_OFFSET_BASIS ^ (seed * SEED_MULTIPLIER);
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    private static int bucket(long hash, int bucketsCount) {
+        return (int) (((hash >>> 32) * bucketsCount) >>> 32);
+    }
+
+    private static int base(long hash, int size) {
+        return (int) (((hash & 0xFFFFFFFFL) * size) >>> 32);
+    }
+
+    private static int slot(long hash, int displacement, int size) {
+        int slot = base(hash, size) + displacement;
+        return slot >= size ? slot - size : slot;
+    }
+
+    /**
+     * The slot depends mostly on the high bits of both halves of the hash, so the fingerprint
+     * is the high half of the hash multiplied again, which depends on all of its bits.
+     */
+    private static int fingerprint(long hash) {
+        return (int) ((hash * SEED_MULTIPLIER) >>> Integer.SIZE);
+    }
+
+}
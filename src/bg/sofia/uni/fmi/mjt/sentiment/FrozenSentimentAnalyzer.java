@@ -0,0 +1,113 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import java.util.List;
+
+/**
+ * A read-only analyzer compiled from a trained one by {@link MovieReviewSentimentAnalyzer#freeze()},
+ * for replicas that only score. The dictionary is a {@link FrozenDictionary}, found through a minimal
+ * perfect hash and ranked in advance, so lookups never probe and the top n queries take O(n).
+ * Its answers are exactly those of the analyzer it was frozen from at the time.
+ * <p>
+ * The analyzer is immutable and thread-safe. Appending to it is not supported.
+ */
+public final class FrozenSentimentAnalyzer extends AbstractSentimentAnalyzer {
+
+    private static final ThreadLocal<ReviewScorer> REVIEW_SCORERS = ThreadLocal.withInitial(ReviewScorer::new);
+    private final static int DEFAULT_NUMBER_OF_OCCURRENCES = 0;
+
+    private final Vocabulary stopwords;
+    private final FrozenDictionary dictionary;
+
+    /**
+     * @param stopwords stopwords that are never changed after they are passed here
+     */
+    FrozenSentimentAnalyzer(Vocabulary stopwords, FrozenDictionary dictionary) {
+        this.stopwords = stopwords;
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    public double getReviewSentiment(String review) {
+
+        validateStringArgument(review, REVIEW_ARGUMENT);
+
+        return REVIEW_SCORERS.get().score(dictionary, review);
+
+    }
+
+    @Override
+    void scoreRange(String[] reviews, double[] scores, int from, int to) {
+        scoreRange(REVIEW_SCORERS.get(), dictionary, reviews, scores, from, to);
+    }
+
+    @Override
+    public double getWordSentiment(String word) {
+
+        validateStringArgument(word, WORD_ARGUMENT);
+
+        int id = dictionary.find(word.toLowerCase().trim());
+        return id != Vocabulary.NOT_FOUND ? dictionary.getScore(id) : RatingType.UNKNOWN.getRatingNumber();
+
+    }
+
+    @Override
+    public int getWordFrequency(String word) {
+
+        validateStringArgument(word, WORD_ARGUMENT);
+
+        int id = dictionary.find(word.toLowerCase().trim());
+        return id != Vocabulary.NOT_FOUND ? dictionary.getFrequency(id) : DEFAULT_NUMBER_OF_OCCURRENCES;
+
+    }
+
+    @Override
+    public List<String> getMostFrequentWords(int n) {
+
+        validateIntegerArgument(n);
+
+        return dictionary.getMostFrequentWords(n);
+
+    }
+
+    @Override
+    public List<String> getMostPositiveWords(int n) {
+
+        validateIntegerArgument(n);
+
+        return dictionary.getMostPositiveWords(n);
+
+    }
+
+    @Override
+    public List<String> getMostNegativeWords(int n) {
+
+        validateIntegerArgument(n);
+
+        return dictionary.getMostNegativeWords(n);
+
+    }
+
+    /**
+     * @return false always, since a frozen analyzer is read-only and never stores a review
+     */
+    @Override
+    public boolean appendReview(String review, int sentiment) {
+
+        validateStringArgument(review, REVIEW_ARGUMENT);
+        validateSentimentArgument(sentiment);
+
+        return false;
+
+    }
+
+    @Override
+    public int getSentimentDictionarySize() {
+        return dictionary.size();
+    }
+
+    @Override
+    public boolean isStopWord(String word) {
+        return stopwords.find(word.toLowerCase().strip()) != Vocabulary.NOT_FOUND;
+    }
+
+}
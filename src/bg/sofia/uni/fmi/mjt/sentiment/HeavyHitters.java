@@ -0,0 +1,197 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import java.util.Arrays;
+
+/**
+ * Tracks the most frequent int keys in a fixed number of counters with the Space-Saving algorithm.
+ * <p>
+ * A key that is not tracked takes the counter of the least frequent tracked key, inheriting its count
+ * as an overestimate, so a tracked count is never below the true one and exceeds it by at most the
+ * total of all counts over the number of counters. Every key more frequent than that is tracked.
+ * The counters are kept in a min-heap with an open-addressing index of the keys, so a count costs
+ * O(log capacity). An instance is not thread-safe.
+ */
+final class HeavyHitters {
+
+    static final int NOT_TRACKED = -1;
+
+    private static final int EMPTY = -1;
+    private static final int GOLDEN_RATIO = 0x9E3779B9;
+
+    private final int capacity;
+    private int size;
+
+    // a min-heap of the counts, the least frequent key at the root
+    private final int[] keys;
+    private final long[] counts;
+
+    // an open-addressing index of the heap positions of the keys, at most half full
+    private final int[] slotKeys;
+    private final int[] slotPositions;
+    private final int mask;
+
+    HeavyHitters(int capacity) {
+
+        this.capacity = capacity;
+        keys = new int[capacity];
+        counts = new long[capacity];
+
+        int slots = Integer.highestOneBit(Math.max(2, capacity) - 1) << 2;
+        slotKeys = new int[slots];
+        Arrays.fill(slotKeys, EMPTY);
+        slotPositions = new int[slots];
+        mask = slots - 1;
+
+    }
+
+    void add(int key, long count) {
+
+        int slot = slot(key);
+        if (slotKeys[slot] != EMPTY) {
+            int position = slotPositions[slot];
+            counts[position] += count;
+            siftDown(position);
+            return;
+        }
+
+        if (size < capacity) {
+            int position = size++;
+            keys[position] = key;
+            counts[position] = count;
+            slotKeys[slot] = key;
+            slotPositions[slot] = position;
+            siftUp(position);
+            return;
+        }
+
+        // the least frequent key gives its counter and its count to the new one
+        remove(slot(keys[0]));
+        keys[0] = key;
+        counts[0] += count;
+        slot = slot(key);
+        slotKeys[slot] = key;
+        slotPositions[slot] = 0;
+        siftDown(0);
+
+    }
+
+    /**
+     * @return an upper bound of the count of the key, {@link #NOT_TRACKED} if it is not tracked
+     */
+    long getCount(int key) {
+        int slot = slot(key);
+        return slotKeys[slot] == EMPTY ? NOT_TRACKED : counts[slotPositions[slot]];
+    }
+
+    /**
+     * @return at most n of the tracked keys, by decreasing count and then by increasing key
+     */
+    int[] top(int n) {
+
+        Integer[] order = new Integer[size];
+        for (int position = 0; position < size; position++) {
+            order[position] = position;
+        }
+        Arrays.sort(order, (first, second) -> {
+            int result = Long.compare(counts[second], counts[first]);
+            return result != 0 ? result : Integer.compare(keys[first], keys[second]);
+        });
+
+        int[] top = new int[Math.min(n, size)];
+        for (int i = 0; i < top.length; i++) {
+            top[i] = keys[order[i]];
+        }
+        return top;
+
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void siftUp(int position) {
+
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (counts[parent] <= counts[position]) {
+                return;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+
+    }
+
+    private void siftDown(int position) {
+
+        while (true) {
+            int smallest = position;
+            int left = 2 * position + 1;
+            int right = left + 1;
+            if (left < size && counts[left] < counts[smallest]) {
+                smallest = left;
+            }
+            if (right < size && counts[right] < counts[smallest]) {
+                smallest = right;
+            }
+            if (smallest == position) {
+                return;
+            }
+            swap(position, smallest);
+            position = smallest;
+        }
+
+    }
+
+    private void swap(int first, int second) {
+
+        int firstKey = keys[first];
+        long firstCount = counts[first];
+        keys[first] = keys[second];
+        counts[first] = counts[second];
+        keys[second] = firstKey;
+        counts[second] = firstCount;
+
+        slotPositions[slot(keys[first])] = first;
+        slotPositions[slot(keys[second])] = second;
+
+    }
+
+    /**
+     * @return the slot of the key in the index, or the empty slot it would take
+     */
+    private int slot(int key) {
+
+        int index = (key * GOLDEN_RATIO) >>> Integer.numberOfLeadingZeros(mask);
+        while (slotKeys[index] != EMPTY && slotKeys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+
+    }
+
+    /**
+     * Empties a slot of the index, moving back the keys after it that would no longer be found.
+     */
+    private void remove(int slot) {
+
+        int hole = slot;
+        int index = slot;
+        while (true) {
+            index = (index + 1) & mask;
+            if (slotKeys[index] == EMPTY) {
+                break;
+            }
+            int home = (slotKeys[index] * GOLDEN_RATIO) >>> Integer.numberOfLeadingZeros(mask);
+            // a key moves into the hole unless its home lies cyclically after the hole, up to its own slot
+            if (((index - home) & mask) >= ((index - hole) & mask)) {
+                slotKeys[hole] = slotKeys[index];
+                slotPositions[hole] = slotPositions[index];
+                hole = index;
+            }
+        }
+        slotKeys[hole] = EMPTY;
+
+    }
+
+}
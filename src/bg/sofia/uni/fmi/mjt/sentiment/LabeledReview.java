@@ -0,0 +1,10 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+/**
+ * A review text together with its rating, as appended to the data set.
+ *
+ * @param review    the text part of the review
+ * @param sentiment the given rating, in the [0, 4] range
+ */
+public record LabeledReview(String review, int sentiment) {
+}
@@ -0,0 +1,103 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A concurrent histogram of latencies with log-linear buckets: every power of two is split into
+ * 8 equal buckets, so a recorded value is off by at most 12.5% and the whole range of a long
+ * fits in 496 counters. Recording a value allocates nothing and takes no lock.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    void record(long nanos) {
+
+        long value = Math.max(0, nanos);
+
+        counts.incrementAndGet(bucket(value));
+        sum.add(value);
+
+        // most values are below the maximum, so the compare-and-set loop is rarely entered
+        if (value > max.get()) {
+            max.accumulateAndGet(value, Math::max);
+        }
+
+    }
+
+    /**
+     * The snapshot is not atomic: calls recorded while it is taken may be counted only partially.
+     */
+    LatencySnapshot snapshot() {
+
+        long[] bucketCounts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            bucketCounts[i] = counts.get(i);
+            total += bucketCounts[i];
+        }
+
+        if (total == 0) {
+            return new LatencySnapshot(0, 0.0, 0, 0, 0, 0, 0);
+        }
+
+        long maxNanos = max.get();
+        return new LatencySnapshot(total, (double) sum.sum() / total,
+                percentile(bucketCounts, total, 0.5, maxNanos), percentile(bucketCounts, total, 0.9, maxNanos),
+                percentile(bucketCounts, total, 0.99, maxNanos), percentile(bucketCounts, total, 0.999, maxNanos),
+                maxNanos);
+
+    }
+
+    static int bucket(long value) {
+
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+
+    }
+
+    /**
+     * @return the highest value that falls into the bucket
+     */
+    static long upperBound(int bucket) {
+
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+
+        int shift = bucket / SUB_BUCKETS - 1;
+        long subBucket = bucket % SUB_BUCKETS;
+        return ((SUB_BUCKETS + subBucket + 1) << shift) - 1;
+
+    }
+
+    private static long percentile(long[] bucketCounts, long total, double quantile, long maxNanos) {
+
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+
+        for (int i = 0; i < bucketCounts.length; i++) {
+            seen += bucketCounts[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), maxNanos);
+            }
+        }
+
+        return maxNanos;
+
+    }
+
+}
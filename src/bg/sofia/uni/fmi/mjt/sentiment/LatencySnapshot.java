@@ -0,0 +1,17 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+/**
+ * The latency distribution of an {@link AnalyzerOperation} recorded by a {@link MetricsRegistry}.
+ * The percentiles are accurate to within 12.5% of their value.
+ *
+ * @param count     the number of calls
+ * @param meanNanos the mean latency, 0.0 if there were no calls
+ * @param p50Nanos  the median latency
+ * @param p90Nanos  the latency 90% of the calls did not exceed
+ * @param p99Nanos  the latency 99% of the calls did not exceed
+ * @param p999Nanos the latency 99.9% of the calls did not exceed
+ * @param maxNanos  the highest latency
+ */
+public record LatencySnapshot(long count, double meanNanos, long p50Nanos, long p90Nanos, long p99Nanos,
+                              long p999Nanos, long maxNanos) {
+}
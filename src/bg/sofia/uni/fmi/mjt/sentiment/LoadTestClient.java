@@ -0,0 +1,145 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Measures the throughput and the latency of the scoring requests of a {@link SentimentServer}
+ * with a number of concurrent clients sending synthetic reviews as fast as they are answered.
+ * <p>
+ * Run it as {@code java bg.sofia.uni.fmi.mjt.sentiment.LoadTestClient <port> [clients] [seconds]
+ * [reviews per request]} against a server on the same machine.
+ */
+public final class LoadTestClient {
+
+    private static final int REVIEWS_COUNT = 4096;
+    private static final int DEFAULT_CLIENTS_COUNT = 16;
+    private static final int DEFAULT_SECONDS = 10;
+    private static final int DEFAULT_REVIEWS_PER_REQUEST = 1;
+    private static final int OK = 200;
+    private static final double NANOS_PER_MICRO = 1_000.0;
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    private final URI scoreUri;
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final String[] reviews = CorpusGenerator.defaults().withReviewsCount(REVIEWS_COUNT).reviews()
+            .map(LabeledReview::review)
+            .toArray(String[]::new);
+    private final LatencyHistogram latencies = new LatencyHistogram();
+
+    /**
+     * @param port the port of a server on the loopback interface
+     */
+    public LoadTestClient(int port) {
+        scoreUri = URI.create("http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + port + "/score");
+    }
+
+    /**
+     * Sends scoring requests from every client until the duration elapses.
+     *
+     * @return the latency of the requests, whose count gives the throughput
+     * @throws IllegalStateException if a request fails
+     */
+    public LatencySnapshot run(int clientsCount, Duration duration, int reviewsPerRequest) {
+
+        if (clientsCount <= 0 || reviewsPerRequest <= 0) {
+            throw new IllegalArgumentException("Clients count and reviews per request must be positive");
+        }
+        if (duration == null || duration.isNegative()) {
+            throw new IllegalArgumentException("Duration must be non-negative");
+        }
+
+        long deadline = System.nanoTime() + duration.toNanos();
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        Thread[] clients = new Thread[clientsCount];
+
+        for (int i = 0; i < clientsCount; i++) {
+            int firstReview = i * reviewsPerRequest;
+            clients[i] = new Thread(() -> {
+                try {
+                    sendUntil(deadline, firstReview, reviewsPerRequest);
+                } catch (IOException | RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "load-test-client-" + i);
+            clients[i].start();
+        }
+
+        try {
+            for (Thread client : clients) {
+                client.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the clients", e);
+        }
+
+        if (failure.get() != null) {
+            throw new IllegalStateException("A scoring request failed", failure.get());
+        }
+
+        return latencies.snapshot();
+
+    }
+
+    public static void main(String[] args) {
+
+        if (args.length < 1) {
+            System.err.println("Usage: LoadTestClient <port> [clients] [seconds] [reviews per request]");
+            System.exit(1);
+        }
+
+        int port = Integer.parseInt(args[0]);
+        int clientsCount = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_CLIENTS_COUNT;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_SECONDS;
+        int reviewsPerRequest = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_REVIEWS_PER_REQUEST;
+
+        long startNanos = System.nanoTime();
+        LatencySnapshot latency = new LoadTestClient(port)
+                .run(clientsCount, Duration.ofSeconds(seconds), reviewsPerRequest);
+        double elapsedSeconds = (System.nanoTime() - startNanos) / NANOS_PER_SECOND;
+
+        System.out.printf("requests: %d, requests/s: %.0f, reviews/s: %.0f%n", latency.count(),
+                latency.count() / elapsedSeconds, latency.count() * reviewsPerRequest / elapsedSeconds);
+        System.out.printf("latency us: mean %.1f, p50 %.1f, p90 %.1f, p99 %.1f, p99.9 %.1f, max %.1f%n",
+                latency.meanNanos() / NANOS_PER_MICRO, latency.p50Nanos() / NANOS_PER_MICRO,
+                latency.p90Nanos() / NANOS_PER_MICRO, latency.p99Nanos() / NANOS_PER_MICRO,
+                latency.p999Nanos() / NANOS_PER_MICRO, latency.maxNanos() / NANOS_PER_MICRO);
+
+    }
+
+    private void sendUntil(long deadline, int firstReview, int reviewsPerRequest)
+            throws IOException, InterruptedException {
+
+        int position = firstReview;
+
+        while (System.nanoTime() < deadline) {
+            StringBuilder body = new StringBuilder();
+            for (int i = 0; i < reviewsPerRequest; i++) {
+                body.append(reviews[position++ % REVIEWS_COUNT]).append('\n');
+            }
+
+            HttpRequest request = HttpRequest.newBuilder(scoreUri)
+                    .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                    .build();
+
+            long startNanos = System.nanoTime();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            latencies.record(System.nanoTime() - startNanos);
+
+            if (response.statusCode() != OK) {
+                throw new IOException("Scoring failed with status " + response.statusCode() + ": " + response.body());
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,112 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A shard whose words live in a {@link SentimentModel} of this process.
+ * The words get ids in the order of their first occurrence, as their ordinals do,
+ * so the model ranks them exactly as the merged answers of all shards need.
+ */
+final class LocalModelShard implements ModelShard {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final SentimentModel model = new SentimentModel();
+    private long[] ordinals = new long[INITIAL_CAPACITY];
+    private char[] wordBuffer = new char[INITIAL_CAPACITY];
+
+    @Override
+    public synchronized void append(ShardBatch batch) {
+
+        int wordIndex = 0;
+
+        for (int review = 0; review < batch.getReviewsCount(); review++) {
+            model.startReview();
+            int rating = batch.getRating(review);
+
+            for (; wordIndex < batch.getReviewEnd(review); wordIndex++) {
+                addWord(batch.getWord(wordIndex), rating, batch.getOrdinal(wordIndex));
+            }
+        }
+
+    }
+
+    @Override
+    public synchronized double[] getScores(String[] words) {
+
+        double[] scores = new double[words.length];
+
+        for (int i = 0; i < words.length; i++) {
+            int id = model.find(words[i]);
+            scores[i] = id != Vocabulary.NOT_FOUND ? model.getScore(id) : Double.NaN;
+        }
+
+        return scores;
+
+    }
+
+    @Override
+    public synchronized int getFrequency(String word) {
+        int id = model.find(word);
+        return id != Vocabulary.NOT_FOUND ? model.getFrequency(id) : 0;
+    }
+
+    @Override
+    public synchronized List<RankedWord> getMostFrequentWords(int n) {
+        return rank(model.getMostFrequentWords(n));
+    }
+
+    @Override
+    public synchronized List<RankedWord> getMostPositiveWords(int n) {
+        return rank(model.getMostPositiveWords(n));
+    }
+
+    @Override
+    public synchronized List<RankedWord> getMostNegativeWords(int n) {
+        return rank(model.getMostNegativeWords(n));
+    }
+
+    @Override
+    public synchronized int size() {
+        return model.size();
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private void addWord(String word, int rating, long ordinal) {
+
+        int length = word.length();
+        if (length > wordBuffer.length) {
+            wordBuffer = new char[Math.max(wordBuffer.length << 1, length)];
+        }
+        word.getChars(0, length, wordBuffer, 0);
+
+        int sizeBefore = model.size();
+        int id = model.addWord(wordBuffer, length, rating);
+
+        if (model.size() > sizeBefore) {
+            if (id == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, id << 1);
+            }
+            ordinals[id] = ordinal;
+        }
+
+    }
+
+    private List<RankedWord> rank(List<String> words) {
+
+        RankedWord[] ranked = new RankedWord[words.size()];
+
+        for (int i = 0; i < ranked.length; i++) {
+            int id = model.find(words.get(i));
+            ranked[i] = new RankedWord(words.get(i), model.getFrequency(id), model.getScore(id), ordinals[id]);
+        }
+
+        return List.of(ranked);
+
+    }
+
+}
@@ -0,0 +1,138 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Loads reviews from a file by memory-mapping it and scanning its bytes, so no line or word
+ * becomes a string unless it is new to the model.
+ * <p>
+ * The file is mapped in windows that end at a line end, since a single mapping is limited to 2 GiB,
+ * and every window is split into chunks of whole lines. The chunks are parsed in order into the model
+ * or, when loading in parallel, into their own partial models that are merged in order,
+ * the same way as {@link ParallelModelLoader} does.
+ */
+final class MappedModelLoader {
+
+    private static final long DEFAULT_WINDOW_BYTES = 1L << 30;
+    private static final int DEFAULT_CHUNK_BYTES = 4 << 20;
+    // chunks parsed ahead of the merging per thread, which bounds the memory held by pending chunks
+    private static final int PENDING_CHUNKS_PER_THREAD = 2;
+    private static final byte LINE_END = '\n';
+
+    private final Vocabulary stopwords;
+    private final AnalyzerOptions options;
+    private final long windowBytes;
+    private final int chunkBytes;
+
+    MappedModelLoader(Vocabulary stopwords, AnalyzerOptions options) {
+        this(stopwords, options, DEFAULT_WINDOW_BYTES, DEFAULT_CHUNK_BYTES);
+    }
+
+    /**
+     * @param windowBytes the most bytes of the file mapped at once, which must hold the longest line
+     * @param chunkBytes  the approximate number of bytes parsed by a single task
+     */
+    MappedModelLoader(Vocabulary stopwords, AnalyzerOptions options, long windowBytes, int chunkBytes) {
+        this.stopwords = stopwords;
+        this.options = options;
+        this.windowBytes = windowBytes;
+        this.chunkBytes = chunkBytes;
+    }
+
+    void load(Path reviewsFile, SentimentModel model) throws IOException {
+
+        ForkJoinPool pool = options.isParallel() ? new ForkJoinPool(options.getParallelism()) : null;
+        int maxPendingChunks = options.getParallelism() * PENDING_CHUNKS_PER_THREAD;
+        Deque<ForkJoinTask<SentimentModel>> pendingChunks = new ArrayDeque<>();
+        ReviewParser parser = new ReviewParser(stopwords, model);
+
+        try (FileChannel channel = FileChannel.open(reviewsFile, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+
+            for (long windowStart = 0; windowStart < fileSize; ) {
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart,
+                        Math.min(windowBytes, fileSize - windowStart));
+                boolean lastWindow = windowStart + window.limit() == fileSize;
+                int windowEnd = lastWindow ? window.limit() : afterLastLineEnd(window);
+                if (windowEnd == 0) {
+                    throw new IOException("A review line is longer than " + windowBytes + " bytes: " + reviewsFile);
+                }
+
+                for (int chunkStart = 0; chunkStart < windowEnd; ) {
+                    int chunkEnd = afterLineEnd(window, Math.min(chunkStart + chunkBytes, windowEnd), windowEnd);
+
+                    if (pool == null) {
+                        parser.parseLines(window, chunkStart, chunkEnd);
+                    } else {
+                        ByteBuffer chunk = window.slice(chunkStart, chunkEnd - chunkStart);
+                        SentimentModel part = model.newPart();
+                        pendingChunks.addLast(pool.submit(() -> parseChunk(chunk, part)));
+
+                        if (pendingChunks.size() >= maxPendingChunks) {
+                            model.merge(pendingChunks.removeFirst().join());
+                        }
+                    }
+
+                    chunkStart = chunkEnd;
+                }
+
+                windowStart += windowEnd;
+            }
+
+            while (!pendingChunks.isEmpty()) {
+                model.merge(pendingChunks.removeFirst().join());
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+        }
+
+    }
+
+    private SentimentModel parseChunk(ByteBuffer chunk, SentimentModel part) {
+
+        ReviewParser parser = new ReviewParser(stopwords, part);
+        parser.parseLines(chunk, 0, chunk.limit());
+        return parser.getModel();
+
+    }
+
+    /**
+     * @return the position after the first line end at or after the given one, or the end if there is none
+     */
+    private static int afterLineEnd(ByteBuffer text, int from, int end) {
+
+        int position = from;
+        while (position < end && text.get(position) != LINE_END) {
+            position++;
+        }
+
+        return Math.min(position + 1, end);
+
+    }
+
+    /**
+     * @return the position after the last line end of the buffer, 0 if there is none
+     */
+    private static int afterLastLineEnd(ByteBuffer text) {
+
+        int position = text.limit();
+        while (position > 0 && text.get(position - 1) != LINE_END) {
+            position--;
+        }
+
+        return position;
+
+    }
+
+}
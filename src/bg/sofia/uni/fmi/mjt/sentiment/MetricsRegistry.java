@@ -0,0 +1,208 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * A {@link MetricsSink} that keeps the measurements of one or more analyzers in memory: a latency histogram
+ * per {@link AnalyzerOperation}, the appended and scored reviews and the size of the dictionary.
+ * <p>
+ * Recording takes no lock and allocates nothing, so the registry can be left enabled in production.
+ * The registry can be read directly or through JMX after {@link #registerMBean(String)}.
+ */
+public final class MetricsRegistry implements MetricsSink, AnalyzerMetricsMXBean {
+
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+    private static final AnalyzerOperation[] OPERATIONS = AnalyzerOperation.values();
+
+    private final LatencyHistogram[] latencies = new LatencyHistogram[OPERATIONS.length];
+    private final LongAdder appendedReviewsCount = new LongAdder();
+    private final LongAdder scoredReviewsCount = new LongAdder();
+    private final LongAdder tokensCount = new LongAdder();
+    private final LongAdder unknownTokensCount = new LongAdder();
+    private final long createdNanos = System.nanoTime();
+
+    private volatile int dictionarySize;
+    private volatile int stopwordsCount;
+    private volatile long loadDurationNanos;
+
+    public MetricsRegistry() {
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+    }
+
+    @Override
+    public void recordLatency(AnalyzerOperation operation, long nanos) {
+        latencies[operation.ordinal()].record(nanos);
+    }
+
+    @Override
+    public void recordScoredReview(int tokensCount, int unknownTokensCount) {
+        scoredReviewsCount.increment();
+        this.tokensCount.add(tokensCount);
+        this.unknownTokensCount.add(unknownTokensCount);
+    }
+
+    @Override
+    public void recordAppendedReviews(int reviewsCount, int dictionarySize) {
+        appendedReviewsCount.add(reviewsCount);
+        this.dictionarySize = dictionarySize;
+    }
+
+    @Override
+    public void recordLoad(long nanos, int dictionarySize, int stopwordsCount) {
+        loadDurationNanos = nanos;
+        this.dictionarySize = dictionarySize;
+        this.stopwordsCount = stopwordsCount;
+    }
+
+    /**
+     * Registers the registry in the platform MBean server, for JConsole and other JMX clients.
+     *
+     * @param name the value of the name key of the object name, which must be unique in the JVM
+     * @return the object name the registry was registered under
+     * @throws IllegalArgumentException if name is blank
+     * @throws IllegalStateException    if the registry cannot be registered, for example under a taken name
+     */
+    public ObjectName registerMBean(String name) {
+
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Name cannot be null, blank or empty");
+        }
+
+        try {
+            ObjectName objectName = new ObjectName(MetricsRegistry.class.getPackageName()
+                    + ":type=AnalyzerMetrics,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            return objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException("Metrics could not be registered", e);
+        }
+
+    }
+
+    /**
+     * @return the latency distribution of the calls to the method so far
+     */
+    public LatencySnapshot getLatency(AnalyzerOperation operation) {
+
+        if (operation == null) {
+            throw new IllegalArgumentException("Operation cannot be null");
+        }
+
+        return latencies[operation.ordinal()].snapshot();
+
+    }
+
+    @Override
+    public Map<String, Long> getCallCounts() {
+        return byOperation(LatencySnapshot::count);
+    }
+
+    @Override
+    public Map<String, Double> getLatencyMeanNanos() {
+
+        Map<String, Double> means = new LinkedHashMap<>();
+        for (AnalyzerOperation operation : OPERATIONS) {
+            means.put(operation.name(), getLatency(operation).meanNanos());
+        }
+        return means;
+
+    }
+
+    @Override
+    public Map<String, Long> getLatencyP50Nanos() {
+        return byOperation(LatencySnapshot::p50Nanos);
+    }
+
+    @Override
+    public Map<String, Long> getLatencyP99Nanos() {
+        return byOperation(LatencySnapshot::p99Nanos);
+    }
+
+    @Override
+    public Map<String, Long> getLatencyP999Nanos() {
+        return byOperation(LatencySnapshot::p999Nanos);
+    }
+
+    @Override
+    public Map<String, Long> getLatencyMaxNanos() {
+        return byOperation(LatencySnapshot::maxNanos);
+    }
+
+    @Override
+    public long getAppendedReviewsCount() {
+        return appendedReviewsCount.sum();
+    }
+
+    /**
+     * @return the appended reviews per second since the registry was created
+     */
+    @Override
+    public double getAppendedReviewsPerSecond() {
+        long elapsedNanos = Math.max(1, System.nanoTime() - createdNanos);
+        return appendedReviewsCount.sum() * NANOS_PER_SECOND / elapsedNanos;
+    }
+
+    @Override
+    public long getScoredReviewsCount() {
+        return scoredReviewsCount.sum();
+    }
+
+    /**
+     * @return the mean number of words of the scored reviews, stopwords included, 0.0 if none were scored
+     */
+    @Override
+    public double getAverageTokensPerReview() {
+        long reviews = scoredReviewsCount.sum();
+        return reviews == 0 ? 0.0 : (double) tokensCount.sum() / reviews;
+    }
+
+    /**
+     * @return the share of the words of the scored reviews that have no score, stopwords included,
+     * 0.0 if no words were scored
+     */
+    @Override
+    public double getUnknownWordRatio() {
+        long tokens = tokensCount.sum();
+        return tokens == 0 ? 0.0 : (double) unknownTokensCount.sum() / tokens;
+    }
+
+    /**
+     * @return the dictionary size after the last load or append
+     */
+    @Override
+    public int getDictionarySize() {
+        return dictionarySize;
+    }
+
+    @Override
+    public int getStopwordsCount() {
+        return stopwordsCount;
+    }
+
+    /**
+     * @return how long the last load of the stopwords and the dictionary took, from a corpus or a model file
+     */
+    @Override
+    public long getLoadDurationNanos() {
+        return loadDurationNanos;
+    }
+
+    private Map<String, Long> byOperation(ToLongFunction<LatencySnapshot> metric) {
+
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (AnalyzerOperation operation : OPERATIONS) {
+            values.put(operation.name(), metric.applyAsLong(getLatency(operation)));
+        }
+        return values;
+
+    }
+
+}
@@ -0,0 +1,47 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+/**
+ * Receives the measurements of an analyzer, set with {@link AnalyzerOptions#withMetrics(MetricsSink)}.
+ * <p>
+ * The methods are called on the hot path of the analyzer, from any thread that uses it, so they must be
+ * thread-safe and cheap, and should not allocate. Every method does nothing by default.
+ * {@link MetricsRegistry} keeps the measurements in memory and can expose them over JMX.
+ */
+public interface MetricsSink {
+
+    /**
+     * A sink that discards everything. An analyzer with it does not even read the clock.
+     */
+    MetricsSink NONE = new MetricsSink() {
+    };
+
+    /**
+     * @param operation the method that was called
+     * @param nanos     how long the call took, including argument validation
+     */
+    default void recordLatency(AnalyzerOperation operation, long nanos) {
+    }
+
+    /**
+     * @param tokensCount        the words the review was split into, stopwords included
+     * @param unknownTokensCount those of them that have no score in the dictionary
+     */
+    default void recordScoredReview(int tokensCount, int unknownTokensCount) {
+    }
+
+    /**
+     * @param reviewsCount   the reviews that were stored by an append
+     * @param dictionarySize the number of words in the dictionary after the append
+     */
+    default void recordAppendedReviews(int reviewsCount, int dictionarySize) {
+    }
+
+    /**
+     * @param nanos          how long it took to read the stopwords and build the dictionary
+     * @param dictionarySize the number of words in the dictionary
+     * @param stopwordsCount the number of stopwords
+     */
+    default void recordLoad(long nanos, int dictionarySize, int stopwordsCount) {
+    }
+
+}
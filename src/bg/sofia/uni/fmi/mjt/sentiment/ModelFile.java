@@ -0,0 +1,222 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Stores a trained model in a compact, versioned binary file and loads it back by memory-mapping it.
+ * <p>
+ * Layout, big-endian: the magic number, the format version, the sequence number of the last
+ * {@link AppendLog} record included in the model (since version 2), the stopwords and the dictionary words
+ * as a count followed by length-prefixed UTF-8 strings, then the statistics of the words in id order as
+ * whole columns: occurrences, reviews counts, ratings sums and the rating histograms.
+ * The file ends with a CRC32 checksum of everything before it.
+ * The file is written next to its destination, forced to disk and moved over it, and then the directory
+ * is forced too, so a reader never sees a partial file and the file survives a crash once it is written.
+ */
+final class ModelFile {
+
+    private static final int MAGIC = 0x53414D46;
+    private static final int VERSION = 2;
+    private static final int FIRST_VERSION_WITH_LOG_SEQUENCE = 2;
+    private static final long NO_LOG_SEQUENCE = 0;
+    private static final int CHECKSUM_BYTES = Long.BYTES;
+    // occurrences, reviews count, ratings sum and rating histogram
+    private static final int WORD_STATISTICS_BYTES = Integer.BYTES * 2 + Long.BYTES
+            + SentimentModel.RATINGS_COUNT * Integer.BYTES;
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    record StoredModel(Vocabulary stopwords, SentimentModel model, long logSequence) {
+    }
+
+    private ModelFile() {
+    }
+
+    /**
+     * @param logSequence the sequence number of the last {@link AppendLog} record included in the model, 0 if none
+     */
+    static void write(Path file, Vocabulary stopwords, SentimentModel model, long logSequence) throws IOException {
+
+        Path temporary = file.resolveSibling(file.getFileName() + TEMPORARY_SUFFIX);
+
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             OutputStream fileOut = new BufferedOutputStream(Channels.newOutputStream(channel))) {
+            CRC32 checksum = new CRC32();
+            DataOutputStream out = new DataOutputStream(new CheckedOutputStream(fileOut, checksum));
+
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(logSequence);
+
+            out.writeInt(stopwords.size());
+            for (int id = 0; id < stopwords.size(); id++) {
+                writeWord(out, stopwords.getWord(id));
+            }
+
+            int size = model.size();
+            out.writeInt(size);
+            for (int id = 0; id < size; id++) {
+                writeWord(out, model.getWord(id));
+            }
+            for (int id = 0; id < size; id++) {
+                out.writeInt(model.getFrequency(id));
+            }
+            for (int id = 0; id < size; id++) {
+                out.writeInt(model.getReviewsCount(id));
+            }
+            for (int id = 0; id < size; id++) {
+                out.writeLong(model.getRatingsSum(id));
+            }
+            for (int id = 0; id < size; id++) {
+                for (int rating = 0; rating < SentimentModel.RATINGS_COUNT; rating++) {
+                    out.writeInt(model.getRatingCount(id, rating));
+                }
+            }
+
+            out.flush();
+            new DataOutputStream(fileOut).writeLong(checksum.getValue());
+            fileOut.flush();
+            // the content is on disk before the file takes the place of the previous one
+            channel.force(true);
+        }
+
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        DurableFiles.forceDirectory(file.toAbsolutePath().getParent());
+
+    }
+
+    /**
+     * @throws IOException if the file cannot be read, is not a model file, or its checksum, a length or a count
+     *                     does not match its content
+     */
+    static StoredModel read(Path file) throws IOException {
+
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Model file is too large: " + file);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        try {
+            verifyChecksum(buffer, file);
+
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a sentiment model file: " + file);
+            }
+            int version = buffer.getInt();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Unsupported model file version " + version + ": " + file);
+            }
+            long logSequence = version >= FIRST_VERSION_WITH_LOG_SEQUENCE ? buffer.getLong() : NO_LOG_SEQUENCE;
+
+            Vocabulary stopwords = readWords(buffer, file);
+            Vocabulary words = readWords(buffer, file);
+            int size = words.size();
+            if ((long) size * WORD_STATISTICS_BYTES != buffer.remaining()) {
+                throw corrupted(file);
+            }
+
+            int[] occurrences = new int[size];
+            buffer.asIntBuffer().get(occurrences);
+            buffer.position(buffer.position() + size * Integer.BYTES);
+
+            int[] reviewsCounts = new int[size];
+            buffer.asIntBuffer().get(reviewsCounts);
+            buffer.position(buffer.position() + size * Integer.BYTES);
+
+            long[] ratingsSums = new long[size];
+            buffer.asLongBuffer().get(ratingsSums);
+            buffer.position(buffer.position() + size * Long.BYTES);
+
+            int[] histograms = new int[size * SentimentModel.RATINGS_COUNT];
+            buffer.asIntBuffer().get(histograms);
+
+            return new StoredModel(stopwords, new SentimentModel(words, occurrences, reviewsCounts,
+                    ratingsSums, histograms), logSequence);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Model file is corrupted: " + file, e);
+        }
+
+    }
+
+    private static IOException corrupted(Path file) {
+        return new IOException("Model file is corrupted: " + file);
+    }
+
+    private static void verifyChecksum(ByteBuffer buffer, Path file) throws IOException {
+
+        int contentSize = buffer.limit() - CHECKSUM_BYTES;
+        if (contentSize < 0) {
+            throw new IOException("Not a sentiment model file: " + file);
+        }
+
+        CRC32 checksum = new CRC32();
+        checksum.update(buffer.duplicate().limit(contentSize));
+
+        if (checksum.getValue() != buffer.getLong(contentSize)) {
+            throw new IOException("Model file checksum does not match: " + file);
+        }
+
+        // nothing is read past the content, even if its lengths and counts are wrong
+        buffer.limit(contentSize);
+
+    }
+
+    private static void writeWord(DataOutputStream out, String word) throws IOException {
+        byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * @throws IOException if the count or a length is negative or longer than the rest of the file,
+     *                     or a word is repeated
+     */
+    private static Vocabulary readWords(ByteBuffer buffer, Path file) throws IOException {
+
+        int count = buffer.getInt();
+        // every word takes at least its length
+        if (count < 0 || count > buffer.remaining() / Integer.BYTES) {
+            throw corrupted(file);
+        }
+
+        Vocabulary words = new Vocabulary(count);
+        byte[] bytes = new byte[0];
+
+        for (int i = 0; i < count; i++) {
+            int length = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) {
+                throw corrupted(file);
+            }
+            if (bytes.length < length) {
+                bytes = new byte[Math.max(length, bytes.length << 1)];
+            }
+            buffer.get(bytes, 0, length);
+            // a repeated word would shift the ids of the statistics after it
+            if (words.add(new String(bytes, 0, length, StandardCharsets.UTF_8)) != i) {
+                throw corrupted(file);
+            }
+        }
+
+        return words;
+
+    }
+
+}
@@ -0,0 +1,44 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A partition of the sentiment dictionary holding the statistics of the words hashed to it,
+ * in this process ({@link LocalModelShard}) or in a {@link ShardServer} ({@link RemoteModelShard}).
+ * All methods are thread-safe.
+ */
+interface ModelShard extends Closeable {
+
+    /**
+     * Adds the occurrences of the words of this shard in a batch of reviews.
+     */
+    void append(ShardBatch batch) throws IOException;
+
+    /**
+     * @return the score of every word, {@link Double#NaN} for the words that are not in the shard
+     */
+    double[] getScores(String[] words) throws IOException;
+
+    /**
+     * @return the number of occurrences of the word, 0 if it is not in the shard
+     */
+    int getFrequency(String word) throws IOException;
+
+    /**
+     * The top n methods rank the words as {@link SentimentModel} does, the words with a smaller ordinal first
+     * on a tie, so the answers of all shards merged by the same order are the answer of a single model.
+     */
+    List<RankedWord> getMostFrequentWords(int n) throws IOException;
+
+    List<RankedWord> getMostPositiveWords(int n) throws IOException;
+
+    /**
+     * @return the n most negative words, the words with a larger ordinal first on a tie
+     */
+    List<RankedWord> getMostNegativeWords(int n) throws IOException;
+
+    int size() throws IOException;
+
+}
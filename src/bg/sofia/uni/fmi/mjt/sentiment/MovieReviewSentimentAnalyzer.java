@@ -4,265 +4,679 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.Writer;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
 import java.util.List;
-import java.util.Map;
-import java.util.NoSuchElementException;
-import java.util.Set;
-
-public class MovieReviewSentimentAnalyzer implements SentimentAnalyzer {
-
-    private Writer reviewsWriter;
-    private Map<String, Double> scores;
-    private Map<String, Integer> occurrences;
-    private Set<String> stopwords;
-    private Map<String, List<Integer>> words;
-    private final static int REVIEW_INDEX = 0;
+import java.util.concurrent.Executor;
+
+public class MovieReviewSentimentAnalyzer extends AbstractSentimentAnalyzer {
+
+    private ReviewJournal journal;
+    private Vocabulary stopwords;
+    private SentimentModel model;
+    private ReviewParser reviewParser;
+    // the ratings of the appended reviews over time, null unless the options enable time windows
+    private SentimentTimeline timeline;
+    private Clock clock;
+    private MetricsSink metrics;
+    // the clock is not read at all without a metrics sink
+    private boolean instrumented;
+    // a scorer per thread, so that reviews can be scored concurrently while nothing is appended
+    private static final ThreadLocal<ReviewScorer> REVIEW_SCORERS = ThreadLocal.withInitial(ReviewScorer::new);
     private final static int DEFAULT_NUMBER_OF_OCCURRENCES = 0;
-    private final static int COMPARISON_EQUALITY = 0;
-    private final static String WORD_ARGUMENT = "Word";
-    private final static String REVIEW_ARGUMENT = "Review";
-    private final static String EMPTY_SYMBOL = " ";
-    private final static String SPLIT_REGEX = "[^a-zA-Z0-9']";
-    private final static int MIN_WORD_SIZE = 2;
 
     public MovieReviewSentimentAnalyzer(Reader stopwordsIn, Reader reviewsIn, Writer reviewsOut) {
+        this(stopwordsIn, reviewsIn, reviewsOut, AnalyzerOptions.defaults());
+    }
+
+    /**
+     * @param options how the reviews are loaded, for example in parallel, and how the words are ranked
+     */
+    public MovieReviewSentimentAnalyzer(Reader stopwordsIn, Reader reviewsIn, Writer reviewsOut,
+                                        AnalyzerOptions options) {
+
+        long loadStartNanos = System.nanoTime();
 
         if (stopwordsIn == null || reviewsIn == null || reviewsOut == null) {
             throw new IllegalArgumentException("A file is invalid");
         }
+        if (options == null) {
+            throw new IllegalArgumentException("Options cannot be null");
+        }
 
-        reviewsWriter = reviewsOut;
-        scores = new HashMap<>();
-        stopwords = new HashSet<>();
-        occurrences = new HashMap<>();
-        words = new HashMap<>();
-        BufferedReader reviewsInBuffered = new BufferedReader(reviewsIn);
-        BufferedReader stopWordsInBuffered = new BufferedReader(stopwordsIn);
-
-        extractStopwords(stopWordsInBuffered);
-
-        setData(reviewsInBuffered);
+        Vocabulary stopwordsRead = readStopwords(new BufferedReader(stopwordsIn));
+        setUp(new WriterJournal(reviewsOut, options.getFlushPolicy()), stopwordsRead,
+                readModel(new BufferedReader(reviewsIn), stopwordsRead, options), options, loadStartNanos);
 
     }
 
-    private void setData(BufferedReader reviewsInBuffered) {
+    /**
+     * Creates an analyzer from a corpus file on a local disk, which is memory-mapped and scanned
+     * byte by byte instead of being decoded line by line, and is much faster to load when it is large.
+     * The file must be in UTF-8 or another ASCII-compatible encoding.
+     *
+     * @param stopwordsFile the stopwords, one per line, in UTF-8
+     * @param reviewsFile   the reviews, one per line
+     * @param options       how the reviews are loaded, for example in parallel, and how the words are ranked
+     * @throws IllegalStateException if a file cannot be read
+     */
+    public MovieReviewSentimentAnalyzer(Path stopwordsFile, Path reviewsFile, Writer reviewsOut,
+                                        AnalyzerOptions options) {
+
+        long loadStartNanos = System.nanoTime();
+
+        if (stopwordsFile == null || reviewsFile == null || reviewsOut == null) {
+            throw new IllegalArgumentException("A file is invalid");
+        }
+        if (options == null) {
+            throw new IllegalArgumentException("Options cannot be null");
+        }
 
-        try {
-            String line;
-            while ((line = reviewsInBuffered.readLine()) != null) {
-                parseLine(line);
-            }
+        Vocabulary stopwordsRead;
+        try (BufferedReader stopwordsIn = Files.newBufferedReader(stopwordsFile, StandardCharsets.UTF_8)) {
+            stopwordsRead = readStopwords(stopwordsIn);
         } catch (IOException e) {
-            throw new IllegalStateException("A problem occurred while reading reviews");
+            throw new IllegalStateException("Stopwords could not be extracted", e);
         }
 
-        calculateScores();
+        setUp(new WriterJournal(reviewsOut, options.getFlushPolicy()), stopwordsRead,
+                readModel(reviewsFile, stopwordsRead, options), options, loadStartNanos);
 
     }
 
-    private void extractStopwords(BufferedReader stopWordsInBuffered) {
+    /**
+     * Creates an analyzer that stores appended reviews durably in a log instead of a data set writer.
+     * The reviews already in the log are replayed after the corpus, so they are counted and kept by the next
+     * checkpoint. Save the model with {@link #checkpoint(Path)} to be able to {@link #recover(Path, AppendLog)}
+     * it later.
+     *
+     * @param reviewsLog where appended reviews are stored
+     * @param options    how the reviews are loaded, for example in parallel, and how the words are ranked
+     * @throws IllegalStateException if the log cannot be read
+     */
+    public MovieReviewSentimentAnalyzer(Reader stopwordsIn, Reader reviewsIn, AppendLog reviewsLog,
+                                        AnalyzerOptions options) {
+
+        long loadStartNanos = System.nanoTime();
+
+        if (stopwordsIn == null || reviewsIn == null || reviewsLog == null) {
+            throw new IllegalArgumentException("A file is invalid");
+        }
+        if (options == null) {
+            throw new IllegalArgumentException("Options cannot be null");
+        }
 
+        Vocabulary stopwordsRead = readStopwords(new BufferedReader(stopwordsIn));
+        SentimentModel modelRead = readModel(new BufferedReader(reviewsIn), stopwordsRead, options);
+
+        ReviewParser replayParser = new ReviewParser(stopwordsRead, modelRead);
         try {
-            String line;
-            while ((line = stopWordsInBuffered.readLine()) != null) {
-                stopwords.add(line.toLowerCase().strip());
-                // they should be all lowercase already but just to be sure
-            }
+            reviewsLog.replay(0, (sequence, review, sentiment) -> replayParser.parseReview(review, sentiment));
         } catch (IOException e) {
-            throw new IllegalStateException("Stopwords could not be extracted", e);
+            throw new IllegalStateException("A problem occurred while reading reviews", e);
         }
 
+        setUp(reviewsLog, stopwordsRead, modelRead, options, loadStartNanos);
+
     }
 
-    private void parseLine(String line) {
+    private MovieReviewSentimentAnalyzer(ReviewJournal journal, ModelFile.StoredModel storedModel,
+                                         AnalyzerOptions options, long loadStartNanos) {
+        setUp(journal, storedModel.stopwords(), storedModel.model(), options, loadStartNanos);
+    }
 
-        int rating = Integer.parseInt(String.valueOf(line.charAt(REVIEW_INDEX)));
+    /**
+     * Creates an analyzer from a model saved with {@link #saveModel(Path)}, without re-reading the reviews.
+     *
+     * @param modelFile  the saved model
+     * @param reviewsOut where appended reviews are stored
+     * @throws IOException if the file cannot be read or is not a valid model file
+     */
+    public static MovieReviewSentimentAnalyzer loadModel(Path modelFile, Writer reviewsOut) throws IOException {
+        return loadModel(modelFile, reviewsOut, AnalyzerOptions.defaults());
+    }
 
-        List<String> wordsList = splitLine(line.strip());
-        Set<String> wordsNonRepeating = new HashSet<>();
+    /**
+     * Creates an analyzer from a model saved with {@link #saveModel(Path)}, without re-reading the reviews.
+     *
+     * @param modelFile  the saved model
+     * @param reviewsOut where appended reviews are stored
+     * @param options    how the words are ranked and how appended reviews are flushed
+     * @throws IOException if the file cannot be read or is not a valid model file
+     */
+    public static MovieReviewSentimentAnalyzer loadModel(Path modelFile, Writer reviewsOut,
+                                                         AnalyzerOptions options) throws IOException {
+
+        if (modelFile == null || reviewsOut == null) {
+            throw new IllegalArgumentException("A file is invalid");
+        }
+        if (options == null) {
+            throw new IllegalArgumentException("Options cannot be null");
+        }
 
-        for (String word : wordsList) {
+        long loadStartNanos = System.nanoTime();
+        return new MovieReviewSentimentAnalyzer(new WriterJournal(reviewsOut, options.getFlushPolicy()),
+                ModelFile.read(modelFile), options, loadStartNanos);
 
-            String wordLowerCase = word.toLowerCase().strip();
+    }
 
-            if (isStopWord(wordLowerCase)) {
-                continue;
-            }
+    /**
+     * Restores an analyzer after a restart or a crash from the last {@link #checkpoint(Path)}
+     * and the reviews appended to the log after it.
+     *
+     * @param modelFile  the model saved by the last checkpoint
+     * @param reviewsLog the log the analyzer stored its appended reviews in
+     * @throws IOException if the model file or the log cannot be read
+     */
+    public static MovieReviewSentimentAnalyzer recover(Path modelFile, AppendLog reviewsLog) throws IOException {
+        return recover(modelFile, reviewsLog, AnalyzerOptions.defaults());
+    }
+
+    /**
+     * Restores an analyzer after a restart or a crash from the last {@link #checkpoint(Path)}
+     * and the reviews appended to the log after it.
+     *
+     * @param modelFile  the model saved by the last checkpoint
+     * @param reviewsLog the log the analyzer stored its appended reviews in
+     * @param options    how the words are ranked
+     * @throws IOException if the model file or the log cannot be read
+     */
+    public static MovieReviewSentimentAnalyzer recover(Path modelFile, AppendLog reviewsLog,
+                                                       AnalyzerOptions options) throws IOException {
+
+        if (modelFile == null || reviewsLog == null) {
+            throw new IllegalArgumentException("A file is invalid");
+        }
+        if (options == null) {
+            throw new IllegalArgumentException("Options cannot be null");
+        }
 
-            occurrences.putIfAbsent(wordLowerCase, 0);
-            occurrences.put(wordLowerCase, occurrences.get(wordLowerCase) + 1);
+        long loadStartNanos = System.nanoTime();
+        ModelFile.StoredModel storedModel = ModelFile.read(modelFile);
+        ReviewParser replayParser = new ReviewParser(storedModel.stopwords(), storedModel.model());
+        reviewsLog.replay(storedModel.logSequence(),
+                (sequence, review, sentiment) -> replayParser.parseReview(review, sentiment));
 
-            if (wordsNonRepeating.contains(wordLowerCase)) {
-                continue;
-            }
+        return new MovieReviewSentimentAnalyzer(reviewsLog, storedModel, options, loadStartNanos);
+
+    }
 
-            wordsNonRepeating.add(wordLowerCase);
+    private void setUp(ReviewJournal journal, Vocabulary stopwords, SentimentModel model, AnalyzerOptions options,
+                       long loadStartNanos) {
 
-            words.putIfAbsent(wordLowerCase, new ArrayList<>());
-            words.get(wordLowerCase).add(rating);
+        if (options.hasRankingIndex() && options.hasApproximateFrequencies()) {
+            throw new IllegalArgumentException("A ranking index needs exact frequencies");
+        }
+        if (options.hasPhrases() && model.getPhrases() == null) {
+            throw new IllegalArgumentException("Phrases are rated only while the reviews are loaded");
         }
 
-    }
+        this.journal = journal;
+        this.stopwords = stopwords;
+        this.model = model;
+        this.timeline = options.hasTimeWindows()
+                ? new SentimentTimeline(options.getRetentionDays(), options.getHalfLife()) : null;
+        this.clock = options.getClock();
+        this.reviewParser = new ReviewParser(stopwords, model, timeline);
+        this.metrics = options.getMetrics();
+        this.instrumented = metrics != MetricsSink.NONE;
+
+        if (options.hasRankingIndex()) {
+            model.enableRankingIndex();
+        }
+        if (options.hasApproximateFrequencies()) {
+            model.enableApproximateFrequencies(options.getFrequencyError(), options.getHeavyHittersCount());
+        }
+
+        if (instrumented) {
+            metrics.recordLoad(System.nanoTime() - loadStartNanos, model.size(), stopwords.size());
+        }
 
-    private List<String> splitLine(String line) {
-        return Arrays.stream(line.split(SPLIT_REGEX))
-                .toList()
-                .stream()
-                .filter(string -> string.length() >= MIN_WORD_SIZE)
-                .toList();
     }
 
-    private void calculateScores() {
-        for (var entry : words.entrySet()) {
-            scores.put(entry.getKey(), entry.getValue()
-                    .stream()
-                    .mapToInt(x -> x)
-                    .average()
-                    .orElseThrow(() -> new NoSuchElementException("No average score calculated")));
+    /**
+     * Saves the stopwords and the sentiment dictionary, including the appended reviews,
+     * in a binary file that {@link #loadModel(Path, Writer)} loads much faster than the reviews.
+     * The file is replaced atomically. Approximate frequencies are saved as their estimates, and phrases are not saved.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public void saveModel(Path modelFile) throws IOException {
+
+        if (modelFile == null) {
+            throw new IllegalArgumentException("A file is invalid");
         }
+
+        long logSequence = journal instanceof AppendLog reviewsLog ? reviewsLog.getLastSequence() : 0;
+        ModelFile.write(modelFile, stopwords, model, logSequence);
+
     }
 
-    public void validateStringArgument(String string, String argName) {
-        if (string == null || string.isBlank()) {
-            throw new IllegalArgumentException(argName + " cannot be null, blank or empty");
+    /**
+     * Saves the model together with the position in the log it includes and deletes the log segments
+     * it makes unnecessary, so that {@link #recover(Path, AppendLog)} replays only the reviews appended after it.
+     * The segments are deleted only once the model file and its directory are forced to disk, so a crash
+     * at any point leaves either the previous model and its segments or the new model.
+     *
+     * @throws IllegalStateException if the analyzer does not store its reviews in an {@link AppendLog}
+     * @throws IOException           if the model cannot be saved or the log cannot be synced
+     */
+    public void checkpoint(Path modelFile) throws IOException {
+
+        if (!(journal instanceof AppendLog reviewsLog)) {
+            throw new IllegalStateException("Only an analyzer with an append log can be checkpointed");
         }
+
+        reviewsLog.sync();
+        saveModel(modelFile);
+        reviewsLog.deleteSegmentsThrough(reviewsLog.getLastSequence());
+
     }
 
-    public void validateIntegerArgument(int n) {
-        if (n < 0) {
-            throw new IllegalArgumentException("The number of words must be non-negative");
-        }
+    /**
+     * Compiles the dictionary as it is now into a read-only analyzer with faster lookups, for replicas
+     * that only score. Reviews appended to this analyzer afterwards do not change the frozen one.
+     * Approximate frequencies are frozen as their estimates, and the frozen analyzer scores by words only.
+     * Must not be called while reviews are appended.
+     */
+    public FrozenSentimentAnalyzer freeze() {
+        return new FrozenSentimentAnalyzer(stopwords.copy(), FrozenDictionary.of(model));
     }
 
     @Override
     public double getReviewSentiment(String review) {
 
-        validateStringArgument(review, REVIEW_ARGUMENT);
+        long startNanos = startTiming();
 
-        return new HashSet<>(splitLine(review))
-                .stream()
-                .filter(word -> !stopwords.contains(word.toLowerCase().strip())
-                        && scores.containsKey(word.toLowerCase().strip()))
-                .mapToDouble(word -> scores.get(word.toLowerCase()))
-                .average()
-                .orElse(RatingType.UNKNOWN.getRatingNumber());
+        try {
+            validateStringArgument(review, REVIEW_ARGUMENT);
+            return scoreReview(review);
+        } finally {
+            stopTiming(AnalyzerOperation.GET_REVIEW_SENTIMENT, startNanos);
+        }
 
     }
 
     @Override
-    public String getReviewSentimentAsName(String review) {
+    public double[] scoreAll(String[] reviews, int parallelism) {
+
+        long startNanos = startTiming();
+
+        try {
+            return super.scoreAll(reviews, parallelism);
+        } finally {
+            stopTiming(AnalyzerOperation.SCORE_ALL, startNanos);
+        }
+
+    }
 
-        var sentiment = Math.round(getReviewSentiment(review));
+    @Override
+    public double[] scoreAll(String[] reviews, int parallelism, Executor executor) {
 
-        String result = RatingType.UNKNOWN.getRatingText();
+        long startNanos = startTiming();
 
-        for (RatingType value : RatingType.values()) {
-            if (Double.compare(value.getRatingNumber(), sentiment) == COMPARISON_EQUALITY) {
-                result = value.getRatingText();
+        try {
+            return super.scoreAll(reviews, parallelism, executor);
+        } finally {
+            stopTiming(AnalyzerOperation.SCORE_ALL, startNanos);
+        }
+
+    }
+
+    @Override
+    void scoreRange(String[] reviews, double[] scores, int from, int to) {
+
+        if (!instrumented && model.getPhrases() == null) {
+            scoreRange(REVIEW_SCORERS.get(), model, reviews, scores, from, to);
+            return;
+        }
+
+        ReviewScorer scorer = REVIEW_SCORERS.get();
+        for (int i = from; i < to; i++) {
+            String review = reviews[i];
+            scores[i] = review == null ? RatingType.UNKNOWN.getRatingNumber() : score(scorer, review);
+            if (instrumented) {
+                metrics.recordScoredReview(scorer.getTokensCount(),
+                        scorer.getTokensCount() - scorer.getKnownTokensCount());
             }
         }
 
-        return result;
+    }
+
+    /**
+     * Scores a valid review and records its words as those of a scored review.
+     */
+    private double scoreReview(String review) {
+
+        ReviewScorer scorer = REVIEW_SCORERS.get();
+        double score = score(scorer, review);
+
+        if (instrumented) {
+            metrics.recordScoredReview(scorer.getTokensCount(),
+                    scorer.getTokensCount() - scorer.getKnownTokensCount());
+        }
+
+        return score;
+
+    }
+
+    private double score(ReviewScorer scorer, String review) {
+        return model.getPhrases() != null ? scorer.score(model, stopwords, review) : scorer.score(model, review);
+    }
+
+    @Override
+    public String getReviewSentimentAsName(String review) {
+
+        long startNanos = startTiming();
+
+        try {
+            // scored here rather than through getReviewSentiment, so the call is recorded once
+            validateStringArgument(review, REVIEW_ARGUMENT);
+            return RatingType.fromScore(scoreReview(review)).getRatingText();
+        } finally {
+            stopTiming(AnalyzerOperation.GET_REVIEW_SENTIMENT_AS_NAME, startNanos);
+        }
 
     }
 
     @Override
     public double getWordSentiment(String word) {
 
-        validateStringArgument(word, WORD_ARGUMENT);
+        long startNanos = startTiming();
 
-        Double result = scores.get(word.toLowerCase().trim());
-        return result != null ? result : RatingType.UNKNOWN.getRatingNumber();
+        try {
+            validateStringArgument(word, WORD_ARGUMENT);
+
+            int id = model.find(word.toLowerCase().trim());
+            return id != Vocabulary.NOT_FOUND ? model.getScore(id) : RatingType.UNKNOWN.getRatingNumber();
+        } finally {
+            stopTiming(AnalyzerOperation.GET_WORD_SENTIMENT, startNanos);
+        }
 
     }
 
     @Override
     public int getWordFrequency(String word) {
 
-        validateStringArgument(word, WORD_ARGUMENT);
+        long startNanos = startTiming();
 
-        return occurrences.getOrDefault(word.toLowerCase().trim(), DEFAULT_NUMBER_OF_OCCURRENCES);
+        try {
+            validateStringArgument(word, WORD_ARGUMENT);
+
+            int id = model.find(word.toLowerCase().trim());
+            return id != Vocabulary.NOT_FOUND ? model.getFrequency(id) : DEFAULT_NUMBER_OF_OCCURRENCES;
+        } finally {
+            stopTiming(AnalyzerOperation.GET_WORD_FREQUENCY, startNanos);
+        }
 
     }
 
     @Override
     public List<String> getMostFrequentWords(int n) {
 
-        validateIntegerArgument(n);
+        long startNanos = startTiming();
+
+        try {
+            validateIntegerArgument(n);
 
-        return occurrences.entrySet()
-                .stream()
-                .sorted(Map.Entry.comparingByValue((a, b) -> Integer.compare(b, a)))
-                .limit(n)
-                .map(Map.Entry::getKey)
-                .toList();
+            return model.getMostFrequentWords(n);
+        } finally {
+            stopTiming(AnalyzerOperation.GET_MOST_FREQUENT_WORDS, startNanos);
+        }
 
     }
 
     @Override
     public List<String> getMostPositiveWords(int n) {
 
-        validateIntegerArgument(n);
+        long startNanos = startTiming();
+
+        try {
+            validateIntegerArgument(n);
 
-        return scores.entrySet()
-                .stream()
-                .sorted(Map.Entry.comparingByValue((a, b) -> Double.compare(b, a)))
-                .limit(n)
-                .map(Map.Entry::getKey)
-                .toList();
+            return model.getMostPositiveWords(n);
+        } finally {
+            stopTiming(AnalyzerOperation.GET_MOST_POSITIVE_WORDS, startNanos);
+        }
 
     }
 
     @Override
     public List<String> getMostNegativeWords(int n) {
 
-        validateIntegerArgument(n);
+        long startNanos = startTiming();
+
+        try {
+            validateIntegerArgument(n);
 
-        return scores.entrySet()
-                .stream()
-                .sorted(Map.Entry.comparingByValue())
-                .limit(n)
-                .map(Map.Entry::getKey)
-                .toList();
+            return model.getMostNegativeWords(n);
+        } finally {
+            stopTiming(AnalyzerOperation.GET_MOST_NEGATIVE_WORDS, startNanos);
+        }
 
     }
 
     @Override
     public boolean appendReview(String review, int sentiment) {
 
-        validateStringArgument(review, REVIEW_ARGUMENT);
-        if (sentiment < RatingType.NEGATIVE.getRatingNumber() ||
-                sentiment > RatingType.POSITIVE.getRatingNumber()) {
-            throw new IllegalArgumentException("Review sentiment is not in the required range");
+        long startNanos = startTiming();
+
+        try {
+            validateStringArgument(review, REVIEW_ARGUMENT);
+            validateSentimentArgument(sentiment);
+
+            return append(review, sentiment, timeline != null ? clock.millis() : 0);
+        } finally {
+            stopTiming(AnalyzerOperation.APPEND_REVIEW, startNanos);
         }
 
-        String line = sentiment + EMPTY_SYMBOL + review + System.lineSeparator();
+    }
+
+    /**
+     * Appends a review written at the given time, which places its ratings in the time windows.
+     * The time is not stored in the data set, so it is lost if the reviews are loaded again.
+     *
+     * @param time when the review was written, possibly before the reviews appended already
+     * @throws IllegalArgumentException if review is null, empty or blank, sentiment is not in the [0, 4] range
+     *                                  or time is null
+     * @throws IllegalStateException    if the options of the analyzer do not enable time windows
+     */
+    public boolean appendReview(String review, int sentiment, Instant time) {
+
+        long startNanos = startTiming();
 
         try {
-            reviewsWriter.append(line);
-        } catch (IOException e) {
-            e.printStackTrace();
-            return false;
+            validateStringArgument(review, REVIEW_ARGUMENT);
+            validateSentimentArgument(sentiment);
+            if (time == null) {
+                throw new IllegalArgumentException("Time cannot be null");
+            }
+            validateTimeWindows();
+
+            return append(review, sentiment, time.toEpochMilli());
+        } finally {
+            stopTiming(AnalyzerOperation.APPEND_REVIEW, startNanos);
         }
 
-        parseLine(line.strip());
+    }
 
-        calculateScores();
+    /**
+     * @param lastDays the number of days up to the current day of the clock, today included
+     * @return the average rating of the reviews appended in the last days that contain the word,
+     * and -1.0 if there are none
+     * @throws IllegalArgumentException if word is null, empty or blank, or lastDays is not positive
+     * @throws IllegalStateException    if the options of the analyzer do not enable time windows
+     */
+    public double getWordSentiment(String word, int lastDays) {
+
+        validateStringArgument(word, WORD_ARGUMENT);
+        validateLastDays(lastDays);
+        validateTimeWindows();
+
+        int id = model.find(word.toLowerCase().trim());
+        return id != Vocabulary.NOT_FOUND ? knownOrUnknown(timeline.getScore(id, lastDays, today()))
+                : RatingType.UNKNOWN.getRatingNumber();
+
+    }
+
+    /**
+     * @param lastDays the number of days up to the current day of the clock, today included
+     * @return the review sentiment by the ratings of the reviews appended in the last days,
+     * and -1.0 if none of them contains a word of the review
+     * @throws IllegalArgumentException if review is null, empty or blank, or lastDays is not positive
+     * @throws IllegalStateException    if the options of the analyzer do not enable time windows
+     */
+    public double getReviewSentiment(String review, int lastDays) {
+
+        validateStringArgument(review, REVIEW_ARGUMENT);
+        validateLastDays(lastDays);
+        validateTimeWindows();
+
+        return REVIEW_SCORERS.get().score(timeline.windowed(model, lastDays, today()), review);
+
+    }
+
+    /**
+     * @return the average rating of the appended reviews that contain the word, the weight of a rating
+     * halving every half-life, and -1.0 if there are none
+     * @throws IllegalArgumentException if word is null, empty or blank
+     * @throws IllegalStateException    if the options of the analyzer do not enable time windows
+     */
+    public double getDecayedWordSentiment(String word) {
+
+        validateStringArgument(word, WORD_ARGUMENT);
+        validateTimeWindows();
+
+        int id = model.find(word.toLowerCase().trim());
+        return id != Vocabulary.NOT_FOUND ? knownOrUnknown(timeline.getDecayedScore(id))
+                : RatingType.UNKNOWN.getRatingNumber();
+
+    }
+
+    /**
+     * @return the review sentiment by the decayed scores of its words, see {@link #getDecayedWordSentiment(String)},
+     * and -1.0 if none of the appended reviews contains a word of the review
+     * @throws IllegalArgumentException if review is null, empty or blank
+     * @throws IllegalStateException    if the options of the analyzer do not enable time windows
+     */
+    public double getDecayedReviewSentiment(String review) {
+
+        validateStringArgument(review, REVIEW_ARGUMENT);
+        validateTimeWindows();
+
+        return REVIEW_SCORERS.get().score(timeline.decayed(model), review);
+
+    }
+
+    @Override
+    public boolean[] appendReviews(List<LabeledReview> reviews) {
+
+        long startNanos = startTiming();
+
+        try {
+            boolean[] stored = writeReviews(journal, reviews);
+            int storedCount = 0;
+            long epochMillis = timeline != null ? clock.millis() : 0;
+
+            for (int i = 0; i < stored.length; i++) {
+                if (stored[i]) {
+                    parse(reviews.get(i).review(), reviews.get(i).sentiment(), epochMillis);
+                    storedCount++;
+                }
+            }
+
+            if (instrumented) {
+                metrics.recordAppendedReviews(storedCount, model.size());
+            }
+
+            return stored;
+        } finally {
+            stopTiming(AnalyzerOperation.APPEND_REVIEWS, startNanos);
+        }
 
-        return true;
     }
 
     @Override
     public int getSentimentDictionarySize() {
-        return scores.size();
+
+        long startNanos = startTiming();
+
+        try {
+            return model.size();
+        } finally {
+            stopTiming(AnalyzerOperation.GET_SENTIMENT_DICTIONARY_SIZE, startNanos);
+        }
+
     }
 
     @Override
     public boolean isStopWord(String word) {
-        return stopwords.contains(word.toLowerCase().strip());
+
+        long startNanos = startTiming();
+
+        try {
+            return stopwords.find(word.toLowerCase().strip()) != Vocabulary.NOT_FOUND;
+        } finally {
+            stopTiming(AnalyzerOperation.IS_STOP_WORD, startNanos);
+        }
+
+    }
+
+    private boolean append(String review, int sentiment, long epochMillis) {
+
+        if (!writeReview(journal, review, sentiment)) {
+            return false;
+        }
+
+        // only the words of the new review change their score
+        parse(review, sentiment, epochMillis);
+
+        if (instrumented) {
+            metrics.recordAppendedReviews(1, model.size());
+        }
+
+        return true;
+
+    }
+
+    private void parse(String review, int sentiment, long epochMillis) {
+        if (timeline != null) {
+            reviewParser.parseReview(review, sentiment, epochMillis);
+        } else {
+            reviewParser.parseReview(review, sentiment);
+        }
+    }
+
+    private void validateTimeWindows() {
+        if (timeline == null) {
+            throw new IllegalStateException("The options of the analyzer do not enable time windows");
+        }
+    }
+
+    private static void validateLastDays(int lastDays) {
+        if (lastDays <= 0) {
+            throw new IllegalArgumentException("The number of days must be positive");
+        }
+    }
+
+    private long today() {
+        return SentimentTimeline.toDay(clock.millis());
+    }
+
+    private static double knownOrUnknown(double score) {
+        return Double.isNaN(score) ? RatingType.UNKNOWN.getRatingNumber() : score;
+    }
+
+    private long startTiming() {
+        return instrumented ? System.nanoTime() : 0;
+    }
+
+    private void stopTiming(AnalyzerOperation operation, long startNanos) {
+        if (instrumented) {
+            metrics.recordLatency(operation, System.nanoTime() - startNanos);
+        }
     }
 }
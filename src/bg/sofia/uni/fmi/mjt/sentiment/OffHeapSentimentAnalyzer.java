@@ -0,0 +1,209 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * An analyzer that keeps its sentiment dictionary off the heap, in direct buffers, for services
+ * whose latency suffers from collecting a heap with millions of words. Its answers are exactly those
+ * of a {@link MovieReviewSentimentAnalyzer} with the same corpus.
+ * <p>
+ * Only the stopwords stay on the heap. Like a {@link MovieReviewSentimentAnalyzer}, reviews can be
+ * scored concurrently while nothing is appended.
+ */
+public class OffHeapSentimentAnalyzer extends AbstractSentimentAnalyzer {
+
+    private static final ThreadLocal<ReviewScorer> REVIEW_SCORERS = ThreadLocal.withInitial(ReviewScorer::new);
+    private final static int DEFAULT_NUMBER_OF_OCCURRENCES = 0;
+
+    private final ReviewJournal journal;
+    private final Vocabulary stopwords;
+    private final OffHeapSentimentModel model;
+    private final Tokenizer tokenizer = new Tokenizer();
+    private final Tokenizer.TokenConsumer wordAdder = this::addWord;
+    private int currentRating;
+
+    public OffHeapSentimentAnalyzer(Reader stopwordsIn, Reader reviewsIn, Writer reviewsOut) {
+        this(stopwordsIn, reviewsIn, reviewsOut, AnalyzerOptions.defaults());
+    }
+
+    /**
+     * The reviews are loaded on the calling thread, whatever the parallelism of the options.
+     *
+     * @param options how appended reviews are flushed
+     * @throws IllegalArgumentException if the options enable a ranking index, approximate frequencies, phrases,
+     *                                  time windows or metrics
+     */
+    public OffHeapSentimentAnalyzer(Reader stopwordsIn, Reader reviewsIn, Writer reviewsOut,
+                                    AnalyzerOptions options) {
+        this(stopwordsIn, reviewsIn, reviewsOut, options, OffHeapSentimentModel.DEFAULT_BUFFER_SHIFT);
+    }
+
+    /**
+     * @param bufferShift the log2 of the size of the direct buffers the dictionary is allocated in
+     */
+    OffHeapSentimentAnalyzer(Reader stopwordsIn, Reader reviewsIn, Writer reviewsOut, AnalyzerOptions options,
+                             int bufferShift) {
+
+        if (stopwordsIn == null || reviewsIn == null || reviewsOut == null) {
+            throw new IllegalArgumentException("A file is invalid");
+        }
+        if (options == null) {
+            throw new IllegalArgumentException("Options cannot be null");
+        }
+        if (options.hasRankingIndex()) {
+            throw new IllegalArgumentException("An off-heap dictionary cannot have a ranking index");
+        }
+        if (options.hasApproximateFrequencies()) {
+            throw new IllegalArgumentException("An off-heap dictionary cannot have approximate frequencies");
+        }
+        if (options.hasPhrases()) {
+            throw new IllegalArgumentException("An off-heap dictionary cannot rate phrases");
+        }
+        if (options.hasTimeWindows()) {
+            throw new IllegalArgumentException("An off-heap dictionary cannot keep time windows");
+        }
+        if (options.getMetrics() != MetricsSink.NONE) {
+            throw new IllegalArgumentException("An off-heap dictionary cannot record metrics");
+        }
+
+        journal = new WriterJournal(reviewsOut, options.getFlushPolicy());
+        stopwords = readStopwords(new BufferedReader(stopwordsIn));
+        model = new OffHeapSentimentModel(bufferShift);
+
+        try {
+            BufferedReader reviewsInBuffered = new BufferedReader(reviewsIn);
+            String line;
+            while ((line = reviewsInBuffered.readLine()) != null) {
+                addReview(line, ReviewParser.parseRating(line));
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("A problem occurred while reading reviews", e);
+        }
+
+    }
+
+    /**
+     * @return the bytes of direct memory allocated for the dictionary
+     */
+    public long getOffHeapBytes() {
+        return model.getOffHeapBytes();
+    }
+
+    @Override
+    public double getReviewSentiment(String review) {
+
+        validateStringArgument(review, REVIEW_ARGUMENT);
+
+        return REVIEW_SCORERS.get().score(model, review);
+
+    }
+
+    @Override
+    void scoreRange(String[] reviews, double[] scores, int from, int to) {
+        scoreRange(REVIEW_SCORERS.get(), model, reviews, scores, from, to);
+    }
+
+    @Override
+    public double getWordSentiment(String word) {
+
+        validateStringArgument(word, WORD_ARGUMENT);
+
+        int id = model.find(word.toLowerCase().trim());
+        return id != Vocabulary.NOT_FOUND ? model.getScore(id) : RatingType.UNKNOWN.getRatingNumber();
+
+    }
+
+    @Override
+    public int getWordFrequency(String word) {
+
+        validateStringArgument(word, WORD_ARGUMENT);
+
+        int id = model.find(word.toLowerCase().trim());
+        return id != Vocabulary.NOT_FOUND ? model.getFrequency(id) : DEFAULT_NUMBER_OF_OCCURRENCES;
+
+    }
+
+    @Override
+    public List<String> getMostFrequentWords(int n) {
+
+        validateIntegerArgument(n);
+
+        return model.getMostFrequentWords(n);
+
+    }
+
+    @Override
+    public List<String> getMostPositiveWords(int n) {
+
+        validateIntegerArgument(n);
+
+        return model.getMostPositiveWords(n);
+
+    }
+
+    @Override
+    public List<String> getMostNegativeWords(int n) {
+
+        validateIntegerArgument(n);
+
+        return model.getMostNegativeWords(n);
+
+    }
+
+    @Override
+    public boolean appendReview(String review, int sentiment) {
+
+        validateStringArgument(review, REVIEW_ARGUMENT);
+        validateSentimentArgument(sentiment);
+
+        if (!writeReview(journal, review, sentiment)) {
+            return false;
+        }
+
+        addReview(review, sentiment);
+
+        return true;
+    }
+
+    @Override
+    public boolean[] appendReviews(List<LabeledReview> reviews) {
+
+        boolean[] stored = writeReviews(journal, reviews);
+
+        for (int i = 0; i < stored.length; i++) {
+            if (stored[i]) {
+                addReview(reviews.get(i).review(), reviews.get(i).sentiment());
+            }
+        }
+
+        return stored;
+
+    }
+
+    @Override
+    public int getSentimentDictionarySize() {
+        return model.size();
+    }
+
+    @Override
+    public boolean isStopWord(String word) {
+        return stopwords.find(word.toLowerCase().strip()) != Vocabulary.NOT_FOUND;
+    }
+
+    private void addReview(String review, int rating) {
+        currentRating = rating;
+        model.startReview();
+        tokenizer.tokenize(review, wordAdder);
+    }
+
+    private void addWord(char[] buffer, int length) {
+        if (stopwords.find(buffer, length) == Vocabulary.NOT_FOUND) {
+            model.addWord(buffer, length, currentRating);
+        }
+    }
+
+}
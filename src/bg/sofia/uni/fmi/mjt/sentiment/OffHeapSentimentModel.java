@@ -0,0 +1,402 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * A sentiment dictionary that lives outside the heap: an open-addressing table of word ids, a record
+ * of statistics per id and the words in UTF-8, all in {@link DirectMemory}. The heap holds a few
+ * objects no matter how many words there are, so the dictionary adds nothing for the collector to trace.
+ * <p>
+ * The ids, scores and rankings are those of a {@link SentimentModel} fed the same words.
+ * Histograms of the ratings are not kept. An instance is not thread-safe, but it can be read
+ * from many threads while nothing is added.
+ */
+final class OffHeapSentimentModel implements WordScores {
+
+    static final int DEFAULT_BUFFER_SHIFT = 26;
+
+    private static final int HASH_MULTIPLIER = 31;
+    private static final int SPREAD_MULTIPLIER = 0x9E3779B9;
+    private static final int INITIAL_SLOTS = 1024;
+    private static final int EMPTY_SLOT = 0;
+    private static final int ASCII_LIMIT = 0x80;
+
+    // the layout of the record of a word, whose size divides the size of a buffer
+    private static final int RECORD_SIZE = 64;
+    private static final int OCCURRENCES = 0;
+    private static final int REVIEWS_COUNT = 4;
+    private static final int RATINGS_SUM = 8;
+    private static final int LAST_REVIEW = 16;
+    private static final int HASH = 20;
+    // the word is stored as its length in bytes followed by its bytes
+    private static final int WORD_OFFSET = 24;
+    // kept up to date so that ranking by score does not divide on every comparison
+    private static final int SCORE = 32;
+
+    private final int bufferShift;
+    private final DirectMemory records;
+    private final DirectMemory words;
+    // every slot holds id + 1 of the word hashed there, or EMPTY_SLOT
+    private DirectMemory slots;
+    private int slotsCount;
+    private int size;
+    private long wordsEnd;
+    private int currentReview;
+
+    OffHeapSentimentModel() {
+        this(DEFAULT_BUFFER_SHIFT);
+    }
+
+    /**
+     * @param bufferShift the log2 of the size of the direct buffers the memory is allocated in
+     */
+    OffHeapSentimentModel(int bufferShift) {
+        this.bufferShift = bufferShift;
+        records = new DirectMemory(bufferShift);
+        words = new DirectMemory(bufferShift);
+        slots = newSlots(INITIAL_SLOTS);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the bytes of direct memory allocated for the dictionary
+     */
+    long getOffHeapBytes() {
+        return records.getCapacity() + words.getCapacity() + slots.getCapacity();
+    }
+
+    @Override
+    public int find(char[] buffer, int length) {
+
+        if (!isAscii(buffer, length)) {
+            return find(new String(buffer, 0, length).getBytes(StandardCharsets.UTF_8));
+        }
+
+        int hash = hashAscii(buffer, length);
+        int mask = slotsCount - 1;
+
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int id = getSlot(slot) - 1;
+            if (id < 0) {
+                return Vocabulary.NOT_FOUND;
+            }
+            if (getHash(id) == hash && matchesAscii(id, buffer, length)) {
+                return id;
+            }
+        }
+
+    }
+
+    int find(CharSequence word) {
+
+        int length = word.length();
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            if (word.charAt(i) >= ASCII_LIMIT) {
+                return find(word.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            hash = HASH_MULTIPLIER * hash + word.charAt(i);
+        }
+        hash = spread(hash);
+
+        int mask = slotsCount - 1;
+
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int id = getSlot(slot) - 1;
+            if (id < 0) {
+                return Vocabulary.NOT_FOUND;
+            }
+            if (getHash(id) == hash && matchesAscii(id, word)) {
+                return id;
+            }
+        }
+
+    }
+
+    String getWord(int id) {
+
+        long offset = records.getLong(recordOffset(id) + WORD_OFFSET);
+        byte[] bytes = new byte[words.getInt(offset)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = words.getByte(offset + Integer.BYTES + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+
+    }
+
+    @Override
+    public double getScore(int id) {
+        return records.getDouble(recordOffset(id) + SCORE);
+    }
+
+    int getFrequency(int id) {
+        return records.getInt(recordOffset(id) + OCCURRENCES);
+    }
+
+    /**
+     * Starts a new review: the words added until the next call are rated once each.
+     */
+    void startReview() {
+        currentReview++;
+    }
+
+    /**
+     * Counts an occurrence of the word in the current review and rates it with the review's
+     * rating if that is its first occurrence there.
+     *
+     * @return the id of the word
+     */
+    int addWord(char[] buffer, int length, int rating) {
+
+        int id = find(buffer, length);
+        if (id == Vocabulary.NOT_FOUND) {
+            id = insert(new String(buffer, 0, length).getBytes(StandardCharsets.UTF_8));
+        }
+
+        long record = recordOffset(id);
+        records.putInt(record + OCCURRENCES, records.getInt(record + OCCURRENCES) + 1);
+
+        if (records.getInt(record + LAST_REVIEW) != currentReview) {
+            records.putInt(record + LAST_REVIEW, currentReview);
+            int reviewsCount = records.getInt(record + REVIEWS_COUNT) + 1;
+            long ratingsSum = records.getLong(record + RATINGS_SUM) + rating;
+            records.putInt(record + REVIEWS_COUNT, reviewsCount);
+            records.putLong(record + RATINGS_SUM, ratingsSum);
+            records.putDouble(record + SCORE, (double) ratingsSum / reviewsCount);
+        }
+
+        return id;
+
+    }
+
+    /**
+     * Orders ids by decreasing frequency, the earlier added word first on a tie.
+     */
+    int compareByFrequency(int first, int second) {
+        int result = Integer.compare(getFrequency(second), getFrequency(first));
+        return result != 0 ? result : Integer.compare(first, second);
+    }
+
+    /**
+     * Orders ids by decreasing score, the earlier added word first on a tie.
+     */
+    int compareByScore(int first, int second) {
+        int result = Double.compare(getScore(second), getScore(first));
+        return result != 0 ? result : Integer.compare(first, second);
+    }
+
+    List<String> getMostFrequentWords(int n) {
+        return toWords(TopIds.select(size, n, this::compareByFrequency));
+    }
+
+    List<String> getMostPositiveWords(int n) {
+        return toWords(TopIds.select(size, n, this::compareByScore));
+    }
+
+    /**
+     * @return the n most negative words, in exactly the reverse order of {@link #getMostPositiveWords(int)}
+     */
+    List<String> getMostNegativeWords(int n) {
+        return toWords(TopIds.select(size, n, (first, second) -> compareByScore(second, first)));
+    }
+
+    private List<String> toWords(int[] ids) {
+        String[] found = new String[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            found[i] = getWord(ids[i]);
+        }
+        return List.of(found);
+    }
+
+    private int find(byte[] word) {
+
+        int hash = hash(word);
+        int mask = slotsCount - 1;
+
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int id = getSlot(slot) - 1;
+            if (id < 0) {
+                return Vocabulary.NOT_FOUND;
+            }
+            if (getHash(id) == hash && matches(id, word)) {
+                return id;
+            }
+        }
+
+    }
+
+    private int insert(byte[] word) {
+
+        long wordSize = Integer.BYTES + word.length;
+        if (wordSize > words.getBufferSize()) {
+            throw new IllegalArgumentException("A word is longer than a buffer of " + words.getBufferSize() + " bytes");
+        }
+
+        // a word never crosses the boundary of two buffers
+        long bufferEnd = ((wordsEnd >>> bufferShift) + 1) << bufferShift;
+        if (wordsEnd + wordSize > bufferEnd) {
+            wordsEnd = bufferEnd;
+        }
+
+        long wordOffset = wordsEnd;
+        words.ensureCapacity(wordOffset + wordSize);
+        words.putInt(wordOffset, word.length);
+        for (int i = 0; i < word.length; i++) {
+            words.putByte(wordOffset + Integer.BYTES + i, word[i]);
+        }
+        wordsEnd += wordSize;
+
+        int id = size++;
+        int hash = hash(word);
+        long record = recordOffset(id);
+        records.ensureCapacity(record + RECORD_SIZE);
+        records.putInt(record + OCCURRENCES, 0);
+        records.putInt(record + REVIEWS_COUNT, 0);
+        records.putLong(record + RATINGS_SUM, 0);
+        records.putInt(record + LAST_REVIEW, 0);
+        records.putInt(record + HASH, hash);
+        records.putLong(record + WORD_OFFSET, wordOffset);
+
+        // keep the load factor of the table at most 1/2
+        if (size << 1 > slotsCount) {
+            rehash(slotsCount << 1);
+        } else {
+            putSlot(emptySlot(hash), id + 1);
+        }
+
+        return id;
+
+    }
+
+    private void rehash(int newSlotsCount) {
+
+        slots = newSlots(newSlotsCount);
+
+        for (int id = 0; id < size; id++) {
+            putSlot(emptySlot(getHash(id)), id + 1);
+        }
+
+    }
+
+    private DirectMemory newSlots(int count) {
+        // direct buffers are zeroed, so every slot starts as EMPTY_SLOT
+        DirectMemory memory = new DirectMemory(bufferShift);
+        memory.ensureCapacity((long) count * Integer.BYTES);
+        slotsCount = count;
+        return memory;
+    }
+
+    private int emptySlot(int hash) {
+        int mask = slotsCount - 1;
+        int slot = hash & mask;
+        while (getSlot(slot) != EMPTY_SLOT) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int getSlot(int slot) {
+        return slots.getInt((long) slot * Integer.BYTES);
+    }
+
+    private void putSlot(int slot, int value) {
+        slots.putInt((long) slot * Integer.BYTES, value);
+    }
+
+    private long recordOffset(int id) {
+        return (long) id * RECORD_SIZE;
+    }
+
+    private int getHash(int id) {
+        return records.getInt(recordOffset(id) + HASH);
+    }
+
+    private boolean matchesAscii(int id, CharSequence word) {
+
+        long offset = records.getLong(recordOffset(id) + WORD_OFFSET);
+        if (words.getInt(offset) != word.length()) {
+            return false;
+        }
+
+        for (int i = 0; i < word.length(); i++) {
+            if (words.getByte(offset + Integer.BYTES + i) != word.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+
+    }
+
+    private boolean matchesAscii(int id, char[] buffer, int length) {
+
+        long offset = records.getLong(recordOffset(id) + WORD_OFFSET);
+        if (words.getInt(offset) != length) {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++) {
+            if (words.getByte(offset + Integer.BYTES + i) != buffer[i]) {
+                return false;
+            }
+        }
+
+        return true;
+
+    }
+
+    private boolean matches(int id, byte[] word) {
+
+        long offset = records.getLong(recordOffset(id) + WORD_OFFSET);
+        if (words.getInt(offset) != word.length) {
+            return false;
+        }
+
+        for (int i = 0; i < word.length; i++) {
+            if (words.getByte(offset + Integer.BYTES + i) != word[i]) {
+                return false;
+            }
+        }
+
+        return true;
+
+    }
+
+    private static boolean isAscii(char[] buffer, int length) {
+        for (int i = 0; i < length; i++) {
+            if (buffer[i] >= ASCII_LIMIT) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The UTF-8 bytes of an ASCII word are its characters, so its hash is computed without encoding it.
+     */
+    private static int hashAscii(char[] buffer, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = HASH_MULTIPLIER * hash + buffer[i];
+        }
+        return spread(hash);
+    }
+
+    private static int hash(byte[] word) {
+        int hash = 0;
+        for (byte symbol : word) {
+            hash = HASH_MULTIPLIER * hash + (symbol & 0xFF);
+        }
+        return spread(hash);
+    }
+
+    private static int spread(int hash) {
+        int scrambled = hash * SPREAD_MULTIPLIER;
+        return scrambled ^ (scrambled >>> 16);
+    }
+
+}
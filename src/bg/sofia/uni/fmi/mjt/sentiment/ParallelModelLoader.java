@@ -0,0 +1,82 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Loads reviews on a fork-join pool: the input is read in chunks of lines, every chunk is parsed
+ * into its own partial model and the partial models are merged in input order,
+ * which gives exactly the model of a sequential load.
+ */
+final class ParallelModelLoader {
+
+    // chunks parsed ahead of the merging per thread, which bounds the memory held by pending chunks
+    private static final int PENDING_CHUNKS_PER_THREAD = 2;
+
+    private final Vocabulary stopwords;
+    private final AnalyzerOptions options;
+
+    ParallelModelLoader(Vocabulary stopwords, AnalyzerOptions options) {
+        this.stopwords = stopwords;
+        this.options = options;
+    }
+
+    void load(BufferedReader reviewsIn, SentimentModel model) throws IOException {
+
+        ForkJoinPool pool = new ForkJoinPool(options.getParallelism());
+        int maxPendingChunks = options.getParallelism() * PENDING_CHUNKS_PER_THREAD;
+        Deque<ForkJoinTask<SentimentModel>> pendingChunks = new ArrayDeque<>();
+
+        try {
+            List<String> chunk;
+            while (!(chunk = readChunk(reviewsIn)).isEmpty()) {
+                List<String> lines = chunk;
+                SentimentModel part = model.newPart();
+                pendingChunks.addLast(pool.submit(() -> parseChunk(lines, part)));
+
+                if (pendingChunks.size() >= maxPendingChunks) {
+                    model.merge(pendingChunks.removeFirst().join());
+                }
+            }
+
+            while (!pendingChunks.isEmpty()) {
+                model.merge(pendingChunks.removeFirst().join());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+    }
+
+    private List<String> readChunk(BufferedReader reviewsIn) throws IOException {
+
+        List<String> chunk = new ArrayList<>(options.getLoadChunkSize());
+
+        String line;
+        while (chunk.size() < options.getLoadChunkSize() && (line = reviewsIn.readLine()) != null) {
+            chunk.add(line);
+        }
+
+        return chunk;
+
+    }
+
+    private SentimentModel parseChunk(List<String> lines, SentimentModel part) {
+
+        ReviewParser parser = new ReviewParser(stopwords, part);
+
+        for (String line : lines) {
+            parser.parseLine(line);
+        }
+
+        return parser.getModel();
+
+    }
+
+}
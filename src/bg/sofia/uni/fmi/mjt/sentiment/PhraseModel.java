@@ -0,0 +1,262 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import java.util.Arrays;
+
+/**
+ * The ratings of the phrases of the reviews, next to the word statistics of a {@link SentimentModel}:
+ * the n-grams and the negated words that a {@link PhraseWindow} gives keys to. Every phrase is rated
+ * once per review, as a word is.
+ * <p>
+ * The phrases are kept in an open-addressing table, at most half full, whose slots hold the key of a phrase
+ * next to its score, so finding and scoring a phrase of a large model takes a single cache miss. The ratings
+ * behind the scores live in parallel arrays indexed by dense ids, which takes 56 to 112 bytes per phrase
+ * in all. Once the table holds the maximum number of phrases, the new ones are no longer rated, so the memory
+ * stays within that budget however many reviews are added. Only the parts of a corpus loaded in parallel
+ * hold every phrase of their part until they are merged. An instance is not thread-safe.
+ */
+final class PhraseModel {
+
+    static final long EMPTY = 0L;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int maxNGram;
+    private final int negationScope;
+    private final int maxPhrases;
+
+    // the key of the phrase of every slot followed by the bits of its score
+    private long[] slots;
+    private int[] slotIds;
+    private int size;
+
+    private int[] reviewsCounts;
+    private long[] ratingsSums;
+
+    // the review a phrase was last rated in, so a phrase is rated once per review
+    private int[] lastReviews;
+    private int currentReview;
+    private int currentRating;
+
+    PhraseModel(int maxNGram, int negationScope, int maxPhrases) {
+
+        this.maxNGram = maxNGram;
+        this.negationScope = negationScope;
+        this.maxPhrases = maxPhrases;
+
+        allocateSlots(INITIAL_CAPACITY * 2);
+        reviewsCounts = new int[INITIAL_CAPACITY];
+        ratingsSums = new long[INITIAL_CAPACITY];
+        lastReviews = new int[INITIAL_CAPACITY];
+
+    }
+
+    private PhraseModel(PhraseModel other) {
+        maxNGram = other.maxNGram;
+        negationScope = other.negationScope;
+        maxPhrases = other.maxPhrases;
+        slots = other.slots.clone();
+        slotIds = other.slotIds.clone();
+        size = other.size;
+        reviewsCounts = Arrays.copyOf(other.reviewsCounts, size);
+        ratingsSums = Arrays.copyOf(other.ratingsSums, size);
+        lastReviews = new int[size];
+    }
+
+    /**
+     * @return an independent copy of the phrases, trimmed to their number
+     */
+    PhraseModel copy() {
+        return new PhraseModel(this);
+    }
+
+    /**
+     * @return an empty model that counts the same phrases, for a part of a corpus to be merged into this one;
+     * it has no budget of its own, so that the merge decides which phrases fit, and holds at most
+     * the phrases of its part
+     */
+    PhraseModel newPart() {
+        return new PhraseModel(maxNGram, negationScope, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return a window that gives the keys of the phrases of this model
+     */
+    PhraseWindow newWindow() {
+        return new PhraseWindow(maxNGram, negationScope);
+    }
+
+    int getMaxNGram() {
+        return maxNGram;
+    }
+
+    int getNegationScope() {
+        return negationScope;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the position of the phrase, valid until a phrase is added, {@link Vocabulary#NOT_FOUND}
+     * if it is not in the model
+     */
+    int find(long key) {
+        int slot = slot(key);
+        return slots[slot] != EMPTY ? slot : Vocabulary.NOT_FOUND;
+    }
+
+    /**
+     * @return the average rating of the reviews with the phrase at the given position
+     */
+    double getScore(int position) {
+        return Double.longBitsToDouble(slots[position + 1]);
+    }
+
+    /**
+     * Starts a new review: the phrases added until the next call are rated once each with the given rating.
+     */
+    void startReview(int rating) {
+        currentReview++;
+        currentRating = rating;
+    }
+
+    /**
+     * Rates the phrase with the rating of the current review, if that is its first occurrence there
+     * and the phrase is known or there is room for it.
+     */
+    void add(long key) {
+
+        int slot = slotOf(key);
+        if (slot == Vocabulary.NOT_FOUND) {
+            return;
+        }
+
+        int id = slotIds[slot >> 1];
+        if (lastReviews[id] != currentReview) {
+            lastReviews[id] = currentReview;
+            rate(slot, id, 1, currentRating);
+        }
+
+    }
+
+    /**
+     * Adds the ratings of the phrases of another model to this one. The new phrases are added in the order
+     * of their ids, which is the order they first occurred in, so merging the parts of a corpus in order
+     * fills the budget with the same phrases as adding the whole corpus to a single model.
+     */
+    void merge(PhraseModel other) {
+
+        int[] otherSlots = new int[other.size];
+        for (int otherSlot = 0; otherSlot < other.slots.length; otherSlot += 2) {
+            if (other.slots[otherSlot] != EMPTY) {
+                otherSlots[other.slotIds[otherSlot >> 1]] = otherSlot;
+            }
+        }
+
+        for (int otherId = 0; otherId < other.size; otherId++) {
+            int slot = slotOf(other.slots[otherSlots[otherId]]);
+            if (slot != Vocabulary.NOT_FOUND) {
+                rate(slot, slotIds[slot >> 1], other.reviewsCounts[otherId], other.ratingsSums[otherId]);
+            }
+        }
+
+    }
+
+    /**
+     * @return the bytes taken by the table and the statistics
+     */
+    long getMemoryBytes() {
+        return (long) slots.length * Long.BYTES + (long) slotIds.length * Integer.BYTES
+                + (long) reviewsCounts.length * (Integer.BYTES + Long.BYTES + Integer.BYTES);
+    }
+
+    private void rate(int slot, int id, int reviewsCount, long ratingsSum) {
+        reviewsCounts[id] += reviewsCount;
+        ratingsSums[id] += ratingsSum;
+        slots[slot + 1] = Double.doubleToRawLongBits((double) ratingsSums[id] / reviewsCounts[id]);
+    }
+
+    /**
+     * @return the slot of the phrase, added to the model if there is room, {@link Vocabulary#NOT_FOUND} if not
+     */
+    private int slotOf(long key) {
+
+        int slot = slot(key);
+        if (slots[slot] != EMPTY) {
+            return slot;
+        }
+        if (size == maxPhrases) {
+            return Vocabulary.NOT_FOUND;
+        }
+
+        int id = size++;
+        ensureCapacity(id);
+
+        if (size * 4 > slots.length) {
+            rehash(slots.length);
+            slot = slot(key);
+        }
+
+        slots[slot] = key;
+        slotIds[slot >> 1] = id;
+        return slot;
+
+    }
+
+    /**
+     * @return the slot of the key in the table, or the empty slot it would take
+     */
+    private int slot(long key) {
+
+        int mask = slots.length - 1;
+        int index = (int) (key >>> Integer.SIZE) << 1 & mask;
+
+        while (slots[index] != EMPTY && slots[index] != key) {
+            index = (index + 2) & mask;
+        }
+
+        return index;
+
+    }
+
+    private void rehash(int capacity) {
+
+        long[] oldSlots = slots;
+        int[] oldIds = slotIds;
+        allocateSlots(capacity);
+
+        for (int i = 0; i < oldSlots.length; i += 2) {
+            if (oldSlots[i] != EMPTY) {
+                int slot = slot(oldSlots[i]);
+                slots[slot] = oldSlots[i];
+                slots[slot + 1] = oldSlots[i + 1];
+                slotIds[slot >> 1] = oldIds[i >> 1];
+            }
+        }
+
+    }
+
+    /**
+     * Allocates an empty table of the given number of slots.
+     */
+    private void allocateSlots(int capacity) {
+        slots = new long[capacity * 2];
+        slotIds = new int[capacity];
+    }
+
+    private void ensureCapacity(int id) {
+
+        if (id < reviewsCounts.length) {
+            return;
+        }
+
+        int capacity = Math.max(reviewsCounts.length << 1, id + 1);
+
+        reviewsCounts = Arrays.copyOf(reviewsCounts, capacity);
+        ratingsSums = Arrays.copyOf(ratingsSums, capacity);
+        lastReviews = Arrays.copyOf(lastReviews, capacity);
+
+    }
+
+}
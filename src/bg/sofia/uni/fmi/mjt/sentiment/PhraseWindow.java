@@ -0,0 +1,161 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import java.util.Arrays;
+
+/**
+ * Follows the words of a review to give the keys of the phrases that end at every word: the n-grams
+ * of the last words, up to a maximum n, and the negated form of a word within the scope of a negation.
+ * A key is a 64-bit hash of the characters of the words, so the same phrase has the same key
+ * in every model, with a chance of two phrases colliding that is negligible below billions of phrases.
+ * <p>
+ * A negation, "not", "no", "never", "nor", "cannot", "without" or a word ending in "n't", negates the next words
+ * that are not stopwords up to the scope, and it ends with the clause. The n-grams do not cross clauses either,
+ * and an n-gram of stopwords only is skipped. An instance is not thread-safe.
+ */
+final class PhraseWindow {
+
+    static final int MAX_N_GRAM = 5;
+
+    private static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+    private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+    private static final long NEGATED_SEED = 0x6E65676174656421L;
+    private static final char[][] NEGATIONS = {
+        "not".toCharArray(), "no".toCharArray(), "never".toCharArray(), "nor".toCharArray(),
+        "cannot".toCharArray(), "without".toCharArray()
+    };
+
+    private final int maxNGram;
+    private final int negationScope;
+
+    // the hashes of the last words of the clause in a ring, the latest at position latest
+    private final long[] history;
+    private final boolean[] stopwords;
+    private int latest;
+    private int historySize;
+    private int negatedLeft;
+
+    private final long[] keys = new long[MAX_N_GRAM];
+    private boolean negated;
+
+    PhraseWindow(int maxNGram, int negationScope) {
+        this.maxNGram = maxNGram;
+        this.negationScope = negationScope;
+        history = new long[maxNGram];
+        stopwords = new boolean[maxNGram];
+    }
+
+    /**
+     * @return whether the window gives the keys of the phrases of the model
+     */
+    boolean isFor(PhraseModel phrases) {
+        return maxNGram == phrases.getMaxNGram() && negationScope == phrases.getNegationScope();
+    }
+
+    /**
+     * Forgets the words before, at the start of a review or a clause.
+     */
+    void reset() {
+        historySize = 0;
+        negatedLeft = 0;
+    }
+
+    /**
+     * Moves to the next word of the review.
+     *
+     * @return the number of keys of the phrases that end at the word, which are at the start of {@link #keys()}
+     */
+    int next(char[] buffer, int length, boolean stopword) {
+
+        negated = !stopword && negatedLeft > 0;
+        if (maxNGram == 1 && !negated) {
+            // without n-grams, only the negated words need the hash of their characters
+            updateNegation(buffer, length);
+            return 0;
+        }
+
+        latest = latest + 1 == maxNGram ? 0 : latest + 1;
+        long hash = hash(buffer, length);
+        history[latest] = hash;
+        stopwords[latest] = stopword;
+        historySize = Math.min(historySize + 1, maxNGram);
+
+        int count = 0;
+
+        if (negated) {
+            keys[count++] = key(hash ^ NEGATED_SEED);
+            negatedLeft--;
+        }
+
+        long chain = hash;
+        boolean onlyStopwords = stopword;
+        int position = latest;
+        for (int n = 2; n <= historySize; n++) {
+            position = position == 0 ? maxNGram - 1 : position - 1;
+            // not commutative, so that the same words in another order are another phrase
+            chain = chain * GOLDEN_RATIO + history[position];
+            onlyStopwords &= stopwords[position];
+            if (!onlyStopwords) {
+                keys[count++] = key(chain);
+            }
+        }
+
+        updateNegation(buffer, length);
+        return count;
+
+    }
+
+    /**
+     * @return whether the last word is negated, in which case the first key is that of its negated form
+     */
+    boolean isNegated() {
+        return negated;
+    }
+
+    long[] keys() {
+        return keys;
+    }
+
+    private void updateNegation(char[] buffer, int length) {
+        if (isNegation(buffer, length)) {
+            negatedLeft = negationScope;
+        }
+    }
+
+    private static boolean isNegation(char[] buffer, int length) {
+
+        if (length >= 3 && buffer[length - 3] == 'n' && buffer[length - 2] == '\'' && buffer[length - 1] == 't') {
+            return true;
+        }
+
+        for (char[] negation : NEGATIONS) {
+            if (negation.length == length && negation[0] == buffer[0]
+                    && Arrays.equals(negation, 0, length, buffer, 0, length)) {
+                return true;
+            }
+        }
+        return false;
+
+    }
+
+    private static long hash(char[] buffer, int length) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < length; i++) {
+            hash = (hash ^ buffer[i]) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * @return a well-mixed key, never the empty key of a {@link PhraseModel}
+     */
+    private static long key(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return hash == PhraseModel.EMPTY ? 1L : hash;
+    }
+
+}
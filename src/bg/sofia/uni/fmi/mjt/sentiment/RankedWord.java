@@ -0,0 +1,10 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+/**
+ * A word of a top n answer of a {@link ModelShard}, with what the answers of all shards are merged by.
+ *
+ * @param ordinal the position of the first occurrence of the word in the whole corpus,
+ *                which breaks ties as the word ids of a single model do
+ */
+record RankedWord(String word, int frequency, double score, long ordinal) {
+}
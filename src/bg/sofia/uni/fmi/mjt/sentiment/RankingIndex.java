@@ -0,0 +1,64 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * Keeps the ids of a model ranked by frequency and by score, so the top n words are read
+ * in O(log size + n). A word must be removed before its statistics change and added back after,
+ * which costs O(log size) per word of an appended review.
+ */
+final class RankingIndex {
+
+    private final SentimentModel model;
+    private final NavigableSet<Integer> byFrequency;
+    private final NavigableSet<Integer> byScore;
+
+    RankingIndex(SentimentModel model) {
+        this.model = model;
+        byFrequency = new TreeSet<>(model::compareByFrequency);
+        byScore = new TreeSet<>(model::compareByScore);
+
+        for (int id = 0; id < model.size(); id++) {
+            add(id);
+        }
+    }
+
+    void add(int id) {
+        byFrequency.add(id);
+        byScore.add(id);
+    }
+
+    void remove(int id) {
+        byFrequency.remove(id);
+        byScore.remove(id);
+    }
+
+    List<String> getMostFrequentWords(int n) {
+        return firstWords(byFrequency.iterator(), n);
+    }
+
+    List<String> getMostPositiveWords(int n) {
+        return firstWords(byScore.iterator(), n);
+    }
+
+    List<String> getMostNegativeWords(int n) {
+        return firstWords(byScore.descendingIterator(), n);
+    }
+
+    private List<String> firstWords(Iterator<Integer> ids, int n) {
+
+        List<String> words = new ArrayList<>(Math.min(n, model.size()));
+
+        while (words.size() < n && ids.hasNext()) {
+            words.add(model.getWord(ids.next()));
+        }
+
+        return List.copyOf(words);
+
+    }
+
+}
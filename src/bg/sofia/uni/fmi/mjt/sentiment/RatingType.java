@@ -24,4 +24,21 @@ public enum RatingType {
         return ratingText;
     }
 
+    /**
+     * @return the rating a sentiment score rounds to, {@link #UNKNOWN} for any score out of the rating range
+     */
+    public static RatingType fromScore(double score) {
+
+        long rounded = Math.round(score);
+
+        for (RatingType value : values()) {
+            if (value != UNKNOWN && value.ratingNumber == rounded) {
+                return value;
+            }
+        }
+
+        return UNKNOWN;
+
+    }
+
 }
@@ -0,0 +1,111 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.List;
+
+/**
+ * A shard living in a {@link ShardServer}, reached over a single connection.
+ * Requests are sent one at a time, so concurrent callers wait for each other.
+ * A response that does not arrive within the read timeout fails the request.
+ */
+final class RemoteModelShard implements ModelShard {
+
+    private static final int READ_TIMEOUT_MILLIS = 30_000;
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    RemoteModelShard(InetSocketAddress address) throws IOException {
+
+        socket = new Socket();
+        try {
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(READ_TIMEOUT_MILLIS);
+            socket.connect(address);
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+
+    }
+
+    @Override
+    public synchronized void append(ShardBatch batch) throws IOException {
+        out.writeByte(ShardProtocol.APPEND);
+        batch.writeTo(out);
+        send();
+    }
+
+    @Override
+    public synchronized double[] getScores(String[] words) throws IOException {
+        out.writeByte(ShardProtocol.GET_SCORES);
+        ShardProtocol.writeWords(out, words);
+        send();
+        return ShardProtocol.readScores(in);
+    }
+
+    @Override
+    public synchronized int getFrequency(String word) throws IOException {
+        out.writeByte(ShardProtocol.GET_FREQUENCY);
+        out.writeUTF(word);
+        send();
+        return in.readInt();
+    }
+
+    @Override
+    public List<RankedWord> getMostFrequentWords(int n) throws IOException {
+        return getTopWords(ShardProtocol.GET_MOST_FREQUENT_WORDS, n);
+    }
+
+    @Override
+    public List<RankedWord> getMostPositiveWords(int n) throws IOException {
+        return getTopWords(ShardProtocol.GET_MOST_POSITIVE_WORDS, n);
+    }
+
+    @Override
+    public List<RankedWord> getMostNegativeWords(int n) throws IOException {
+        return getTopWords(ShardProtocol.GET_MOST_NEGATIVE_WORDS, n);
+    }
+
+    @Override
+    public synchronized int size() throws IOException {
+        out.writeByte(ShardProtocol.SIZE);
+        send();
+        return in.readInt();
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    private synchronized List<RankedWord> getTopWords(byte operation, int n) throws IOException {
+        out.writeByte(operation);
+        out.writeInt(n);
+        send();
+        return ShardProtocol.readRankedWords(in);
+    }
+
+    /**
+     * Sends the request and reads the status of the response, leaving its result to be read.
+     */
+    private void send() throws IOException {
+
+        out.flush();
+
+        if (in.readByte() != ShardProtocol.OK) {
+            throw new IOException("Shard " + socket.getRemoteSocketAddress() + " failed: " + in.readUTF());
+        }
+
+    }
+
+}
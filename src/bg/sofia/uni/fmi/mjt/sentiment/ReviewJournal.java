@@ -0,0 +1,18 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Where an analyzer stores the reviews appended to its data set.
+ */
+interface ReviewJournal {
+
+    void append(String review, int sentiment) throws IOException;
+
+    /**
+     * Stores all reviews of a batch, which are already validated, with a single write.
+     */
+    void appendAll(List<LabeledReview> reviews) throws IOException;
+
+}
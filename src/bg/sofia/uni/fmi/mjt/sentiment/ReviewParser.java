@@ -0,0 +1,180 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Adds labelled reviews in the {@code "<rating> <text>"} format to a model, skipping stopwords,
+ * and rates their phrases if the model has a {@link PhraseModel}.
+ * An instance is not thread-safe, but several parsers can share the same stopwords.
+ */
+final class ReviewParser {
+
+    private static final int REVIEW_INDEX = 0;
+    private static final byte LINE_END = '\n';
+
+    private final Vocabulary stopwords;
+    private final SentimentModel model;
+    private final Tokenizer tokenizer = new Tokenizer();
+    private final Tokenizer.TokenConsumer wordAdder;
+    private final SentimentTimeline timeline;
+    private final PhraseModel phrases;
+    private final PhraseWindow phraseWindow;
+    private int currentRating;
+    private boolean timed;
+
+    ReviewParser(Vocabulary stopwords, SentimentModel model) {
+        this(stopwords, model, null);
+    }
+
+    /**
+     * @param timeline where the words of the reviews added with a time are also rated, null for none
+     */
+    ReviewParser(Vocabulary stopwords, SentimentModel model, SentimentTimeline timeline) {
+        this.stopwords = stopwords;
+        this.model = model;
+        this.timeline = timeline;
+        phrases = model.getPhrases();
+        phraseWindow = phrases != null ? phrases.newWindow() : null;
+        wordAdder = phrases != null ? new PhraseAdder() : this::addWord;
+    }
+
+    SentimentModel getModel() {
+        return model;
+    }
+
+    /**
+     * @throws NumberFormatException if the line does not start with a rating from 0 to 4
+     */
+    void parseLine(String line) {
+
+        currentRating = parseRating(line);
+
+        // the scores of the words are kept up to date while the review is added
+        startReview();
+        tokenizer.tokenize(line, wordAdder);
+
+    }
+
+    /**
+     * Adds every line in the given range of an ASCII-compatible text, as {@link #parseLine(String)} would,
+     * without creating a string for a line or a word; only the words new to the model are materialized.
+     * A line ending at the end of the range needs no line separator.
+     */
+    void parseLines(ByteBuffer text, int from, int to) {
+
+        int lineStart = from;
+
+        while (lineStart < to) {
+            int lineEnd = lineStart;
+            while (lineEnd < to && text.get(lineEnd) != LINE_END) {
+                lineEnd++;
+            }
+
+            parseLine(text, lineStart, lineEnd);
+            lineStart = lineEnd + 1;
+        }
+
+    }
+
+    private void parseLine(ByteBuffer text, int from, int to) {
+
+        currentRating = validRating(from < to ? Character.digit(text.get(from + REVIEW_INDEX), 10) : -1);
+
+        startReview();
+        tokenizer.tokenize(text, from, to, wordAdder);
+
+    }
+
+    /**
+     * Adds the text part of a review with the given rating.
+     */
+    void parseReview(String review, int rating) {
+
+        currentRating = rating;
+
+        startReview();
+        tokenizer.tokenize(review, wordAdder);
+
+    }
+
+    /**
+     * Adds the text part of a review with the given rating, rating its words in the timeline at the given time.
+     */
+    void parseReview(String review, int rating, long epochMillis) {
+
+        timeline.startReview(epochMillis, rating);
+
+        timed = true;
+        try {
+            parseReview(review, rating);
+        } finally {
+            timed = false;
+        }
+
+    }
+
+    /**
+     * @return the rating a review line starts with
+     * @throws NumberFormatException if the line does not start with a rating from 0 to 4
+     */
+    static int parseRating(String line) {
+        return validRating(Character.digit(line.charAt(REVIEW_INDEX), 10));
+    }
+
+    private static int validRating(int rating) {
+        if (rating < 0 || rating >= SentimentModel.RATINGS_COUNT) {
+            throw new NumberFormatException("A review line does not start with a rating from 0 to 4");
+        }
+        return rating;
+    }
+
+    private void startReview() {
+        model.startReview();
+        if (phrases != null) {
+            phrases.startReview(currentRating);
+            phraseWindow.reset();
+        }
+    }
+
+    private void addWord(char[] buffer, int length) {
+        if (stopwords.find(buffer, length) == Vocabulary.NOT_FOUND) {
+            addKnownWord(buffer, length);
+        }
+    }
+
+    private void addKnownWord(char[] buffer, int length) {
+        int id = model.addWord(buffer, length, currentRating);
+        if (timed) {
+            timeline.addWord(id);
+        }
+    }
+
+    /**
+     * Adds the words as {@link #addWord(char[], int)} does and rates the phrases that end at them.
+     */
+    private final class PhraseAdder implements Tokenizer.TokenConsumer {
+
+        @Override
+        public void accept(char[] buffer, int length) {
+
+            boolean stopword = stopwords.find(buffer, length) != Vocabulary.NOT_FOUND;
+            if (!stopword) {
+                addKnownWord(buffer, length);
+            }
+
+            int count = phraseWindow.next(buffer, length, stopword);
+            long[] keys = phraseWindow.keys();
+            for (int i = 0; i < count; i++) {
+                phrases.add(keys[i]);
+            }
+
+        }
+
+        @Override
+        public void endClause() {
+            phraseWindow.reset();
+        }
+
+    }
+
+}
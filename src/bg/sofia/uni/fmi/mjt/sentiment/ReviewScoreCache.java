@@ -0,0 +1,241 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A size-bounded cache of review scores keyed by the normalized review, its words separated by single spaces.
+ * <p>
+ * The scores live in three LRU queues: a window that every new score enters, and a main area split into
+ * a probation and a protected segment. A score leaving the window replaces the least recently used score
+ * in probation only if it is estimated to be requested more often; a score requested again in probation
+ * is promoted to the protected segment. With {@link CachePolicy#LRU} the window takes the whole cache.
+ * <p>
+ * Every cached key is indexed by its words, so the scores of the reviews with a word are invalidated
+ * when its statistics change. All methods are thread-safe.
+ */
+final class ReviewScoreCache {
+
+    static final double MISS = Double.NaN;
+    static final char WORD_SEPARATOR = ' ';
+    static final char CLAUSE_SEPARATOR = '.';
+
+    private static final double WINDOW_SHARE = 0.01;
+    private static final double PROTECTED_SHARE = 0.8;
+
+    private final int windowCapacity;
+    private final int mainCapacity;
+    private final int protectedCapacity;
+    private final FrequencySketch sketch;
+
+    // every queue is ordered from the least to the most recently used key
+    private final Map<String, Double> window = new LinkedHashMap<>();
+    private final Map<String, Double> probation = new LinkedHashMap<>();
+    private final Map<String, Double> protectedSegment = new LinkedHashMap<>();
+    private final Map<String, Set<String>> keysByWord = new HashMap<>();
+
+    private long invalidationsCount;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    ReviewScoreCache(int maximumSize, CachePolicy policy) {
+
+        if (policy == CachePolicy.LRU) {
+            windowCapacity = maximumSize;
+            sketch = null;
+        } else {
+            windowCapacity = Math.max(1, (int) (maximumSize * WINDOW_SHARE));
+            sketch = new FrequencySketch(maximumSize);
+        }
+
+        mainCapacity = maximumSize - windowCapacity;
+        protectedCapacity = (int) (mainCapacity * PROTECTED_SHARE);
+
+    }
+
+    /**
+     * @return the number of invalidations so far, to be passed to {@link #put(String, double, long)}
+     */
+    synchronized long getInvalidationsCount() {
+        return invalidationsCount;
+    }
+
+    /**
+     * @return the cached score of the key, {@link #MISS} if it is not cached
+     */
+    synchronized double get(String key) {
+
+        if (sketch != null) {
+            sketch.increment(key);
+        }
+
+        Double score;
+        if ((score = window.remove(key)) != null) {
+            window.put(key, score);
+        } else if ((score = protectedSegment.remove(key)) != null) {
+            protectedSegment.put(key, score);
+        } else if ((score = probation.remove(key)) != null) {
+            promote(key, score);
+        } else {
+            missCount++;
+            return MISS;
+        }
+
+        hitCount++;
+        return score;
+
+    }
+
+    /**
+     * Caches the score of the key, unless some scores were invalidated since it was computed.
+     *
+     * @param invalidationsCount the {@link #getInvalidationsCount()} read before the score was computed
+     */
+    synchronized void put(String key, double score, long invalidationsCount) {
+
+        if (invalidationsCount != this.invalidationsCount || window.containsKey(key)
+                || probation.containsKey(key) || protectedSegment.containsKey(key)) {
+            return;
+        }
+
+        window.put(key, score);
+        index(key);
+
+        if (window.size() > windowCapacity) {
+            Map.Entry<String, Double> candidate = removeEldest(window);
+            admit(candidate.getKey(), candidate.getValue());
+        }
+
+    }
+
+    /**
+     * Removes the scores of all reviews with any of the given words.
+     */
+    synchronized void invalidate(Collection<String> words) {
+
+        invalidationsCount++;
+
+        for (String word : words) {
+            Set<String> keys = keysByWord.remove(word);
+            if (keys == null) {
+                continue;
+            }
+
+            for (String key : keys) {
+                if (window.remove(key) == null && probation.remove(key) == null) {
+                    protectedSegment.remove(key);
+                }
+                unindex(key, word);
+            }
+        }
+
+    }
+
+    synchronized CacheStatistics getStatistics() {
+        return new CacheStatistics(hitCount, missCount, evictionCount,
+                window.size() + probation.size() + protectedSegment.size());
+    }
+
+    private void promote(String key, double score) {
+
+        protectedSegment.put(key, score);
+
+        if (protectedSegment.size() > protectedCapacity) {
+            Map.Entry<String, Double> demoted = removeEldest(protectedSegment);
+            probation.put(demoted.getKey(), demoted.getValue());
+        }
+
+    }
+
+    private void admit(String candidate, double score) {
+
+        if (probation.size() + protectedSegment.size() < mainCapacity) {
+            probation.put(candidate, score);
+            return;
+        }
+
+        Map<String, Double> victims = !probation.isEmpty() ? probation : protectedSegment;
+        if (victims.isEmpty()) {
+            evict(candidate);
+            return;
+        }
+
+        String victim = victims.keySet().iterator().next();
+        if (sketch.frequency(candidate) > sketch.frequency(victim)) {
+            victims.remove(victim);
+            evict(victim);
+            probation.put(candidate, score);
+        } else {
+            evict(candidate);
+        }
+
+    }
+
+    private void evict(String key) {
+        unindex(key, null);
+        evictionCount++;
+    }
+
+    private void index(String key) {
+
+        int wordStart = 0;
+
+        while (wordStart < key.length()) {
+            int wordEnd = wordEnd(key, wordStart);
+            keysByWord.computeIfAbsent(key.substring(wordStart, wordEnd), word -> new HashSet<>()).add(key);
+            wordStart = wordEnd + 1;
+        }
+
+    }
+
+    /**
+     * Removes the key from the index of all its words, but the one whose keys are being removed.
+     */
+    private void unindex(String key, String skippedWord) {
+
+        int wordStart = 0;
+
+        while (wordStart < key.length()) {
+            int wordEnd = wordEnd(key, wordStart);
+            String word = key.substring(wordStart, wordEnd);
+
+            if (!word.equals(skippedWord)) {
+                Set<String> keys = keysByWord.get(word);
+                if (keys != null && keys.remove(key) && keys.isEmpty()) {
+                    keysByWord.remove(word);
+                }
+            }
+
+            wordStart = wordEnd + 1;
+        }
+
+    }
+
+    private static int wordEnd(String key, int wordStart) {
+
+        int wordEnd = wordStart;
+        while (wordEnd < key.length() && key.charAt(wordEnd) != WORD_SEPARATOR
+                && key.charAt(wordEnd) != CLAUSE_SEPARATOR) {
+            wordEnd++;
+        }
+
+        return wordEnd;
+
+    }
+
+    private static Map.Entry<String, Double> removeEldest(Map<String, Double> queue) {
+        Iterator<Map.Entry<String, Double>> entries = queue.entrySet().iterator();
+        Map.Entry<String, Double> eldest = entries.next();
+        // the entry of a linked hash map is reused once it is removed, so it is copied first
+        Map.Entry<String, Double> removed = Map.entry(eldest.getKey(), eldest.getValue());
+        entries.remove();
+        return removed;
+    }
+
+}
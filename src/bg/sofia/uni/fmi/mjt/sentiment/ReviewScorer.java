@@ -0,0 +1,229 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import java.util.Arrays;
+
+/**
+ * Scores reviews against a dictionary as the average score of their distinct known words,
+ * or of their distinct known words and phrases against a model with a {@link PhraseModel}.
+ * The scratch buffers are reused between reviews, so scoring allocates nothing per word.
+ * An instance is not thread-safe.
+ */
+final class ReviewScorer {
+
+    private final static int INITIAL_REVIEW_WORDS = 64;
+
+    private final Tokenizer tokenizer = new Tokenizer();
+    private final Tokenizer.TokenConsumer wordIdCollector = this::collectWordId;
+    private WordScores model;
+    private int[] reviewWordIds = new int[INITIAL_REVIEW_WORDS];
+    private int reviewWordsCount;
+    private int reviewTokensCount;
+    private int reviewKnownTokensCount;
+
+    // the phrases of the review and its negated words without a rated negated form
+    private final Tokenizer.TokenConsumer phraseCollector = new PhraseCollector();
+    private Vocabulary stopwords;
+    private PhraseModel phrases;
+    private PhraseWindow phraseWindow;
+    private int[] reviewPhraseIds = new int[INITIAL_REVIEW_WORDS];
+    private int reviewPhrasesCount;
+    private int[] reviewNegatedWordIds = new int[INITIAL_REVIEW_WORDS];
+    private int reviewNegatedWordsCount;
+
+    double score(WordScores model, CharSequence review) {
+
+        this.model = model;
+        reviewWordsCount = 0;
+        reviewTokensCount = 0;
+        tokenizer.tokenize(review, wordIdCollector);
+        this.model = null;
+        reviewKnownTokensCount = reviewWordsCount;
+
+        if (reviewWordsCount == 0) {
+            return RatingType.UNKNOWN.getRatingNumber();
+        }
+
+        // every distinct word counts once, no matter how many times it is repeated
+        Arrays.sort(reviewWordIds, 0, reviewWordsCount);
+
+        double scoresSum = 0.0;
+        int distinctWords = 0;
+
+        for (int i = 0; i < reviewWordsCount; i++) {
+            if (i == 0 || reviewWordIds[i] != reviewWordIds[i - 1]) {
+                scoresSum += model.getScore(reviewWordIds[i]);
+                distinctWords++;
+            }
+        }
+
+        return scoresSum / distinctWords;
+
+    }
+
+    /**
+     * Scores a review by the average score of its distinct known words and phrases, see {@link PhraseModel}.
+     * A negated word is scored by its negated form or, if that was never rated, by its score mirrored
+     * around the neutral rating.
+     */
+    double score(SentimentModel model, Vocabulary stopwords, CharSequence review) {
+
+        PhraseModel modelPhrases = model.getPhrases();
+        if (phraseWindow == null || !phraseWindow.isFor(modelPhrases)) {
+            phraseWindow = modelPhrases.newWindow();
+        }
+
+        this.model = model;
+        this.stopwords = stopwords;
+        phrases = modelPhrases;
+        reviewWordsCount = 0;
+        reviewPhrasesCount = 0;
+        reviewNegatedWordsCount = 0;
+        reviewTokensCount = 0;
+        reviewKnownTokensCount = 0;
+        phraseWindow.reset();
+        tokenizer.tokenize(review, phraseCollector);
+        this.model = null;
+        this.stopwords = null;
+        phrases = null;
+
+        int distinctWords = sortDistinct(reviewWordIds, reviewWordsCount);
+        int distinctPhrases = sortDistinct(reviewPhraseIds, reviewPhrasesCount);
+        int distinctNegatedWords = sortDistinct(reviewNegatedWordIds, reviewNegatedWordsCount);
+        int featuresCount = distinctWords + distinctPhrases + distinctNegatedWords;
+
+        if (featuresCount == 0) {
+            return RatingType.UNKNOWN.getRatingNumber();
+        }
+
+        double scoresSum = 0.0;
+        for (int i = 0; i < distinctWords; i++) {
+            scoresSum += model.getScore(reviewWordIds[i]);
+        }
+        for (int i = 0; i < distinctPhrases; i++) {
+            scoresSum += modelPhrases.getScore(reviewPhraseIds[i]);
+        }
+        for (int i = 0; i < distinctNegatedWords; i++) {
+            scoresSum += RatingType.POSITIVE.getRatingNumber() - model.getScore(reviewNegatedWordIds[i]);
+        }
+
+        return scoresSum / featuresCount;
+
+    }
+
+    /**
+     * @return the words of the last scored review, stopwords included
+     */
+    int getTokensCount() {
+        return reviewTokensCount;
+    }
+
+    /**
+     * @return the words of the last scored review that are in the model, repetitions included
+     */
+    int getKnownTokensCount() {
+        return reviewKnownTokensCount;
+    }
+
+    private void collectWordId(char[] buffer, int length) {
+
+        reviewTokensCount++;
+
+        // stopwords never make it into the model, so they are not found there
+        int id = model.find(buffer, length);
+
+        if (id == Vocabulary.NOT_FOUND) {
+            return;
+        }
+
+        if (reviewWordsCount == reviewWordIds.length) {
+            reviewWordIds = Arrays.copyOf(reviewWordIds, reviewWordsCount << 1);
+        }
+        reviewWordIds[reviewWordsCount++] = id;
+
+    }
+
+    /**
+     * Sorts the ids and moves the distinct ones to the front.
+     *
+     * @return the number of distinct ids
+     */
+    private static int sortDistinct(int[] ids, int count) {
+
+        Arrays.sort(ids, 0, count);
+
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || ids[i] != ids[i - 1]) {
+                ids[distinct++] = ids[i];
+            }
+        }
+
+        return distinct;
+
+    }
+
+    /**
+     * Collects the ids of the words and phrases of a review, as they are rated by a {@link ReviewParser}.
+     */
+    private final class PhraseCollector implements Tokenizer.TokenConsumer {
+
+        @Override
+        public void accept(char[] buffer, int length) {
+
+            reviewTokensCount++;
+
+            // the stopwords are never in the model, so a word found there needs no stopword lookup
+            int id = model.find(buffer, length);
+            boolean stopword = false;
+            if (id != Vocabulary.NOT_FOUND) {
+                reviewKnownTokensCount++;
+            } else {
+                stopword = stopwords.find(buffer, length) != Vocabulary.NOT_FOUND;
+            }
+
+            int count = phraseWindow.next(buffer, length, stopword);
+            long[] keys = phraseWindow.keys();
+            int firstNGram = 0;
+
+            if (phraseWindow.isNegated()) {
+                firstNGram = 1;
+                int phraseId = phrases.find(keys[0]);
+                if (phraseId != Vocabulary.NOT_FOUND) {
+                    addPhrase(phraseId);
+                } else if (id != Vocabulary.NOT_FOUND) {
+                    if (reviewNegatedWordsCount == reviewNegatedWordIds.length) {
+                        reviewNegatedWordIds = Arrays.copyOf(reviewNegatedWordIds, reviewNegatedWordsCount << 1);
+                    }
+                    reviewNegatedWordIds[reviewNegatedWordsCount++] = id;
+                }
+            } else if (id != Vocabulary.NOT_FOUND) {
+                if (reviewWordsCount == reviewWordIds.length) {
+                    reviewWordIds = Arrays.copyOf(reviewWordIds, reviewWordsCount << 1);
+                }
+                reviewWordIds[reviewWordsCount++] = id;
+            }
+
+            for (int i = firstNGram; i < count; i++) {
+                int phraseId = phrases.find(keys[i]);
+                if (phraseId != Vocabulary.NOT_FOUND) {
+                    addPhrase(phraseId);
+                }
+            }
+
+        }
+
+        @Override
+        public void endClause() {
+            phraseWindow.reset();
+        }
+
+        private void addPhrase(int phraseId) {
+            if (reviewPhrasesCount == reviewPhraseIds.length) {
+                reviewPhraseIds = Arrays.copyOf(reviewPhraseIds, reviewPhrasesCount << 1);
+            }
+            reviewPhraseIds[reviewPhrasesCount++] = phraseId;
+        }
+
+    }
+
+}
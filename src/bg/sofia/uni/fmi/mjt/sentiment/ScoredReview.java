@@ -0,0 +1,11 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+/**
+ * The result of scoring one review of a stream.
+ *
+ * @param id     the position of the review in its input, starting from 0
+ * @param score  the sentiment score of the review, -1.0 if it has no known words
+ * @param rating the rating the score rounds to
+ */
+public record ScoredReview(long id, double score, RatingType rating) {
+}
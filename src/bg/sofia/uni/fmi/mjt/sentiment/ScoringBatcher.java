@@ -0,0 +1,170 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Coalesces the reviews of concurrent scoring requests into batches scored with a single
+ * {@link BatchSentimentAnalyzer#scoreAll(String[])} call.
+ * <p>
+ * A fixed number of threads take the pending requests from a shared queue. A thread takes all requests
+ * waiting when it becomes free, up to {@code maxBatchSize} reviews, so nothing waits for a batch to fill up:
+ * under light load every request is a batch of its own, and under heavy load the requests that arrive while
+ * all threads are scoring are scored together next.
+ */
+final class ScoringBatcher implements Closeable {
+
+    private record PendingReviews(String[] reviews, CompletableFuture<double[]> scores) {
+    }
+
+    private final BatchSentimentAnalyzer analyzer;
+    private final Lock readLock;
+    private final int maxBatchSize;
+    private final BlockingQueue<PendingReviews> pendingReviews = new LinkedBlockingQueue<>();
+    private final Thread[] scoringThreads;
+    private final AtomicLong batchesCount = new AtomicLong();
+    private final AtomicLong reviewsCount = new AtomicLong();
+    private volatile boolean closed;
+
+    /**
+     * @param readLock     held while scoring, so that the analyzer is not appended to meanwhile
+     * @param threadsCount the number of batches scored at once
+     * @param maxBatchSize the most reviews a thread takes at once, unless a single request has more
+     */
+    ScoringBatcher(BatchSentimentAnalyzer analyzer, Lock readLock, int threadsCount, int maxBatchSize) {
+
+        if (threadsCount <= 0) {
+            throw new IllegalArgumentException("Scoring threads count must be positive");
+        }
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Maximum batch size must be positive");
+        }
+
+        this.analyzer = analyzer;
+        this.readLock = readLock;
+        this.maxBatchSize = maxBatchSize;
+
+        scoringThreads = new Thread[threadsCount];
+        for (int i = 0; i < threadsCount; i++) {
+            scoringThreads[i] = new Thread(this::scoreBatches, "review-scoring-" + i);
+            scoringThreads[i].setDaemon(true);
+            scoringThreads[i].start();
+        }
+
+    }
+
+    /**
+     * @return the scores of the reviews, at the same indexes, once the batch they are part of is scored
+     */
+    CompletableFuture<double[]> submit(String[] reviews) {
+
+        PendingReviews pending = new PendingReviews(reviews, new CompletableFuture<>());
+        pendingReviews.add(pending);
+
+        // a request added after the queue was drained on closing is never taken
+        if (closed && pendingReviews.remove(pending)) {
+            pending.scores().completeExceptionally(new IllegalStateException("The scoring batcher is closed"));
+        }
+
+        return pending.scores();
+
+    }
+
+    /**
+     * @return the number of batches scored so far
+     */
+    long getBatchesCount() {
+        return batchesCount.get();
+    }
+
+    /**
+     * @return the number of reviews scored so far
+     */
+    long getReviewsCount() {
+        return reviewsCount.get();
+    }
+
+    @Override
+    public void close() {
+
+        closed = true;
+        for (Thread scoringThread : scoringThreads) {
+            scoringThread.interrupt();
+        }
+
+        PendingReviews pending;
+        while ((pending = pendingReviews.poll()) != null) {
+            pending.scores().completeExceptionally(new IllegalStateException("The scoring batcher is closed"));
+        }
+
+    }
+
+    private void scoreBatches() {
+
+        List<PendingReviews> batch = new ArrayList<>();
+
+        while (!closed) {
+            try {
+                batch.add(pendingReviews.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            int batchSize = batch.get(0).reviews().length;
+            PendingReviews next;
+            while (batchSize < maxBatchSize && (next = pendingReviews.poll()) != null) {
+                batch.add(next);
+                batchSize += next.reviews().length;
+            }
+
+            try {
+                score(batch, batchSize);
+            } catch (Throwable e) {
+                // even an error such as a StackOverflowError fails only this batch, and the thread keeps scoring
+                for (PendingReviews pending : batch) {
+                    pending.scores().completeExceptionally(e);
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+
+    }
+
+    private void score(List<PendingReviews> batch, int batchSize) {
+
+        String[] reviews = new String[batchSize];
+        int offset = 0;
+        for (PendingReviews pending : batch) {
+            System.arraycopy(pending.reviews(), 0, reviews, offset, pending.reviews().length);
+            offset += pending.reviews().length;
+        }
+
+        double[] scores;
+        readLock.lock();
+        try {
+            scores = analyzer.scoreAll(reviews);
+        } finally {
+            readLock.unlock();
+        }
+
+        batchesCount.incrementAndGet();
+        reviewsCount.addAndGet(batchSize);
+
+        offset = 0;
+        for (PendingReviews pending : batch) {
+            int length = pending.reviews().length;
+            pending.scores().complete(Arrays.copyOfRange(scores, offset, offset + length));
+            offset += length;
+        }
+
+    }
+
+}
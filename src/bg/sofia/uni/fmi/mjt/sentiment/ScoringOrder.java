@@ -0,0 +1,16 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+/**
+ * The order in which a {@link StreamingReviewScorer} emits the scores of a stream of reviews.
+ */
+public enum ScoringOrder {
+    /**
+     * Emit the scores in the order of the reviews in the input.
+     */
+    INPUT,
+    /**
+     * Emit the scores of a chunk of reviews as soon as it is scored, which keeps all threads busy
+     * when some chunks take longer than others.
+     */
+    COMPLETION
+}
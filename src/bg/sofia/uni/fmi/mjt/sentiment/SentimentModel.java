@@ -0,0 +1,370 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The sentiment dictionary: every known word gets a dense id from a {@link Vocabulary}
+ * and its statistics live in parallel primitive arrays indexed by that id.
+ * An instance is not thread-safe.
+ */
+final class SentimentModel implements WordScores {
+
+    static final int RATINGS_COUNT = (int) RatingType.POSITIVE.getRatingNumber() + 1;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Vocabulary vocabulary;
+    private int[] occurrences;
+    private int[] reviewsCounts;
+    private long[] ratingsSums;
+    private int[] histograms;
+    private double[] scores;
+
+    private RankingIndex rankingIndex;
+
+    // the estimated frequencies that replace the occurrences in the approximate mode
+    private CountMinSketch frequencySketch;
+    private HeavyHitters heavyHitters;
+
+    // the n-grams and negated words of the reviews, null if only words are rated
+    private PhraseModel phrases;
+
+    // the review a word was last rated in, so a word is rated once per review
+    private int[] lastReviews;
+    private int currentReview;
+
+    SentimentModel() {
+        vocabulary = new Vocabulary();
+        occurrences = new int[INITIAL_CAPACITY];
+        reviewsCounts = new int[INITIAL_CAPACITY];
+        ratingsSums = new long[INITIAL_CAPACITY];
+        histograms = new int[INITIAL_CAPACITY * RATINGS_COUNT];
+        scores = new double[INITIAL_CAPACITY];
+        lastReviews = new int[INITIAL_CAPACITY];
+    }
+
+    private SentimentModel(SentimentModel other) {
+        int size = other.size();
+        vocabulary = other.vocabulary.copy();
+        occurrences = other.occurrences != null ? Arrays.copyOf(other.occurrences, size) : other.estimateAll();
+        reviewsCounts = Arrays.copyOf(other.reviewsCounts, size);
+        ratingsSums = Arrays.copyOf(other.ratingsSums, size);
+        histograms = Arrays.copyOf(other.histograms, size * RATINGS_COUNT);
+        scores = Arrays.copyOf(other.scores, size);
+        lastReviews = new int[size];
+        phrases = other.phrases != null ? other.phrases.copy() : null;
+    }
+
+    /**
+     * Creates a model from the statistics of its words, indexed by their ids in the vocabulary.
+     */
+    SentimentModel(Vocabulary vocabulary, int[] occurrences, int[] reviewsCounts, long[] ratingsSums,
+                   int[] histograms) {
+        int size = vocabulary.size();
+        this.vocabulary = vocabulary;
+        this.occurrences = occurrences;
+        this.reviewsCounts = reviewsCounts;
+        this.ratingsSums = ratingsSums;
+        this.histograms = histograms;
+        scores = new double[size];
+        lastReviews = new int[size];
+
+        for (int id = 0; id < size; id++) {
+            scores[id] = (double) ratingsSums[id] / reviewsCounts[id];
+        }
+    }
+
+    /**
+     * @return an independent copy of the model, trimmed to its size. A copy that is no longer
+     * changed can be read from many threads once it is safely published. The frequencies of a copy
+     * of an approximate model are the estimates at the time of the copy.
+     */
+    SentimentModel copy() {
+        return new SentimentModel(this);
+    }
+
+    /**
+     * @return an empty model that rates the same phrases, for a part of a corpus to be merged into this one
+     */
+    SentimentModel newPart() {
+        SentimentModel part = new SentimentModel();
+        part.phrases = phrases != null ? phrases.newPart() : null;
+        return part;
+    }
+
+    int size() {
+        return vocabulary.size();
+    }
+
+    @Override
+    public int find(char[] buffer, int length) {
+        return vocabulary.find(buffer, length);
+    }
+
+    int find(CharSequence word) {
+        return vocabulary.find(word);
+    }
+
+    String getWord(int id) {
+        return vocabulary.getWord(id);
+    }
+
+    @Override
+    public double getScore(int id) {
+        return scores[id];
+    }
+
+    /**
+     * @return the number of occurrences of the word, an upper bound of it in the approximate mode
+     */
+    int getFrequency(int id) {
+        if (occurrences != null) {
+            return occurrences[id];
+        }
+        long tracked = heavyHitters.getCount(id);
+        int estimate = frequencySketch.estimate(id);
+        return tracked != HeavyHitters.NOT_TRACKED && tracked < estimate ? (int) tracked : estimate;
+    }
+
+    int getReviewsCount(int id) {
+        return reviewsCounts[id];
+    }
+
+    long getRatingsSum(int id) {
+        return ratingsSums[id];
+    }
+
+    /**
+     * @return the number of reviews with the given rating that contain the word
+     */
+    int getRatingCount(int id, int rating) {
+        return histograms[id * RATINGS_COUNT + rating];
+    }
+
+    /**
+     * Keeps the words ranked from now on, so the top n words are found in O(log size + n)
+     * instead of O(size * log n), at the cost of O(log size) per word of an added review.
+     * The ranking is not part of copies of the model.
+     *
+     * @throws IllegalStateException if the frequencies are approximate
+     */
+    void enableRankingIndex() {
+        if (occurrences == null) {
+            throw new IllegalStateException("A ranking index needs exact frequencies");
+        }
+        if (rankingIndex == null) {
+            rankingIndex = new RankingIndex(this);
+        }
+    }
+
+    /**
+     * Rates the n-grams of up to maxNGram words and the words negated within negationScope words
+     * of the reviews added from now on, up to maxPhrases of them, see {@link PhraseModel}.
+     */
+    void enablePhrases(int maxNGram, int negationScope, int maxPhrases) {
+        if (phrases == null) {
+            phrases = new PhraseModel(maxNGram, negationScope, maxPhrases);
+        }
+    }
+
+    /**
+     * @return the phrases of the reviews, null if they are not rated
+     */
+    PhraseModel getPhrases() {
+        return phrases;
+    }
+
+    /**
+     * Counts the words from now on in a count-min sketch with the given relative error and tracks
+     * the most frequent of them in a fixed number of counters, instead of an exact count per word,
+     * so the memory for the frequencies no longer grows with the vocabulary. The most frequent words
+     * are then at most as many as the tracked ones.
+     *
+     * @throws IllegalStateException if the words are ranked
+     */
+    void enableApproximateFrequencies(double relativeError, int heavyHittersCount) {
+
+        if (rankingIndex != null) {
+            throw new IllegalStateException("A ranking index needs exact frequencies");
+        }
+        if (occurrences == null) {
+            return;
+        }
+
+        frequencySketch = new CountMinSketch(relativeError);
+        heavyHitters = new HeavyHitters(heavyHittersCount);
+        for (int id = 0; id < size(); id++) {
+            frequencySketch.add(id, occurrences[id]);
+            heavyHitters.add(id, occurrences[id]);
+        }
+        occurrences = null;
+
+    }
+
+    /**
+     * Orders ids by decreasing frequency, the earlier added word first on a tie.
+     */
+    int compareByFrequency(int first, int second) {
+        int result = Integer.compare(getFrequency(second), getFrequency(first));
+        return result != 0 ? result : Integer.compare(first, second);
+    }
+
+    /**
+     * Orders ids by decreasing score, the earlier added word first on a tie.
+     */
+    int compareByScore(int first, int second) {
+        int result = Double.compare(scores[second], scores[first]);
+        return result != 0 ? result : Integer.compare(first, second);
+    }
+
+    List<String> getMostFrequentWords(int n) {
+        if (rankingIndex != null) {
+            return rankingIndex.getMostFrequentWords(n);
+        }
+        if (occurrences == null) {
+            return toWords(heavyHitters.top(n));
+        }
+        return toWords(TopIds.select(size(), n, this::compareByFrequency));
+    }
+
+    List<String> getMostPositiveWords(int n) {
+        if (rankingIndex != null) {
+            return rankingIndex.getMostPositiveWords(n);
+        }
+        return toWords(TopIds.select(size(), n, this::compareByScore));
+    }
+
+    /**
+     * @return the n most negative words, in exactly the reverse order of {@link #getMostPositiveWords(int)}
+     */
+    List<String> getMostNegativeWords(int n) {
+        if (rankingIndex != null) {
+            return rankingIndex.getMostNegativeWords(n);
+        }
+        return toWords(TopIds.select(size(), n, (first, second) -> compareByScore(second, first)));
+    }
+
+    private List<String> toWords(int[] ids) {
+        String[] words = new String[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            words[i] = getWord(ids[i]);
+        }
+        return List.of(words);
+    }
+
+    /**
+     * Starts a new review: the words added until the next call are rated once each.
+     */
+    void startReview() {
+        currentReview++;
+    }
+
+    /**
+     * Counts an occurrence of the word in the current review and rates it with the review's
+     * rating if that is its first occurrence there.
+     *
+     * @return the id of the word
+     */
+    int addWord(char[] buffer, int length, int rating) {
+
+        int id = vocabulary.add(buffer, length);
+        ensureCapacity(id);
+
+        if (rankingIndex != null) {
+            rankingIndex.remove(id);
+        }
+
+        addOccurrences(id, 1);
+
+        if (lastReviews[id] != currentReview) {
+            lastReviews[id] = currentReview;
+            addRating(id, rating);
+        }
+
+        if (rankingIndex != null) {
+            rankingIndex.add(id);
+        }
+
+        return id;
+
+    }
+
+    /**
+     * Adds the statistics of another model to this one. Words new to this model get ids
+     * in the order of the other model, so merging the models of consecutive parts of a corpus
+     * in order gives the same model as adding the whole corpus to a single model, phrases included.
+     */
+    void merge(SentimentModel other) {
+
+        if (phrases != null && other.phrases != null) {
+            phrases.merge(other.phrases);
+        }
+
+        for (int otherId = 0; otherId < other.size(); otherId++) {
+
+            int id = vocabulary.add(other.getWord(otherId));
+            ensureCapacity(id);
+
+            if (rankingIndex != null) {
+                rankingIndex.remove(id);
+            }
+
+            addOccurrences(id, other.getFrequency(otherId));
+            reviewsCounts[id] += other.reviewsCounts[otherId];
+            ratingsSums[id] += other.ratingsSums[otherId];
+            for (int rating = 0; rating < RATINGS_COUNT; rating++) {
+                histograms[id * RATINGS_COUNT + rating] += other.histograms[otherId * RATINGS_COUNT + rating];
+            }
+            scores[id] = (double) ratingsSums[id] / reviewsCounts[id];
+
+            if (rankingIndex != null) {
+                rankingIndex.add(id);
+            }
+        }
+
+    }
+
+    private void addOccurrences(int id, int count) {
+        if (occurrences != null) {
+            occurrences[id] += count;
+        } else {
+            frequencySketch.add(id, count);
+            heavyHitters.add(id, count);
+        }
+    }
+
+    private int[] estimateAll() {
+        int[] estimates = new int[size()];
+        for (int id = 0; id < estimates.length; id++) {
+            estimates[id] = getFrequency(id);
+        }
+        return estimates;
+    }
+
+    private void addRating(int id, int rating) {
+        reviewsCounts[id]++;
+        ratingsSums[id] += rating;
+        histograms[id * RATINGS_COUNT + rating]++;
+        scores[id] = (double) ratingsSums[id] / reviewsCounts[id];
+    }
+
+    private void ensureCapacity(int id) {
+
+        if (id < scores.length) {
+            return;
+        }
+
+        int capacity = Math.max(scores.length << 1, id + 1);
+
+        if (occurrences != null) {
+            occurrences = Arrays.copyOf(occurrences, capacity);
+        }
+        reviewsCounts = Arrays.copyOf(reviewsCounts, capacity);
+        ratingsSums = Arrays.copyOf(ratingsSums, capacity);
+        histograms = Arrays.copyOf(histograms, capacity * RATINGS_COUNT);
+        scores = Arrays.copyOf(scores, capacity);
+        lastReviews = Arrays.copyOf(lastReviews, capacity);
+
+    }
+
+}
@@ -0,0 +1,366 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Serves an analyzer over HTTP, with plain UTF-8 text bodies of one item per line:
+ * <ul>
+ *     <li>{@code POST /score} with a review per line answers its score and sentiment name,
+ *     separated by a tab, per line</li>
+ *     <li>{@code GET /words/<word>} answers the sentiment and the frequency of the word, separated by a tab</li>
+ *     <li>{@code GET /top/frequent?n=10}, {@code /top/positive} and {@code /top/negative} answer a word per line</li>
+ *     <li>{@code POST /reviews} with a rating and a review per line, as in the data set, appends them
+ *     and answers {@code true} or {@code false} per line, whether the review was stored</li>
+ * </ul>
+ * Every request runs on a virtual thread on Java 21 and later, and on a pooled thread before that.
+ * Concurrent scoring requests are coalesced by a {@link ScoringBatcher}. Appends wait for the requests
+ * in progress and block the others, so any analyzer can be served.
+ * <p>
+ * Run it as {@code java bg.sofia.uni.fmi.mjt.sentiment.SentimentServer <stopwords file> <reviews file> [port]}:
+ * it listens on the loopback interface, appends to the reviews file and prints the port it listens on
+ * as the first line of its output. {@link LoadTestClient} measures it.
+ * <p>
+ * The headers and the body of a response are written separately, so with Nagle's algorithm the body waits
+ * for the delayed acknowledgement of the headers, about 40 ms per request. {@link #main} turns it off, and
+ * an application that embeds the server should run with {@code -Dsun.net.httpserver.nodelay=true}, which
+ * the JDK's server reads only once, when the first server is created.
+ */
+public final class SentimentServer implements Closeable {
+
+    private static final int BACKLOG = 1024;
+    private static final int ANY_PORT = 0;
+    private static final int DEFAULT_MAX_BATCH_SIZE = 1024;
+    private static final int DEFAULT_TOP_N = 10;
+    private static final int USAGE_ARGUMENTS = 2;
+    private static final String TEXT_CONTENT_TYPE = "text/plain; charset=utf-8";
+    private static final String WORDS_PATH = "/words/";
+    private static final String TOP_PATH = "/top/";
+
+    private static final String NO_DELAY_PROPERTY = "sun.net.httpserver.nodelay";
+
+    private static final int OK = 200;
+    private static final int BAD_REQUEST = 400;
+    private static final int NOT_FOUND = 404;
+    private static final int METHOD_NOT_ALLOWED = 405;
+    private static final int INTERNAL_SERVER_ERROR = 500;
+    private static final int SERVICE_UNAVAILABLE = 503;
+
+    private final BatchSentimentAnalyzer analyzer;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ScoringBatcher batcher;
+    private final ExecutorService requestHandlers = newRequestHandlers();
+    private final HttpServer server;
+
+    /**
+     * Serves the analyzer on the loopback interface, scoring batches on as many threads as there are processors.
+     *
+     * @param port the port to listen on, 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public SentimentServer(BatchSentimentAnalyzer analyzer, int port) throws IOException {
+        this(analyzer, new InetSocketAddress(InetAddress.getLoopbackAddress(), port),
+                Runtime.getRuntime().availableProcessors(), DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    /**
+     * @param address        the address to listen on
+     * @param scoringThreads the number of batches of reviews scored at once
+     * @param maxBatchSize   the most reviews of concurrent requests scored together
+     * @throws IOException if the address cannot be bound
+     */
+    public SentimentServer(BatchSentimentAnalyzer analyzer, InetSocketAddress address, int scoringThreads,
+                           int maxBatchSize) throws IOException {
+
+        if (analyzer == null) {
+            throw new IllegalArgumentException("Analyzer cannot be null");
+        }
+        if (address == null) {
+            throw new IllegalArgumentException("Address cannot be null");
+        }
+
+        this.analyzer = analyzer;
+        batcher = new ScoringBatcher(analyzer, lock.readLock(), scoringThreads, maxBatchSize);
+
+        server = HttpServer.create(address, BACKLOG);
+        server.setExecutor(requestHandlers);
+        server.createContext("/score", exchange -> handle(exchange, "POST", this::score));
+        server.createContext(WORDS_PATH, exchange -> handle(exchange, "GET", this::lookUpWord));
+        server.createContext(TOP_PATH, exchange -> handle(exchange, "GET", this::getTopWords));
+        server.createContext("/reviews", exchange -> handle(exchange, "POST", this::appendReviews));
+
+    }
+
+    /**
+     * Starts serving requests in the background.
+     */
+    public void start() {
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * @return the number of batches the scored reviews were coalesced into so far
+     */
+    public long getScoredBatchesCount() {
+        return batcher.getBatchesCount();
+    }
+
+    /**
+     * @return the number of reviews scored so far
+     */
+    public long getScoredReviewsCount() {
+        return batcher.getReviewsCount();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        batcher.close();
+        requestHandlers.shutdownNow();
+    }
+
+    public static void main(String[] args) throws IOException {
+
+        if (args.length < USAGE_ARGUMENTS) {
+            System.err.println("Usage: SentimentServer <stopwords file> <reviews file> [port]");
+            System.exit(1);
+        }
+
+        Path reviewsFile = Path.of(args[1]);
+        int port = args.length > USAGE_ARGUMENTS ? Integer.parseInt(args[USAGE_ARGUMENTS]) : ANY_PORT;
+
+        Writer reviewsOut = Files.newBufferedWriter(reviewsFile, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        MovieReviewSentimentAnalyzer analyzer = new MovieReviewSentimentAnalyzer(Path.of(args[0]), reviewsFile,
+                reviewsOut, AnalyzerOptions.defaults().withFlushPolicy(FlushPolicy.FLUSH));
+
+        if (System.getProperty(NO_DELAY_PROPERTY) == null) {
+            System.setProperty(NO_DELAY_PROPERTY, "true");
+        }
+
+        // the server threads keep running after main returns, until the process is killed
+        SentimentServer server = new SentimentServer(analyzer, port);
+        server.start();
+        System.out.println(server.getPort());
+        System.out.flush();
+
+    }
+
+    @FunctionalInterface
+    private interface RequestHandler {
+        /**
+         * @return the body of the response
+         */
+        String respond(HttpExchange exchange) throws IOException;
+    }
+
+    private static void handle(HttpExchange exchange, String method, RequestHandler handler) throws IOException {
+
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals(method)) {
+                exchange.getResponseHeaders().set("Allow", method);
+                send(exchange, METHOD_NOT_ALLOWED, "Use " + method + "\n");
+                return;
+            }
+
+            String response;
+            try {
+                response = handler.respond(exchange);
+            } catch (IllegalArgumentException e) {
+                send(exchange, BAD_REQUEST, e.getMessage() + "\n");
+                return;
+            } catch (IllegalStateException e) {
+                send(exchange, SERVICE_UNAVAILABLE, e.getMessage() + "\n");
+                return;
+            } catch (RuntimeException e) {
+                send(exchange, INTERNAL_SERVER_ERROR, e + "\n");
+                return;
+            }
+
+            if (response == null) {
+                send(exchange, NOT_FOUND, "Not found\n");
+            } else {
+                send(exchange, OK, response);
+            }
+        }
+
+    }
+
+    private String score(HttpExchange exchange) throws IOException {
+
+        String[] reviews = readBody(exchange).lines().toArray(String[]::new);
+
+        double[] scores;
+        try {
+            scores = batcher.submit(reviews).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+
+        StringBuilder response = new StringBuilder(scores.length * 24);
+        for (double score : scores) {
+            response.append(score).append('\t').append(RatingType.fromScore(score).getRatingText()).append('\n');
+        }
+
+        return response.toString();
+
+    }
+
+    private String lookUpWord(HttpExchange exchange) {
+
+        String word = exchange.getRequestURI().getPath().substring(WORDS_PATH.length());
+
+        lock.readLock().lock();
+        try {
+            return analyzer.getWordSentiment(word) + "\t" + analyzer.getWordFrequency(word) + "\n";
+        } finally {
+            lock.readLock().unlock();
+        }
+
+    }
+
+    private String getTopWords(HttpExchange exchange) {
+
+        String ranking = exchange.getRequestURI().getPath().substring(TOP_PATH.length());
+        int n = parseTopN(exchange.getRequestURI().getRawQuery());
+
+        List<String> words;
+        lock.readLock().lock();
+        try {
+            words = switch (ranking) {
+                case "frequent" -> analyzer.getMostFrequentWords(n);
+                case "positive" -> analyzer.getMostPositiveWords(n);
+                case "negative" -> analyzer.getMostNegativeWords(n);
+                default -> null;
+            };
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return words == null ? null : String.join("\n", words) + (words.isEmpty() ? "" : "\n");
+
+    }
+
+    private String appendReviews(HttpExchange exchange) throws IOException {
+
+        List<LabeledReview> reviews = new ArrayList<>();
+        readBody(exchange).lines().forEach(line -> reviews.add(parseLabeledReview(line)));
+
+        boolean[] stored;
+        lock.writeLock().lock();
+        try {
+            stored = analyzer.appendReviews(reviews);
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        StringBuilder response = new StringBuilder();
+        for (boolean isStored : stored) {
+            response.append(isStored).append('\n');
+        }
+
+        return response.toString();
+
+    }
+
+    /**
+     * @return the review of a line in the data set format, null if the line has no valid rating
+     */
+    private static LabeledReview parseLabeledReview(String line) {
+
+        String stripped = line.strip();
+        int ratingEnd = stripped.indexOf(' ');
+        if (ratingEnd < 0) {
+            return null;
+        }
+
+        try {
+            return new LabeledReview(stripped.substring(ratingEnd + 1), Integer.parseInt(stripped, 0, ratingEnd, 10));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+
+    }
+
+    private static int parseTopN(String query) {
+
+        if (query == null) {
+            return DEFAULT_TOP_N;
+        }
+
+        for (String parameter : query.split("&")) {
+            if (parameter.startsWith("n=")) {
+                try {
+                    return Integer.parseInt(parameter.substring(2));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("The number of words must be an integer", e);
+                }
+            }
+        }
+
+        return DEFAULT_TOP_N;
+
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        return new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", TEXT_CONTENT_TYPE);
+        exchange.sendResponseHeaders(status, bytes.length);
+
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+
+    }
+
+    /**
+     * @return an executor starting a virtual thread per request where they exist, that is on Java 21 and later,
+     * and a pool of platform threads before that, as this is compiled for Java 17
+     */
+    private static ExecutorService newRequestHandlers() {
+
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            // missing before Java 19 and failing without the preview features on Java 19 and 20
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread handler = new Thread(runnable, "sentiment-request");
+                handler.setDaemon(true);
+                return handler;
+            });
+        }
+
+    }
+
+}
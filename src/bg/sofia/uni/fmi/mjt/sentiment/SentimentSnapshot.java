@@ -0,0 +1,110 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import java.util.List;
+
+/**
+ * An immutable, point-in-time view of a sentiment dictionary. All queries on the same snapshot
+ * are consistent with each other and it can be read from many threads without locking.
+ * Appending to a snapshot is not supported.
+ */
+public final class SentimentSnapshot extends AbstractSentimentAnalyzer {
+
+    private static final ThreadLocal<ReviewScorer> REVIEW_SCORERS = ThreadLocal.withInitial(ReviewScorer::new);
+    private final static int DEFAULT_NUMBER_OF_OCCURRENCES = 0;
+
+    private final Vocabulary stopwords;
+    private final SentimentModel model;
+
+    /**
+     * @param model a model that is never changed after it is passed here
+     */
+    SentimentSnapshot(Vocabulary stopwords, SentimentModel model) {
+        this.stopwords = stopwords;
+        this.model = model;
+    }
+
+    @Override
+    public double getReviewSentiment(String review) {
+
+        validateStringArgument(review, REVIEW_ARGUMENT);
+
+        return REVIEW_SCORERS.get().score(model, review);
+
+    }
+
+    @Override
+    void scoreRange(String[] reviews, double[] scores, int from, int to) {
+        scoreRange(REVIEW_SCORERS.get(), model, reviews, scores, from, to);
+    }
+
+    @Override
+    public double getWordSentiment(String word) {
+
+        validateStringArgument(word, WORD_ARGUMENT);
+
+        int id = model.find(word.toLowerCase().trim());
+        return id != Vocabulary.NOT_FOUND ? model.getScore(id) : RatingType.UNKNOWN.getRatingNumber();
+
+    }
+
+    @Override
+    public int getWordFrequency(String word) {
+
+        validateStringArgument(word, WORD_ARGUMENT);
+
+        int id = model.find(word.toLowerCase().trim());
+        return id != Vocabulary.NOT_FOUND ? model.getFrequency(id) : DEFAULT_NUMBER_OF_OCCURRENCES;
+
+    }
+
+    @Override
+    public List<String> getMostFrequentWords(int n) {
+
+        validateIntegerArgument(n);
+
+        return model.getMostFrequentWords(n);
+
+    }
+
+    @Override
+    public List<String> getMostPositiveWords(int n) {
+
+        validateIntegerArgument(n);
+
+        return model.getMostPositiveWords(n);
+
+    }
+
+    @Override
+    public List<String> getMostNegativeWords(int n) {
+
+        validateIntegerArgument(n);
+
+        return model.getMostNegativeWords(n);
+
+    }
+
+    /**
+     * @return false always, since a snapshot is read-only and never stores a review
+     */
+    @Override
+    public boolean appendReview(String review, int sentiment) {
+
+        validateStringArgument(review, REVIEW_ARGUMENT);
+        validateSentimentArgument(sentiment);
+
+        return false;
+
+    }
+
+    @Override
+    public int getSentimentDictionarySize() {
+        return model.size();
+    }
+
+    @Override
+    public boolean isStopWord(String word) {
+        return stopwords.find(word.toLowerCase().strip()) != Vocabulary.NOT_FOUND;
+    }
+
+}
@@ -0,0 +1,301 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * The ratings of the words over time, next to the all-time statistics of a {@link SentimentModel},
+ * indexed by the same word ids. Every word is rated once per review, as in the model.
+ * <p>
+ * Two views are kept. The ratings of every day are summed per word in a ring of day buckets
+ * that covers the retention period, so the score over the last n days costs n hash lookups,
+ * and the bucket of a day is reused once the day leaves the period, which bounds the memory
+ * by the words rated within it. The ratings are also summed per word with weights that halve
+ * every half-life, whose ratio, the decayed score, is kept up to date at no cost per query.
+ * <p>
+ * An instance is not thread-safe.
+ */
+final class SentimentTimeline {
+
+    private static final long MILLIS_PER_DAY = Duration.ofDays(1).toMillis();
+    private static final int INITIAL_CAPACITY = 16;
+    private static final double NOT_RATED = Double.NaN;
+
+    private final int retentionDays;
+    private final double halfLifeMillis;
+    private final DayBucket[] days;
+    private long latestDay = Long.MIN_VALUE;
+
+    // the weights of the ratings decay from the last time each word was rated
+    private double[] decayedRatingsSums = new double[INITIAL_CAPACITY];
+    private double[] decayedReviewsCounts = new double[INITIAL_CAPACITY];
+    private long[] lastRatedMillis = new long[INITIAL_CAPACITY];
+
+    // the review a word was last rated in, so a word is rated once per review
+    private int[] lastReviews = new int[INITIAL_CAPACITY];
+    private int currentReview;
+    private long currentMillis;
+    private DayBucket currentDay;
+    private int currentRating;
+
+    SentimentTimeline(int retentionDays, Duration halfLife) {
+
+        this.retentionDays = retentionDays;
+        halfLifeMillis = halfLife.toMillis();
+
+        days = new DayBucket[retentionDays];
+        for (int i = 0; i < retentionDays; i++) {
+            days[i] = new DayBucket();
+        }
+
+    }
+
+    static long toDay(long epochMillis) {
+        return Math.floorDiv(epochMillis, MILLIS_PER_DAY);
+    }
+
+    /**
+     * Starts a new review: the words added until the next call are rated once each at the given time.
+     * A review older than the retention period only counts towards the decayed scores.
+     */
+    void startReview(long epochMillis, int rating) {
+
+        currentReview++;
+        currentMillis = epochMillis;
+        currentRating = rating;
+
+        long day = toDay(epochMillis);
+        if (latestDay == Long.MIN_VALUE || day > latestDay) {
+            latestDay = day;
+        }
+
+        if (day <= latestDay - retentionDays) {
+            currentDay = null;
+            return;
+        }
+
+        currentDay = days[(int) Math.floorMod(day, (long) retentionDays)];
+        if (currentDay.day != day) {
+            currentDay.reset(day);
+        }
+
+    }
+
+    void addWord(int id) {
+
+        ensureCapacity(id);
+
+        if (lastReviews[id] == currentReview) {
+            return;
+        }
+        lastReviews[id] = currentReview;
+
+        if (currentDay != null) {
+            currentDay.add(id, currentRating);
+        }
+
+        double weight = 1.0;
+        if (decayedReviewsCounts[id] == 0.0) {
+            lastRatedMillis[id] = currentMillis;
+        } else if (currentMillis >= lastRatedMillis[id]) {
+            // the ratio of the sums does not change with time, so they are only decayed when a word is rated
+            double decay = decay(currentMillis - lastRatedMillis[id]);
+            decayedRatingsSums[id] *= decay;
+            decayedReviewsCounts[id] *= decay;
+            lastRatedMillis[id] = currentMillis;
+        } else {
+            // a review older than the last one of the word counts as already decayed
+            weight = decay(lastRatedMillis[id] - currentMillis);
+        }
+
+        decayedRatingsSums[id] += weight * currentRating;
+        decayedReviewsCounts[id] += weight;
+
+    }
+
+    /**
+     * @return the average rating of the reviews with the word in the last days up to the given one,
+     * {@link Double#NaN} if there are none
+     */
+    double getScore(int id, int lastDays, long today) {
+
+        long ratingsSum = 0;
+        long reviewsCount = 0;
+
+        // a bucket holds the day it is checked for only if that day has not left the retention period since
+        long firstDay = today - Math.min(lastDays, retentionDays) + 1;
+        for (long day = firstDay; day <= today; day++) {
+            DayBucket bucket = days[(int) Math.floorMod(day, (long) retentionDays)];
+            if (bucket.day == day) {
+                int index = bucket.find(id);
+                if (index != Vocabulary.NOT_FOUND) {
+                    ratingsSum += bucket.ratingsSums[index];
+                    reviewsCount += bucket.reviewsCounts[index];
+                }
+            }
+        }
+
+        return reviewsCount == 0 ? NOT_RATED : (double) ratingsSum / reviewsCount;
+
+    }
+
+    /**
+     * @return the average rating of the reviews with the word, weighted by how recent they are,
+     * {@link Double#NaN} if it was never rated here
+     */
+    double getDecayedScore(int id) {
+        return id < decayedReviewsCounts.length && decayedReviewsCounts[id] > 0.0
+                ? decayedRatingsSums[id] / decayedReviewsCounts[id] : NOT_RATED;
+    }
+
+    /**
+     * @return the scores of the words over the last days up to the given one, as a dictionary in which
+     * the words of the model without ratings then are not found
+     */
+    WordScores windowed(WordScores model, int lastDays, long today) {
+        return scoresOf(model, id -> getScore(id, lastDays, today));
+    }
+
+    /**
+     * @return the decayed scores of the words, as a dictionary in which the words of the model
+     * never rated here are not found
+     */
+    WordScores decayed(WordScores model) {
+        return scoresOf(model, this::getDecayedScore);
+    }
+
+    private static WordScores scoresOf(WordScores model, IntToDoubleFunction scores) {
+
+        return new WordScores() {
+            @Override
+            public int find(char[] buffer, int length) {
+                int id = model.find(buffer, length);
+                return id == Vocabulary.NOT_FOUND || Double.isNaN(scores.applyAsDouble(id)) ? Vocabulary.NOT_FOUND : id;
+            }
+
+            @Override
+            public double getScore(int id) {
+                return scores.applyAsDouble(id);
+            }
+        };
+
+    }
+
+    private double decay(long elapsedMillis) {
+        return Math.pow(2.0, -elapsedMillis / halfLifeMillis);
+    }
+
+    private void ensureCapacity(int id) {
+
+        if (id < lastReviews.length) {
+            return;
+        }
+
+        int capacity = Math.max(lastReviews.length << 1, id + 1);
+
+        decayedRatingsSums = Arrays.copyOf(decayedRatingsSums, capacity);
+        decayedReviewsCounts = Arrays.copyOf(decayedReviewsCounts, capacity);
+        lastRatedMillis = Arrays.copyOf(lastRatedMillis, capacity);
+        lastReviews = Arrays.copyOf(lastReviews, capacity);
+
+    }
+
+    /**
+     * The ratings of a single day, summed per word in an open-addressing table of word ids.
+     */
+    private static final class DayBucket {
+
+        private static final int EMPTY = -1;
+        private static final int INITIAL_BUCKET_CAPACITY = 16;
+        private static final int GOLDEN_RATIO = 0x9E3779B9;
+
+        private long day = Long.MIN_VALUE;
+        private int size;
+        private int[] ids;
+        private int[] reviewsCounts;
+        private int[] ratingsSums;
+
+        DayBucket() {
+            allocate(INITIAL_BUCKET_CAPACITY);
+        }
+
+        /**
+         * Empties the bucket for another day, giving back the memory of a busy day.
+         */
+        void reset(long newDay) {
+            day = newDay;
+            allocate(INITIAL_BUCKET_CAPACITY);
+        }
+
+        void add(int id, int rating) {
+
+            int index = slot(id);
+
+            if (ids[index] == EMPTY) {
+                ids[index] = id;
+                if (++size * 2 > ids.length) {
+                    grow();
+                    index = slot(id);
+                }
+            }
+
+            reviewsCounts[index]++;
+            ratingsSums[index] += rating;
+
+        }
+
+        /**
+         * @return the index of the word in the table, {@link Vocabulary#NOT_FOUND} if it was not rated that day
+         */
+        int find(int id) {
+            int index = slot(id);
+            return ids[index] == EMPTY ? Vocabulary.NOT_FOUND : index;
+        }
+
+        /**
+         * @return the index of the word in the table, or of the empty slot it would take
+         */
+        private int slot(int id) {
+
+            int mask = ids.length - 1;
+            int index = (id * GOLDEN_RATIO) >>> Integer.numberOfLeadingZeros(mask);
+
+            while (ids[index] != EMPTY && ids[index] != id) {
+                index = (index + 1) & mask;
+            }
+
+            return index;
+
+        }
+
+        private void grow() {
+
+            int[] oldIds = ids;
+            int[] oldReviewsCounts = reviewsCounts;
+            int[] oldRatingsSums = ratingsSums;
+            allocate(oldIds.length << 1);
+
+            for (int i = 0; i < oldIds.length; i++) {
+                if (oldIds[i] != EMPTY) {
+                    int index = slot(oldIds[i]);
+                    ids[index] = oldIds[i];
+                    reviewsCounts[index] = oldReviewsCounts[i];
+                    ratingsSums[index] = oldRatingsSums[i];
+                    size++;
+                }
+            }
+
+        }
+
+        private void allocate(int capacity) {
+            size = 0;
+            ids = new int[capacity];
+            Arrays.fill(ids, EMPTY);
+            reviewsCounts = new int[capacity];
+            ratingsSums = new int[capacity];
+        }
+
+    }
+
+}
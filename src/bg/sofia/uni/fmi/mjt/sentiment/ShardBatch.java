@@ -0,0 +1,119 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The occurrences of the words of one shard in a batch of reviews, in the order they appear in the corpus.
+ * Only the reviews with a word of the shard are part of its batch. An instance is not thread-safe.
+ */
+final class ShardBatch {
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final long NO_REVIEW = -1;
+
+    private final List<String> words = new ArrayList<>();
+    private long[] ordinals = new long[INITIAL_CAPACITY];
+    private int[] ratings = new int[INITIAL_CAPACITY];
+    // the index of the word after the last one of every review
+    private int[] reviewEnds = new int[INITIAL_CAPACITY];
+    private int reviewsCount;
+    private long lastReview = NO_REVIEW;
+
+    /**
+     * @param review  the position of the review in the corpus; the words of a review must be added together
+     * @param ordinal the position of the word occurrence in the corpus
+     */
+    void addWord(long review, int rating, String word, long ordinal) {
+
+        if (review != lastReview) {
+            if (reviewsCount == ratings.length) {
+                ratings = Arrays.copyOf(ratings, reviewsCount << 1);
+                reviewEnds = Arrays.copyOf(reviewEnds, reviewsCount << 1);
+            }
+            ratings[reviewsCount++] = rating;
+            lastReview = review;
+        }
+
+        if (words.size() == ordinals.length) {
+            ordinals = Arrays.copyOf(ordinals, words.size() << 1);
+        }
+        ordinals[words.size()] = ordinal;
+        words.add(word);
+        reviewEnds[reviewsCount - 1] = words.size();
+
+    }
+
+    boolean isEmpty() {
+        return reviewsCount == 0;
+    }
+
+    void clear() {
+        words.clear();
+        reviewsCount = 0;
+        lastReview = NO_REVIEW;
+    }
+
+    int getReviewsCount() {
+        return reviewsCount;
+    }
+
+    int getRating(int review) {
+        return ratings[review];
+    }
+
+    /**
+     * @return the index of the word after the last word of the review
+     */
+    int getReviewEnd(int review) {
+        return reviewEnds[review];
+    }
+
+    String getWord(int index) {
+        return words.get(index);
+    }
+
+    long getOrdinal(int index) {
+        return ordinals[index];
+    }
+
+    void writeTo(DataOutput out) throws IOException {
+
+        out.writeInt(reviewsCount);
+        int wordIndex = 0;
+
+        for (int review = 0; review < reviewsCount; review++) {
+            out.writeByte(ratings[review]);
+            out.writeInt(reviewEnds[review] - wordIndex);
+
+            for (; wordIndex < reviewEnds[review]; wordIndex++) {
+                out.writeUTF(words.get(wordIndex));
+                out.writeLong(ordinals[wordIndex]);
+            }
+        }
+
+    }
+
+    static ShardBatch readFrom(DataInput in) throws IOException {
+
+        ShardBatch batch = new ShardBatch();
+        int reviewsCount = in.readInt();
+
+        for (int review = 0; review < reviewsCount; review++) {
+            int rating = in.readByte();
+            int wordsCount = in.readInt();
+
+            for (int i = 0; i < wordsCount; i++) {
+                batch.addWord(review, rating, in.readUTF(), in.readLong());
+            }
+        }
+
+        return batch;
+
+    }
+
+}
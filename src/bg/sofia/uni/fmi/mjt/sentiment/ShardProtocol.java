@@ -0,0 +1,77 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * The binary request-response protocol between a {@link RemoteModelShard} and a {@link ShardServer}.
+ * A request is an operation code followed by its arguments; a response is {@link #OK} followed by
+ * the result, or {@link #ERROR} followed by a message.
+ */
+final class ShardProtocol {
+
+    static final byte APPEND = 1;
+    static final byte GET_SCORES = 2;
+    static final byte GET_FREQUENCY = 3;
+    static final byte GET_MOST_FREQUENT_WORDS = 4;
+    static final byte GET_MOST_POSITIVE_WORDS = 5;
+    static final byte GET_MOST_NEGATIVE_WORDS = 6;
+    static final byte SIZE = 7;
+
+    static final byte OK = 0;
+    static final byte ERROR = 1;
+
+    private ShardProtocol() {
+    }
+
+    static void writeWords(DataOutput out, String[] words) throws IOException {
+        out.writeInt(words.length);
+        for (String word : words) {
+            out.writeUTF(word);
+        }
+    }
+
+    static String[] readWords(DataInput in) throws IOException {
+        String[] words = new String[in.readInt()];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = in.readUTF();
+        }
+        return words;
+    }
+
+    static void writeScores(DataOutput out, double[] scores) throws IOException {
+        out.writeInt(scores.length);
+        for (double score : scores) {
+            out.writeDouble(score);
+        }
+    }
+
+    static double[] readScores(DataInput in) throws IOException {
+        double[] scores = new double[in.readInt()];
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = in.readDouble();
+        }
+        return scores;
+    }
+
+    static void writeRankedWords(DataOutput out, List<RankedWord> words) throws IOException {
+        out.writeInt(words.size());
+        for (RankedWord word : words) {
+            out.writeUTF(word.word());
+            out.writeInt(word.frequency());
+            out.writeDouble(word.score());
+            out.writeLong(word.ordinal());
+        }
+    }
+
+    static List<RankedWord> readRankedWords(DataInput in) throws IOException {
+        RankedWord[] words = new RankedWord[in.readInt()];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = new RankedWord(in.readUTF(), in.readInt(), in.readDouble(), in.readLong());
+        }
+        return List.of(words);
+    }
+
+}
@@ -0,0 +1,169 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves a partition of the sentiment dictionary of a {@link ShardedSentimentAnalyzer} to other processes
+ * on the same machine. It listens on the loopback interface only and starts with an empty partition,
+ * which the analyzer fills while loading its corpus.
+ * <p>
+ * Run it as {@code java bg.sofia.uni.fmi.mjt.sentiment.ShardServer [port]}: it prints the port it listens on
+ * as the first line of its output, which is useful with port 0, and serves until it is killed.
+ */
+public final class ShardServer implements Closeable {
+
+    private static final int BACKLOG = 50;
+    private static final int ANY_PORT = 0;
+
+    private final ServerSocket serverSocket;
+    private final LocalModelShard shard = new LocalModelShard();
+    private final ExecutorService connectionHandlers = Executors.newCachedThreadPool(runnable -> {
+        Thread handler = new Thread(runnable, "shard-connection");
+        handler.setDaemon(true);
+        return handler;
+    });
+
+    /**
+     * @param port the port to listen on, 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public ShardServer(int port) throws IOException {
+        serverSocket = new ServerSocket(port, BACKLOG, InetAddress.getLoopbackAddress());
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Accepts connections, each served by its own thread, until the server is closed.
+     */
+    public void serve() {
+
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket connection = serverSocket.accept();
+                connectionHandlers.execute(() -> handle(connection));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        connectionHandlers.shutdownNow();
+    }
+
+    public static void main(String[] args) throws IOException {
+
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : ANY_PORT;
+
+        try (ShardServer server = new ShardServer(port)) {
+            System.out.println(server.getPort());
+            System.out.flush();
+            server.serve();
+        }
+
+    }
+
+    private void handle(Socket connection) {
+
+        try (connection) {
+            connection.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+
+            while (true) {
+                byte operation;
+                try {
+                    operation = in.readByte();
+                } catch (EOFException e) {
+                    return;
+                }
+
+                respond(operation, in, out);
+                out.flush();
+            }
+        } catch (IOException e) {
+            if (!serverSocket.isClosed()) {
+                e.printStackTrace();
+            }
+        }
+
+    }
+
+    /**
+     * Answers a request. A request that fails is answered with an error and closes the connection,
+     * since the rest of it may not have been read.
+     */
+    private void respond(byte operation, DataInputStream in, DataOutputStream out) throws IOException {
+
+        try {
+            switch (operation) {
+                case ShardProtocol.APPEND -> {
+                    shard.append(ShardBatch.readFrom(in));
+                    out.writeByte(ShardProtocol.OK);
+                }
+                case ShardProtocol.GET_SCORES -> {
+                    double[] scores = shard.getScores(ShardProtocol.readWords(in));
+                    out.writeByte(ShardProtocol.OK);
+                    ShardProtocol.writeScores(out, scores);
+                }
+                case ShardProtocol.GET_FREQUENCY -> {
+                    int frequency = shard.getFrequency(in.readUTF());
+                    out.writeByte(ShardProtocol.OK);
+                    out.writeInt(frequency);
+                }
+                case ShardProtocol.GET_MOST_FREQUENT_WORDS -> {
+                    List<RankedWord> words = shard.getMostFrequentWords(in.readInt());
+                    out.writeByte(ShardProtocol.OK);
+                    ShardProtocol.writeRankedWords(out, words);
+                }
+                case ShardProtocol.GET_MOST_POSITIVE_WORDS -> {
+                    List<RankedWord> words = shard.getMostPositiveWords(in.readInt());
+                    out.writeByte(ShardProtocol.OK);
+                    ShardProtocol.writeRankedWords(out, words);
+                }
+                case ShardProtocol.GET_MOST_NEGATIVE_WORDS -> {
+                    List<RankedWord> words = shard.getMostNegativeWords(in.readInt());
+                    out.writeByte(ShardProtocol.OK);
+                    ShardProtocol.writeRankedWords(out, words);
+                }
+                case ShardProtocol.SIZE -> {
+                    int size = shard.size();
+                    out.writeByte(ShardProtocol.OK);
+                    out.writeInt(size);
+                }
+                default -> fail(out, new IOException("Unknown operation " + operation));
+            }
+        } catch (RuntimeException e) {
+            fail(out, new IOException("Request failed: " + e, e));
+        }
+
+    }
+
+    private static void fail(DataOutputStream out, IOException failure) throws IOException {
+        out.writeByte(ShardProtocol.ERROR);
+        out.writeUTF(failure.getMessage());
+        out.flush();
+        throw failure;
+    }
+
+}
@@ -0,0 +1,447 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An analyzer whose sentiment dictionary is hash-partitioned by word across several {@link ModelShard}s,
+ * for corpora whose dictionary does not fit in a single heap. The shards are either models in this process
+ * or {@link ShardServer}s in other processes on the same machine.
+ * <p>
+ * The stopwords and the tokenization stay in this analyzer. A review is scored by looking up its words
+ * in the shards they are hashed to, and a top n query merges the top n words of every shard, so all
+ * answers are those of a {@link MovieReviewSentimentAnalyzer} with the same corpus, ties included.
+ * The analyzer is thread-safe; appends are applied one at a time.
+ * <p>
+ * An appended review is stored in the data set and flushed before it is sent to its shards. If a shard fails
+ * to apply it, the shards before it may already have, so they no longer agree: the analyzer is broken from then
+ * on, that append and every later call throw {@link IllegalStateException}, and it must be loaded again
+ * from its data set, which holds every stored review.
+ */
+public final class ShardedSentimentAnalyzer extends AbstractSentimentAnalyzer implements Closeable {
+
+    private static final int LOAD_BATCH_SIZE = 4096;
+    private static final int HASH_MULTIPLIER = 0x9E3779B9;
+
+    private static final Comparator<RankedWord> BY_FREQUENCY = Comparator.comparingInt(RankedWord::frequency)
+            .reversed().thenComparingLong(RankedWord::ordinal);
+    private static final Comparator<RankedWord> BY_SCORE = Comparator.comparingDouble(RankedWord::score)
+            .reversed().thenComparingLong(RankedWord::ordinal);
+
+    private static final ThreadLocal<Tokenizer> TOKENIZERS = ThreadLocal.withInitial(Tokenizer::new);
+
+    private final ModelShard[] shards;
+    private final ShardBatch[] batches;
+    private final Vocabulary stopwords;
+    private final ReviewJournal journal;
+
+    // the positions in the corpus of the next review and the next word occurrence
+    private long nextReview;
+    private long nextOrdinal;
+
+    // the failure of a shard that left the shards disagreeing, null while they agree
+    private volatile IOException shardFailure;
+
+    /**
+     * Creates an analyzer with its shards in this process.
+     *
+     * @param shardsCount the number of partitions of the dictionary
+     * @throws IllegalArgumentException if a reader or the writer is null, or shardsCount is not positive
+     */
+    public ShardedSentimentAnalyzer(Reader stopwordsIn, Reader reviewsIn, Writer reviewsOut, int shardsCount) {
+        this(stopwordsIn, reviewsIn, reviewsOut, localShards(shardsCount));
+    }
+
+    /**
+     * Creates an analyzer with its shards in {@link ShardServer}s, which must have just been started,
+     * one per address. The analyzer loads the corpus into them. {@link #close()} closes the connections
+     * but leaves the servers running.
+     *
+     * @param shardAddresses the addresses of the servers, one per partition of the dictionary
+     * @throws IllegalArgumentException if a reader or the writer is null, or there are no addresses
+     * @throws IllegalStateException    if a server cannot be reached or the corpus cannot be read
+     */
+    public ShardedSentimentAnalyzer(Reader stopwordsIn, Reader reviewsIn, Writer reviewsOut,
+                                    List<InetSocketAddress> shardAddresses) {
+        this(stopwordsIn, reviewsIn, reviewsOut, remoteShards(shardAddresses));
+    }
+
+    private ShardedSentimentAnalyzer(Reader stopwordsIn, Reader reviewsIn, Writer reviewsOut, ModelShard[] shards) {
+
+        this.shards = shards;
+
+        try {
+            if (stopwordsIn == null || reviewsIn == null || reviewsOut == null) {
+                throw new IllegalArgumentException("A file is invalid");
+            }
+
+            batches = new ShardBatch[shards.length];
+            for (int i = 0; i < batches.length; i++) {
+                batches[i] = new ShardBatch();
+            }
+
+            stopwords = readStopwords(new BufferedReader(stopwordsIn));
+            // an appended review is flushed before it is sent to the shards, so a failed shard loses nothing
+            journal = new WriterJournal(reviewsOut, FlushPolicy.FLUSH);
+            load(new BufferedReader(reviewsIn));
+        } catch (RuntimeException e) {
+            closeQuietly();
+            throw e;
+        }
+
+    }
+
+    private static ModelShard[] localShards(int shardsCount) {
+
+        if (shardsCount <= 0) {
+            throw new IllegalArgumentException("Shards count must be positive");
+        }
+
+        ModelShard[] shards = new ModelShard[shardsCount];
+        for (int i = 0; i < shardsCount; i++) {
+            shards[i] = new LocalModelShard();
+        }
+        return shards;
+
+    }
+
+    private static ModelShard[] remoteShards(List<InetSocketAddress> shardAddresses) {
+
+        if (shardAddresses == null || shardAddresses.isEmpty()) {
+            throw new IllegalArgumentException("Shard addresses cannot be null or empty");
+        }
+
+        ModelShard[] shards = new ModelShard[shardAddresses.size()];
+        try {
+            for (int i = 0; i < shards.length; i++) {
+                shards[i] = new RemoteModelShard(shardAddresses.get(i));
+            }
+        } catch (IOException e) {
+            closeQuietly(shards);
+            throw new IllegalStateException("A shard could not be reached", e);
+        }
+        return shards;
+
+    }
+
+    private void load(BufferedReader reviewsIn) {
+
+        try {
+            int batchedReviews = 0;
+
+            String line;
+            while ((line = reviewsIn.readLine()) != null) {
+                batchReview(line, ReviewParser.parseRating(line));
+
+                if (++batchedReviews == LOAD_BATCH_SIZE) {
+                    sendBatches();
+                    batchedReviews = 0;
+                }
+            }
+
+            sendBatches();
+        } catch (IOException e) {
+            throw new IllegalStateException("A problem occurred while reading reviews", e);
+        }
+
+    }
+
+    /**
+     * Splits the words of a review, stopwords excluded, into the batches of their shards.
+     */
+    private void batchReview(String review, int rating) {
+
+        long reviewPosition = nextReview++;
+
+        TOKENIZERS.get().tokenize(review, (buffer, length) -> {
+            if (stopwords.find(buffer, length) == Vocabulary.NOT_FOUND) {
+                String word = new String(buffer, 0, length);
+                batches[shardOf(word)].addWord(reviewPosition, rating, word, nextOrdinal++);
+            }
+        });
+
+    }
+
+    /**
+     * Sends the batches to their shards and clears them, even if a shard fails, so nothing is sent twice.
+     *
+     * @throws IllegalStateException if a shard fails, which breaks the analyzer
+     */
+    private void sendBatches() {
+
+        try {
+            for (int i = 0; i < shards.length; i++) {
+                if (!batches[i].isEmpty()) {
+                    shards[i].append(batches[i]);
+                }
+            }
+        } catch (IOException e) {
+            shardFailure = e;
+            throw new IllegalStateException("A shard failed to apply the reviews, so the shards no longer agree", e);
+        } finally {
+            for (ShardBatch batch : batches) {
+                batch.clear();
+            }
+        }
+
+    }
+
+    /**
+     * @throws IllegalStateException if a shard failed to apply appended reviews
+     */
+    private void validateShards() {
+        IOException failure = shardFailure;
+        if (failure != null) {
+            throw new IllegalStateException("A shard failed to apply appended reviews, so the shards no longer agree",
+                    failure);
+        }
+    }
+
+    private int shardOf(String word) {
+        return Math.floorMod(word.hashCode() * HASH_MULTIPLIER, shards.length);
+    }
+
+    @Override
+    public double getReviewSentiment(String review) {
+
+        validateStringArgument(review, REVIEW_ARGUMENT);
+
+        Set<String> words = new HashSet<>();
+        TOKENIZERS.get().tokenize(review, (buffer, length) -> {
+            if (stopwords.find(buffer, length) == Vocabulary.NOT_FOUND) {
+                words.add(new String(buffer, 0, length));
+            }
+        });
+
+        List<List<String>> wordsByShard = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            wordsByShard.add(new ArrayList<>());
+        }
+        for (String word : words) {
+            wordsByShard.get(shardOf(word)).add(word);
+        }
+
+        double scoresSum = 0.0;
+        int knownWords = 0;
+
+        for (int i = 0; i < shards.length; i++) {
+            if (wordsByShard.get(i).isEmpty()) {
+                continue;
+            }
+
+            ModelShard shard = shards[i];
+            String[] shardWords = wordsByShard.get(i).toArray(String[]::new);
+            for (double score : query(() -> shard.getScores(shardWords))) {
+                if (!Double.isNaN(score)) {
+                    scoresSum += score;
+                    knownWords++;
+                }
+            }
+        }
+
+        return knownWords == 0 ? RatingType.UNKNOWN.getRatingNumber() : scoresSum / knownWords;
+
+    }
+
+    @Override
+    public double getWordSentiment(String word) {
+
+        validateStringArgument(word, WORD_ARGUMENT);
+
+        String normalized = word.toLowerCase().trim();
+        double score = query(() -> shards[shardOf(normalized)].getScores(new String[] {normalized}))[0];
+        return Double.isNaN(score) ? RatingType.UNKNOWN.getRatingNumber() : score;
+
+    }
+
+    @Override
+    public int getWordFrequency(String word) {
+
+        validateStringArgument(word, WORD_ARGUMENT);
+
+        String normalized = word.toLowerCase().trim();
+        return query(() -> shards[shardOf(normalized)].getFrequency(normalized));
+
+    }
+
+    @Override
+    public List<String> getMostFrequentWords(int n) {
+
+        validateIntegerArgument(n);
+
+        return merge(n, BY_FREQUENCY, shard -> shard.getMostFrequentWords(n));
+
+    }
+
+    @Override
+    public List<String> getMostPositiveWords(int n) {
+
+        validateIntegerArgument(n);
+
+        return merge(n, BY_SCORE, shard -> shard.getMostPositiveWords(n));
+
+    }
+
+    @Override
+    public List<String> getMostNegativeWords(int n) {
+
+        validateIntegerArgument(n);
+
+        return merge(n, BY_SCORE.reversed(), shard -> shard.getMostNegativeWords(n));
+
+    }
+
+    @Override
+    public synchronized boolean appendReview(String review, int sentiment) {
+
+        validateStringArgument(review, REVIEW_ARGUMENT);
+        validateSentimentArgument(sentiment);
+
+        validateShards();
+
+        if (!writeReview(journal, review, sentiment)) {
+            return false;
+        }
+
+        // the review is already stored, so it is part of the corpus the shards are loaded from next time
+        batchReview(review, sentiment);
+        sendBatches();
+
+        return true;
+
+    }
+
+    @Override
+    public synchronized boolean[] appendReviews(List<LabeledReview> reviews) {
+
+        validateShards();
+
+        boolean[] stored = writeReviews(journal, reviews);
+
+        for (int i = 0; i < stored.length; i++) {
+            if (stored[i]) {
+                batchReview(reviews.get(i).review(), reviews.get(i).sentiment());
+            }
+        }
+
+        sendBatches();
+
+        return stored;
+
+    }
+
+    @Override
+    public int getSentimentDictionarySize() {
+
+        int size = 0;
+        for (ModelShard shard : shards) {
+            size += query(shard::size);
+        }
+        return size;
+
+    }
+
+    @Override
+    public boolean isStopWord(String word) {
+        return stopwords.find(word.toLowerCase().strip()) != Vocabulary.NOT_FOUND;
+    }
+
+    /**
+     * Closes the shards, and the connections to the remote ones.
+     */
+    @Override
+    public void close() throws IOException {
+
+        IOException failure = null;
+
+        for (ModelShard shard : shards) {
+            try {
+                if (shard != null) {
+                    shard.close();
+                }
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+
+    }
+
+    @FunctionalInterface
+    private interface ShardQuery<T> {
+        T get() throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface TopWordsQuery {
+        List<RankedWord> get(ModelShard shard) throws IOException;
+    }
+
+    private <T> T query(ShardQuery<T> query) {
+
+        validateShards();
+
+        try {
+            return query.get();
+        } catch (IOException e) {
+            throw new IllegalStateException("A shard could not be queried", e);
+        }
+
+    }
+
+    /**
+     * The top n words of the whole dictionary are among the top n words of the shards.
+     */
+    private List<String> merge(int n, Comparator<RankedWord> order, TopWordsQuery topWords) {
+
+        List<RankedWord> candidates = new ArrayList<>();
+        for (ModelShard shard : shards) {
+            candidates.addAll(query(() -> topWords.get(shard)));
+        }
+
+        candidates.sort(order);
+
+        int size = Math.min(n, candidates.size());
+        String[] words = new String[size];
+        for (int i = 0; i < size; i++) {
+            words[i] = candidates.get(i).word();
+        }
+        return List.of(words);
+
+    }
+
+    private void closeQuietly() {
+        closeQuietly(shards);
+    }
+
+    private static void closeQuietly(ModelShard[] shards) {
+
+        for (ModelShard shard : shards) {
+            try {
+                if (shard != null) {
+                    shard.close();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,225 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import java.io.BufferedReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link SentimentAnalyzer} whose readers never block. Queries are answered from an immutable
+ * {@link SentimentSnapshot}, while appended reviews are applied to a private model that is copied
+ * into a new snapshot and atomically published after every batch of
+ * {@link AnalyzerOptions#getPublishBatchSize()} reviews, and at least every
+ * {@link AnalyzerOptions#getPublishInterval()} if one is set.
+ * Readers never see a partially applied review, but see an appended review only once it is published.
+ * Use {@link #snapshot()} for several queries that must be consistent with each other.
+ */
+public class SnapshotSentimentAnalyzer extends AbstractSentimentAnalyzer implements AutoCloseable {
+
+    private final ReviewJournal journal;
+    private final Vocabulary stopwords;
+    private final SentimentModel model;
+    private final ReviewParser reviewParser;
+    private final int publishBatchSize;
+    private final ScheduledExecutorService publisher;
+    private final Object writeLock = new Object();
+    private int pendingReviews;
+    private volatile SentimentSnapshot currentSnapshot;
+
+    public SnapshotSentimentAnalyzer(Reader stopwordsIn, Reader reviewsIn, Writer reviewsOut) {
+        this(stopwordsIn, reviewsIn, reviewsOut, AnalyzerOptions.defaults());
+    }
+
+    /**
+     * Publishing copies the whole dictionary, so with the default batch of a single review every append takes
+     * time and memory in proportion to the dictionary. Set a larger {@link AnalyzerOptions#withPublishBatchSize}
+     * or a publish interval when reviews are appended often.
+     *
+     * @param options how the reviews are loaded and how often appended reviews are published
+     * @throws IllegalArgumentException if a file or the options are null, or the options enable phrases,
+     *                                  a ranking index, approximate frequencies, time windows or metrics
+     */
+    public SnapshotSentimentAnalyzer(Reader stopwordsIn, Reader reviewsIn, Writer reviewsOut,
+                                     AnalyzerOptions options) {
+
+        if (stopwordsIn == null || reviewsIn == null || reviewsOut == null) {
+            throw new IllegalArgumentException("A file is invalid");
+        }
+        if (options == null) {
+            throw new IllegalArgumentException("Options cannot be null");
+        }
+        if (options.hasPhrases()) {
+            throw new IllegalArgumentException("A snapshot analyzer cannot rate phrases");
+        }
+        if (options.hasRankingIndex()) {
+            throw new IllegalArgumentException("A snapshot analyzer cannot keep a ranking index");
+        }
+        if (options.hasApproximateFrequencies()) {
+            throw new IllegalArgumentException("A snapshot analyzer cannot approximate frequencies");
+        }
+        if (options.hasTimeWindows()) {
+            throw new IllegalArgumentException("A snapshot analyzer cannot keep time windows");
+        }
+        if (options.getMetrics() != MetricsSink.NONE) {
+            throw new IllegalArgumentException("A snapshot analyzer cannot record metrics");
+        }
+
+        journal = new WriterJournal(reviewsOut, options.getFlushPolicy());
+        stopwords = readStopwords(new BufferedReader(stopwordsIn));
+        model = readModel(new BufferedReader(reviewsIn), stopwords, options);
+        reviewParser = new ReviewParser(stopwords, model);
+        publishBatchSize = options.getPublishBatchSize();
+        currentSnapshot = new SentimentSnapshot(stopwords, model.copy());
+
+        if (options.getPublishInterval().isZero()) {
+            publisher = null;
+        } else {
+            publisher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "sentiment-snapshot-publisher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = options.getPublishInterval().toNanos();
+            publisher.scheduleWithFixedDelay(this::publish, interval, interval, TimeUnit.NANOSECONDS);
+        }
+
+    }
+
+    /**
+     * @return the latest published snapshot, whose queries are all consistent with each other
+     */
+    public SentimentSnapshot snapshot() {
+        return currentSnapshot;
+    }
+
+    /**
+     * Publishes the reviews appended since the last snapshot, without waiting for a full batch.
+     */
+    public void publish() {
+        synchronized (writeLock) {
+            if (pendingReviews > 0) {
+                currentSnapshot = new SentimentSnapshot(stopwords, model.copy());
+                pendingReviews = 0;
+            }
+        }
+    }
+
+    @Override
+    public double getReviewSentiment(String review) {
+        return currentSnapshot.getReviewSentiment(review);
+    }
+
+    @Override
+    public double[] scoreAll(String[] reviews, int parallelism) {
+        // the whole batch is scored against the same snapshot, with the threads of this analyzer
+        return currentSnapshot.scoreAll(reviews, parallelism, scoreExecutor(parallelism));
+    }
+
+    @Override
+    public double[] scoreAll(String[] reviews, int parallelism, Executor executor) {
+        return currentSnapshot.scoreAll(reviews, parallelism, executor);
+    }
+
+    @Override
+    public double getWordSentiment(String word) {
+        return currentSnapshot.getWordSentiment(word);
+    }
+
+    @Override
+    public int getWordFrequency(String word) {
+        return currentSnapshot.getWordFrequency(word);
+    }
+
+    @Override
+    public List<String> getMostFrequentWords(int n) {
+        return currentSnapshot.getMostFrequentWords(n);
+    }
+
+    @Override
+    public List<String> getMostPositiveWords(int n) {
+        return currentSnapshot.getMostPositiveWords(n);
+    }
+
+    @Override
+    public List<String> getMostNegativeWords(int n) {
+        return currentSnapshot.getMostNegativeWords(n);
+    }
+
+    /**
+     * Stores the review and applies it to the model; it becomes visible to queries
+     * with the next published snapshot.
+     */
+    @Override
+    public boolean appendReview(String review, int sentiment) {
+
+        validateStringArgument(review, REVIEW_ARGUMENT);
+        validateSentimentArgument(sentiment);
+
+        synchronized (writeLock) {
+            if (!writeReview(journal, review, sentiment)) {
+                return false;
+            }
+
+            reviewParser.parseReview(review, sentiment);
+
+            if (++pendingReviews >= publishBatchSize) {
+                publish();
+            }
+        }
+
+        return true;
+
+    }
+
+    /**
+     * Stores and applies the whole batch at once; a batch at least as large as
+     * the publish batch size is published as a single snapshot.
+     */
+    @Override
+    public boolean[] appendReviews(List<LabeledReview> reviews) {
+
+        synchronized (writeLock) {
+            boolean[] stored = writeReviews(journal, reviews);
+
+            for (int i = 0; i < stored.length; i++) {
+                if (stored[i]) {
+                    reviewParser.parseReview(reviews.get(i).review(), reviews.get(i).sentiment());
+                    pendingReviews++;
+                }
+            }
+
+            if (pendingReviews >= publishBatchSize) {
+                publish();
+            }
+
+            return stored;
+        }
+
+    }
+
+    @Override
+    public int getSentimentDictionarySize() {
+        return currentSnapshot.getSentimentDictionarySize();
+    }
+
+    @Override
+    public boolean isStopWord(String word) {
+        return stopwords.find(word.toLowerCase().strip()) != Vocabulary.NOT_FOUND;
+    }
+
+    /**
+     * Stops the periodic publishing and publishes the pending reviews.
+     */
+    @Override
+    public void close() {
+        if (publisher != null) {
+            publisher.shutdownNow();
+        }
+        publish();
+    }
+
+}
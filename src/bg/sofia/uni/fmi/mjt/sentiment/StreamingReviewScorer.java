@@ -0,0 +1,247 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Scores a stream of unlabelled reviews, one review per line, of any size.
+ * <p>
+ * The reviews are read in chunks that are scored on a fork-join pool of {@link AnalyzerOptions#getParallelism()}
+ * threads. At most two chunks per thread are read ahead of the consumer of the scores, so reading blocks
+ * while the consumer falls behind and the memory used does not depend on the size of the input.
+ * The scores are passed to the consumer on the calling thread, so it needs no synchronization.
+ * <p>
+ * The analyzer must not be appended to while scoring and, when scoring in parallel,
+ * must support scoring from several threads at once, as all analyzers in this package do.
+ */
+public final class StreamingReviewScorer {
+
+    // chunks scored ahead of the consumer per thread, which bounds the memory held by pending chunks
+    private static final int PENDING_CHUNKS_PER_THREAD = 2;
+
+    @FunctionalInterface
+    private interface ReviewSource {
+        /**
+         * @return the next review, null at the end of the input
+         */
+        String next() throws IOException;
+    }
+
+    private final SentimentAnalyzer analyzer;
+    private final AnalyzerOptions options;
+
+    /**
+     * @param options how many threads score the reviews and how many reviews a task scores
+     */
+    public StreamingReviewScorer(SentimentAnalyzer analyzer, AnalyzerOptions options) {
+
+        if (analyzer == null) {
+            throw new IllegalArgumentException("Analyzer cannot be null");
+        }
+        if (options == null) {
+            throw new IllegalArgumentException("Options cannot be null");
+        }
+
+        this.analyzer = analyzer;
+        this.options = options;
+
+    }
+
+    /**
+     * Scores every line of the reader as a review. The reader is not closed.
+     *
+     * @throws IOException if the reader fails
+     */
+    public void score(Reader reviews, ScoringOrder order, Consumer<ScoredReview> results) throws IOException {
+
+        if (reviews == null) {
+            throw new IllegalArgumentException("Reviews cannot be null");
+        }
+
+        score(new BufferedReader(reviews)::readLine, order, results);
+
+    }
+
+    /**
+     * Scores every line of a UTF-8 file as a review.
+     *
+     * @throws IOException if the file cannot be read
+     */
+    public void score(Path reviews, ScoringOrder order, Consumer<ScoredReview> results) throws IOException {
+
+        if (reviews == null) {
+            throw new IllegalArgumentException("Reviews cannot be null");
+        }
+
+        try (BufferedReader reviewsIn = Files.newBufferedReader(reviews, StandardCharsets.UTF_8)) {
+            score(reviewsIn::readLine, order, results);
+        }
+
+    }
+
+    /**
+     * Scores every element of the stream as a review. The stream is consumed lazily and is not closed.
+     *
+     * @throws IllegalArgumentException if the stream contains null
+     */
+    public void score(Stream<String> reviews, ScoringOrder order, Consumer<ScoredReview> results) {
+
+        if (reviews == null) {
+            throw new IllegalArgumentException("Reviews cannot be null");
+        }
+
+        Iterator<String> iterator = reviews.iterator();
+
+        try {
+            score(() -> {
+                if (!iterator.hasNext()) {
+                    return null;
+                }
+                String review = iterator.next();
+                if (review == null) {
+                    throw new IllegalArgumentException("Reviews cannot contain null");
+                }
+                return review;
+            }, order, results);
+        } catch (IOException e) {
+            throw new IllegalStateException("A stream source cannot fail with an IOException", e);
+        }
+
+    }
+
+    private void score(ReviewSource reviews, ScoringOrder order, Consumer<ScoredReview> results)
+            throws IOException {
+
+        if (order == null) {
+            throw new IllegalArgumentException("Order cannot be null");
+        }
+        if (results == null) {
+            throw new IllegalArgumentException("Results consumer cannot be null");
+        }
+
+        if (!options.isParallel()) {
+            long id = 0;
+            String review;
+            while ((review = reviews.next()) != null) {
+                results.accept(score(id++, review));
+            }
+            return;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(options.getParallelism());
+        int maxPendingChunks = options.getParallelism() * PENDING_CHUNKS_PER_THREAD;
+        Deque<Future<ScoredReview[]>> pendingChunks = new ArrayDeque<>();
+        CompletionService<ScoredReview[]> completedChunks = new ExecutorCompletionService<>(pool);
+        int pendingChunksCount = 0;
+        long nextId = 0;
+
+        try {
+            List<String> chunk;
+            while (!(chunk = readChunk(reviews)).isEmpty()) {
+                List<String> chunkReviews = chunk;
+                long firstId = nextId;
+                nextId += chunk.size();
+
+                if (order == ScoringOrder.INPUT) {
+                    pendingChunks.addLast(pool.submit(() -> scoreChunk(firstId, chunkReviews)));
+                    if (pendingChunks.size() >= maxPendingChunks) {
+                        emit(pendingChunks.removeFirst(), results);
+                    }
+                } else {
+                    completedChunks.submit(() -> scoreChunk(firstId, chunkReviews));
+                    if (++pendingChunksCount >= maxPendingChunks) {
+                        emit(completedChunks.take(), results);
+                        pendingChunksCount--;
+                    }
+                }
+            }
+
+            while (!pendingChunks.isEmpty()) {
+                emit(pendingChunks.removeFirst(), results);
+            }
+            for (; pendingChunksCount > 0; pendingChunksCount--) {
+                emit(completedChunks.take(), results);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while scoring reviews", e);
+        } finally {
+            pool.shutdownNow();
+        }
+
+    }
+
+    private List<String> readChunk(ReviewSource reviews) throws IOException {
+
+        List<String> chunk = new ArrayList<>(options.getScoreChunkSize());
+
+        String review;
+        while (chunk.size() < options.getScoreChunkSize() && (review = reviews.next()) != null) {
+            chunk.add(review);
+        }
+
+        return chunk;
+
+    }
+
+    private ScoredReview[] scoreChunk(long firstId, List<String> reviews) {
+
+        ScoredReview[] scores = new ScoredReview[reviews.size()];
+
+        if (!(analyzer instanceof BatchSentimentAnalyzer batchAnalyzer)) {
+            for (int i = 0; i < scores.length; i++) {
+                scores[i] = score(firstId + i, reviews.get(i));
+            }
+            return scores;
+        }
+
+        double[] reviewScores = batchAnalyzer.scoreAll(reviews);
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = new ScoredReview(firstId + i, reviewScores[i], RatingType.fromScore(reviewScores[i]));
+        }
+
+        return scores;
+
+    }
+
+    private ScoredReview score(long id, String review) {
+
+        // a blank line has no known words rather than being an invalid argument
+        double score = review.isBlank() ? RatingType.UNKNOWN.getRatingNumber() : analyzer.getReviewSentiment(review);
+        return new ScoredReview(id, score, RatingType.fromScore(score));
+
+    }
+
+    private static void emit(Future<ScoredReview[]> chunk, Consumer<ScoredReview> results)
+            throws InterruptedException {
+
+        try {
+            for (ScoredReview score : chunk.get()) {
+                results.accept(score);
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Scoring a review failed", e.getCause());
+        }
+
+    }
+
+}
@@ -0,0 +1,143 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Splits text into lowercase words made of latin letters, digits and apostrophes,
+ * dropping words shorter than {@value #MIN_WORD_SIZE} characters, and signals the punctuation
+ * that ends a clause.
+ * The words are emitted through a reusable buffer, so scanning allocates nothing per word.
+ * An instance is not thread-safe.
+ */
+final class Tokenizer {
+
+    static final int MIN_WORD_SIZE = 2;
+    private static final int INITIAL_BUFFER_SIZE = 64;
+    private static final int LOWER_CASE_OFFSET = 'a' - 'A';
+    private static final char NOT_A_WORD_SYMBOL = 0;
+    private static final char CLAUSE_END = 1;
+    private static final String CLAUSE_PUNCTUATION = ".,;:!?";
+    // the lowercase form of every ASCII word symbol, CLAUSE_END for the clause punctuation
+    // and NOT_A_WORD_SYMBOL for the rest, which classifies and lowercases a symbol with a single lookup
+    // instead of a chain of branches
+    private static final char[] WORD_SYMBOLS = new char[128];
+
+    static {
+        for (char symbol = 0; symbol < WORD_SYMBOLS.length; symbol++) {
+            if (isWordSymbol(symbol)) {
+                WORD_SYMBOLS[symbol] = toLowerCase(symbol);
+            } else {
+                WORD_SYMBOLS[symbol] = CLAUSE_PUNCTUATION.indexOf(symbol) >= 0 ? CLAUSE_END : NOT_A_WORD_SYMBOL;
+            }
+        }
+    }
+
+    /**
+     * Receives the words of a text. The buffer is reused for the next word,
+     * so its content is valid only until the method returns.
+     */
+    @FunctionalInterface
+    interface TokenConsumer {
+        void accept(char[] buffer, int length);
+
+        /**
+         * Called after the last word of a clause, at a full stop, a comma, a semicolon, a colon,
+         * an exclamation mark or a question mark.
+         */
+        default void endClause() {
+        }
+    }
+
+    private char[] buffer = new char[INITIAL_BUFFER_SIZE];
+
+    void tokenize(CharSequence text, TokenConsumer consumer) {
+        tokenize(text, 0, text.length(), consumer);
+    }
+
+    void tokenize(CharSequence text, int from, int to, TokenConsumer consumer) {
+
+        int length = 0;
+
+        for (int i = from; i < to; i++) {
+            char symbol = wordSymbol(text.charAt(i));
+
+            if (symbol > CLAUSE_END) {
+                if (length == buffer.length) {
+                    grow();
+                }
+                buffer[length++] = symbol;
+            } else {
+                emit(length, consumer);
+                length = 0;
+                if (symbol == CLAUSE_END) {
+                    consumer.endClause();
+                }
+            }
+        }
+
+        emit(length, consumer);
+
+    }
+
+    /**
+     * Splits the bytes of a text in an ASCII-compatible encoding such as UTF-8. Every word symbol is ASCII
+     * and every byte of a multibyte character is outside ASCII, so the words are the same as those
+     * of the decoded text, without decoding it.
+     */
+    void tokenize(ByteBuffer text, int from, int to, TokenConsumer consumer) {
+
+        int length = 0;
+
+        for (int i = from; i < to; i++) {
+            char symbol = wordSymbol((char) (text.get(i) & 0xFF));
+
+            if (symbol > CLAUSE_END) {
+                if (length == buffer.length) {
+                    grow();
+                }
+                buffer[length++] = symbol;
+            } else {
+                emit(length, consumer);
+                length = 0;
+                if (symbol == CLAUSE_END) {
+                    consumer.endClause();
+                }
+            }
+        }
+
+        emit(length, consumer);
+
+    }
+
+    private void emit(int length, TokenConsumer consumer) {
+        if (length >= MIN_WORD_SIZE) {
+            consumer.accept(buffer, length);
+        }
+    }
+
+    private void grow() {
+        char[] grown = new char[buffer.length * 2];
+        System.arraycopy(buffer, 0, grown, 0, buffer.length);
+        buffer = grown;
+    }
+
+    /**
+     * @return the lowercase form of a word symbol, {@link #CLAUSE_END} for the clause punctuation
+     * and {@link #NOT_A_WORD_SYMBOL} for any other symbol
+     */
+    private static char wordSymbol(char symbol) {
+        return symbol < WORD_SYMBOLS.length ? WORD_SYMBOLS[symbol] : NOT_A_WORD_SYMBOL;
+    }
+
+    static boolean isWordSymbol(int symbol) {
+        return (symbol >= 'a' && symbol <= 'z')
+                || (symbol >= 'A' && symbol <= 'Z')
+                || (symbol >= '0' && symbol <= '9')
+                || symbol == '\'';
+    }
+
+    static char toLowerCase(char symbol) {
+        return symbol >= 'A' && symbol <= 'Z' ? (char) (symbol + LOWER_CASE_OFFSET) : symbol;
+    }
+
+}
@@ -0,0 +1,92 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+/**
+ * Selects the n best of the ids {@code [0, size)} with a bounded binary heap of primitive ids,
+ * in O(size * log n) time and O(n) space.
+ */
+final class TopIds {
+
+    /**
+     * Orders ids from the best to the worst. Must be a total order, so ties are broken by id.
+     */
+    @FunctionalInterface
+    interface IdComparator {
+        int compare(int first, int second);
+    }
+
+    private TopIds() {
+    }
+
+    /**
+     * @return the min(n, size) best ids, the best first
+     */
+    static int[] select(int size, int n, IdComparator order) {
+
+        int[] heap = new int[Math.min(n, size)];
+        int heapSize = 0;
+
+        // the root of the heap is always the worst of the best ids found so far
+        for (int id = 0; id < size; id++) {
+            if (heapSize < heap.length) {
+                heap[heapSize] = id;
+                siftUp(heap, heapSize++, order);
+            } else if (heapSize > 0 && order.compare(id, heap[0]) < 0) {
+                heap[0] = id;
+                siftDown(heap, heapSize, order);
+            }
+        }
+
+        // removing the worst id one by one fills the array from its end
+        for (int last = heapSize - 1; last > 0; last--) {
+            int worst = heap[0];
+            heap[0] = heap[last];
+            heap[last] = worst;
+            siftDown(heap, last, order);
+        }
+
+        return heap;
+
+    }
+
+    private static void siftUp(int[] heap, int index, IdComparator order) {
+
+        int id = heap[index];
+
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (order.compare(heap[parent], id) >= 0) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+
+        heap[index] = id;
+
+    }
+
+    private static void siftDown(int[] heap, int heapSize, IdComparator order) {
+
+        int id = heap[0];
+        int index = 0;
+
+        while (true) {
+            int child = (index << 1) + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && order.compare(heap[child + 1], heap[child]) > 0) {
+                child++;
+            }
+            if (order.compare(heap[child], id) <= 0) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+
+        heap[index] = id;
+
+    }
+
+}
@@ -0,0 +1,212 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import java.util.Arrays;
+
+/**
+ * Interns words and maps each of them to a dense id, starting from 0 in order of addition.
+ * Words can be looked up straight from a character buffer, so a lookup allocates nothing.
+ * An instance is not thread-safe.
+ */
+final class Vocabulary {
+
+    static final int NOT_FOUND = -1;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int HASH_MULTIPLIER = 31;
+    private static final int SPREAD_MULTIPLIER = 0x9E3779B9;
+    private static final int EMPTY_SLOT = 0;
+
+    // every slot holds id + 1 of the word hashed there, or EMPTY_SLOT
+    private int[] slots;
+    private String[] words;
+    private int[] hashes;
+    private int size;
+
+    Vocabulary() {
+        this(INITIAL_CAPACITY);
+    }
+
+    Vocabulary(int expectedSize) {
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < expectedSize) {
+            capacity <<= 1;
+        }
+
+        slots = new int[capacity << 1];
+        words = new String[capacity];
+        hashes = new int[capacity];
+    }
+
+    private Vocabulary(Vocabulary other) {
+        slots = other.slots.clone();
+        words = Arrays.copyOf(other.words, other.size);
+        hashes = Arrays.copyOf(other.hashes, other.size);
+        size = other.size;
+    }
+
+    /**
+     * @return an independent copy of the vocabulary, trimmed to its size
+     */
+    Vocabulary copy() {
+        return new Vocabulary(this);
+    }
+
+    int size() {
+        return size;
+    }
+
+    String getWord(int id) {
+        return words[id];
+    }
+
+    int find(char[] buffer, int length) {
+
+        int hash = hash(buffer, length);
+        int mask = slots.length - 1;
+
+        for (int slot = hash & mask; slots[slot] != EMPTY_SLOT; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if (hashes[id] == hash && matches(words[id], buffer, length)) {
+                return id;
+            }
+        }
+
+        return NOT_FOUND;
+
+    }
+
+    int find(CharSequence word) {
+
+        int hash = hash(word);
+        int mask = slots.length - 1;
+
+        for (int slot = hash & mask; slots[slot] != EMPTY_SLOT; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if (hashes[id] == hash && words[id].contentEquals(word)) {
+                return id;
+            }
+        }
+
+        return NOT_FOUND;
+
+    }
+
+    /**
+     * @return the id of the word, which is added to the vocabulary if it is not already there
+     */
+    int add(char[] buffer, int length) {
+
+        int hash = hash(buffer, length);
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+
+        for (; slots[slot] != EMPTY_SLOT; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if (hashes[id] == hash && matches(words[id], buffer, length)) {
+                return id;
+            }
+        }
+
+        return insert(slot, new String(buffer, 0, length), hash);
+
+    }
+
+    /**
+     * @return the id of the word, which is added to the vocabulary if it is not already there
+     */
+    int add(String word) {
+
+        int hash = hash(word);
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+
+        for (; slots[slot] != EMPTY_SLOT; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if (hashes[id] == hash && words[id].equals(word)) {
+                return id;
+            }
+        }
+
+        return insert(slot, word, hash);
+
+    }
+
+    private int insert(int slot, String word, int hash) {
+
+        int id = size++;
+
+        if (id == words.length) {
+            int capacity = Math.max(id << 1, INITIAL_CAPACITY);
+            words = Arrays.copyOf(words, capacity);
+            hashes = Arrays.copyOf(hashes, capacity);
+        }
+
+        words[id] = word;
+        hashes[id] = hash;
+        slots[slot] = id + 1;
+
+        // keep the load factor of the table at most 1/2
+        if (size << 1 > slots.length) {
+            rehash();
+        }
+
+        return id;
+
+    }
+
+    private void rehash() {
+
+        slots = new int[slots.length << 1];
+        int mask = slots.length - 1;
+
+        for (int id = 0; id < size; id++) {
+            int slot = hashes[id] & mask;
+            while (slots[slot] != EMPTY_SLOT) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id + 1;
+        }
+
+    }
+
+    static boolean matches(String word, char[] buffer, int length) {
+
+        if (word.length() != length) {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++) {
+            if (word.charAt(i) != buffer[i]) {
+                return false;
+            }
+        }
+
+        return true;
+
+    }
+
+    static int hash(char[] buffer, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = HASH_MULTIPLIER * hash + buffer[i];
+        }
+        return spread(hash);
+    }
+
+    static int hash(CharSequence word) {
+        int hash = 0;
+        for (int i = 0; i < word.length(); i++) {
+            hash = HASH_MULTIPLIER * hash + word.charAt(i);
+        }
+        return spread(hash);
+    }
+
+    /**
+     * Short words have polynomial hashes close to each other, which would fill long runs of adjacent slots
+     * and make a lookup of a missing word probe the whole run, so the hash is scrambled before it is masked.
+     */
+    private static int spread(int hash) {
+        int scrambled = hash * SPREAD_MULTIPLIER;
+        return scrambled ^ (scrambled >>> 16);
+    }
+
+}
@@ -0,0 +1,17 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+/**
+ * The lookups a {@link ReviewScorer} needs from a dictionary: dense word ids, in order of first occurrence,
+ * and their scores.
+ */
+interface WordScores {
+
+    /**
+     * @return the id of the word in the first length characters of the buffer, {@link Vocabulary#NOT_FOUND}
+     * if it is not in the dictionary
+     */
+    int find(char[] buffer, int length);
+
+    double getScore(int id);
+
+}
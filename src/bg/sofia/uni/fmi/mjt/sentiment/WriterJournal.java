@@ -0,0 +1,53 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Stores appended reviews as {@code "<rating> <text>"} lines of a writer, flushed according to a policy.
+ */
+final class WriterJournal implements ReviewJournal {
+
+    private final static String EMPTY_SYMBOL = " ";
+
+    private final Writer reviewsWriter;
+    private final FlushPolicy flushPolicy;
+
+    WriterJournal(Writer reviewsWriter, FlushPolicy flushPolicy) {
+        this.reviewsWriter = reviewsWriter;
+        this.flushPolicy = flushPolicy;
+    }
+
+    /**
+     * @return the review as a line of the data set, in the {@code "<rating> <text>"} format
+     */
+    static String toReviewLine(String review, int sentiment) {
+        return sentiment + EMPTY_SYMBOL + review + System.lineSeparator();
+    }
+
+    @Override
+    public void append(String review, int sentiment) throws IOException {
+        write(toReviewLine(review, sentiment));
+    }
+
+    @Override
+    public void appendAll(List<LabeledReview> reviews) throws IOException {
+
+        StringBuilder lines = new StringBuilder();
+        for (LabeledReview review : reviews) {
+            lines.append(toReviewLine(review.review(), review.sentiment()));
+        }
+
+        write(lines);
+
+    }
+
+    private void write(CharSequence lines) throws IOException {
+        reviewsWriter.append(lines);
+        if (flushPolicy == FlushPolicy.FLUSH) {
+            reviewsWriter.flush();
+        }
+    }
+
+}
@@ -0,0 +1,333 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class AppendLogTest {
+
+    /**
+     * A segment channel whose force and truncate fail on demand, as on a failing disk.
+     */
+    private static final class FailingChannel extends FileChannel {
+
+        private final FileChannel channel;
+        private boolean failingForce;
+        private boolean failingTruncate;
+
+        FailingChannel(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            if (failingForce) {
+                throw new IOException("Force failed");
+            }
+            channel.force(metaData);
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            if (failingTruncate) {
+                throw new IOException("Truncate failed");
+            }
+            channel.truncate(size);
+            return this;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return channel.read(dst);
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            return channel.read(dsts, offset, length);
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return channel.write(src);
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            return channel.write(srcs, offset, length);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return channel.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            channel.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return channel.size();
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return channel.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+            return channel.transferFrom(src, position, count);
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            return channel.read(dst, position);
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) throws IOException {
+            return channel.write(src, position);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return channel.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return channel.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return channel.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            channel.close();
+        }
+
+    }
+
+    private static List<LabeledReview> replay(AppendLog log, long afterSequence) throws IOException {
+        List<LabeledReview> reviews = new ArrayList<>();
+        log.replay(afterSequence, (sequence, review, sentiment) -> reviews.add(new LabeledReview(review, sentiment)));
+        return reviews;
+    }
+
+    private static long countSegments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    void testReplayReturnsAppendedReviewsAfterReopening(@TempDir Path directory) throws IOException {
+        try (AppendLog log = AppendLog.open(directory)) {
+            log.append("The first review", 1);
+            log.appendAll(List.of(new LabeledReview("The second review", 3),
+                    new LabeledReview("\u00dcn\u00efc\u00f6d\u00e9 review", 4)));
+        }
+
+        try (AppendLog log = AppendLog.open(directory)) {
+            assertEquals(3, log.getLastSequence(), "Every appended review must get the next sequence number");
+            assertEquals(List.of(new LabeledReview("The first review", 1), new LabeledReview("The second review", 3),
+                            new LabeledReview("\u00dcn\u00efc\u00f6d\u00e9 review", 4)), replay(log, 0),
+                    "Replay must return every appended review in order");
+            assertEquals(List.of(new LabeledReview("\u00dcn\u00efc\u00f6d\u00e9 review", 4)), replay(log, 2),
+                    "Replay must skip the reviews up to the given sequence number");
+        }
+    }
+
+    @Test
+    void testTornRecordIsDroppedOnOpen(@TempDir Path directory) throws IOException {
+        try (AppendLog log = AppendLog.open(directory)) {
+            log.append("A complete review", 2);
+            log.append("A review torn by a crash", 4);
+        }
+
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        try (AppendLog log = AppendLog.open(directory)) {
+            assertEquals(1, log.getLastSequence(), "A torn record must not be part of the log");
+            log.append("A review after the crash", 0);
+            assertEquals(List.of(new LabeledReview("A complete review", 2),
+                            new LabeledReview("A review after the crash", 0)), replay(log, 0),
+                    "Appends after a torn record must continue from the last complete record");
+        }
+    }
+
+    @Test
+    void testSegmentsRollAndAreDeletedThroughSequence(@TempDir Path directory) throws IOException {
+        try (AppendLog log = AppendLog.open(directory, 1, 1)) {
+            for (int i = 0; i < 5; i++) {
+                log.append("Review number " + i, i % 5);
+            }
+            assertEquals(5, countSegments(directory), "A segment past its size must be followed by a new one");
+
+            log.deleteSegmentsThrough(3);
+            assertEquals(2, countSegments(directory), "Segments with only older records must be deleted");
+            assertEquals(List.of(new LabeledReview("Review number 3", 3), new LabeledReview("Review number 4", 4)),
+                    replay(log, 3), "Deleting older segments must keep the newer records");
+        }
+    }
+
+    @Test
+    void testRecoverFromCheckpointAndLog(@TempDir Path directory) throws IOException {
+        Path modelFile = directory.resolve("model.bin");
+        Path logDirectory = directory.resolve("log");
+
+        MovieReviewSentimentAnalyzer expected = new MovieReviewSentimentAnalyzer(
+                new StringReader(StopWordSampleData.getInstance()),
+                new StringReader(MovieReviewsSampleData.getInstance()), new StringWriter());
+
+        try (AppendLog log = AppendLog.open(logDirectory, 1, 1)) {
+            MovieReviewSentimentAnalyzer analyzer = new MovieReviewSentimentAnalyzer(
+                    new StringReader(StopWordSampleData.getInstance()),
+                    new StringReader(MovieReviewsSampleData.getInstance()), log, AnalyzerOptions.defaults());
+
+            for (String review : List.of("A checkpointed review", "Another checkpointed one")) {
+                analyzer.appendReview(review, 4);
+                expected.appendReview(review, 4);
+            }
+            analyzer.checkpoint(modelFile);
+
+            analyzer.appendReviews(List.of(new LabeledReview("A logged review", 0),
+                    new LabeledReview("Another logged one", 1)));
+            expected.appendReviews(List.of(new LabeledReview("A logged review", 0),
+                    new LabeledReview("Another logged one", 1)));
+        }
+
+        try (AppendLog log = AppendLog.open(logDirectory, 1, 1)) {
+            MovieReviewSentimentAnalyzer recovered = MovieReviewSentimentAnalyzer.recover(modelFile, log);
+
+            int dictionarySize = expected.getSentimentDictionarySize();
+            assertEquals(dictionarySize, recovered.getSentimentDictionarySize(),
+                    "A recovered analyzer must have every appended word");
+            assertEquals(expected.getMostFrequentWords(dictionarySize),
+                    recovered.getMostFrequentWords(dictionarySize),
+                    "Reviews in the checkpoint must not be replayed twice");
+            assertEquals(expected.getMostPositiveWords(dictionarySize),
+                    recovered.getMostPositiveWords(dictionarySize),
+                    "A recovered analyzer must have the same scores");
+        }
+    }
+
+    @Test
+    void testReopenedLogIsReplayedIntoANewAnalyzer(@TempDir Path directory) throws IOException {
+        Path modelFile = directory.resolve("model.bin");
+        Path logDirectory = directory.resolve("log");
+
+        try (AppendLog log = AppendLog.open(logDirectory)) {
+            MovieReviewSentimentAnalyzer analyzer = new MovieReviewSentimentAnalyzer(
+                    new StringReader(StopWordSampleData.getInstance()),
+                    new StringReader(MovieReviewsSampleData.getInstance()), log, AnalyzerOptions.defaults());
+            analyzer.appendReview("xyzzyx", 4);
+            analyzer.appendReview("xyzzyx again", 2);
+        }
+
+        try (AppendLog log = AppendLog.open(logDirectory)) {
+            MovieReviewSentimentAnalyzer analyzer = new MovieReviewSentimentAnalyzer(
+                    new StringReader(StopWordSampleData.getInstance()),
+                    new StringReader(MovieReviewsSampleData.getInstance()), log, AnalyzerOptions.defaults());
+            assertEquals(2, analyzer.getWordFrequency("xyzzyx"),
+                    "The reviews already in the log must be counted by a new analyzer");
+            analyzer.checkpoint(modelFile);
+        }
+
+        try (AppendLog log = AppendLog.open(logDirectory)) {
+            MovieReviewSentimentAnalyzer recovered = MovieReviewSentimentAnalyzer.recover(modelFile, log);
+            assertEquals(2, recovered.getWordFrequency("xyzzyx"),
+                    "A checkpoint must keep the reviews that were in the log before the analyzer was created");
+            assertEquals(3.0, recovered.getWordSentiment("xyzzyx"),
+                    "The replayed reviews must be rated once");
+        }
+    }
+
+    @Test
+    void testFailedSyncIsRolledBack(@TempDir Path directory) throws IOException {
+        List<FailingChannel> channels = new ArrayList<>();
+
+        try (AppendLog log = AppendLog.open(directory, Long.MAX_VALUE, 1, (segment, options) -> {
+            FailingChannel channel = new FailingChannel(FileChannel.open(segment, options));
+            channels.add(channel);
+            return channel;
+        })) {
+            log.append("A stored review", 4);
+            FailingChannel channel = channels.get(0);
+            long size = channel.size();
+
+            channel.failingForce = true;
+            assertThrows(IOException.class, () -> log.append("A review that is not forced", 0),
+                    "An append whose sync fails must fail");
+            assertThrows(IOException.class, () -> log.appendAll(List.of(new LabeledReview("A batch", 1))),
+                    "A batch whose sync fails must fail");
+            assertEquals(1, log.getLastSequence(), "The records of a failed sync must be taken out of the log");
+            assertEquals(size, channel.size(), "The records of a failed sync must be truncated");
+
+            channel.failingForce = false;
+            log.append("A review after the failure", 2);
+            assertEquals(List.of(new LabeledReview("A stored review", 4),
+                            new LabeledReview("A review after the failure", 2)), replay(log, 0),
+                    "Appends after a rolled back sync must continue from the last stored record");
+        }
+    }
+
+    @Test
+    void testFailedRollbackMakesTheLogUnusable(@TempDir Path directory) throws IOException {
+        List<FailingChannel> channels = new ArrayList<>();
+        AppendLog log = AppendLog.open(directory, Long.MAX_VALUE, 1, (segment, options) -> {
+            FailingChannel channel = new FailingChannel(FileChannel.open(segment, options));
+            channels.add(channel);
+            return channel;
+        });
+
+        log.append("A stored review", 4);
+        FailingChannel channel = channels.get(0);
+        channel.failingForce = true;
+        channel.failingTruncate = true;
+
+        IOException failure = assertThrows(IOException.class, () -> log.append("A review that may be stored", 0),
+                "An append whose sync and rollback fail must fail");
+        assertEquals("Force failed", failure.getMessage(), "The failure of the sync must be thrown");
+        assertEquals("Truncate failed", failure.getSuppressed()[0].getMessage(),
+                "The failure of the rollback must be suppressed by the one of the sync");
+
+        channel.failingForce = false;
+        channel.failingTruncate = false;
+        assertThrows(IOException.class, () -> log.append("A review after the failure", 2),
+                "A log whose rollback failed must refuse appends");
+        assertThrows(IOException.class, log::sync, "A log whose rollback failed must refuse syncs");
+        assertThrows(IOException.class, log::close, "A log whose rollback failed must not be closed cleanly");
+    }
+
+}
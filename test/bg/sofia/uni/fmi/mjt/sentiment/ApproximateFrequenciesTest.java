@@ -0,0 +1,127 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ApproximateFrequenciesTest {
+
+    private static final double FREQUENCY_ERROR = 1e-3;
+
+    private static MovieReviewSentimentAnalyzer newAnalyzer(String stopwords, String reviews,
+                                                            AnalyzerOptions options) {
+        return new MovieReviewSentimentAnalyzer(new StringReader(stopwords), new StringReader(reviews),
+                new StringWriter(), options);
+    }
+
+    private static MovieReviewSentimentAnalyzer newSampleAnalyzer(AnalyzerOptions options) {
+        return newAnalyzer(StopWordSampleData.getInstance(), MovieReviewsSampleData.getInstance(), options);
+    }
+
+    @Test
+    void testEnoughHeavyHittersAreExact() {
+        MovieReviewSentimentAnalyzer exact = newSampleAnalyzer(AnalyzerOptions.defaults());
+        MovieReviewSentimentAnalyzer approximate = newSampleAnalyzer(AnalyzerOptions.defaults()
+                .withApproximateFrequencies(FREQUENCY_ERROR, exact.getSentimentDictionarySize() + 16));
+
+        exact.appendReview("xyzzyx film xyzzyx", 4);
+        approximate.appendReview("xyzzyx film xyzzyx", 4);
+
+        assertEquals(exact.getMostFrequentWords(20), approximate.getMostFrequentWords(20),
+                "Tracking every word must rank the words exactly");
+        for (String word : exact.getMostFrequentWords(exact.getSentimentDictionarySize())) {
+            assertEquals(exact.getWordFrequency(word), approximate.getWordFrequency(word),
+                    "Tracking every word must count " + word + " exactly");
+        }
+        assertEquals(2, approximate.getWordFrequency("xyzzyx"), "An appended word must be counted");
+        assertEquals(0, approximate.getWordFrequency("plugh"), "An unknown word must not be counted");
+        assertEquals(exact.getWordSentiment("film"), approximate.getWordSentiment("film"),
+                "The scores must not be approximate");
+    }
+
+    @Test
+    void testFewHeavyHittersKeepTheHeadOfASkewedCorpus() throws IOException {
+        CorpusGenerator generator = CorpusGenerator.defaults()
+                .withVocabulary(20_000, 1.0)
+                .withReviewsCount(5_000)
+                .withSeed(7);
+        StringWriter stopwords = new StringWriter();
+        StringWriter reviews = new StringWriter();
+        generator.writeStopwords(stopwords);
+        generator.writeReviews(reviews);
+
+        MovieReviewSentimentAnalyzer exact = newAnalyzer(stopwords.toString(), reviews.toString(),
+                AnalyzerOptions.defaults());
+        MovieReviewSentimentAnalyzer approximate = newAnalyzer(stopwords.toString(), reviews.toString(),
+                AnalyzerOptions.defaults().withApproximateFrequencies(FREQUENCY_ERROR, 100));
+
+        assertEquals(exact.getMostFrequentWords(10), approximate.getMostFrequentWords(10),
+                "The most frequent words of a skewed corpus must be found in few counters");
+        assertEquals(100, approximate.getMostFrequentWords(1_000).size(),
+                "No more words than the tracked ones must be returned");
+
+        List<String> words = exact.getMostFrequentWords(exact.getSentimentDictionarySize());
+        long total = 0;
+        for (String word : words) {
+            total += exact.getWordFrequency(word);
+        }
+        for (String word : words) {
+            int frequency = exact.getWordFrequency(word);
+            int estimate = approximate.getWordFrequency(word);
+            assertTrue(estimate >= frequency && estimate <= frequency + FREQUENCY_ERROR * total,
+                    "The estimate of " + word + " must be within the error bound, but was " + estimate
+                            + " for " + frequency);
+        }
+    }
+
+    @Test
+    void testHeavyHittersOverestimateEvictedKeys() {
+        HeavyHitters heavyHitters = new HeavyHitters(8);
+        long[] counts = new long[64];
+        Random random = new Random(3);
+
+        for (int i = 0; i < 10_000; i++) {
+            // half of the counts go to the keys 0 and 1, the rest are spread over the others
+            int key = i % 2 == 0 ? i % 4 / 2 : 2 + random.nextInt(counts.length - 2);
+            heavyHitters.add(key, 1);
+            counts[key]++;
+        }
+
+        assertEquals(8, heavyHitters.size(), "Every counter must be taken");
+        int[] top = heavyHitters.top(2);
+        assertEquals(0, Math.min(top[0], top[1]), "The heavy hitters must be tracked");
+        assertEquals(1, Math.max(top[0], top[1]), "The heavy hitters must be tracked");
+        for (int key = 0; key < counts.length; key++) {
+            long count = heavyHitters.getCount(key);
+            assertTrue(count == HeavyHitters.NOT_TRACKED || count >= counts[key],
+                    "A tracked count must never be below the true one");
+        }
+    }
+
+    @Test
+    void testInvalidApproximateFrequencies() {
+        assertThrows(IllegalArgumentException.class,
+                () -> AnalyzerOptions.defaults().withApproximateFrequencies(0.0, 10),
+                "The error must be positive");
+        assertThrows(IllegalArgumentException.class,
+                () -> AnalyzerOptions.defaults().withApproximateFrequencies(1e-9, 10),
+                "The error must not need more counters than an array holds");
+        assertTrue(CountMinSketch.fits(2e-8), "The smallest errors whose counters fit must be allowed");
+        assertThrows(IllegalArgumentException.class,
+                () -> AnalyzerOptions.defaults().withApproximateFrequencies(FREQUENCY_ERROR, 0),
+                "At least one word must be tracked");
+        assertThrows(IllegalArgumentException.class,
+                () -> newSampleAnalyzer(AnalyzerOptions.defaults().withRankingIndex(true)
+                        .withApproximateFrequencies(FREQUENCY_ERROR, 10)),
+                "A ranking index must need exact frequencies");
+    }
+
+}
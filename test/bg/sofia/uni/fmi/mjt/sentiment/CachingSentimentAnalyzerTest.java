@@ -0,0 +1,116 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CachingSentimentAnalyzerTest {
+
+    private static MovieReviewSentimentAnalyzer newAnalyzer() {
+        return new MovieReviewSentimentAnalyzer(new StringReader(StopWordSampleData.getInstance()),
+                new StringReader(MovieReviewsSampleData.getInstance()), new StringWriter());
+    }
+
+    @Test
+    void testNormalizedReviewsShareCachedScore() {
+        MovieReviewSentimentAnalyzer analyzer = newAnalyzer();
+        CachingSentimentAnalyzer cached = new CachingSentimentAnalyzer(analyzer, 16, CachePolicy.LRU);
+
+        double score = cached.getReviewSentiment("Pretty much worth it!");
+        assertEquals(analyzer.getReviewSentiment("Pretty much worth it!"), score,
+                "A cached analyzer must score reviews as the analyzer it caches");
+        assertEquals(score, cached.getReviewSentiment("  pretty MUCH worth it..."),
+                "Reviews with the same words must share a cached score");
+        assertEquals(analyzer.getReviewSentimentAsName("Pretty much worth it!"),
+                cached.getReviewSentimentAsName("Pretty much worth it!"),
+                "A cached analyzer must name the sentiment of a review as the analyzer it caches");
+
+        assertEquals(new CacheStatistics(2, 1, 0, 1), cached.getCacheStatistics(),
+                "Every lookup must be counted as a hit or a miss");
+    }
+
+    @Test
+    void testReviewsWithOtherClausesDoNotShareCachedScore() {
+        MovieReviewSentimentAnalyzer analyzer = new MovieReviewSentimentAnalyzer(
+                new StringReader(StopWordSampleData.getInstance()),
+                new StringReader(MovieReviewsSampleData.getInstance()), new StringWriter(),
+                AnalyzerOptions.defaults().withPhrases(2, 3, 100_000));
+        CachingSentimentAnalyzer cached = new CachingSentimentAnalyzer(analyzer, 16, CachePolicy.LRU);
+
+        assertEquals(analyzer.getReviewSentiment("not good great"), cached.getReviewSentiment("not good great"),
+                "A cached analyzer must score reviews with phrases as the analyzer it caches");
+        assertEquals(analyzer.getReviewSentiment("not good. great"), cached.getReviewSentiment("not good. great"),
+                "Reviews whose words are split into other clauses must not share a cached score");
+        assertEquals(0, cached.getCacheStatistics().hitCount(), "Both reviews must miss the cache");
+    }
+
+    @Test
+    void testAppendReviewInvalidatesReviewsSharingWords() {
+        MovieReviewSentimentAnalyzer analyzer = newAnalyzer();
+        CachingSentimentAnalyzer cached = new CachingSentimentAnalyzer(analyzer, 16, CachePolicy.TINY_LFU);
+
+        cached.getReviewSentiment("Pretty much worth it!");
+        double unrelatedScore = cached.getReviewSentiment("A dull movie");
+
+        cached.appendReview("worth every minute", 0);
+
+        assertEquals(analyzer.getReviewSentiment("Pretty much worth it!"),
+                cached.getReviewSentiment("Pretty much worth it!"),
+                "An append must invalidate the scores of the reviews sharing a word with it");
+        assertEquals(unrelatedScore, cached.getReviewSentiment("A dull movie"),
+                "An append must keep the scores of the reviews not sharing a word with it");
+        assertEquals(1, cached.getCacheStatistics().hitCount(),
+                "Only the score of the unrelated review must be found in the cache");
+
+        cached.appendReviews(List.of(new LabeledReview("a dull afternoon", 4)));
+        assertEquals(analyzer.getReviewSentiment("A dull movie"), cached.getReviewSentiment("A dull movie"),
+                "A batch of appends must invalidate the scores of the reviews sharing a word with it");
+    }
+
+    @Test
+    void testLruEvictsLeastRecentlyUsed() {
+        CachingSentimentAnalyzer cached = new CachingSentimentAnalyzer(newAnalyzer(), 2, CachePolicy.LRU);
+
+        cached.getReviewSentiment("first review");
+        cached.getReviewSentiment("second review");
+        cached.getReviewSentiment("first review");
+        cached.getReviewSentiment("third review");
+
+        cached.getReviewSentiment("first review");
+        assertEquals(2, cached.getCacheStatistics().hitCount(), "A recently used score must stay cached");
+        cached.getReviewSentiment("second review");
+        assertEquals(2, cached.getCacheStatistics().hitCount(), "The least recently used score must be evicted");
+        assertEquals(2, cached.getCacheStatistics().size(), "The cache must not grow past its maximum size");
+    }
+
+    @Test
+    void testTinyLfuKeepsFrequentReviewsThroughScan() {
+        CachingSentimentAnalyzer cached = new CachingSentimentAnalyzer(newAnalyzer(), 100, CachePolicy.TINY_LFU);
+
+        for (int i = 0; i < 20; i++) {
+            cached.getReviewSentiment("a frequently scored review");
+        }
+        for (int i = 0; i < 1_000; i++) {
+            cached.getReviewSentiment("one-off review number " + i);
+        }
+
+        long hits = cached.getCacheStatistics().hitCount();
+        cached.getReviewSentiment("a frequently scored review");
+        assertEquals(hits + 1, cached.getCacheStatistics().hitCount(),
+                "A frequent review must not be evicted by a scan of one-off reviews");
+        assertEquals(100, cached.getCacheStatistics().size(), "The cache must not grow past its maximum size");
+    }
+
+    @Test
+    void testInvalidMaximumSize() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new CachingSentimentAnalyzer(newAnalyzer(), 0, CachePolicy.LRU),
+                "A cache must have a positive maximum size");
+    }
+
+}
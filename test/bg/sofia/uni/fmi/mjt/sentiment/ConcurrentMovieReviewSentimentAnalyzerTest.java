@@ -0,0 +1,139 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConcurrentMovieReviewSentimentAnalyzerTest {
+
+    private static final int WRITERS = 4;
+    private static final int READERS = 8;
+    private static final int APPENDS_PER_WRITER = 2_000;
+
+    private static ConcurrentMovieReviewSentimentAnalyzer newAnalyzer() {
+        return new ConcurrentMovieReviewSentimentAnalyzer(
+                new StringReader(StopWordSampleData.getInstance()),
+                new StringReader(MovieReviewsSampleData.getInstance()), new StringWriter());
+    }
+
+    @Test
+    void testMatchesSequentialAnalyzer() {
+        ConcurrentMovieReviewSentimentAnalyzer concurrent = newAnalyzer();
+        MovieReviewSentimentAnalyzer sequential = new MovieReviewSentimentAnalyzer(
+                new StringReader(StopWordSampleData.getInstance()),
+                new StringReader(MovieReviewsSampleData.getInstance()), new StringWriter());
+
+        concurrent.appendReview("word1 word2 word1", 4);
+        sequential.appendReview("word1 word2 word1", 4);
+
+        assertEquals(sequential.getSentimentDictionarySize(), concurrent.getSentimentDictionarySize(),
+                "The concurrent analyzer must build the same dictionary");
+        for (String word : sequential.getMostPositiveWords(sequential.getSentimentDictionarySize())) {
+            assertEquals(sequential.getWordSentiment(word), concurrent.getWordSentiment(word),
+                    "The concurrent analyzer must calculate the same score for " + word);
+            assertEquals(sequential.getWordFrequency(word), concurrent.getWordFrequency(word),
+                    "The concurrent analyzer must calculate the same frequency for " + word);
+        }
+        assertEquals(sequential.getReviewSentiment("Pretty much worth it, really an epic movie!"),
+                concurrent.getReviewSentiment("Pretty much worth it, really an epic movie!"),
+                "The concurrent analyzer must evaluate reviews the same way");
+
+        int size = sequential.getSentimentDictionarySize();
+        assertEquals(sequential.getMostFrequentWords(size), concurrent.getMostFrequentWords(size),
+                "The concurrent analyzer must rank the words by frequency with the same ties");
+        assertEquals(sequential.getMostPositiveWords(size), concurrent.getMostPositiveWords(size),
+                "The concurrent analyzer must rank the words by score with the same ties");
+        assertEquals(sequential.getMostNegativeWords(10), concurrent.getMostNegativeWords(10),
+                "The concurrent analyzer must rank the words by score with the same ties");
+    }
+
+    @Test
+    void testUnsupportedOptionsAreRejected() {
+        List<AnalyzerOptions> unsupported = List.of(
+                AnalyzerOptions.defaults().withPhrases(2, 0, 100),
+                AnalyzerOptions.defaults().withRankingIndex(true),
+                AnalyzerOptions.defaults().withApproximateFrequencies(0.01, 10),
+                AnalyzerOptions.defaults().withTimeWindows(7, Duration.ofDays(1)),
+                AnalyzerOptions.defaults().withMetrics(new MetricsRegistry()));
+
+        for (AnalyzerOptions options : unsupported) {
+            assertThrows(IllegalArgumentException.class, () -> new ConcurrentMovieReviewSentimentAnalyzer(
+                            new StringReader(StopWordSampleData.getInstance()),
+                            new StringReader(MovieReviewsSampleData.getInstance()), new StringWriter(), options),
+                    "An option the concurrent analyzer would ignore must be rejected");
+        }
+    }
+
+    @Test
+    void testConcurrentAppendsAndQueriesKeepExactCounts() throws Exception {
+        ConcurrentMovieReviewSentimentAnalyzer analyzer = newAnalyzer();
+        int oldFrequency = analyzer.getWordFrequency("movie");
+
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS + READERS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Future<?>> writers = new ArrayList<>();
+        List<Future<?>> readers = new ArrayList<>();
+
+        for (int writer = 0; writer < WRITERS; writer++) {
+            int rating = writer % 2 == 0 ? 0 : 4;
+            writers.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < APPENDS_PER_WRITER; i++) {
+                    assertTrue(analyzer.appendReview("stress movie stress", rating),
+                            "Appending a review must be performed successfully");
+                }
+                return null;
+            }));
+        }
+
+        for (int reader = 0; reader < READERS; reader++) {
+            readers.add(executor.submit(() -> {
+                start.await();
+                while (writing.get()) {
+                    double sentiment = analyzer.getReviewSentiment("stress movie");
+                    assertTrue(sentiment == -1.0 || (sentiment >= 0.0 && sentiment <= 4.0),
+                            "A review sentiment must stay in range while appends are running");
+                    analyzer.getMostFrequentWords(3);
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> writer : writers) {
+            writer.get();
+        }
+        writing.set(false);
+        for (Future<?> reader : readers) {
+            reader.get();
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES), "All threads must finish");
+
+        int appends = WRITERS * APPENDS_PER_WRITER;
+        assertEquals(2 * appends, analyzer.getWordFrequency("stress"),
+                "No occurrence may be lost under concurrent appends");
+        assertEquals(oldFrequency + appends, analyzer.getWordFrequency("movie"),
+                "No occurrence may be lost under concurrent appends");
+        assertEquals(2.0, analyzer.getWordSentiment("stress"),
+                "No rating may be lost under concurrent appends");
+        assertEquals("stress", analyzer.getMostFrequentWords(1).get(0),
+                "The most frequent word must reflect all appends");
+    }
+
+}
@@ -0,0 +1,98 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CorpusGeneratorTest {
+
+    private static final CorpusGenerator GENERATOR = CorpusGenerator.defaults()
+            .withReviewsCount(2_000)
+            .withVocabulary(5_000, 1.0)
+            .withSeed(7);
+
+    private static String write(CorpusGenerator generator) throws IOException {
+        StringWriter reviews = new StringWriter();
+        generator.writeReviews(reviews);
+        return reviews.toString();
+    }
+
+    @Test
+    void testSameSeedGivesSameCorpus() throws IOException {
+        assertEquals(write(GENERATOR), write(GENERATOR), "The same settings and seed must give the same corpus");
+        assertNotEquals(write(GENERATOR), write(GENERATOR.withSeed(8)), "Another seed must give another corpus");
+
+        List<LabeledReview> reviews = GENERATOR.reviews().toList();
+        List<String> lines = write(GENERATOR).lines().toList();
+        assertEquals(GENERATOR.getReviewsCount(), reviews.size(), "Every review must be generated");
+        assertEquals(lines.get(10), reviews.get(10).sentiment() + " " + reviews.get(10).review(),
+                "The streamed reviews must be the written ones");
+    }
+
+    @Test
+    void testReviewLengthsAndRatings() {
+        CorpusGenerator generator = GENERATOR
+                .withReviewLength(CorpusGenerator.LengthDistribution.UNIFORM, 4, 9)
+                .withRatings(new double[] {0.0, 0.0, 1.0, 0.0, 3.0}, 0.5);
+
+        int positive = 0;
+        for (LabeledReview review : generator.reviews().toList()) {
+            int words = review.review().split(" ").length;
+            assertTrue(words >= 4 && words <= 9, "A review must have a length within the bounds: " + review);
+            assertTrue(review.sentiment() == 2 || review.sentiment() == 4,
+                    "Only ratings with a positive weight must be generated: " + review);
+            positive += review.sentiment() == 4 ? 1 : 0;
+        }
+
+        assertEquals(0.75, (double) positive / generator.getReviewsCount(), 0.05,
+                "The ratings must follow their weights");
+    }
+
+    @Test
+    void testStopwordDensityAndLearnableSentiment() throws IOException {
+        CorpusGenerator generator = GENERATOR.withStopwords(50, 0.5);
+        StringWriter stopwords = new StringWriter();
+        generator.writeStopwords(stopwords);
+        String reviews = write(generator);
+
+        MovieReviewSentimentAnalyzer analyzer = new MovieReviewSentimentAnalyzer(
+                new StringReader(stopwords.toString()), new StringReader(reviews), new StringWriter());
+
+        int stopwordsCount = 0;
+        int wordsCount = 0;
+        for (String line : reviews.lines().toList()) {
+            for (String word : line.substring(2).split("[ ,.]+")) {
+                wordsCount++;
+                stopwordsCount += analyzer.isStopWord(word) ? 1 : 0;
+            }
+        }
+        assertEquals(0.5, (double) stopwordsCount / wordsCount, 0.03, "Stopwords must follow their density");
+
+        double errorsSum = 0.0;
+        List<LabeledReview> heldOut = GENERATOR.withSeed(9).withReviewsCount(200).reviews().toList();
+        for (LabeledReview review : heldOut) {
+            errorsSum += Math.abs(analyzer.getReviewSentiment(review.review()) - review.sentiment());
+        }
+        assertTrue(errorsSum / heldOut.size() < 1.2, "The ratings of the reviews must be learnable from the words");
+    }
+
+    @Test
+    void testInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> GENERATOR.withVocabulary(0, 1.0),
+                "A vocabulary must have words");
+        assertThrows(IllegalArgumentException.class, () -> GENERATOR.withRatings(new double[] {1, 1}, 0.5),
+                "There must be a weight for every rating");
+        assertThrows(IllegalArgumentException.class,
+                () -> GENERATOR.withReviewLength(CorpusGenerator.LengthDistribution.UNIFORM, 5, 4),
+                "Review length bounds must be ordered");
+    }
+
+}
@@ -0,0 +1,106 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class FrozenSentimentAnalyzerTest {
+
+    private static final List<String> REVIEWS = List.of("Pretty much worth it!", "A dull, boring movie",
+            "the film xyzzyx", "charming and funny, a charming film", "Caf\u00e9 au lait");
+
+    private static MovieReviewSentimentAnalyzer newAnalyzer() {
+        return new MovieReviewSentimentAnalyzer(new StringReader(StopWordSampleData.getInstance()),
+                new StringReader(MovieReviewsSampleData.getInstance()), new StringWriter());
+    }
+
+    private static void assertSameAnswers(SentimentAnalyzer expected, SentimentAnalyzer frozen) {
+        int dictionarySize = expected.getSentimentDictionarySize();
+        assertEquals(dictionarySize, frozen.getSentimentDictionarySize(), "Freezing must keep every word");
+
+        List<String> words = expected.getMostFrequentWords(dictionarySize);
+        assertEquals(words, frozen.getMostFrequentWords(dictionarySize),
+                "Freezing must keep the ranking by frequency, ties included");
+        assertEquals(expected.getMostPositiveWords(dictionarySize), frozen.getMostPositiveWords(dictionarySize),
+                "Freezing must keep the ranking by score, ties included");
+        assertEquals(expected.getMostNegativeWords(5), frozen.getMostNegativeWords(5),
+                "Freezing must keep the most negative words");
+        assertEquals(expected.getMostPositiveWords(dictionarySize + 10),
+                frozen.getMostPositiveWords(dictionarySize + 10),
+                "Asking for more words than there are must return all of them");
+
+        for (String word : words) {
+            assertEquals(expected.getWordFrequency(word), frozen.getWordFrequency(word),
+                    "Freezing must keep the frequency of " + word);
+            assertEquals(expected.getWordSentiment(word), frozen.getWordSentiment(word),
+                    "Freezing must keep the score of " + word);
+            assertEquals(RatingType.UNKNOWN.getRatingNumber(), frozen.getWordSentiment(word + "zq"),
+                    "A word that was not frozen must not be found");
+        }
+
+        for (String review : REVIEWS) {
+            assertEquals(expected.getReviewSentiment(review), frozen.getReviewSentiment(review),
+                    "Freezing must not change the score of a review");
+        }
+    }
+
+    @Test
+    void testFrozenMatchesAnalyzer() {
+        MovieReviewSentimentAnalyzer analyzer = newAnalyzer();
+        FrozenSentimentAnalyzer frozen = analyzer.freeze();
+
+        assertSameAnswers(analyzer, frozen);
+        assertEquals(RatingType.UNKNOWN.getRatingNumber(), frozen.getWordSentiment("na\u00efve"),
+                "A word with non-ASCII letters must not be found");
+    }
+
+    @Test
+    void testFrozenIgnoresLaterAppends() {
+        MovieReviewSentimentAnalyzer analyzer = newAnalyzer();
+        FrozenSentimentAnalyzer frozen = analyzer.freeze();
+
+        analyzer.appendReview("a zorkmid film, worth every minute", 4);
+
+        assertEquals(0, frozen.getWordFrequency("zorkmid"), "A frozen analyzer must not see later appends");
+        assertSameAnswers(newAnalyzer(), frozen);
+        assertFalse(frozen.appendReview("a zorkmid film", 4), "A frozen analyzer must not store a review");
+        assertArrayEquals(new boolean[] {false}, frozen.appendReviews(List.of(new LabeledReview("a zorkmid film", 4))),
+                "A frozen analyzer must not store a batch of reviews");
+        assertThrows(IllegalArgumentException.class, () -> frozen.appendReview("a zorkmid film", 5),
+                "A frozen analyzer must still reject an invalid review");
+    }
+
+    @Test
+    void testFrozenLargeDictionary() throws IOException {
+        CorpusGenerator generator = CorpusGenerator.defaults().withReviewsCount(20_000).withVocabulary(20_000, 1.0);
+        StringWriter stopwords = new StringWriter();
+        StringWriter reviews = new StringWriter();
+        generator.writeStopwords(stopwords);
+        generator.writeReviews(reviews);
+
+        MovieReviewSentimentAnalyzer analyzer = new MovieReviewSentimentAnalyzer(
+                new StringReader(stopwords.toString()), new StringReader(reviews.toString()), new StringWriter());
+
+        assertSameAnswers(analyzer, analyzer.freeze());
+    }
+
+    @Test
+    void testFrozenEmptyDictionary() {
+        FrozenSentimentAnalyzer frozen = new MovieReviewSentimentAnalyzer(
+                new StringReader(StopWordSampleData.getInstance()), new StringReader(""), new StringWriter()).freeze();
+
+        assertEquals(0, frozen.getSentimentDictionarySize(), "An empty dictionary must stay empty");
+        assertEquals(RatingType.UNKNOWN.getRatingNumber(), frozen.getWordSentiment("film"),
+                "No word must be found in an empty dictionary");
+        assertEquals(List.of(), frozen.getMostNegativeWords(3), "An empty dictionary must have no top words");
+    }
+
+}
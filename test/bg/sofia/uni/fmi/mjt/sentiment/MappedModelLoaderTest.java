@@ -0,0 +1,116 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MappedModelLoaderTest {
+
+    // CRLF line ends, non-ASCII words and no line end after the last review
+    private static final String EXTRA_REVIEWS = "3 Caf\u00e9 au lait, na\u00efve but charming\r\n"
+            + "1 \u0434\u043e\u0441\u0430\u0434\u0435\u043d boring movie\r\n4 charming";
+
+    private static Vocabulary stopwords() {
+        return AbstractSentimentAnalyzer.readStopwords(
+                new BufferedReader(new StringReader(StopWordSampleData.getInstance())));
+    }
+
+    private static String corpus() {
+        return MovieReviewsSampleData.getInstance() + EXTRA_REVIEWS;
+    }
+
+    private static void assertSameModel(SentimentModel expected, SentimentModel actual) {
+        assertEquals(expected.size(), actual.size(), "A mapped load must produce the same dictionary");
+        for (int id = 0; id < expected.size(); id++) {
+            assertEquals(expected.getWord(id), actual.getWord(id), "A mapped load must keep the word order");
+            assertEquals(expected.getFrequency(id), actual.getFrequency(id),
+                    "A mapped load must produce the same frequency for " + expected.getWord(id));
+            assertEquals(expected.getScore(id), actual.getScore(id),
+                    "A mapped load must produce the same score for " + expected.getWord(id));
+        }
+    }
+
+    @Test
+    void testMappedLoadMatchesReaderLoad(@TempDir Path directory) throws IOException {
+        Path reviewsFile = directory.resolve("reviews.txt");
+        Files.writeString(reviewsFile, corpus(), StandardCharsets.UTF_8);
+        Vocabulary stopwords = stopwords();
+
+        SentimentModel expected = AbstractSentimentAnalyzer.readModel(
+                new BufferedReader(new StringReader(corpus())), stopwords, AnalyzerOptions.defaults());
+
+        SentimentModel mapped = new SentimentModel();
+        new MappedModelLoader(stopwords, AnalyzerOptions.defaults()).load(reviewsFile, mapped);
+        assertSameModel(expected, mapped);
+
+        // windows and chunks much smaller than the file split it at many line ends
+        SentimentModel windowed = new SentimentModel();
+        new MappedModelLoader(stopwords, AnalyzerOptions.defaults(), 512, 100).load(reviewsFile, windowed);
+        assertSameModel(expected, windowed);
+
+        SentimentModel parallel = new SentimentModel();
+        new MappedModelLoader(stopwords, AnalyzerOptions.defaults().withParallelism(4), 512, 100)
+                .load(reviewsFile, parallel);
+        assertSameModel(expected, parallel);
+    }
+
+    @Test
+    void testMappedLoadLineLongerThanWindow(@TempDir Path directory) throws IOException {
+        Path reviewsFile = directory.resolve("reviews.txt");
+        Files.writeString(reviewsFile, corpus(), StandardCharsets.UTF_8);
+
+        assertThrows(IOException.class,
+                () -> new MappedModelLoader(stopwords(), AnalyzerOptions.defaults(), 16, 8)
+                        .load(reviewsFile, new SentimentModel()),
+                "A line that does not fit in a window must be rejected");
+    }
+
+    @Test
+    void testRatingOutOfRangeIsRejected(@TempDir Path directory) throws IOException {
+        String corpus = "4 charming\n7 out of range\n";
+        Path reviewsFile = directory.resolve("reviews.txt");
+        Files.writeString(reviewsFile, corpus, StandardCharsets.UTF_8);
+
+        assertThrows(NumberFormatException.class,
+                () -> AbstractSentimentAnalyzer.readModel(new BufferedReader(new StringReader(corpus)), stopwords(),
+                        AnalyzerOptions.defaults()),
+                "A review line rated above 4 must be rejected");
+        assertThrows(NumberFormatException.class,
+                () -> new MappedModelLoader(stopwords(), AnalyzerOptions.defaults()).load(reviewsFile,
+                        new SentimentModel()),
+                "A mapped review line rated above 4 must be rejected");
+    }
+
+    @Test
+    void testAnalyzerFromCorpusFiles(@TempDir Path directory) throws IOException {
+        Path stopwordsFile = directory.resolve("stopwords.txt");
+        Path reviewsFile = directory.resolve("reviews.txt");
+        Files.writeString(stopwordsFile, StopWordSampleData.getInstance(), StandardCharsets.UTF_8);
+        Files.writeString(reviewsFile, corpus(), StandardCharsets.UTF_8);
+
+        MovieReviewSentimentAnalyzer fromFiles = new MovieReviewSentimentAnalyzer(stopwordsFile, reviewsFile,
+                new StringWriter(), AnalyzerOptions.defaults());
+        MovieReviewSentimentAnalyzer fromReaders = new MovieReviewSentimentAnalyzer(
+                new StringReader(StopWordSampleData.getInstance()), new StringReader(corpus()), new StringWriter());
+
+        int dictionarySize = fromReaders.getSentimentDictionarySize();
+        assertEquals(dictionarySize, fromFiles.getSentimentDictionarySize(),
+                "An analyzer loaded from files must have the same dictionary");
+        assertEquals(fromReaders.getMostPositiveWords(dictionarySize), fromFiles.getMostPositiveWords(dictionarySize),
+                "An analyzer loaded from files must have the same scores");
+        assertEquals(fromReaders.getReviewSentiment("A charming movie"),
+                fromFiles.getReviewSentiment("A charming movie"),
+                "An analyzer loaded from files must evaluate reviews the same way");
+    }
+
+}
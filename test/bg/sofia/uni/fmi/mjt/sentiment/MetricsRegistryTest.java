@@ -0,0 +1,105 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MetricsRegistryTest {
+
+    private static MovieReviewSentimentAnalyzer newAnalyzer(MetricsSink metrics) {
+        return new MovieReviewSentimentAnalyzer(new StringReader(StopWordSampleData.getInstance()),
+                new StringReader(MovieReviewsSampleData.getInstance()), new StringWriter(),
+                AnalyzerOptions.defaults().withMetrics(metrics));
+    }
+
+    @Test
+    void testAnalyzerRecordsCallsReviewsAndAppends() {
+        MetricsRegistry metrics = new MetricsRegistry();
+        MovieReviewSentimentAnalyzer analyzer = newAnalyzer(metrics);
+
+        assertEquals(analyzer.getSentimentDictionarySize(), metrics.getDictionarySize(),
+                "The load must record the size of the dictionary");
+        assertTrue(metrics.getStopwordsCount() > 0, "The load must record the number of stopwords");
+        assertTrue(metrics.getLoadDurationNanos() > 0, "The load must record its duration");
+
+        analyzer.getReviewSentiment("the film xyzzyx");
+        analyzer.getReviewSentimentAsName("worth it");
+        analyzer.getMostPositiveWords(3);
+        assertThrows(IllegalArgumentException.class, () -> analyzer.getWordSentiment(" "));
+
+        assertEquals(1, metrics.getLatency(AnalyzerOperation.GET_REVIEW_SENTIMENT).count(),
+                "A review scored for its name must not be recorded as a call to score it");
+        assertEquals(1, metrics.getLatency(AnalyzerOperation.GET_REVIEW_SENTIMENT_AS_NAME).count(),
+                "Every call must be recorded");
+        assertEquals(1, metrics.getLatency(AnalyzerOperation.GET_MOST_POSITIVE_WORDS).count(),
+                "Every call must be recorded");
+        assertEquals(1, metrics.getLatency(AnalyzerOperation.GET_WORD_SENTIMENT).count(),
+                "A call with an invalid argument must be recorded");
+        assertEquals(0, metrics.getLatency(AnalyzerOperation.APPEND_REVIEW).count(),
+                "Only the methods that were called must be recorded");
+
+        // "the" and "it" are stopwords and "xyzzyx" is not in the dictionary
+        assertEquals(2, metrics.getScoredReviewsCount(), "Every scored review must be recorded once");
+        assertEquals(2.5, metrics.getAverageTokensPerReview(), "Stopwords must count as words of a review");
+        assertEquals(0.6, metrics.getUnknownWordRatio(), 1e-9,
+                "Stopwords and new words must count as unknown words");
+
+        int dictionarySize = analyzer.getSentimentDictionarySize();
+        analyzer.appendReview("a zorkmid movie", 3);
+        analyzer.appendReviews(List.of(new LabeledReview("fine", 2), new LabeledReview(" ", 2)));
+        assertEquals(2, metrics.getAppendedReviewsCount(), "Only the stored reviews must be counted");
+        assertEquals(dictionarySize + 3, metrics.getDictionarySize(),
+                "An append must record the size of the dictionary");
+    }
+
+    @Test
+    void testHistogramPercentilesWithinBucketError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long nanos = 1; nanos <= 100_000; nanos++) {
+            histogram.record(nanos);
+        }
+
+        LatencySnapshot snapshot = histogram.snapshot();
+        assertEquals(100_000, snapshot.count(), "Every value must be counted");
+        assertEquals(50_000.5, snapshot.meanNanos(), 1e-9, "The mean must be exact");
+        assertEquals(100_000, snapshot.maxNanos(), "The maximum must be exact");
+        assertEquals(50_000, snapshot.p50Nanos(), 50_000 * 0.125, "The median must be within a bucket");
+        assertEquals(99_000, snapshot.p99Nanos(), 99_000 * 0.125, "The 99th percentile must be within a bucket");
+        assertTrue(snapshot.p999Nanos() <= snapshot.maxNanos(), "A percentile must not exceed the maximum");
+
+        for (long value : new long[] {0, 7, 8, 9, 1_000, 123_456_789, Long.MAX_VALUE}) {
+            int bucket = LatencyHistogram.bucket(value);
+            assertTrue(value <= LatencyHistogram.upperBound(bucket), "A value must not exceed its bucket");
+            assertTrue(bucket == 0 || value > LatencyHistogram.upperBound(bucket - 1),
+                    "A value must fall into the first bucket that holds it");
+        }
+    }
+
+    @Test
+    void testRegistryReadableOverJmx() throws JMException {
+        MetricsRegistry metrics = new MetricsRegistry();
+        newAnalyzer(metrics).getWordFrequency("movie");
+
+        ObjectName name = metrics.registerMBean("metrics-registry-test");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            assertEquals(metrics.getDictionarySize(), server.getAttribute(name, "DictionarySize"),
+                    "The registry must be readable over JMX");
+            assertThrows(IllegalStateException.class, () -> metrics.registerMBean("metrics-registry-test"),
+                    "A registry must not be registered under a taken name");
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+
+}
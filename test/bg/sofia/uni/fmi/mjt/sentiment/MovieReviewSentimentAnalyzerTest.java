@@ -3,15 +3,27 @@ package bg.sofia.uni.fmi.mjt.sentiment;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.StringReader;
 import java.io.StringWriter;
 
 import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -302,4 +314,296 @@ public class MovieReviewSentimentAnalyzerTest {
                 "A sentiment score of a repeating word must be calculated correctly");
     }
 
+    @Test
+    void testAppendReviewScoresMatchFullRebuild() {
+        StringWriter corpus = new StringWriter();
+        corpus.append(MovieReviewsSampleData.getInstance());
+
+        MovieReviewSentimentAnalyzer incremental = new MovieReviewSentimentAnalyzer(
+                new StringReader(StopWordSampleData.getInstance()),
+                new StringReader(MovieReviewsSampleData.getInstance()), corpus);
+
+        incremental.appendReview("A sincere and thrilling movie", 4);
+        incremental.appendReview("dull, dull mess of a movie", 0);
+        incremental.appendReview("brand new vocabulary here", 2);
+
+        MovieReviewSentimentAnalyzer rebuilt = new MovieReviewSentimentAnalyzer(
+                new StringReader(StopWordSampleData.getInstance()),
+                new StringReader(corpus.toString()), new StringWriter());
+
+        assertEquals(rebuilt.getSentimentDictionarySize(), incremental.getSentimentDictionarySize(),
+                "Incremental updates must produce the same dictionary as a full rebuild");
+
+        for (String word : rebuilt.getMostPositiveWords(rebuilt.getSentimentDictionarySize())) {
+            assertEquals(rebuilt.getWordSentiment(word), incremental.getWordSentiment(word),
+                    "Incremental updates must produce the same score as a full rebuild for " + word);
+            assertEquals(rebuilt.getWordFrequency(word), incremental.getWordFrequency(word),
+                    "Incremental updates must produce the same frequency as a full rebuild for " + word);
+        }
+    }
+
+    @Test
+    void testParallelLoadMatchesSequentialLoad() {
+        MovieReviewSentimentAnalyzer parallel = new MovieReviewSentimentAnalyzer(
+                new StringReader(StopWordSampleData.getInstance()),
+                new StringReader(MovieReviewsSampleData.getInstance()), new StringWriter(),
+                AnalyzerOptions.defaults().withParallelism(4).withLoadChunkSize(3));
+
+        MovieReviewSentimentAnalyzer sequential = new MovieReviewSentimentAnalyzer(
+                new StringReader(StopWordSampleData.getInstance()),
+                new StringReader(MovieReviewsSampleData.getInstance()), new StringWriter());
+
+        int dictionarySize = sequential.getSentimentDictionarySize();
+
+        assertEquals(dictionarySize, parallel.getSentimentDictionarySize(),
+                "A parallel load must produce the same dictionary as a sequential one");
+        assertEquals(sequential.getMostFrequentWords(dictionarySize), parallel.getMostFrequentWords(dictionarySize),
+                "A parallel load must produce the same frequencies as a sequential one");
+        assertEquals(sequential.getMostPositiveWords(dictionarySize), parallel.getMostPositiveWords(dictionarySize),
+                "A parallel load must produce the same scores as a sequential one");
+
+        for (String word : sequential.getMostPositiveWords(dictionarySize)) {
+            assertEquals(sequential.getWordSentiment(word), parallel.getWordSentiment(word),
+                    "A parallel load must produce the same score for " + word);
+            assertEquals(sequential.getWordFrequency(word), parallel.getWordFrequency(word),
+                    "A parallel load must produce the same frequency for " + word);
+        }
+    }
+
+    @Test
+    void testAppendReviewsReportsEveryReview() {
+        StringWriter corpus = new StringWriter();
+        MovieReviewSentimentAnalyzer analyzer = new MovieReviewSentimentAnalyzer(
+                new StringReader(StopWordSampleData.getInstance()),
+                new StringReader(MovieReviewsSampleData.getInstance()), corpus,
+                AnalyzerOptions.defaults().withFlushPolicy(FlushPolicy.FLUSH));
+
+        boolean[] stored = analyzer.appendReviews(List.of(
+                new LabeledReview("batched batched review", 4),
+                new LabeledReview("   ", 2),
+                new LabeledReview("batched", 7),
+                new LabeledReview("batched again", 0)));
+
+        assertArrayEquals(new boolean[] {true, false, false, true}, stored,
+                "Every review of a batch must be reported as stored or not");
+        assertEquals("4 batched batched review" + System.lineSeparator() +
+                        "0 batched again" + System.lineSeparator(), corpus.toString(),
+                "Only the valid reviews of a batch must be stored");
+        assertEquals(3, analyzer.getWordFrequency("batched"),
+                "A batch must update the word frequencies");
+        assertEquals(2.0, analyzer.getWordSentiment("batched"),
+                "A batch must update the word scores");
+    }
+
+    @Test
+    void testAppendReviewsFailedWriteStoresNothing() {
+        Writer failingWriter = new Writer() {
+            @Override
+            public void write(char[] buffer, int offset, int length) throws IOException {
+                throw new IOException("Disk is full");
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        MovieReviewSentimentAnalyzer analyzer = new MovieReviewSentimentAnalyzer(
+                new StringReader(StopWordSampleData.getInstance()),
+                new StringReader(MovieReviewsSampleData.getInstance()), failingWriter);
+
+        assertArrayEquals(new boolean[] {false, false},
+                analyzer.appendReviews(List.of(new LabeledReview("lost review", 4), new LabeledReview("lost", 1))),
+                "No review of a batch is stored when the write fails");
+        assertEquals(0, analyzer.getWordFrequency("lost"),
+                "A batch that is not stored must not change the dictionary");
+    }
+
+    @Test
+    void testAppendReviewsNullBatch() {
+        assertThrows(IllegalArgumentException.class, () -> movieReviewSentimentAnalyzer.appendReviews(null),
+                "A batch of reviews cannot be null");
+    }
+
+    @Test
+    void testRankingIndexMatchesHeapSelection() {
+        MovieReviewSentimentAnalyzer indexed = new MovieReviewSentimentAnalyzer(
+                new StringReader(StopWordSampleData.getInstance()),
+                new StringReader(MovieReviewsSampleData.getInstance()), new StringWriter(),
+                AnalyzerOptions.defaults().withRankingIndex(true));
+        MovieReviewSentimentAnalyzer selected = new MovieReviewSentimentAnalyzer(
+                new StringReader(StopWordSampleData.getInstance()),
+                new StringReader(MovieReviewsSampleData.getInstance()), new StringWriter());
+
+        for (MovieReviewSentimentAnalyzer analyzer : List.of(indexed, selected)) {
+            analyzer.appendReview("even more fans of this movie", 4);
+            analyzer.appendReview("one dull movie, dull dull", 0);
+        }
+
+        int dictionarySize = selected.getSentimentDictionarySize();
+        for (int n : new int[] {0, 1, 5, dictionarySize, dictionarySize + 10}) {
+            assertEquals(selected.getMostFrequentWords(n), indexed.getMostFrequentWords(n),
+                    "The ranking index must rank words by frequency like the heap selection");
+            assertEquals(selected.getMostPositiveWords(n), indexed.getMostPositiveWords(n),
+                    "The ranking index must rank words by score like the heap selection");
+            assertEquals(selected.getMostNegativeWords(n), indexed.getMostNegativeWords(n),
+                    "The ranking index must rank words by score like the heap selection");
+        }
+
+        List<String> mostFrequent = selected.getMostFrequentWords(dictionarySize);
+        for (int i = 1; i < mostFrequent.size(); i++) {
+            assertTrue(selected.getWordFrequency(mostFrequent.get(i - 1)) >=
+                            selected.getWordFrequency(mostFrequent.get(i)),
+                    "Most frequent words must be sorted by frequency in decreasing order");
+        }
+
+        List<String> mostNegative = selected.getMostNegativeWords(dictionarySize);
+        for (int i = 1; i < mostNegative.size(); i++) {
+            assertTrue(selected.getWordSentiment(mostNegative.get(i - 1)) <=
+                            selected.getWordSentiment(mostNegative.get(i)),
+                    "Most negative words must be sorted by score in ascending order");
+        }
+    }
+
+    @Test
+    void testSavedModelLoadsIdentically(@TempDir Path directory) throws IOException {
+        MovieReviewSentimentAnalyzer original = new MovieReviewSentimentAnalyzer(
+                new StringReader(StopWordSampleData.getInstance()),
+                new StringReader(MovieReviewsSampleData.getInstance()), new StringWriter());
+        original.appendReview("A saved and loaded review", 3);
+
+        Path modelFile = directory.resolve("model.bin");
+        original.saveModel(modelFile);
+        MovieReviewSentimentAnalyzer loaded = MovieReviewSentimentAnalyzer.loadModel(modelFile, new StringWriter());
+
+        int dictionarySize = original.getSentimentDictionarySize();
+        assertEquals(dictionarySize, loaded.getSentimentDictionarySize(),
+                "A loaded model must have the same dictionary");
+        assertEquals(original.getMostFrequentWords(dictionarySize), loaded.getMostFrequentWords(dictionarySize),
+                "A loaded model must have the same frequencies");
+        assertEquals(original.getMostPositiveWords(dictionarySize), loaded.getMostPositiveWords(dictionarySize),
+                "A loaded model must have the same scores");
+        assertEquals(original.getReviewSentiment("Pretty much worth it!"),
+                loaded.getReviewSentiment("Pretty much worth it!"),
+                "A loaded model must evaluate reviews the same way");
+        assertTrue(loaded.isStopWord("aren't"), "A loaded model must have the same stopwords");
+
+        loaded.appendReview("reloaded", 4);
+        assertEquals(4.0, loaded.getWordSentiment("reloaded"), "A loaded model must accept appended reviews");
+    }
+
+    @Test
+    void testLoadModelCorruptedFile(@TempDir Path directory) throws IOException {
+        MovieReviewSentimentAnalyzer original = new MovieReviewSentimentAnalyzer(
+                new StringReader(StopWordSampleData.getInstance()),
+                new StringReader(MovieReviewsSampleData.getInstance()), new StringWriter());
+
+        Path modelFile = directory.resolve("model.bin");
+        original.saveModel(modelFile);
+
+        byte[] bytes = Files.readAllBytes(modelFile);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(modelFile, bytes);
+
+        assertThrows(IOException.class, () -> MovieReviewSentimentAnalyzer.loadModel(modelFile, new StringWriter()),
+                "A corrupted model file must be rejected");
+    }
+
+    @Test
+    void testLoadModelWithInvalidLengthsAndMatchingChecksum(@TempDir Path directory) throws IOException {
+        Path modelFile = directory.resolve("model.bin");
+
+        for (int[] counts : new int[][] {{1, -5}, {-1, 0}, {1, Integer.MAX_VALUE}, {Integer.MAX_VALUE, 0}}) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            CRC32 checksum = new CRC32();
+            DataOutputStream out = new DataOutputStream(new CheckedOutputStream(bytes, checksum));
+            out.writeInt(0x53414D46);
+            out.writeInt(2);
+            out.writeLong(0);
+            // the count of the stopwords and the length of the first of them
+            out.writeInt(counts[0]);
+            out.writeInt(counts[1]);
+            out.flush();
+            new DataOutputStream(bytes).writeLong(checksum.getValue());
+            Files.write(modelFile, bytes.toByteArray());
+
+            assertThrows(IOException.class,
+                    () -> MovieReviewSentimentAnalyzer.loadModel(modelFile, new StringWriter()),
+                    "A model file with a matching checksum but an invalid count or length must be rejected");
+        }
+    }
+
+    @Test
+    void testScoreAllMatchesSingleReviews() {
+        String[] reviews = {"Pretty much worth it!", null, "   ", "xyzzyx", "A dull film , but worth it"};
+
+        double[] scores = movieReviewSentimentAnalyzer.scoreAll(reviews);
+        assertEquals(reviews.length, scores.length, "A batch must have a score for every review");
+        for (int i = 0; i < reviews.length; i++) {
+            double expected = reviews[i] == null || reviews[i].isBlank() ? -1.0
+                    : movieReviewSentimentAnalyzer.getReviewSentiment(reviews[i]);
+            assertEquals(expected, scores[i], "A batch must score review " + i + " as a single call does");
+        }
+
+        assertArrayEquals(scores, movieReviewSentimentAnalyzer.scoreAll(Arrays.asList(reviews)),
+                "A batch given as a list must be scored as one given as an array");
+    }
+
+    @Test
+    void testScoreAllInParallel() throws IOException {
+        CorpusGenerator generator = CorpusGenerator.defaults().withVocabulary(20_000, 1.0);
+        StringWriter stopwords = new StringWriter();
+        StringWriter corpus = new StringWriter();
+        generator.writeStopwords(stopwords);
+        generator.withReviewsCount(20_000).writeReviews(corpus);
+
+        MovieReviewSentimentAnalyzer analyzer = new MovieReviewSentimentAnalyzer(
+                new StringReader(stopwords.toString()), new StringReader(corpus.toString()), new StringWriter());
+        String[] reviews = generator.withSeed(1).withReviewsCount(10_000).reviews()
+                .map(LabeledReview::review)
+                .toArray(String[]::new);
+
+        double[] expected = new double[reviews.length];
+        for (int i = 0; i < reviews.length; i++) {
+            expected[i] = analyzer.getReviewSentiment(reviews[i]);
+        }
+
+        assertArrayEquals(expected, analyzer.scoreAll(reviews, 4),
+                "A batch scored in parallel must keep every score at the index of its review");
+        assertArrayEquals(expected, analyzer.freeze().scoreAll(reviews, 4),
+                "A frozen analyzer must score a batch as the analyzer it was frozen from");
+
+        int parallelism = ForkJoinPool.getCommonPoolParallelism() + 3;
+        assertArrayEquals(expected, analyzer.scoreAll(reviews, parallelism),
+                "A batch with more threads than the common pool must be scored on a pool of the analyzer");
+        assertArrayEquals(expected, analyzer.scoreAll(reviews, parallelism),
+                "The pool of the analyzer must score the later batches too");
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            assertArrayEquals(expected, analyzer.scoreAll(reviews, 3, executor),
+                    "A batch must be scored with the threads of a given executor");
+        } finally {
+            executor.shutdown();
+        }
+        assertArrayEquals(expected, analyzer.scoreAll(reviews, 3, executor),
+                "The calling thread must score the chunks an executor rejects");
+    }
+
+    @Test
+    void testScoreAllInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> movieReviewSentimentAnalyzer.scoreAll((String[]) null),
+                "Scoring a null batch must be rejected");
+        assertThrows(IllegalArgumentException.class,
+                () -> movieReviewSentimentAnalyzer.scoreAll(new String[] {"worth it"}, 0),
+                "Scoring with no threads must be rejected");
+        assertThrows(IllegalArgumentException.class,
+                () -> movieReviewSentimentAnalyzer.scoreAll(new String[] {"worth it"}, 2, null),
+                "Scoring with no executor must be rejected");
+    }
+
 }
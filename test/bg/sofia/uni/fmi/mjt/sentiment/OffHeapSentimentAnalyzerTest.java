@@ -0,0 +1,113 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OffHeapSentimentAnalyzerTest {
+
+    // buffers of 4 KiB make even the sample dictionary span several of them
+    private static final int SMALL_BUFFER_SHIFT = 12;
+
+    private static final List<String> REVIEWS = List.of("Pretty much worth it!", "A dull, boring movie",
+            "the film xyzzyx", "charming and funny, a charming film", "Caf\u00e9 au lait");
+
+    private static OffHeapSentimentAnalyzer newAnalyzer(AnalyzerOptions options) {
+        return new OffHeapSentimentAnalyzer(new StringReader(StopWordSampleData.getInstance()),
+                new StringReader(MovieReviewsSampleData.getInstance()), new StringWriter(), options);
+    }
+
+    private static void assertSameAnswers(SentimentAnalyzer expected, SentimentAnalyzer offHeap) {
+        int dictionarySize = expected.getSentimentDictionarySize();
+        assertEquals(dictionarySize, offHeap.getSentimentDictionarySize(), "The dictionaries must have the same size");
+
+        List<String> words = expected.getMostFrequentWords(dictionarySize);
+        assertEquals(words, offHeap.getMostFrequentWords(dictionarySize),
+                "The words must be ranked by frequency as on the heap, ties included");
+        assertEquals(expected.getMostPositiveWords(dictionarySize), offHeap.getMostPositiveWords(dictionarySize),
+                "The words must be ranked by score as on the heap, ties included");
+        assertEquals(expected.getMostNegativeWords(5), offHeap.getMostNegativeWords(5),
+                "The most negative words must be those on the heap");
+
+        for (String word : words) {
+            assertEquals(expected.getWordFrequency(word), offHeap.getWordFrequency(word),
+                    "The frequency of " + word + " must be the one on the heap");
+            assertEquals(expected.getWordSentiment(word), offHeap.getWordSentiment(word),
+                    "The score of " + word + " must be the one on the heap");
+        }
+
+        for (String review : REVIEWS) {
+            assertEquals(expected.getReviewSentiment(review), offHeap.getReviewSentiment(review),
+                    "A review must be scored as on the heap");
+        }
+    }
+
+    @Test
+    void testOffHeapMatchesHeapModel() {
+        MovieReviewSentimentAnalyzer expected = new MovieReviewSentimentAnalyzer(
+                new StringReader(StopWordSampleData.getInstance()),
+                new StringReader(MovieReviewsSampleData.getInstance()), new StringWriter());
+        OffHeapSentimentAnalyzer offHeap = new OffHeapSentimentAnalyzer(
+                new StringReader(StopWordSampleData.getInstance()),
+                new StringReader(MovieReviewsSampleData.getInstance()), new StringWriter(),
+                AnalyzerOptions.defaults(), SMALL_BUFFER_SHIFT);
+
+        assertSameAnswers(expected, offHeap);
+        assertEquals(RatingType.UNKNOWN.getRatingNumber(), offHeap.getWordSentiment("na\u00efve"),
+                "A word that is not in the dictionary must have an unknown score");
+
+        assertTrue(offHeap.appendReview("a zorkmid film, worth every minute", 4), "A valid review must be stored");
+        expected.appendReview("a zorkmid film, worth every minute", 4);
+        List<LabeledReview> batch = List.of(new LabeledReview("dull zorkmid", 0), new LabeledReview(" ", 2));
+        assertArrayEquals(new boolean[] {true, false}, offHeap.appendReviews(batch),
+                "Only the valid reviews of a batch must be stored");
+        expected.appendReviews(batch);
+
+        assertSameAnswers(expected, offHeap);
+    }
+
+    @Test
+    void testLargeDictionarySpansManyBuffers() throws IOException {
+        CorpusGenerator generator = CorpusGenerator.defaults().withReviewsCount(20_000).withVocabulary(20_000, 1.0);
+        StringWriter stopwords = new StringWriter();
+        StringWriter reviews = new StringWriter();
+        generator.writeStopwords(stopwords);
+        generator.writeReviews(reviews);
+
+        OffHeapSentimentAnalyzer offHeap = new OffHeapSentimentAnalyzer(new StringReader(stopwords.toString()),
+                new StringReader(reviews.toString()), new StringWriter(), AnalyzerOptions.defaults(),
+                SMALL_BUFFER_SHIFT);
+
+        assertSameAnswers(new MovieReviewSentimentAnalyzer(new StringReader(stopwords.toString()),
+                new StringReader(reviews.toString()), new StringWriter()), offHeap);
+        assertTrue(offHeap.getOffHeapBytes() > (long) offHeap.getSentimentDictionarySize() * Integer.BYTES * 8,
+                "The dictionary must be stored in direct memory");
+    }
+
+    @Test
+    void testRankingIndexRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> newAnalyzer(AnalyzerOptions.defaults().withRankingIndex(true)),
+                "A ranking index cannot be kept off the heap");
+    }
+
+    @Test
+    void testTimeWindowsAndMetricsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> newAnalyzer(AnalyzerOptions.defaults().withTimeWindows(7, Duration.ofDays(1))),
+                "An off-heap dictionary must reject time windows");
+        assertThrows(IllegalArgumentException.class,
+                () -> newAnalyzer(AnalyzerOptions.defaults().withMetrics(new MetricsRegistry())),
+                "An off-heap dictionary must reject metrics");
+    }
+
+}
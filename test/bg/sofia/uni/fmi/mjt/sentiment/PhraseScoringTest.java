@@ -0,0 +1,147 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PhraseScoringTest {
+
+    private static final String STOPWORDS = String.join("\n", "not", "the", "a", "was", "at", "all");
+    private static final String REVIEWS = String.join("\n",
+            "4 A good film.",
+            "4 Good acting, good story.",
+            "0 Not good.",
+            "0 The plot was not good at all.");
+    private static final int MAX_PHRASES = 1_000;
+
+    private static MovieReviewSentimentAnalyzer newAnalyzer(AnalyzerOptions options) {
+        return new MovieReviewSentimentAnalyzer(new StringReader(STOPWORDS), new StringReader(REVIEWS),
+                new StringWriter(), options);
+    }
+
+    @Test
+    void testNegatedWordsAreScoredByTheirNegatedForm() {
+        MovieReviewSentimentAnalyzer words = newAnalyzer(AnalyzerOptions.defaults());
+        MovieReviewSentimentAnalyzer negations = newAnalyzer(AnalyzerOptions.defaults().withPhrases(1, 3, MAX_PHRASES));
+
+        assertEquals(2.0, words.getReviewSentiment("Not good"), "Only words must score \"not good\" as \"good\"");
+        assertEquals(0.0, negations.getReviewSentiment("Not good"),
+                "A negated word must be scored by the ratings of its negated form");
+        assertEquals(2.0, negations.getWordSentiment("good"), "The words must still be rated as they are");
+        assertEquals(0.0, negations.getReviewSentiment("Not film"),
+                "A negated word never rated negated must be scored by its mirrored score");
+        assertEquals(2.0, negations.getReviewSentiment("Not. Good"), "A negation must end with its clause");
+        assertEquals(words.getReviewSentiment("A good film"), negations.getReviewSentiment("A good film"),
+                "A review without negations must be scored by its words");
+        assertEquals(-1.0, negations.getReviewSentiment("Not xyzzyx"), "An unknown negated word is unknown");
+    }
+
+    @Test
+    void testNGramsAreScoredWithTheirWords() {
+        MovieReviewSentimentAnalyzer bigrams = newAnalyzer(AnalyzerOptions.defaults().withPhrases(2, 0, MAX_PHRASES));
+
+        assertEquals((2.0 + 0.0) / 2, bigrams.getReviewSentiment("not good"),
+                "A review must be scored by its words and its bigrams, stopwords included");
+        assertEquals((2.0 + 4.0 + 4.0) / 3, bigrams.getReviewSentiment("Good film!"),
+                "Every distinct known bigram must count once");
+        assertEquals(2.0, bigrams.getReviewSentiment("good not"),
+                "The same words in another order must be another bigram");
+        assertEquals(2.0, bigrams.getReviewSentiment("Not, good"), "An n-gram must not cross clauses");
+        assertArrayEquals(new double[] {bigrams.getReviewSentiment("not good"), -1.0},
+                bigrams.scoreAll(new String[] {"not good", "xyzzyx"}), "A batch must be scored with the phrases");
+    }
+
+    @Test
+    void testParallelLoadingRatesTheSamePhrases() {
+        AnalyzerOptions options = AnalyzerOptions.defaults().withPhrases(3, 3, 100_000);
+        MovieReviewSentimentAnalyzer sequential = new MovieReviewSentimentAnalyzer(
+                new StringReader(StopWordSampleData.getInstance()),
+                new StringReader(MovieReviewsSampleData.getInstance()), new StringWriter(), options);
+        MovieReviewSentimentAnalyzer parallel = new MovieReviewSentimentAnalyzer(
+                new StringReader(StopWordSampleData.getInstance()),
+                new StringReader(MovieReviewsSampleData.getInstance()), new StringWriter(),
+                options.withParallelism(2).withLoadChunkSize(3));
+        String[] reviews = MovieReviewsSampleData.getInstance().lines().map(line -> line.substring(2))
+                .toArray(String[]::new);
+
+        assertArrayEquals(sequential.scoreAll(reviews), parallel.scoreAll(reviews),
+                "Merging the phrases of parts of the corpus must rate them as a single parser");
+    }
+
+    @Test
+    void testParallelLoadingFillsTheBudgetWithTheSamePhrases(@TempDir Path directory) throws IOException {
+        // the budget is full after the second review, whose bigrams all occur first there, and the third
+        // review rates "good film" again after two bigrams that did not fit
+        String corpus = String.join("\n", "4 good film", "0 bad acting great story", "2 great story good film");
+        AnalyzerOptions options = AnalyzerOptions.defaults().withPhrases(2, 0, 2);
+        Vocabulary stopwords = AbstractSentimentAnalyzer.readStopwords(new BufferedReader(new StringReader(STOPWORDS)));
+
+        SentimentModel sequential = AbstractSentimentAnalyzer.readModel(
+                new BufferedReader(new StringReader(corpus)), stopwords, options);
+        SentimentModel parallel = AbstractSentimentAnalyzer.readModel(new BufferedReader(new StringReader(corpus)),
+                stopwords, options.withParallelism(2).withLoadChunkSize(1));
+        Path reviewsFile = Files.writeString(directory.resolve("reviews.txt"), corpus);
+        SentimentModel mapped = new SentimentModel();
+        mapped.enablePhrases(2, 0, 2);
+        new MappedModelLoader(stopwords, options.withParallelism(2), 64, 1).load(reviewsFile, mapped);
+
+        ReviewScorer scorer = new ReviewScorer();
+        for (String review : List.of("good film", "bad acting", "acting great", "great story")) {
+            double expected = scorer.score(sequential, stopwords, review);
+            assertEquals(expected, scorer.score(parallel, stopwords, review),
+                    "A full budget must be filled with the phrases that occur first, as by a single parser");
+            assertEquals(expected, scorer.score(mapped, stopwords, review),
+                    "A full budget must be filled with the same phrases when a mapped corpus is loaded in parallel");
+        }
+        assertEquals((3.0 + 3.0 + 3.0) / 3, scorer.score(sequential, stopwords, "good film"),
+                "A phrase that fits must be rated by all its reviews");
+    }
+
+    @Test
+    void testPhrasesStayWithinTheirBudget() {
+        PhraseModel phrases = new PhraseModel(2, 0, 2);
+        phrases.startReview(4);
+        phrases.add(1L);
+        phrases.add(2L);
+        phrases.add(3L);
+        phrases.startReview(0);
+        phrases.add(1L);
+        phrases.add(1L);
+
+        assertEquals(2, phrases.size(), "No more phrases than the budget must be rated");
+        assertEquals(Vocabulary.NOT_FOUND, phrases.find(3L), "A phrase over the budget must not be rated");
+        assertEquals(2.0, phrases.getScore(phrases.find(1L)), "A phrase must be rated once per review");
+    }
+
+    @Test
+    void testInvalidPhrases(@TempDir Path directory) throws IOException {
+        assertThrows(IllegalArgumentException.class,
+                () -> AnalyzerOptions.defaults().withPhrases(1, 0, MAX_PHRASES), "Some phrases must be enabled");
+        assertThrows(IllegalArgumentException.class,
+                () -> AnalyzerOptions.defaults().withPhrases(PhraseWindow.MAX_N_GRAM + 1, 0, MAX_PHRASES),
+                "An n-gram must not be too long");
+        assertThrows(IllegalArgumentException.class,
+                () -> AnalyzerOptions.defaults().withPhrases(2, -1, MAX_PHRASES), "A scope must not be negative");
+        assertThrows(IllegalArgumentException.class,
+                () -> AnalyzerOptions.defaults().withPhrases(2, 0, 0), "The budget must be positive");
+
+        Path modelFile = directory.resolve("model.bin");
+        newAnalyzer(AnalyzerOptions.defaults()).saveModel(modelFile);
+        assertThrows(IllegalArgumentException.class,
+                () -> MovieReviewSentimentAnalyzer.loadModel(modelFile, new StringWriter(),
+                        AnalyzerOptions.defaults().withPhrases(2, 0, MAX_PHRASES)),
+                "A saved model has no phrases to score by");
+    }
+
+}
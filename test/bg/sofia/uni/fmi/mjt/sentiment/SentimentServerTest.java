@@ -0,0 +1,198 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SentimentServerTest {
+
+    private static final HttpClient CLIENT = HttpClient.newHttpClient();
+
+    private static MovieReviewSentimentAnalyzer newAnalyzer() {
+        return new MovieReviewSentimentAnalyzer(new StringReader(StopWordSampleData.getInstance()),
+                new StringReader(MovieReviewsSampleData.getInstance()), new StringWriter());
+    }
+
+    private static HttpResponse<String> send(SentimentServer server, String method, String path, String body)
+            throws IOException, InterruptedException {
+        URI uri = URI.create("http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + server.getPort()
+                + path);
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return CLIENT.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void testServesScoresWordsTopWordsAndAppends() throws IOException, InterruptedException {
+        MovieReviewSentimentAnalyzer analyzer = newAnalyzer();
+        MovieReviewSentimentAnalyzer expected = newAnalyzer();
+
+        try (SentimentServer server = new SentimentServer(analyzer, 0)) {
+            server.start();
+
+            HttpResponse<String> scores = send(server, "POST", "/score", "Pretty much worth it!\n\nxyzzyx\n");
+            assertEquals(200, scores.statusCode(), "Scoring reviews must succeed");
+            assertEquals(expected.getReviewSentiment("Pretty much worth it!") + "\t"
+                            + expected.getReviewSentimentAsName("Pretty much worth it!") + "\n"
+                            + "-1.0\tunknown\n-1.0\tunknown\n", scores.body(),
+                    "Every review must be answered with its score and sentiment name on its own line");
+
+            assertEquals(expected.getWordSentiment("worth") + "\t" + expected.getWordFrequency("worth") + "\n",
+                    send(server, "GET", "/words/worth", null).body(),
+                    "A word must be answered with its sentiment and frequency");
+            assertEquals(String.join("\n", expected.getMostFrequentWords(3)) + "\n",
+                    send(server, "GET", "/top/frequent?n=3", null).body(),
+                    "The top words must be answered one per line");
+
+            assertEquals("true\nfalse\n", send(server, "POST", "/reviews", "4 xyzzyx delight\n9 out of range\n").body(),
+                    "Every appended review must be answered with whether it was stored");
+            assertEquals("4.0\t1\n", send(server, "GET", "/words/xyzzyx", null).body(),
+                    "An appended review must be visible to later requests");
+
+            assertEquals(404, send(server, "GET", "/top/boring", null).statusCode(),
+                    "An unknown ranking must not be found");
+            assertEquals(405, send(server, "GET", "/score", null).statusCode(),
+                    "Scoring must be a POST");
+            assertEquals(400, send(server, "GET", "/top/positive?n=-1", null).statusCode(),
+                    "A negative number of words must be a bad request");
+        }
+    }
+
+    @Test
+    void testUnexpectedFailureIsAnInternalError() throws IOException, InterruptedException {
+        MovieReviewSentimentAnalyzer analyzer = new MovieReviewSentimentAnalyzer(
+                new StringReader(StopWordSampleData.getInstance()),
+                new StringReader(MovieReviewsSampleData.getInstance()), new StringWriter()) {
+            @Override
+            public boolean[] appendReviews(List<LabeledReview> reviews) {
+                throw new UnsupportedOperationException("No appends today");
+            }
+        };
+
+        try (SentimentServer server = new SentimentServer(analyzer, 0)) {
+            server.start();
+
+            HttpResponse<String> response = send(server, "POST", "/reviews", "4 xyzzyx delight\n");
+            assertEquals(500, response.statusCode(), "An unexpected failure must be an internal error");
+            assertTrue(response.body().contains("No appends today"),
+                    "An internal error must be answered with its cause");
+        }
+    }
+
+    @Test
+    void testAppendToReadOnlyAnalyzerIsNotStored() throws IOException, InterruptedException {
+        try (SentimentServer server = new SentimentServer(newAnalyzer().freeze(), 0)) {
+            server.start();
+
+            HttpResponse<String> response = send(server, "POST", "/reviews", "4 xyzzyx delight\n");
+            assertEquals(200, response.statusCode(), "An append to a read-only analyzer must be answered");
+            assertEquals("false\n", response.body(), "A read-only analyzer must not store a review");
+        }
+    }
+
+    @Test
+    void testConcurrentRequestsAreScoredInBatches() throws IOException, InterruptedException {
+        MovieReviewSentimentAnalyzer analyzer = newAnalyzer();
+        String[] reviews = MovieReviewsSampleData.getInstance().lines().limit(64).toArray(String[]::new);
+
+        try (SentimentServer server = new SentimentServer(analyzer, 0)) {
+            server.start();
+
+            List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+            for (String review : reviews) {
+                URI uri = URI.create("http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":"
+                        + server.getPort() + "/score");
+                responses.add(CLIENT.sendAsync(HttpRequest.newBuilder(uri)
+                        .POST(HttpRequest.BodyPublishers.ofString(review))
+                        .timeout(Duration.ofSeconds(10))
+                        .build(), HttpResponse.BodyHandlers.ofString()));
+            }
+
+            for (int i = 0; i < reviews.length; i++) {
+                double score = analyzer.getReviewSentiment(reviews[i]);
+                assertEquals(score + "\t" + RatingType.fromScore(score).getRatingText() + "\n",
+                        responses.get(i).join().body(), "Every request must be answered with its own score");
+            }
+            assertEquals(reviews.length, server.getScoredReviewsCount(), "Every review must be scored once");
+        }
+    }
+
+    @Test
+    void testBatcherCoalescesWaitingRequests() {
+        MovieReviewSentimentAnalyzer analyzer = newAnalyzer();
+        ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        String[][] requests = {{"Pretty much worth it!"}, {"A dull film", "xyzzyx"}, {"worth it"}, {"dull"}};
+
+        try (ScoringBatcher batcher = new ScoringBatcher(analyzer, lock.readLock(), 1, 1024)) {
+            List<CompletableFuture<double[]>> scores = new ArrayList<>();
+
+            // the scoring thread cannot score while appends are in progress, so the requests wait together
+            lock.writeLock().lock();
+            try {
+                for (String[] request : requests) {
+                    scores.add(batcher.submit(request));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            for (int i = 0; i < requests.length; i++) {
+                assertArrayEquals(analyzer.scoreAll(requests[i]), scores.get(i).join(),
+                        "Every request must get the scores of its own reviews");
+            }
+            assertTrue(batcher.getBatchesCount() <= 2,
+                    "Requests waiting at the same time must be scored together, but took "
+                            + batcher.getBatchesCount() + " batches");
+            assertEquals(5, batcher.getReviewsCount(), "Every review must be scored once");
+        }
+    }
+
+    @Test
+    void testBatcherSurvivesErrors() {
+        AtomicBoolean failing = new AtomicBoolean(true);
+        MovieReviewSentimentAnalyzer analyzer = new MovieReviewSentimentAnalyzer(
+                new StringReader(StopWordSampleData.getInstance()),
+                new StringReader(MovieReviewsSampleData.getInstance()), new StringWriter()) {
+            @Override
+            public double[] scoreAll(String[] reviews) {
+                if (failing.getAndSet(false)) {
+                    throw new StackOverflowError();
+                }
+                return super.scoreAll(reviews);
+            }
+        };
+
+        try (ScoringBatcher batcher = new ScoringBatcher(analyzer, new ReentrantReadWriteLock().readLock(), 1, 1)) {
+            CompletionException failure = assertThrows(CompletionException.class,
+                    () -> batcher.submit(new String[] {"worth it"}).join(),
+                    "An error while scoring must fail the requests of the batch");
+            assertTrue(failure.getCause() instanceof StackOverflowError, "The error must be the cause");
+
+            assertArrayEquals(analyzer.scoreAll(new String[] {"worth it"}),
+                    batcher.submit(new String[] {"worth it"}).join(),
+                    "The scoring thread must keep scoring after an error");
+        }
+    }
+
+}
@@ -0,0 +1,105 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SentimentTimelineTest {
+
+    private static final Instant NOW = Instant.parse("2024-03-10T12:00:00Z");
+
+    private static MovieReviewSentimentAnalyzer newAnalyzer(AnalyzerOptions options) {
+        return new MovieReviewSentimentAnalyzer(new StringReader(StopWordSampleData.getInstance()),
+                new StringReader(MovieReviewsSampleData.getInstance()), new StringWriter(), options);
+    }
+
+    private static MovieReviewSentimentAnalyzer newAnalyzer(int retentionDays, Duration halfLife) {
+        return newAnalyzer(AnalyzerOptions.defaults()
+                .withTimeWindows(retentionDays, halfLife)
+                .withClock(Clock.fixed(NOW, ZoneOffset.UTC)));
+    }
+
+    private static Instant daysAgo(int days) {
+        return NOW.minus(Duration.ofDays(days));
+    }
+
+    @Test
+    void testScoresOverTheLastDays() {
+        MovieReviewSentimentAnalyzer analyzer = newAnalyzer(30, Duration.ofDays(7));
+
+        analyzer.appendReview("xyzzyx worth", 4, daysAgo(10));
+        analyzer.appendReview("xyzzyx xyzzyx", 0, daysAgo(1));
+        analyzer.appendReview("plugh xyzzyx", 2, NOW);
+
+        assertEquals(2.0, analyzer.getWordSentiment("xyzzyx", 1), "Only today's reviews must count for one day");
+        assertEquals(1.0, analyzer.getWordSentiment("xyzzyx", 2),
+                "A word must be rated once per review over the last two days");
+        assertEquals(2.0, analyzer.getWordSentiment("XYZZYX", 30), "All reviews in the window must count");
+        assertEquals(4.0, analyzer.getWordSentiment("worth", 30),
+                "The reviews of the corpus have no time, so they must not count in a window");
+        assertEquals(-1.0, analyzer.getWordSentiment("film", 30), "A word not appended in the window is unknown");
+
+        assertEquals((2.0 + 2.0) / 2, analyzer.getReviewSentiment("Plugh, xyzzyx!", 1),
+                "A review must be scored by the scores of its words in the window");
+        assertEquals(analyzer.getWordSentiment("xyzzyx", 2), analyzer.getReviewSentiment("xyzzyx film", 2),
+                "The words not rated in the window must not count in a review");
+        assertEquals(-1.0, analyzer.getReviewSentiment("film", 3), "A review without rated words is unknown");
+    }
+
+    @Test
+    void testExpiredDaysAreDropped() {
+        MovieReviewSentimentAnalyzer analyzer = newAnalyzer(7, Duration.ofDays(7));
+
+        analyzer.appendReview("xyzzyx", 0, daysAgo(20));
+        analyzer.appendReview("xyzzyx", 4, NOW);
+        // older than the retention period when it is appended
+        analyzer.appendReview("xyzzyx", 0, daysAgo(8));
+        // the same bucket as 20 days ago
+        analyzer.appendReview("plugh", 1, daysAgo(6));
+
+        assertEquals(4.0, analyzer.getWordSentiment("xyzzyx", 365),
+                "Only the days in the retention period must be counted");
+        assertEquals(1.0, analyzer.getWordSentiment("plugh", 7), "A reused bucket must hold its new day only");
+    }
+
+    @Test
+    void testDecayedScores() {
+        MovieReviewSentimentAnalyzer inOrder = newAnalyzer(7, Duration.ofDays(1));
+        inOrder.appendReview("xyzzyx", 4, daysAgo(1));
+        inOrder.appendReview("xyzzyx", 0, NOW);
+
+        MovieReviewSentimentAnalyzer outOfOrder = newAnalyzer(7, Duration.ofDays(1));
+        outOfOrder.appendReview("xyzzyx", 0, NOW);
+        outOfOrder.appendReview("xyzzyx", 4, daysAgo(1));
+
+        assertEquals(4 * 0.5 / (0.5 + 1), inOrder.getDecayedWordSentiment("xyzzyx"), 1e-12,
+                "A rating a half-life old must weigh half as much");
+        assertEquals(inOrder.getDecayedWordSentiment("xyzzyx"), outOfOrder.getDecayedWordSentiment("xyzzyx"), 1e-12,
+                "The decayed score must not depend on the order of the appends");
+        assertEquals(2.0, inOrder.getWordSentiment("xyzzyx"), "The all-time score must weigh all ratings equally");
+        assertEquals(inOrder.getDecayedWordSentiment("xyzzyx"), inOrder.getDecayedReviewSentiment("xyzzyx film"),
+                "The words never appended must not count in a decayed review score");
+    }
+
+    @Test
+    void testTimeWindowsMustBeEnabled() {
+        MovieReviewSentimentAnalyzer analyzer = newAnalyzer(AnalyzerOptions.defaults());
+
+        assertThrows(IllegalStateException.class, () -> analyzer.appendReview("xyzzyx", 4, NOW),
+                "A timed append must need time windows");
+        assertThrows(IllegalStateException.class, () -> analyzer.getWordSentiment("film", 7),
+                "A windowed query must need time windows");
+        assertThrows(IllegalArgumentException.class,
+                () -> newAnalyzer(7, Duration.ofDays(1)).getReviewSentiment("film", 0),
+                "A window must be at least a day");
+    }
+
+}
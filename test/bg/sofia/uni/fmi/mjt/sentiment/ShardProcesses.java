@@ -0,0 +1,99 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts {@link ShardServer}s as separate local processes and kills them when closed.
+ */
+final class ShardProcesses implements AutoCloseable {
+
+    private static final long STOP_TIMEOUT_SECONDS = 10;
+
+    private final List<Process> processes = new ArrayList<>();
+    private final List<InetSocketAddress> addresses = new ArrayList<>();
+
+    ShardProcesses(int count) throws IOException {
+
+        try {
+            for (int i = 0; i < count; i++) {
+                start();
+            }
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+
+    }
+
+    List<InetSocketAddress> getAddresses() {
+        return List.copyOf(addresses);
+    }
+
+    /**
+     * Kills a server and waits for it to exit, as in a crash.
+     */
+    void kill(int index) throws InterruptedException {
+        processes.get(index).destroyForcibly().waitFor();
+    }
+
+    private void start() throws IOException {
+
+        String java = ProcessHandle.current().info().command().orElse("java");
+        Process process = new ProcessBuilder(java, "-cp", classPath(), ShardServer.class.getName(), "0")
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        processes.add(process);
+
+        // the server prints the port it listens on once it accepts connections
+        BufferedReader output = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        String port = output.readLine();
+        if (port == null) {
+            throw new IOException("A shard server exited before listening");
+        }
+
+        addresses.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(port.strip())));
+
+    }
+
+    private static String classPath() {
+
+        try {
+            return Path.of(ShardServer.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException("The classes of the shard server cannot be located", e);
+        }
+
+    }
+
+    @Override
+    public void close() {
+
+        for (Process process : processes) {
+            process.destroy();
+        }
+
+        for (Process process : processes) {
+            try {
+                if (!process.waitFor(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+
+    }
+
+}
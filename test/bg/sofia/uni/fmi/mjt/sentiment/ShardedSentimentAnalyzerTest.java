@@ -0,0 +1,192 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ShardedSentimentAnalyzerTest {
+
+    private static final List<String> REVIEWS = List.of("Pretty much worth it!", "A dull, boring movie",
+            "the film xyzzyx", "charming and funny, a charming film");
+
+    private static MovieReviewSentimentAnalyzer newAnalyzer() {
+        return new MovieReviewSentimentAnalyzer(new StringReader(StopWordSampleData.getInstance()),
+                new StringReader(MovieReviewsSampleData.getInstance()), new StringWriter());
+    }
+
+    private static void assertSameAnswers(SentimentAnalyzer expected, SentimentAnalyzer sharded) {
+        int dictionarySize = expected.getSentimentDictionarySize();
+        assertEquals(dictionarySize, sharded.getSentimentDictionarySize(),
+                "The shards must hold the whole dictionary");
+
+        List<String> words = expected.getMostFrequentWords(dictionarySize);
+        assertEquals(words, sharded.getMostFrequentWords(dictionarySize),
+                "The merged top words must be ranked as by a single model, ties included");
+        assertEquals(expected.getMostFrequentWords(7), sharded.getMostFrequentWords(7),
+                "The merged top n words must be those of a single model");
+        assertEquals(expected.getMostPositiveWords(dictionarySize), sharded.getMostPositiveWords(dictionarySize),
+                "The merged most positive words must be ranked as by a single model, ties included");
+        assertEquals(expected.getMostNegativeWords(7), sharded.getMostNegativeWords(7),
+                "The merged most negative words must be those of a single model");
+
+        for (String word : words) {
+            assertEquals(expected.getWordFrequency(word), sharded.getWordFrequency(word),
+                    "A shard must count the occurrences of " + word);
+            assertEquals(expected.getWordSentiment(word), sharded.getWordSentiment(word),
+                    "A shard must score " + word);
+        }
+
+        for (String review : REVIEWS) {
+            assertEquals(expected.getReviewSentiment(review), sharded.getReviewSentiment(review), 1e-12,
+                    "The scores of the shards must be merged into the score of the review");
+        }
+    }
+
+    private static void assertSameAnswersAfterAppends(BatchSentimentAnalyzer expected,
+                                                      BatchSentimentAnalyzer sharded) {
+        assertSameAnswers(expected, sharded);
+
+        assertTrue(sharded.appendReview("a zorkmid film, worth every minute", 4), "A valid review must be stored");
+        expected.appendReview("a zorkmid film, worth every minute", 4);
+        List<LabeledReview> batch = List.of(new LabeledReview("dull zorkmid", 0), new LabeledReview(" ", 2));
+        assertArrayEquals(new boolean[] {true, false}, sharded.appendReviews(batch),
+                "Only the valid reviews of a batch must be stored");
+        expected.appendReviews(batch);
+
+        assertSameAnswers(expected, sharded);
+    }
+
+    @Test
+    void testInProcessShardsMatchSingleModel() throws IOException {
+        try (ShardedSentimentAnalyzer sharded = new ShardedSentimentAnalyzer(
+                new StringReader(StopWordSampleData.getInstance()),
+                new StringReader(MovieReviewsSampleData.getInstance()), new StringWriter(), 3)) {
+
+            assertTrue(sharded.isStopWord("The"), "The stopwords must be kept by the sharded analyzer");
+            assertFalse(sharded.isStopWord("film"), "A word must not be a stopword");
+            assertSameAnswersAfterAppends(newAnalyzer(), sharded);
+        }
+    }
+
+    @Test
+    void testInProcessShardsMatchSingleModelAcrossLoadBatches() throws IOException {
+        CorpusGenerator generator = CorpusGenerator.defaults().withReviewsCount(10_000).withVocabulary(2_000, 1.0);
+        StringWriter stopwords = new StringWriter();
+        StringWriter reviews = new StringWriter();
+        generator.writeStopwords(stopwords);
+        generator.writeReviews(reviews);
+
+        try (ShardedSentimentAnalyzer sharded = new ShardedSentimentAnalyzer(new StringReader(stopwords.toString()),
+                new StringReader(reviews.toString()), new StringWriter(), 4)) {
+
+            assertSameAnswers(new MovieReviewSentimentAnalyzer(new StringReader(stopwords.toString()),
+                    new StringReader(reviews.toString()), new StringWriter()), sharded);
+        }
+    }
+
+    @Test
+    void testShardProcessesMatchSingleModel() throws IOException {
+        try (ShardProcesses processes = new ShardProcesses(2);
+             ShardedSentimentAnalyzer sharded = new ShardedSentimentAnalyzer(
+                     new StringReader(StopWordSampleData.getInstance()),
+                     new StringReader(MovieReviewsSampleData.getInstance()), new StringWriter(),
+                     processes.getAddresses())) {
+
+            assertSameAnswersAfterAppends(newAnalyzer(), sharded);
+        }
+    }
+
+    @Test
+    void testFailedShardBreaksTheAnalyzer() throws IOException, InterruptedException {
+        StringWriter dataSet = new StringWriter();
+
+        try (ShardProcesses processes = new ShardProcesses(2);
+             ShardedSentimentAnalyzer sharded = new ShardedSentimentAnalyzer(
+                     new StringReader(StopWordSampleData.getInstance()),
+                     new StringReader(MovieReviewsSampleData.getInstance()), new BufferedWriter(dataSet),
+                     processes.getAddresses())) {
+
+            processes.kill(1);
+
+            assertThrows(IllegalStateException.class,
+                    () -> sharded.appendReviews(List.of(new LabeledReview("charming film, dull story", 3),
+                            new LabeledReview("worth every minute", 4))),
+                    "An append that a shard fails to apply must not be reported as not stored");
+            assertTrue(dataSet.toString().contains("worth every minute"),
+                    "The reviews must be stored and flushed before they are sent to the shards");
+            assertThrows(IllegalStateException.class, () -> sharded.getWordSentiment("film"),
+                    "A query must not be answered by shards that disagree");
+            assertThrows(IllegalStateException.class, () -> sharded.appendReview("a charming film", 4),
+                    "A review must not be applied to shards that disagree");
+        }
+    }
+
+    @Test
+    void testShardServerAnswersFailedRequests() throws IOException, InterruptedException {
+        try (ShardServer server = new ShardServer(0)) {
+            Thread serving = new Thread(server::serve);
+            serving.start();
+            InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort());
+
+            try (Socket socket = new Socket(address.getAddress(), address.getPort())) {
+                DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                DataInputStream in = new DataInputStream(socket.getInputStream());
+                // a negative number of words fails while the request is read
+                out.writeByte(ShardProtocol.GET_SCORES);
+                out.writeInt(-1);
+                out.flush();
+
+                assertEquals(ShardProtocol.ERROR, in.readByte(), "A failed request must be answered with an error");
+                assertTrue(in.readUTF().contains("NegativeArraySizeException"),
+                        "An error must be answered with its cause");
+                assertEquals(-1, in.read(), "A failed request must close its connection");
+            }
+
+            RemoteModelShard shard = new RemoteModelShard(address);
+            assertEquals(0, shard.size(), "A failed request must not stop the server");
+            shard.close();
+
+            server.close();
+            serving.join();
+        }
+    }
+
+    @Test
+    void testUnreachableShard() throws IOException {
+        InetSocketAddress closedAddress;
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            closedAddress = new InetSocketAddress(InetAddress.getLoopbackAddress(), socket.getLocalPort());
+        }
+
+        assertThrows(IllegalStateException.class,
+                () -> new ShardedSentimentAnalyzer(new StringReader(StopWordSampleData.getInstance()),
+                        new StringReader(MovieReviewsSampleData.getInstance()), new StringWriter(),
+                        List.of(closedAddress)),
+                "An analyzer must not be created without all its shards");
+    }
+
+    @Test
+    void testInvalidShardsCount() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new ShardedSentimentAnalyzer(new StringReader(StopWordSampleData.getInstance()),
+                        new StringReader(MovieReviewsSampleData.getInstance()), new StringWriter(), 0),
+                "An analyzer must have at least one shard");
+    }
+
+}
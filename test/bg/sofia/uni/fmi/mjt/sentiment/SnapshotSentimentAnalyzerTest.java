@@ -0,0 +1,134 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SnapshotSentimentAnalyzerTest {
+
+    private static final int READERS = 4;
+    private static final int APPENDS = 2_000;
+
+    private static SnapshotSentimentAnalyzer newAnalyzer(AnalyzerOptions options) {
+        return new SnapshotSentimentAnalyzer(
+                new StringReader(StopWordSampleData.getInstance()),
+                new StringReader(MovieReviewsSampleData.getInstance()), new StringWriter(), options);
+    }
+
+    @Test
+    void testAppendedReviewsArePublishedInBatches() {
+        try (SnapshotSentimentAnalyzer analyzer = newAnalyzer(AnalyzerOptions.defaults().withPublishBatchSize(3))) {
+            int oldSize = analyzer.getSentimentDictionarySize();
+
+            analyzer.appendReview("picturesque", 4);
+            analyzer.appendReview("picturesque", 2);
+            assertEquals(oldSize, analyzer.getSentimentDictionarySize(),
+                    "Appended reviews must not be visible before their batch is published");
+
+            analyzer.appendReview("picturesque", 3);
+            assertEquals(oldSize + 1, analyzer.getSentimentDictionarySize(),
+                    "Appended reviews must be visible once their batch is published");
+            assertEquals(3.0, analyzer.getWordSentiment("picturesque"),
+                    "A published batch must contain all of its reviews");
+        }
+    }
+
+    @Test
+    void testSnapshotIsNotChangedByLaterAppends() {
+        try (SnapshotSentimentAnalyzer analyzer = newAnalyzer(AnalyzerOptions.defaults())) {
+            SentimentSnapshot snapshot = analyzer.snapshot();
+            int oldFrequency = snapshot.getWordFrequency("movie");
+
+            analyzer.appendReview("This movie", 4);
+
+            assertEquals(oldFrequency, snapshot.getWordFrequency("movie"),
+                    "A snapshot must not change after it is taken");
+            assertEquals(oldFrequency + 1, analyzer.getWordFrequency("movie"),
+                    "Every appended review must be published with the default options");
+            assertFalse(snapshot.appendReview("This movie", 4), "A snapshot must not store a review");
+            assertArrayEquals(new boolean[] {false},
+                    snapshot.appendReviews(List.of(new LabeledReview("This movie", 4))),
+                    "A snapshot must not store a batch of reviews");
+        }
+    }
+
+    @Test
+    void testPublishAndCloseFlushPendingReviews() {
+        SnapshotSentimentAnalyzer analyzer = newAnalyzer(AnalyzerOptions.defaults().withPublishBatchSize(100));
+
+        analyzer.appendReview("word1 word2", 4);
+        assertEquals(0, analyzer.getWordFrequency("word1"), "A pending review must not be visible");
+
+        analyzer.publish();
+        assertEquals(1, analyzer.getWordFrequency("word1"), "A published review must be visible");
+
+        analyzer.appendReview("word1", 0);
+        analyzer.close();
+        assertEquals(2.0, analyzer.getWordSentiment("word1"), "Closing must publish the pending reviews");
+    }
+
+    @Test
+    void testReadersNeverSeeHalfAppliedReviews() throws Exception {
+        try (SnapshotSentimentAnalyzer analyzer = newAnalyzer(AnalyzerOptions.defaults().withPublishBatchSize(7))) {
+            ExecutorService executor = Executors.newFixedThreadPool(READERS);
+            AtomicBoolean writing = new AtomicBoolean(true);
+            List<Future<?>> readers = new ArrayList<>();
+
+            for (int reader = 0; reader < READERS; reader++) {
+                readers.add(executor.submit(() -> {
+                    while (writing.get()) {
+                        SentimentSnapshot snapshot = analyzer.snapshot();
+                        assertEquals(snapshot.getWordFrequency("snapfirst"), snapshot.getWordFrequency("snapsecond"),
+                                "Both words of a review must be published together");
+                    }
+                    return null;
+                }));
+            }
+
+            for (int i = 0; i < APPENDS; i++) {
+                analyzer.appendReview("snapfirst and snapsecond", i % 5);
+            }
+            writing.set(false);
+            for (Future<?> reader : readers) {
+                reader.get();
+            }
+            executor.shutdown();
+
+            analyzer.publish();
+            assertEquals(APPENDS, analyzer.getWordFrequency("snapfirst"), "All appended reviews must be published");
+        }
+    }
+
+    @Test
+    void testUnsupportedOptionsAreRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> newAnalyzer(AnalyzerOptions.defaults().withPhrases(2, 0, 1_000)),
+                "A snapshot analyzer must reject phrases");
+        assertThrows(IllegalArgumentException.class,
+                () -> newAnalyzer(AnalyzerOptions.defaults().withRankingIndex(true)),
+                "A snapshot analyzer must reject a ranking index");
+        assertThrows(IllegalArgumentException.class,
+                () -> newAnalyzer(AnalyzerOptions.defaults().withApproximateFrequencies(1e-3, 10)),
+                "A snapshot analyzer must reject approximate frequencies");
+        assertThrows(IllegalArgumentException.class,
+                () -> newAnalyzer(AnalyzerOptions.defaults().withTimeWindows(7, Duration.ofDays(1))),
+                "A snapshot analyzer must reject time windows");
+        assertThrows(IllegalArgumentException.class,
+                () -> newAnalyzer(AnalyzerOptions.defaults().withMetrics(new MetricsRegistry())),
+                "A snapshot analyzer must reject metrics");
+    }
+
+}
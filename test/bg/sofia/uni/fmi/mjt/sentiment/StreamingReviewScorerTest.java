@@ -0,0 +1,98 @@
+package bg.sofia.uni.fmi.mjt.sentiment;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class StreamingReviewScorerTest {
+
+    private static final int REVIEWS = 5_000;
+
+    private static final MovieReviewSentimentAnalyzer ANALYZER = new MovieReviewSentimentAnalyzer(
+            new StringReader(StopWordSampleData.getInstance()),
+            new StringReader(MovieReviewsSampleData.getInstance()), new StringWriter());
+
+    private static List<String> reviews() {
+        List<String> lines = MovieReviewsSampleData.getInstance().lines().map(line -> line.substring(1)).toList();
+        return IntStream.range(0, REVIEWS).mapToObj(i -> lines.get(i % lines.size()) + " extra" + i).toList();
+    }
+
+    private static List<ScoredReview> expectedScores(List<String> reviews) {
+        List<ScoredReview> scores = new ArrayList<>();
+        for (int i = 0; i < reviews.size(); i++) {
+            double score = ANALYZER.getReviewSentiment(reviews.get(i));
+            scores.add(new ScoredReview(i, score, RatingType.fromScore(score)));
+        }
+        return scores;
+    }
+
+    @Test
+    void testParallelScoresInInputOrder() {
+        List<String> reviews = reviews();
+        StreamingReviewScorer scorer = new StreamingReviewScorer(ANALYZER,
+                AnalyzerOptions.defaults().withParallelism(4).withScoreChunkSize(64));
+
+        List<ScoredReview> scores = new ArrayList<>();
+        scorer.score(reviews.stream(), ScoringOrder.INPUT, scores::add);
+
+        assertEquals(expectedScores(reviews), scores, "Parallel scores must match sequential ones in input order");
+    }
+
+    @Test
+    void testCompletionOrderEmitsEveryReviewOnce() {
+        List<String> reviews = reviews();
+        StreamingReviewScorer scorer = new StreamingReviewScorer(ANALYZER,
+                AnalyzerOptions.defaults().withParallelism(4).withScoreChunkSize(64));
+
+        List<ScoredReview> scores = new ArrayList<>();
+        scorer.score(reviews.stream(), ScoringOrder.COMPLETION, scores::add);
+        scores.sort(Comparator.comparingLong(ScoredReview::id));
+
+        assertEquals(expectedScores(reviews), scores, "Every review must be scored exactly once in any order");
+    }
+
+    @Test
+    void testScoreFileAndReader(@TempDir Path directory) throws IOException {
+        List<String> reviews = List.of("Pretty much worth it!", "", "A funny and touching movie");
+        Path file = directory.resolve("reviews.txt");
+        Files.write(file, reviews, StandardCharsets.UTF_8);
+        StreamingReviewScorer scorer = new StreamingReviewScorer(ANALYZER, AnalyzerOptions.defaults());
+
+        List<ScoredReview> fromFile = new ArrayList<>();
+        scorer.score(file, ScoringOrder.INPUT, fromFile::add);
+        List<ScoredReview> fromReader = new ArrayList<>();
+        scorer.score(new StringReader(String.join(System.lineSeparator(), reviews)), ScoringOrder.INPUT,
+                fromReader::add);
+
+        assertEquals(fromFile, fromReader, "A file and a reader with the same reviews must score the same");
+        assertEquals(3, fromFile.size(), "Every line must be scored");
+        assertEquals(new ScoredReview(1, -1.0, RatingType.UNKNOWN), fromFile.get(1),
+                "A blank line must be scored as unknown");
+        assertEquals(ANALYZER.getReviewSentimentAsName(reviews.get(0)), fromFile.get(0).rating().getRatingText(),
+                "The rating must be the one the score rounds to");
+    }
+
+    @Test
+    void testScoreStreamWithNull() {
+        StreamingReviewScorer scorer = new StreamingReviewScorer(ANALYZER, AnalyzerOptions.defaults());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> scorer.score(Stream.of("A review", null), ScoringOrder.INPUT, score -> { }),
+                "A stream with null reviews must be rejected");
+    }
+
+}